@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.benchmarks;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.eventloop.EventLoopSocketAcceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import quickfix.Acceptor;
+import quickfix.ApplicationAdapter;
+import quickfix.CompositeLogFactory;
+import quickfix.ConfigError;
+import quickfix.DefaultMessageFactory;
+import quickfix.FieldNotFound;
+import quickfix.LogFactory;
+import quickfix.MemoryStoreFactory;
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.SocketAcceptor;
+import quickfix.ThreadedSocketAcceptor;
+import quickfix.ThreadedSocketInitiator;
+import quickfix.field.MsgType;
+import quickfix.field.TestReqID;
+import quickfix.fix44.TestRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static quickfix.FixVersions.BEGINSTRING_FIX44;
+
+/**
+ * Compares the {@link ThreadedSocketAcceptor}, the {@link SocketAcceptor} and the {@link EventLoopSocketAcceptor}
+ * with its default of one event loop per core.
+ * <p>
+ * The sessions are spread over six ports, like the six {@code SocketAcceptPort}s of the example configurations, and
+ * each operation sends a TestRequest on every session, from a {@link ThreadedSocketInitiator}, and waits for all the
+ * Heartbeats: the score is in rounds of {@code sessions} messages. The message processing threads of the acceptor and
+ * the live threads of the JVM, the initiator's being the same for every acceptor, are printed after the logons.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AcceptorBenchmark {
+
+	private static final int BASE_PORT = 19890;
+
+	private static final int PORTS = 6;
+
+	@Param({"threaded", "socket", "event-loop"})
+	private String acceptorType;
+
+	@Param({"6", "60"})
+	private int sessions;
+
+	private final Echo echo = new Echo();
+
+	private final List<Session> initiatorSessions = new ArrayList<>();
+
+	private Acceptor acceptor;
+
+	private ThreadedSocketInitiator initiator;
+
+	private long round;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SessionSettings acceptorSettings = new SessionSettings();
+		SessionSettings initiatorSettings = new SessionSettings();
+		for (int i = 0; i < sessions; i++) {
+			SessionID acceptorID = new SessionID(BEGINSTRING_FIX44, "EXEC", "BANZAI" + i);
+			settings(acceptorSettings, acceptorID, "acceptor");
+			acceptorSettings.setLong(acceptorID, "SocketAcceptPort", BASE_PORT + i % PORTS);
+			SessionID initiatorID = new SessionID(BEGINSTRING_FIX44, "BANZAI" + i, "EXEC");
+			settings(initiatorSettings, initiatorID, "initiator");
+			initiatorSettings.setString(initiatorID, "SocketConnectHost", "localhost");
+			initiatorSettings.setLong(initiatorID, "SocketConnectPort", BASE_PORT + i % PORTS);
+		}
+
+		LogFactory logFactory = new CompositeLogFactory(new LogFactory[0]);
+		acceptor = acceptor(acceptorSettings, logFactory);
+		acceptor.start();
+		initiator = new ThreadedSocketInitiator(echo, new MemoryStoreFactory(), initiatorSettings, logFactory,
+				new DefaultMessageFactory());
+		initiator.start();
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (!allLoggedOn(initiator.getSessions())) {
+			if (System.nanoTime() > deadline) {
+				throw new IllegalStateException("Not logged on with the " + acceptorType + " acceptor");
+			}
+			Thread.sleep(10);
+		}
+		for (SessionID sessionID : initiator.getSessions()) {
+			initiatorSessions.add(Session.lookupSession(sessionID));
+		}
+		// the dispatcher threads of the threaded acceptor are started by the first message of each session
+		roundTrip();
+		System.out.printf("%n%s acceptor, %d sessions: %d message processing threads, %d live threads%n",
+				acceptorType, sessions, messageProcessingThreads(), Thread.activeCount());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		initiator.stop(true);
+		acceptor.stop(true);
+		initiatorSessions.clear();
+	}
+
+	@Benchmark
+	public long roundTrip() {
+		int expected = echo.heartbeats.get() + initiatorSessions.size();
+		String id = Long.toString(++round);
+		for (Session session : initiatorSessions) {
+			session.send(new TestRequest(new TestReqID(id)));
+		}
+		while (echo.heartbeats.get() < expected) {
+			// gives way to the acceptor threads, which may be more than the cores
+			Thread.yield();
+		}
+		return round;
+	}
+
+	private Acceptor acceptor(SessionSettings settings, LogFactory logFactory) throws ConfigError {
+		switch (acceptorType) {
+			case "threaded":
+				return new ThreadedSocketAcceptor(new ApplicationAdapter(), new MemoryStoreFactory(), settings,
+						logFactory, new DefaultMessageFactory());
+			case "socket":
+				return new SocketAcceptor(new ApplicationAdapter(), new MemoryStoreFactory(), settings, logFactory,
+						new DefaultMessageFactory());
+			default:
+				return new EventLoopSocketAcceptor(new ApplicationAdapter(), new MemoryStoreFactory(), settings,
+						logFactory, new DefaultMessageFactory(), 0, 10000);
+		}
+	}
+
+	private static boolean allLoggedOn(List<SessionID> sessionIDs) {
+		for (SessionID sessionID : sessionIDs) {
+			Session session = Session.lookupSession(sessionID);
+			if (session == null || !session.isLoggedOn()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long messageProcessingThreads() {
+		return Thread.getAllStackTraces().keySet().stream()
+				.map(Thread::getName)
+				.filter(name -> name.startsWith("QF/J Session dispatcher: " + BEGINSTRING_FIX44 + ":EXEC->")
+						|| name.equals("QFJ Message Processor")
+						|| name.startsWith("QFJ Event Loop"))
+				.count();
+	}
+
+	private static void settings(SessionSettings settings, SessionID sessionID, String connectionType) {
+		settings.setString(sessionID, "ConnectionType", connectionType);
+		settings.setString(sessionID, "StartTime", "00:00:00");
+		settings.setString(sessionID, "EndTime", "00:00:00");
+		settings.setLong(sessionID, "HeartBtInt", 30);
+		settings.setLong(sessionID, "ReconnectInterval", 1);
+	}
+
+	private static final class Echo extends ApplicationAdapter {
+
+		private final AtomicInteger heartbeats = new AtomicInteger();
+
+		@Override
+		public void fromAdmin(Message message, SessionID sessionID) {
+			try {
+				if (MsgType.HEARTBEAT.equals(message.getHeader().getString(MsgType.FIELD))
+						&& message.isSetField(TestReqID.FIELD)) {
+					heartbeats.incrementAndGet();
+				}
+			} catch (FieldNotFound e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
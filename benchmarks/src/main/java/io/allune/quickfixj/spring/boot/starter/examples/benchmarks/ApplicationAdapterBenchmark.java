@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import io.allune.quickfixj.spring.boot.starter.examples.sender.BloombergExecutionReports;
+import io.allune.quickfixj.spring.boot.starter.examples.server.ServerApplicationAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import quickfix.Message;
+import quickfix.SessionID;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import static quickfix.FixVersions.BEGINSTRING_FIX44;
+
+/**
+ * Measures the overhead of the {@link ServerApplicationAdapter} callbacks with logging on and off.
+ * <p>
+ * With logging on the adapter's logger writes through a pattern layout to a discarding stream, so the score includes
+ * the message serialization and formatting but no I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicationAdapterBenchmark {
+
+	@Param({"OFF", "INFO"})
+	private String logLevel;
+
+	private final SessionID sessionId = new SessionID(BEGINSTRING_FIX44, "EXEC", "BANZAI");
+
+	private final ServerApplicationAdapter application = new ServerApplicationAdapter();
+
+	private Logger logger;
+
+	private OutputStreamAppender<ILoggingEvent> appender;
+
+	private Message message;
+
+	@Setup
+	public void setUp() {
+		message = BloombergExecutionReports.spot();
+
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+		encoder.setContext(context);
+		encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5level [%thread] %logger{39} : %msg%n");
+		encoder.start();
+		appender = new OutputStreamAppender<>();
+		appender.setContext(context);
+		appender.setEncoder(encoder);
+		appender.setOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+		appender.start();
+
+		logger = context.getLogger(ServerApplicationAdapter.class);
+		logger.setAdditive(false);
+		logger.addAppender(appender);
+		logger.setLevel(Level.toLevel(logLevel));
+	}
+
+	@TearDown
+	public void tearDown() {
+		logger.detachAppender(appender);
+		appender.stop();
+	}
+
+	@Benchmark
+	public Message fromApp() {
+		application.fromApp(message, sessionId);
+		return message;
+	}
+
+	@Benchmark
+	public Message toApp() {
+		application.toApp(message, sessionId);
+		return message;
+	}
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.benchmarks;
+
+import io.allune.quickfixj.spring.boot.starter.examples.sender.BloombergExecutionReports;
+import io.allune.quickfixj.spring.boot.starter.examples.sender.customfields.NoCompDealerQuotes;
+import io.allune.quickfixj.spring.boot.starter.examples.sender.customfields.NoRefPrices;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import quickfix.DoubleField;
+import quickfix.IntField;
+import quickfix.Message.Header;
+import quickfix.StringField;
+import quickfix.field.AvgPx;
+import quickfix.field.BidPx;
+import quickfix.field.CalculatedCcyLastQty;
+import quickfix.field.ClOrdID;
+import quickfix.field.CumQty;
+import quickfix.field.Currency;
+import quickfix.field.ExecID;
+import quickfix.field.ExecType;
+import quickfix.field.LastForwardPoints;
+import quickfix.field.LastMkt;
+import quickfix.field.LastPx;
+import quickfix.field.LastQty;
+import quickfix.field.LastSpotRate;
+import quickfix.field.LeavesQty;
+import quickfix.field.MarketSegmentID;
+import quickfix.field.OnBehalfOfCompID;
+import quickfix.field.OrdStatus;
+import quickfix.field.OrdType;
+import quickfix.field.OrderID;
+import quickfix.field.OrderQty;
+import quickfix.field.PartyID;
+import quickfix.field.PartyIDSource;
+import quickfix.field.PartyRole;
+import quickfix.field.PartySubID;
+import quickfix.field.PartySubIDType;
+import quickfix.field.Product;
+import quickfix.field.QtyType;
+import quickfix.field.SecurityType;
+import quickfix.field.SettlCurrAmt;
+import quickfix.field.SettlCurrency;
+import quickfix.field.SettlDate;
+import quickfix.field.SettlType;
+import quickfix.field.Side;
+import quickfix.field.Spread;
+import quickfix.field.Symbol;
+import quickfix.field.TradeDate;
+import quickfix.field.TradePublishIndicator;
+import quickfix.field.TransactTime;
+import quickfix.fix44.ExecutionReport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building the Bloomberg spot {@link ExecutionReport} field by field, as the sender endpoint used to, against
+ * {@link BloombergExecutionReports}, which splices in precomputed blocks.
+ * <p>
+ * Run with {@code -prof gc} to compare the per-call allocation ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionReportBenchmark {
+
+	@Benchmark
+	public ExecutionReport fieldByField() {
+		return fieldByFieldSpot();
+	}
+
+	@Benchmark
+	public ExecutionReport precomputedBlocks() {
+		return BloombergExecutionReports.spot();
+	}
+
+	@Benchmark
+	public String fieldByFieldEncoded() {
+		return fieldByFieldSpot().toString();
+	}
+
+	@Benchmark
+	public String precomputedBlocksEncoded() {
+		return BloombergExecutionReports.spot().toString();
+	}
+
+	static ExecutionReport fieldByFieldSpot() {
+		ExecutionReport executionReport = new ExecutionReport(new OrderID("3-2-805950014T-0-0"), new ExecID("3-2-805950014T-0-0"), new ExecType(ExecType.TRADE),
+				new OrdStatus(OrdStatus.FILLED), new Side(Side.SELL), new LeavesQty(0), new CumQty(1), new AvgPx(755.93));
+		OnBehalfOfCompID onBehalfOfCompId = new OnBehalfOfCompID("FX");
+		Header header = executionReport.getHeader();
+		header.setField(144, onBehalfOfCompId);
+
+		executionReport.set(new TransactTime());
+		executionReport.set(new SettlType(SettlType.REGULAR_FX_SPOT_SETTLEMENT));
+		executionReport.set(new SettlDate("20201116"));
+		executionReport.set(new SettlCurrency("CLP"));
+		executionReport.set(new SettlCurrAmt(756));
+		executionReport.set(new OrderQty(1));
+		executionReport.set(new Spread(0));
+		executionReport.set(new OrdType(OrdType.MARKET));
+		executionReport.set(new Product(Product.CURRENCY));
+		executionReport.set(new ClOrdID("3-2-805950014T-0-0"));
+		executionReport.set(new Symbol("USD/CLP"));
+		executionReport.set(new Currency("USD"));
+		executionReport.setField(75, new TradeDate("20201111"));
+		executionReport.setField(167, new SecurityType(SecurityType.FX_SPOT));
+
+		executionReport.setField(30, new LastMkt("XOFF"));
+		executionReport.setField(31, new LastPx(757.9015));
+		executionReport.setField(32, new LastQty(1));
+		executionReport.setField(132, new BidPx(755.93));
+		executionReport.setField(194, new LastSpotRate(755.93));
+		executionReport.setField(195, new LastForwardPoints(0));
+		executionReport.setField(new StringField(797, "Y"));
+		executionReport.setField(854, new QtyType(QtyType.UNITS));
+		executionReport.setField(1056, new CalculatedCcyLastQty(756));
+		executionReport.setField(new StringField(1057, "Y"));
+		executionReport.setField(1300, new MarketSegmentID("XOFF"));
+		executionReport.setField(1390, new TradePublishIndicator(0));
+
+		NoCompDealerQuotes noCompDealerQuotesGroup = new NoCompDealerQuotes();
+
+		noCompDealerQuotesGroup.setField(new StringField(10010, "BGD1"));
+		noCompDealerQuotesGroup.setField(new DoubleField(10011, 755.93));
+		noCompDealerQuotesGroup.setField(new DoubleField(22485, 755.93));
+		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
+
+		executionReport.addGroup(noCompDealerQuotesGroup);
+
+		noCompDealerQuotesGroup.setField(new StringField(10010, "BGD2"));
+		noCompDealerQuotesGroup.setField(new IntField(10011, 0));
+		noCompDealerQuotesGroup.setField(new IntField(22485, 0));
+		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
+
+		executionReport.addGroup(noCompDealerQuotesGroup);
+
+		noCompDealerQuotesGroup.setField(new StringField(10010, "BGD5"));
+		noCompDealerQuotesGroup.setField(new IntField(10011, 0));
+		noCompDealerQuotesGroup.setField(new IntField(22485, 0));
+		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
+
+		executionReport.addGroup(noCompDealerQuotesGroup);
+
+		noCompDealerQuotesGroup.setField(new StringField(10010, "MidRate"));
+		noCompDealerQuotesGroup.setField(new DoubleField(10011, 756.15));
+		noCompDealerQuotesGroup.setField(new DoubleField(22485, 756.15));
+		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
+
+		executionReport.addGroup(noCompDealerQuotesGroup);
+
+		noCompDealerQuotesGroup.setField(new StringField(10010, "RefRate"));
+		noCompDealerQuotesGroup.setField(new DoubleField(10011, 755.93));
+		noCompDealerQuotesGroup.setField(new DoubleField(22485, 755.93));
+		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
+
+		executionReport.addGroup(noCompDealerQuotesGroup);
+
+		noCompDealerQuotesGroup.setField(new StringField(10010, "BGDM Mid"));
+		noCompDealerQuotesGroup.setField(new DoubleField(10011, 756.15));
+		noCompDealerQuotesGroup.setField(new DoubleField(22485, 756.15));
+		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
+
+		executionReport.addGroup(noCompDealerQuotesGroup);
+
+		noCompDealerQuotesGroup.setField(new StringField(10010, "BGDM Nts"));
+		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
+
+		executionReport.addGroup(noCompDealerQuotesGroup);
+		NoRefPrices noRefPricesGroup = new NoRefPrices();
+		noRefPricesGroup.setField(new DoubleField(22079, 755.93));
+		noRefPricesGroup.setField(new IntField(22080, 20));
+		noRefPricesGroup.setField(new IntField(22081, 12));
+
+		executionReport.addGroup(noRefPricesGroup);
+
+		ExecutionReport.NoPartyIDs noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
+		noPartyIDsGroup.setField(new PartyID("SCOTT"));
+		noPartyIDsGroup.setField(new PartyIDSource('D'));
+		noPartyIDsGroup.setField(new PartyRole(1));
+
+		ExecutionReport.NoPartyIDs.NoPartySubIDs noPartySubIDsGroup = new ExecutionReport.NoPartyIDs.NoPartySubIDs();
+		noPartySubIDsGroup.set(new PartySubID("SCOTIABANK SUD AMERICANO ( CLIENT DESK ), SANTIAGO, CHILE"));
+		noPartySubIDsGroup.set(new PartySubIDType(1));
+		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
+
+		noPartySubIDsGroup.set(new PartySubID("16601104"));
+		noPartySubIDsGroup.set(new PartySubIDType(2));
+		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
+
+		noPartySubIDsGroup.set(new PartySubID("CRISTOBAL PALACIOS"));
+		noPartySubIDsGroup.set(new PartySubIDType(9));
+		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
+
+		executionReport.addGroup(noPartyIDsGroup);
+
+		noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
+		noPartyIDsGroup.setField(new PartyID("REPO"));
+		noPartyIDsGroup.setField(new PartyIDSource('D'));
+		noPartyIDsGroup.setField(new PartyRole(13));
+
+		noPartySubIDsGroup = new ExecutionReport.NoPartyIDs.NoPartySubIDs();
+
+		noPartySubIDsGroup.set(new PartySubID("SCOTIA CORREDORA DE BOLSA CHILE"));
+		noPartySubIDsGroup.set(new PartySubIDType(1));
+		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
+
+		noPartySubIDsGroup.set(new PartySubID("27971561"));
+		noPartySubIDsGroup.set(new PartySubIDType(2));
+		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
+
+		noPartySubIDsGroup.set(new PartySubID("DIEGO SUSBIELLES"));
+		noPartySubIDsGroup.set(new PartySubIDType(9));
+		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
+
+		executionReport.addGroup(noPartyIDsGroup);
+
+		noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
+		noPartyIDsGroup.setField(new PartyID("PRODUCT TYPE"));
+		noPartyIDsGroup.setField(new PartyIDSource('D'));
+		noPartyIDsGroup.setField(new PartyRole(16));
+
+		noPartySubIDsGroup = new ExecutionReport.NoPartyIDs.NoPartySubIDs();
+
+		noPartySubIDsGroup.set(new PartySubID("Dealing (RFQ)"));
+		noPartySubIDsGroup.set(new PartySubIDType(4));
+		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
+
+		executionReport.addGroup(noPartyIDsGroup);
+
+		noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
+		noPartyIDsGroup.setField(new PartyID("16601104"));
+		noPartyIDsGroup.setField(new PartyIDSource('D'));
+		noPartyIDsGroup.setField(new PartyRole(11));
+		executionReport.addGroup(noPartyIDsGroup);
+		return executionReport;
+	}
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.benchmarks;
+
+import io.allune.quickfixj.spring.boot.starter.examples.client.ParallelProbeFailover;
+import io.allune.quickfixj.spring.boot.starter.examples.client.ParallelProbeFailover.Selection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import quickfix.ApplicationAdapter;
+import quickfix.CompositeLogFactory;
+import quickfix.DefaultMessageFactory;
+import quickfix.LogFactory;
+import quickfix.MemoryStoreFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.SocketAcceptor;
+import quickfix.SocketInitiator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static quickfix.FixVersions.BEGINSTRING_FIX44;
+
+/**
+ * Measures the failover time of an initiator, from the loss of its primary endpoint to the next logon, with and
+ * without the {@link ParallelProbeFailover}.
+ * <p>
+ * The session lists three endpoints, as {@code SocketConnectHost}, {@code SocketConnectHost1} and
+ * {@code SocketConnectHost2}, with {@code ReconnectInterval=5} like the failover example: the primary, a stand-in
+ * that forwards to the acceptor and is shut down to fail it, a port nobody listens on, and the acceptor itself as the
+ * standby. Each operation kills the primary and waits for the initiator to log on again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FailoverBenchmark {
+
+	private static final int STANDBY_PORT = 19880;
+
+	private static final int PRIMARY_PORT = 19881;
+
+	private static final int DEAD_PORT = 19882;
+
+	@Param({"sequential", "parallel-probe"})
+	private String strategy;
+
+	private final SessionID initiatorID = new SessionID(BEGINSTRING_FIX44, "BANZAI", "EXEC");
+
+	private final SessionID acceptorID = new SessionID(BEGINSTRING_FIX44, "EXEC", "BANZAI");
+
+	private final LogFactory logFactory = new CompositeLogFactory(new LogFactory[0]);
+
+	private final LogonCounter logons = new LogonCounter();
+
+	private SocketAcceptor acceptor;
+
+	private StandInServer primary;
+
+	private SocketInitiator initiator;
+
+	private ParallelProbeFailover failover;
+
+	@Setup(Level.Trial)
+	public void startAcceptor() throws Exception {
+		SessionSettings settings = settings(acceptorID, "acceptor");
+		settings.setLong(acceptorID, "SocketAcceptPort", STANDBY_PORT);
+		acceptor = new SocketAcceptor(new ApplicationAdapter(), new MemoryStoreFactory(), settings, logFactory,
+				new DefaultMessageFactory());
+		acceptor.start();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopAcceptor() {
+		acceptor.stop(true);
+	}
+
+	@Setup(Level.Iteration)
+	public void logOnThroughPrimary() throws Exception {
+		primary = new StandInServer(PRIMARY_PORT, STANDBY_PORT);
+		SessionSettings settings = settings(initiatorID, "initiator");
+		settings.setString(initiatorID, "SocketConnectHost", "localhost");
+		settings.setLong(initiatorID, "SocketConnectPort", PRIMARY_PORT);
+		settings.setString(initiatorID, "SocketConnectHost1", "localhost");
+		settings.setLong(initiatorID, "SocketConnectPort1", DEAD_PORT);
+		settings.setString(initiatorID, "SocketConnectHost2", "localhost");
+		settings.setLong(initiatorID, "SocketConnectPort2", STANDBY_PORT);
+		initiator = new SocketInitiator(logons, new MemoryStoreFactory(), settings, logFactory,
+				new DefaultMessageFactory());
+		if (strategy.equals("parallel-probe")) {
+			failover = new ParallelProbeFailover(initiator, settings, Selection.FIRST_HEALTHY, 500, 250, 3, 1000);
+		}
+		int before = logons.count.get();
+		initiator.start();
+		awaitLogon(before);
+		if (primary.connections.isEmpty()) {
+			throw new IllegalStateException("Not logged on through the primary");
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void stopInitiator() throws Exception {
+		if (failover != null) {
+			failover.close();
+			failover = null;
+		}
+		initiator.stop(true);
+		primary.close();
+	}
+
+	@Benchmark
+	public int failover() throws IOException {
+		int before = logons.count.get();
+		primary.close();
+		return awaitLogon(before);
+	}
+
+	private int awaitLogon(int before) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		int count;
+		while ((count = logons.count.get()) == before) {
+			if (System.nanoTime() > deadline) {
+				throw new IllegalStateException("Not logged on with the " + strategy + " strategy");
+			}
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+		}
+		return count;
+	}
+
+	private static SessionSettings settings(SessionID sessionID, String connectionType) {
+		SessionSettings settings = new SessionSettings();
+		settings.setString(sessionID, "ConnectionType", connectionType);
+		settings.setString(sessionID, "StartTime", "00:00:00");
+		settings.setString(sessionID, "EndTime", "00:00:00");
+		settings.setLong(sessionID, "HeartBtInt", 30);
+		settings.setLong(sessionID, "ReconnectInterval", 5);
+		settings.setBool(sessionID, "ResetOnLogon", true);
+		return settings;
+	}
+
+	private static final class LogonCounter extends ApplicationAdapter {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public void onLogon(SessionID sessionID) {
+			count.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Forwards every connection to the target port until it is closed, which drops the server socket and all the
+	 * forwarded connections at once, as a crashed server would.
+	 */
+	private static final class StandInServer implements Closeable {
+
+		private final ServerSocket serverSocket;
+
+		private final int targetPort;
+
+		private final List<Socket> connections = new CopyOnWriteArrayList<>();
+
+		private StandInServer(int port, int targetPort) throws IOException {
+			this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+			this.targetPort = targetPort;
+			start(this::accept, "stand-in-" + port);
+		}
+
+		private void accept() {
+			try {
+				while (!serverSocket.isClosed()) {
+					Socket inbound = serverSocket.accept();
+					Socket outbound = new Socket(InetAddress.getLoopbackAddress(), targetPort);
+					connections.add(inbound);
+					connections.add(outbound);
+					start(() -> pump(inbound, outbound), "stand-in-in");
+					start(() -> pump(outbound, inbound), "stand-in-out");
+				}
+			} catch (IOException e) {
+				// closed
+			}
+		}
+
+		private void pump(Socket from, Socket to) {
+			byte[] buffer = new byte[8192];
+			try {
+				InputStream in = from.getInputStream();
+				OutputStream out = to.getOutputStream();
+				int read;
+				while ((read = in.read(buffer)) >= 0) {
+					out.write(buffer, 0, read);
+				}
+			} catch (IOException e) {
+				// closed
+			} finally {
+				closeQuietly(from);
+				closeQuietly(to);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			serverSocket.close();
+			for (Socket connection : connections) {
+				closeQuietly(connection);
+			}
+		}
+
+		private static void start(Runnable runnable, String name) {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		private static void closeQuietly(Socket socket) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// already closed
+			}
+		}
+	}
+}
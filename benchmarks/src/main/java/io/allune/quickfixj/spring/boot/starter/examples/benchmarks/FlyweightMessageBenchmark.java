@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.benchmarks;
+
+import io.allune.quickfixj.spring.boot.starter.examples.sender.flyweight.FlyweightLayout;
+import io.allune.quickfixj.spring.boot.starter.examples.sender.flyweight.FlyweightMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import quickfix.ConfigError;
+import quickfix.DataDictionary;
+import quickfix.field.AvgPx;
+import quickfix.field.CFICode;
+import quickfix.field.ClOrdID;
+import quickfix.field.CumQty;
+import quickfix.field.Currency;
+import quickfix.field.ExecID;
+import quickfix.field.ExecType;
+import quickfix.field.LastPx;
+import quickfix.field.LastQty;
+import quickfix.field.LeavesQty;
+import quickfix.field.MDEntryPx;
+import quickfix.field.MDEntrySize;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDReqID;
+import quickfix.field.MsgType;
+import quickfix.field.NoMDEntries;
+import quickfix.field.OrdStatus;
+import quickfix.field.OrderID;
+import quickfix.field.OrderQty;
+import quickfix.field.QuoteEntryID;
+import quickfix.field.Side;
+import quickfix.field.Symbol;
+import quickfix.field.TransactTime;
+import quickfix.fix44.ExecutionReport;
+import quickfix.fix44.MarketDataSnapshotFullRefresh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building an ExecutionReport and a 10 level MarketDataSnapshotFullRefresh as {@code quickfix.Message} and
+ * encoding them with {@code toString()}, against filling the pooled {@link FlyweightMessage} of the thread and
+ * encoding its body to bytes.
+ * <p>
+ * Run with {@code -prof gc} to compare the per-call allocation ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlyweightMessageBenchmark {
+
+	private static final int LEVELS = 10;
+
+	private FlyweightLayout executionReportLayout;
+
+	private FlyweightLayout marketDataLayout;
+
+	private long sequence;
+
+	@Setup
+	public void setUp() throws ConfigError {
+		DataDictionary dictionary = new DataDictionary("FIX44.xml");
+		executionReportLayout = FlyweightLayout.of(dictionary, MsgType.EXECUTION_REPORT);
+		marketDataLayout = FlyweightLayout.of(dictionary, MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH);
+	}
+
+	@Benchmark
+	public String executionReportMessage() {
+		long id = ++sequence;
+		ExecutionReport executionReport = new ExecutionReport(new OrderID(Long.toString(id)),
+				new ExecID(Long.toString(id)), new ExecType(ExecType.FILL), new OrdStatus(OrdStatus.FILLED),
+				new Side(Side.BUY), new LeavesQty(0), new CumQty(1000000), new AvgPx(1.183054));
+		executionReport.set(new OrderQty(1000000));
+		executionReport.set(new ClOrdID("ordID_1"));
+		executionReport.set(new Symbol("EUR/USD"));
+		executionReport.set(new Currency("EUR"));
+		executionReport.set(new LastPx(1.183054));
+		executionReport.set(new LastQty(1000000));
+		executionReport.set(new TransactTime());
+		executionReport.set(new CFICode("FORWARD"));
+		return executionReport.toString();
+	}
+
+	@Benchmark
+	public ByteBuffer executionReportFlyweight() {
+		long id = ++sequence;
+		FlyweightMessage executionReport = executionReportLayout.acquire();
+		executionReport.setInt(OrderID.FIELD, id)
+				.setInt(ExecID.FIELD, id)
+				.setChar(ExecType.FIELD, ExecType.FILL)
+				.setChar(OrdStatus.FIELD, OrdStatus.FILLED)
+				.setChar(Side.FIELD, Side.BUY)
+				.setInt(LeavesQty.FIELD, 0)
+				.setInt(CumQty.FIELD, 1000000)
+				.setDecimal(AvgPx.FIELD, 1.183054)
+				.setInt(OrderQty.FIELD, 1000000)
+				.setString(ClOrdID.FIELD, "ordID_1")
+				.setString(Symbol.FIELD, "EUR/USD")
+				.setString(Currency.FIELD, "EUR")
+				.setDecimal(LastPx.FIELD, 1.183054)
+				.setInt(LastQty.FIELD, 1000000)
+				.setUtcTimestamp(TransactTime.FIELD, System.currentTimeMillis())
+				.setString(CFICode.FIELD, "FORWARD");
+		return executionReport.encodeBody();
+	}
+
+	@Benchmark
+	public String marketDataMessage() {
+		MarketDataSnapshotFullRefresh marketData = new MarketDataSnapshotFullRefresh();
+		marketData.set(new Symbol("EUR/USD"));
+		marketData.set(new MDReqID("FIXLOADTEST:1500959671701"));
+		MarketDataSnapshotFullRefresh.NoMDEntries entry = new MarketDataSnapshotFullRefresh.NoMDEntries();
+		for (int level = 0; level < LEVELS; level++) {
+			entry.set(new MDEntryType(MDEntryType.BID));
+			entry.set(new MDEntryPx(1.1337 - level * 0.0001));
+			entry.set(new MDEntrySize(1000000 * (level + 1)));
+			entry.set(new QuoteEntryID("1009707692782002208"));
+			marketData.addGroup(entry);
+			entry.set(new MDEntryType(MDEntryType.OFFER));
+			entry.set(new MDEntryPx(1.13373 + level * 0.0001));
+			entry.set(new MDEntrySize(1000000 * (level + 1)));
+			entry.set(new QuoteEntryID("1009707692782002209"));
+			marketData.addGroup(entry);
+		}
+		return marketData.toString();
+	}
+
+	@Benchmark
+	public ByteBuffer marketDataFlyweight() {
+		FlyweightMessage marketData = marketDataLayout.acquire();
+		marketData.setString(Symbol.FIELD, "EUR/USD")
+				.setString(MDReqID.FIELD, "FIXLOADTEST:1500959671701");
+		for (int level = 0; level < LEVELS; level++) {
+			marketData.addGroup(NoMDEntries.FIELD)
+					.setChar(MDEntryType.FIELD, MDEntryType.BID)
+					.setDecimal(MDEntryPx.FIELD, 11337 - level, 4)
+					.setInt(MDEntrySize.FIELD, 1000000 * (level + 1))
+					.setString(QuoteEntryID.FIELD, "1009707692782002208");
+			marketData.addGroup(NoMDEntries.FIELD)
+					.setChar(MDEntryType.FIELD, MDEntryType.OFFER)
+					.setDecimal(MDEntryPx.FIELD, 113373 + level * 10, 5)
+					.setInt(MDEntrySize.FIELD, 1000000 * (level + 1))
+					.setString(QuoteEntryID.FIELD, "1009707692782002209");
+		}
+		return marketData.encodeBody();
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.benchmarks;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.loopback.LoopbackTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import quickfix.ApplicationAdapter;
+import quickfix.CompositeLogFactory;
+import quickfix.DefaultMessageFactory;
+import quickfix.DefaultSessionFactory;
+import quickfix.FieldNotFound;
+import quickfix.LogFactory;
+import quickfix.MemoryStoreFactory;
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.SessionFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.SocketAcceptor;
+import quickfix.SocketInitiator;
+import quickfix.field.MsgType;
+import quickfix.field.TestReqID;
+import quickfix.fix44.TestRequest;
+
+import java.util.concurrent.TimeUnit;
+
+import static quickfix.FixVersions.BEGINSTRING_FIX44;
+
+/**
+ * Compares the round trip between a co-located initiator and acceptor over the {@link LoopbackTransport} against the
+ * same sessions connected over a localhost socket.
+ * <p>
+ * Each operation sends a TestRequest from the initiator and waits for the acceptor's Heartbeat echoing its TestReqID,
+ * so it goes through the full session layer of both sides: sequence numbers, the message store and validation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopbackTransportBenchmark {
+
+	private static final int PORT = 19877;
+
+	@Param({"loopback", "tcp"})
+	private String transport;
+
+	private final SessionID initiatorID = new SessionID(BEGINSTRING_FIX44, "BANZAI", "EXEC");
+
+	private final SessionID acceptorID = new SessionID(BEGINSTRING_FIX44, "EXEC", "BANZAI");
+
+	private final Echo echo = new Echo();
+
+	private LoopbackTransport loopbackTransport;
+
+	private SocketAcceptor acceptor;
+
+	private SocketInitiator initiator;
+
+	private Session session;
+
+	private long testRequest;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SessionSettings acceptorSettings = settings(acceptorID, "acceptor");
+		acceptorSettings.setLong(acceptorID, "SocketAcceptPort", PORT);
+		SessionSettings initiatorSettings = settings(initiatorID, "initiator");
+		initiatorSettings.setString(initiatorID, "SocketConnectHost", "localhost");
+		initiatorSettings.setLong(initiatorID, "SocketConnectPort", PORT);
+
+		LogFactory logFactory = new CompositeLogFactory(new LogFactory[0]);
+		if (transport.equals("loopback")) {
+			loopbackTransport = new LoopbackTransport(
+					sessionFactory(new ApplicationAdapter(), logFactory), acceptorSettings,
+					sessionFactory(echo, logFactory), initiatorSettings);
+			loopbackTransport.start();
+		} else {
+			acceptor = new SocketAcceptor(new ApplicationAdapter(), new MemoryStoreFactory(), acceptorSettings,
+					logFactory, new DefaultMessageFactory());
+			acceptor.start();
+			initiator = new SocketInitiator(echo, new MemoryStoreFactory(), initiatorSettings, logFactory,
+					new DefaultMessageFactory());
+			initiator.start();
+		}
+
+		session = Session.lookupSession(initiatorID);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (session == null || !session.isLoggedOn()) {
+			if (System.nanoTime() > deadline) {
+				throw new IllegalStateException("Not logged on over " + transport);
+			}
+			Thread.sleep(10);
+			session = Session.lookupSession(initiatorID);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (loopbackTransport != null) {
+			loopbackTransport.stop();
+		} else {
+			initiator.stop();
+			acceptor.stop();
+		}
+	}
+
+	@Benchmark
+	public long roundTrip() {
+		String id = Long.toString(++testRequest);
+		session.send(new TestRequest(new TestReqID(id)));
+		while (!id.equals(echo.lastTestReqID)) {
+			// busy spin, the round trip is in the tens of microseconds
+		}
+		return testRequest;
+	}
+
+	private static SessionFactory sessionFactory(quickfix.Application application, LogFactory logFactory) {
+		return new DefaultSessionFactory(application, new MemoryStoreFactory(), logFactory, new DefaultMessageFactory());
+	}
+
+	private static SessionSettings settings(SessionID sessionID, String connectionType) {
+		SessionSettings settings = new SessionSettings();
+		settings.setString(sessionID, "ConnectionType", connectionType);
+		settings.setString(sessionID, "StartTime", "00:00:00");
+		settings.setString(sessionID, "EndTime", "00:00:00");
+		settings.setLong(sessionID, "HeartBtInt", 30);
+		settings.setLong(sessionID, "ReconnectInterval", 1);
+		return settings;
+	}
+
+	private static final class Echo extends ApplicationAdapter {
+
+		private volatile String lastTestReqID;
+
+		@Override
+		public void fromAdmin(Message message, SessionID sessionID) {
+			try {
+				if (MsgType.HEARTBEAT.equals(message.getHeader().getString(MsgType.FIELD))
+						&& message.isSetField(TestReqID.FIELD)) {
+					lastTestReqID = message.getString(TestReqID.FIELD);
+				}
+			} catch (FieldNotFound e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
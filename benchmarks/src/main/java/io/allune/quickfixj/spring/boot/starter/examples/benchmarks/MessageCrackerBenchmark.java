@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.benchmarks;
+
+import io.allune.quickfixj.spring.boot.starter.examples.client.MessageDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import quickfix.Message;
+import quickfix.SessionID;
+import quickfix.fix44.ExecutionReport;
+import quickfix.fix44.MarketDataSnapshotFullRefresh;
+import quickfix.fix44.MessageCracker;
+import quickfix.fix44.OrderCancelRequest;
+
+import java.util.concurrent.TimeUnit;
+
+import static quickfix.FixVersions.BEGINSTRING_FIX44;
+
+/**
+ * Compares the generated {@link MessageCracker} MsgType chain against the {@link MessageDispatcher}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCrackerBenchmark {
+
+	@Param({"OrderCancelRequest", "ExecutionReport", "MarketDataSnapshotFullRefresh"})
+	private String messageType;
+
+	private final SessionID sessionId = new SessionID(BEGINSTRING_FIX44, "BANZAI", "EXEC");
+
+	private Message message;
+
+	private BlackholeMessageCracker messageCracker;
+
+	private MessageDispatcher messageDispatcher;
+
+	@Setup
+	public void setUp(Blackhole blackhole) {
+		switch (messageType) {
+			case "OrderCancelRequest":
+				message = new OrderCancelRequest();
+				break;
+			case "ExecutionReport":
+				message = new ExecutionReport();
+				break;
+			case "MarketDataSnapshotFullRefresh":
+				message = new MarketDataSnapshotFullRefresh();
+				break;
+			default:
+				throw new IllegalArgumentException(messageType);
+		}
+		messageCracker = new BlackholeMessageCracker(blackhole);
+		messageDispatcher = new MessageDispatcher().register(BEGINSTRING_FIX44, messageCracker);
+	}
+
+	@Benchmark
+	public void messageCracker() throws Exception {
+		messageCracker.crack(message, sessionId);
+	}
+
+	@Benchmark
+	public void messageDispatcher() throws Exception {
+		messageDispatcher.dispatch(message, sessionId);
+	}
+
+	public static class BlackholeMessageCracker extends MessageCracker {
+
+		private final Blackhole blackhole;
+
+		BlackholeMessageCracker(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void onMessage(OrderCancelRequest message, SessionID sessionID) {
+			blackhole.consume(message);
+		}
+
+		@Override
+		public void onMessage(ExecutionReport message, SessionID sessionID) {
+			blackhole.consume(message);
+		}
+
+		@Override
+		public void onMessage(MarketDataSnapshotFullRefresh message, SessionID sessionID) {
+			blackhole.consume(message);
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.benchmarks;
+
+import io.allune.quickfixj.spring.boot.starter.examples.sender.BloombergExecutionReports;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quickfixj.CharsetSupport;
+import quickfix.Message;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding a Bloomberg spot ExecutionReport to a {@code String} with {@link Message#toString()} against
+ * encoding it to bytes, as the socket encoder does: through an intermediate {@code byte[]}, or straight into a reused
+ * {@link ByteBuffer}.
+ * <p>
+ * Run with {@code -prof gc} to compare the per-call allocation ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageEncodingBenchmark {
+
+	private final Charset charset = CharsetSupport.getCharsetInstance();
+
+	private final CharsetEncoder encoder = charset.newEncoder();
+
+	private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+	private Message message;
+
+	@Setup
+	public void setUp() {
+		message = BloombergExecutionReports.spot();
+	}
+
+	@Benchmark
+	public String toStringEncoding() {
+		return message.toString();
+	}
+
+	@Benchmark
+	public byte[] byteArrayEncoding() {
+		return message.toString().getBytes(charset);
+	}
+
+	@Benchmark
+	public ByteBuffer byteBufferEncoding() {
+		buffer.clear();
+		encoder.reset();
+		encoder.encode(CharBuffer.wrap(message.toString()), buffer, true);
+		encoder.flush(buffer);
+		buffer.flip();
+		return buffer;
+	}
+}
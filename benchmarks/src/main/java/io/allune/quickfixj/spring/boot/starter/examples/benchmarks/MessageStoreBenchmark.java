@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.benchmarks;
+
+import io.allune.quickfixj.spring.boot.starter.examples.sender.ResendCachingStoreFactory;
+import io.allune.quickfixj.spring.boot.starter.examples.server.MappedFileStoreFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.hsqldb.jdbc.JDBCDataSource;
+import quickfix.FileStoreFactory;
+import quickfix.JdbcStoreFactory;
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static quickfix.FixVersions.BEGINSTRING_FIX44;
+
+/**
+ * Compares the {@link FileStoreFactory} against the {@link MappedFileStoreFactory}, the {@link JdbcStoreFactory}
+ * on an in-memory HSQLDB database and the {@link ResendCachingStoreFactory} of the sender example, in front of a
+ * {@code FileStoreFactory}.
+ * <p>
+ * {@code oneSecondOfMessages} stores the messages a session sends in one second at the given rate, the store keeps up
+ * with that rate while the score stays below a second. {@code resend} reads back a 100 message resend range from a
+ * store holding 100k messages, the resend cache holding the last 64k of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MessageStoreBenchmark {
+
+	private static final String MESSAGE = "8=FIX.4.4\u00019=178\u000135=D\u000134=%d\u000149=BANZAI\u000152=20201111-10:15:30.123"
+			+ "\u000156=EXEC\u000111=3-2-805950014T-0-0\u000121=1\u000138=1000\u000140=2\u000144=755.93\u000154=1"
+			+ "\u000155=USD/CLP\u000159=0\u000160=20201111-10:15:30.123\u000110=000\u0001";
+
+	private static final int RESEND_STORE_SIZE = 100_000;
+
+	private static final String SESSION_ID_COLUMNS = "beginstring CHAR(8) NOT NULL, sendercompid VARCHAR(64) NOT NULL, "
+			+ "sendersubid VARCHAR(64) NOT NULL, senderlocid VARCHAR(64) NOT NULL, targetcompid VARCHAR(64) NOT NULL, "
+			+ "targetsubid VARCHAR(64) NOT NULL, targetlocid VARCHAR(64) NOT NULL, session_qualifier VARCHAR(64) NOT NULL, ";
+
+	private static final String SESSION_ID_KEY = "beginstring, sendercompid, sendersubid, senderlocid, targetcompid, "
+			+ "targetsubid, targetlocid, session_qualifier";
+
+	/**
+	 * The tables of the database examples, see {@code simple-server-with-database/src/main/resources/hsqldb/data.sql}.
+	 */
+	private static final String SESSIONS_TABLE = "CREATE TABLE sessions (" + SESSION_ID_COLUMNS
+			+ "creation_time DATETIME NOT NULL, incoming_seqnum INT NOT NULL, outgoing_seqnum INT NOT NULL, "
+			+ "PRIMARY KEY (" + SESSION_ID_KEY + "))";
+
+	private static final String MESSAGES_TABLE = "CREATE TABLE messages (" + SESSION_ID_COLUMNS
+			+ "msgseqnum INT NOT NULL, message VARCHAR(2048) NOT NULL, "
+			+ "PRIMARY KEY (" + SESSION_ID_KEY + ", msgseqnum))";
+
+	@Param({"FileStoreFactory", "MappedFileStoreFactory", "JdbcStoreFactory", "ResendCachingStoreFactory"})
+	private String storeFactory;
+
+	private final SessionID sessionId = new SessionID(BEGINSTRING_FIX44, "EXEC", "BANZAI");
+
+	private final List<String> resent = new ArrayList<>();
+
+	private String[] messages;
+
+	private Path directory;
+
+	private JDBCDataSource dataSource;
+
+	private MessageStore store;
+
+	private int sequence;
+
+	@Setup(Level.Trial)
+	public void setUpMessages() {
+		messages = new String[RESEND_STORE_SIZE + 1];
+		for (int i = 1; i < messages.length; i++) {
+			messages[i] = String.format(MESSAGE, i);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp(BenchmarkParams params) throws Exception {
+		directory = Files.createTempDirectory("message-store-benchmark");
+		SessionSettings settings = new SessionSettings();
+		settings.setString(sessionId, FileStoreFactory.SETTING_FILE_STORE_PATH, directory.toString());
+		MessageStoreFactory factory;
+		switch (storeFactory) {
+			case "FileStoreFactory":
+				factory = new FileStoreFactory(settings);
+				break;
+			case "MappedFileStoreFactory":
+				factory = new MappedFileStoreFactory(settings);
+				break;
+			case "JdbcStoreFactory":
+				factory = jdbcStoreFactory(settings);
+				break;
+			case "ResendCachingStoreFactory":
+				factory = new ResendCachingStoreFactory(new FileStoreFactory(settings), 65536, 16 * 1024 * 1024);
+				break;
+			default:
+				throw new IllegalArgumentException(storeFactory);
+		}
+		store = factory.create(sessionId);
+		sequence = 0;
+		if (params.getBenchmark().endsWith("resend")) {
+			while (sequence < RESEND_STORE_SIZE) {
+				sendNext();
+			}
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException, SQLException {
+		if (store instanceof Closeable) {
+			((Closeable) store).close();
+		}
+		if (dataSource != null) {
+			try (Connection connection = dataSource.getConnection();
+			     Statement statement = connection.createStatement()) {
+				statement.execute("SHUTDOWN");
+			}
+			dataSource = null;
+		}
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public MessageStore oneSecondOfMessages(Rate rate) throws IOException {
+		for (int i = 0; i < rate.messagesPerSecond; i++) {
+			sendNext();
+		}
+		return store;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	public List<String> resend() throws IOException {
+		resent.clear();
+		int start = 1 + (int) (System.nanoTime() % (RESEND_STORE_SIZE - 100));
+		store.get(start, start + 99, resent);
+		return resent;
+	}
+
+	private JdbcStoreFactory jdbcStoreFactory(SessionSettings settings) throws SQLException {
+		dataSource = new JDBCDataSource();
+		dataSource.setUrl("jdbc:hsqldb:mem:" + directory.getFileName());
+		dataSource.setUser("sa");
+		try (Connection connection = dataSource.getConnection();
+		     Statement statement = connection.createStatement()) {
+			statement.execute(SESSIONS_TABLE);
+			statement.execute(MESSAGES_TABLE);
+		}
+		JdbcStoreFactory factory = new JdbcStoreFactory(settings);
+		factory.setDataSource(dataSource);
+		return factory;
+	}
+
+	private void sendNext() throws IOException {
+		sequence++;
+		store.set(sequence, messages[(sequence - 1) % RESEND_STORE_SIZE + 1]);
+		store.incrNextSenderMsgSeqNum();
+	}
+
+	@State(Scope.Thread)
+	public static class Rate {
+
+		@Param({"10000", "100000"})
+		private int messagesPerSecond;
+	}
+}
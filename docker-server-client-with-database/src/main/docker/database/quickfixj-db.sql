@@ -40,6 +40,10 @@ CREATE TABLE messages
 );
 
 
+-- messages_log and event_log are also the templates of the partitions created by BatchingJdbcLogFactory
+-- when BatchingLogPartitioning is DAY (messages_log_20201111, ...) or SESSION (messages_log_fix_4_4_exec_banzai, ...).
+-- Each partition gets its own identity counter. The DAY partitions are shared by all the sessions, told apart by
+-- the session columns, the SESSION partitions give every session its own tables and counters.
 CREATE TABLE messages_log
 (
     id                INT UNSIGNED NOT NULL AUTO_INCREMENT,
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.concurrent;
+
+/**
+ * What a producer does when the {@link RingBuffer} it publishes to is full.
+ */
+public enum OverflowPolicy {
+	/**
+	 * Discard the entry and count it as dropped, the producer never waits
+	 */
+	DROP,
+	/**
+	 * Wait on the producer thread until the consumer frees a slot
+	 */
+	BLOCK
+}
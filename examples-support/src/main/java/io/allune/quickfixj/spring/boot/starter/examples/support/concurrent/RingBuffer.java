@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, preallocated ring buffer with many producers and a single consumer.
+ * <p>
+ * A producer claims a sequence with a CAS, stores its entry in the slot of the sequence and then publishes the
+ * sequence in that slot, so the consumer never sees a slot before its entry is written. When the ring is full the
+ * producer drops the entry or waits, according to its {@link OverflowPolicy}. Once the ring is closed, the entries
+ * already published can still be polled but any new one is dropped, and waiting producers give up.
+ * <p>
+ * Entries are handed over by reference: an entry must not be changed by its producer after {@link #offer(Object)}.
+ *
+ * @param <E> the type of the entries
+ */
+public class RingBuffer<E> {
+
+	private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final Object[] entries;
+
+	private final AtomicLongArray published;
+
+	private final int mask;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final AtomicLong claimSequence = new AtomicLong();
+
+	private final AtomicLong consumedSequence = new AtomicLong();
+
+	private final LongAdder blockedCount = new LongAdder();
+
+	private final LongAdder droppedCount = new LongAdder();
+
+	private volatile boolean closed;
+
+	/**
+	 * @param bufferSize the minimum capacity, rounded up to a power of two
+	 */
+	public RingBuffer(int bufferSize, OverflowPolicy overflowPolicy) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("The buffer size must be positive: " + bufferSize);
+		}
+		int capacity = bufferSize <= 2 ? 2 : Integer.highestOneBit(bufferSize - 1) << 1;
+		this.entries = new Object[capacity];
+		this.published = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			published.set(i, -1);
+		}
+		this.mask = capacity - 1;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Publishes the entry, waiting for a free slot with {@link OverflowPolicy#BLOCK}.
+	 *
+	 * @return false if the entry was dropped, because the ring was full with {@link OverflowPolicy#DROP}, or closed
+	 */
+	public boolean offer(E entry) {
+		long sequence;
+		boolean blocked = false;
+		for (;;) {
+			if (closed) {
+				droppedCount.increment();
+				return false;
+			}
+			sequence = claimSequence.get();
+			if (sequence - consumedSequence.get() < entries.length) {
+				if (claimSequence.compareAndSet(sequence, sequence + 1)) {
+					break;
+				}
+			} else if (overflowPolicy == OverflowPolicy.DROP) {
+				droppedCount.increment();
+				return false;
+			} else {
+				if (!blocked) {
+					blockedCount.increment();
+					blocked = true;
+				}
+				LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+			}
+		}
+
+		int index = (int) sequence & mask;
+		entries[index] = entry;
+		published.lazySet(index, sequence);
+		return true;
+	}
+
+	/**
+	 * Takes the next entry, to be called by the consumer thread only.
+	 *
+	 * @return the entry, or null if the next one is not published yet
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		long next = consumedSequence.get();
+		int index = (int) next & mask;
+		if (published.get(index) != next) {
+			return null;
+		}
+		E entry = (E) entries[index];
+		entries[index] = null;
+		consumedSequence.lazySet(next + 1);
+		return entry;
+	}
+
+	/**
+	 * Stops accepting entries. The consumer drains the ring until {@link #isDrained()}.
+	 */
+	public void close() {
+		closed = true;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * @return true once the ring is closed and every entry claimed before has been polled
+	 */
+	public boolean isDrained() {
+		return closed && consumedSequence.get() == claimSequence.get();
+	}
+
+	public int getCapacity() {
+		return entries.length;
+	}
+
+	public long getPendingCount() {
+		return claimSequence.get() - consumedSequence.get();
+	}
+
+	public long getConsumedCount() {
+		return consumedSequence.get();
+	}
+
+	/**
+	 * @return the number of offers that had to wait for a free slot
+	 */
+	public long getBlockedCount() {
+		return blockedCount.sum();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+}
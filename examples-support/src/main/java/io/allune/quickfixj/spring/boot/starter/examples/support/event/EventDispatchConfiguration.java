@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.event;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.concurrent.OverflowPolicy;
+import io.allune.quickfixj.spring.boot.starter.model.Create;
+import io.allune.quickfixj.spring.boot.starter.model.FromAdmin;
+import io.allune.quickfixj.spring.boot.starter.model.FromApp;
+import io.allune.quickfixj.spring.boot.starter.model.Logon;
+import io.allune.quickfixj.spring.boot.starter.model.Logout;
+import io.allune.quickfixj.spring.boot.starter.model.ToAdmin;
+import io.allune.quickfixj.spring.boot.starter.model.ToApp;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.context.support.AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME;
+
+/**
+ * Replaces the application event multicaster with a {@link SessionOrderedEventMulticaster} when
+ * {@code examples.event-dispatch.async} is set, and exposes its lanes on the {@code quickfixjevents} endpoint.
+ */
+@Configuration
+@ConditionalOnProperty(name = "examples.event-dispatch.async", havingValue = "true")
+public class EventDispatchConfiguration {
+
+	private static final Map<String, Class<?>> EVENT_TYPES = Stream.of(
+			FromAdmin.class, FromApp.class, ToAdmin.class, ToApp.class, Create.class, Logon.class, Logout.class)
+			.collect(Collectors.toMap(Class::getSimpleName, type -> type));
+
+	@Bean(name = APPLICATION_EVENT_MULTICASTER_BEAN_NAME)
+	public SessionOrderedEventMulticaster applicationEventMulticaster(
+			@Value("${examples.event-dispatch.consumer-threads:2}") int consumerThreads,
+			@Value("${examples.event-dispatch.buffer-size:4096}") int bufferSize,
+			@Value("${examples.event-dispatch.event-types:FromApp,Create,Logout}") String[] eventTypes,
+			@Value("${examples.event-dispatch.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy) {
+
+		Set<Class<?>> asyncEventTypes = new HashSet<>();
+		for (String eventType : eventTypes) {
+			Class<?> type = EVENT_TYPES.get(eventType.trim());
+			if (type == null) {
+				throw new IllegalArgumentException("Unknown event type " + eventType + ", expected one of " + EVENT_TYPES.keySet());
+			}
+			asyncEventTypes.add(type);
+		}
+		return new SessionOrderedEventMulticaster(consumerThreads, bufferSize, asyncEventTypes, overflowPolicy);
+	}
+
+	@Bean
+	public EventDispatchEndpoint eventDispatchEndpoint(SessionOrderedEventMulticaster applicationEventMulticaster) {
+		return new EventDispatchEndpoint(applicationEventMulticaster);
+	}
+
+	@Endpoint(id = "quickfixjevents")
+	public static class EventDispatchEndpoint {
+
+		private final SessionOrderedEventMulticaster multicaster;
+
+		public EventDispatchEndpoint(SessionOrderedEventMulticaster multicaster) {
+			this.multicaster = multicaster;
+		}
+
+		@ReadOperation
+		public List<Map<String, Object>> lanes() {
+			return multicaster.getLaneMetrics();
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.event;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.concurrent.OverflowPolicy;
+import io.allune.quickfixj.spring.boot.starter.examples.support.concurrent.RingBuffer;
+import io.allune.quickfixj.spring.boot.starter.model.Create;
+import io.allune.quickfixj.spring.boot.starter.model.FromAdmin;
+import io.allune.quickfixj.spring.boot.starter.model.FromApp;
+import io.allune.quickfixj.spring.boot.starter.model.Logon;
+import io.allune.quickfixj.spring.boot.starter.model.Logout;
+import io.allune.quickfixj.spring.boot.starter.model.ToAdmin;
+import io.allune.quickfixj.spring.boot.starter.model.ToApp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.core.ResolvableType;
+import quickfix.Message;
+import quickfix.SessionID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Multicaster that moves the QuickFIX/J application events off the acceptor/initiator threads.
+ * <p>
+ * Each consumer thread owns a {@link RingBuffer} and the asynchronous events of a session are always routed to the
+ * same ring, so the listeners observe them in the order the session produced them. Any other event, or an event type
+ * that is not configured for asynchronous dispatch, is multicast synchronously as usual, on the session thread. The
+ * order only holds among the asynchronous types: a synchronous event overtakes the asynchronous events of its
+ * session still queued, e.g. the listeners of a {@link Logon} may run before the asynchronous listeners of the
+ * {@link Create} that preceded it.
+ * <p>
+ * The session reuses and changes its messages once the callback returns, so the listeners of an asynchronous event
+ * get a copy of the message, made on the session thread. {@link Logon} is always synchronous, its listeners must run
+ * before the session sends its first application message. {@link FromAdmin} may be dispatched asynchronously, but
+ * its listeners then can no longer reject a Logon: a {@code RejectLogon} only reaches QuickFIX/J from the session
+ * thread.
+ */
+public class SessionOrderedEventMulticaster extends SimpleApplicationEventMulticaster implements DisposableBean {
+
+	/**
+	 * The event types whose listeners take part in the processing of the session.
+	 */
+	public static final Set<Class<?>> SYNCHRONOUS_EVENT_TYPES =
+			Collections.unmodifiableSet(new HashSet<>(Arrays.asList(Logon.class)));
+
+	private static final Logger log = LoggerFactory.getLogger(SessionOrderedEventMulticaster.class);
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final Lane[] lanes;
+
+	private final Set<Class<?>> asyncEventTypes;
+
+	private volatile boolean running = true;
+
+	public SessionOrderedEventMulticaster(int consumerThreads, int bufferSize, Set<Class<?>> asyncEventTypes,
+	                                      OverflowPolicy overflowPolicy) {
+		for (Class<?> eventType : asyncEventTypes) {
+			if (SYNCHRONOUS_EVENT_TYPES.contains(eventType)) {
+				throw new IllegalArgumentException(eventType.getSimpleName() + " events must be dispatched synchronously");
+			}
+		}
+		this.asyncEventTypes = asyncEventTypes;
+		this.lanes = new Lane[consumerThreads];
+		for (int i = 0; i < consumerThreads; i++) {
+			lanes[i] = new Lane(i, new RingBuffer<>(bufferSize, overflowPolicy));
+		}
+	}
+
+	@Override
+	public void multicastEvent(ApplicationEvent event, ResolvableType eventType) {
+		Object payload = running ? asyncPayload(event) : null;
+		SessionID sessionId = payload != null ? sessionId(payload) : null;
+		if (sessionId == null) {
+			super.multicastEvent(event, eventType);
+			return;
+		}
+
+		ResolvableType type = eventType != null ? eventType : ResolvableType.forInstance(event);
+		Dispatch dispatch = new Dispatch(copyForListeners(event, payload), type);
+		if (!lanes[(sessionId.hashCode() & Integer.MAX_VALUE) % lanes.length].ring.offer(dispatch)) {
+			log.warn("Event buffer full, dropped {} for SessionId={}", type, sessionId);
+		}
+	}
+
+	public List<Map<String, Object>> getLaneMetrics() {
+		List<Map<String, Object>> metrics = new ArrayList<>(lanes.length);
+		for (Lane lane : lanes) {
+			Map<String, Object> laneMetrics = new LinkedHashMap<>();
+			laneMetrics.put("lane", lane.id);
+			laneMetrics.put("capacity", lane.ring.getCapacity());
+			laneMetrics.put("pending", lane.ring.getPendingCount());
+			laneMetrics.put("processed", lane.ring.getConsumedCount());
+			laneMetrics.put("blocked", lane.ring.getBlockedCount());
+			laneMetrics.put("dropped", lane.ring.getDroppedCount());
+			metrics.add(laneMetrics);
+		}
+		return metrics;
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		running = false;
+		for (Lane lane : lanes) {
+			lane.ring.close();
+			LockSupport.unpark(lane.consumer);
+		}
+		for (Lane lane : lanes) {
+			lane.consumer.join(TimeUnit.SECONDS.toMillis(5));
+		}
+	}
+
+	private Object asyncPayload(ApplicationEvent event) {
+		if (!(event instanceof PayloadApplicationEvent)) {
+			return null;
+		}
+		Object payload = ((PayloadApplicationEvent<?>) event).getPayload();
+		return asyncEventTypes.contains(payload.getClass()) ? payload : null;
+	}
+
+	private static SessionID sessionId(Object payload) {
+		if (payload instanceof FromApp) {
+			return ((FromApp) payload).getSessionId();
+		} else if (payload instanceof FromAdmin) {
+			return ((FromAdmin) payload).getSessionId();
+		} else if (payload instanceof ToAdmin) {
+			return ((ToAdmin) payload).getSessionId();
+		} else if (payload instanceof ToApp) {
+			return ((ToApp) payload).getSessionId();
+		} else if (payload instanceof Create) {
+			return ((Create) payload).getSessionId();
+		} else if (payload instanceof Logout) {
+			return ((Logout) payload).getSessionId();
+		}
+		return null;
+	}
+
+	private static ApplicationEvent copyForListeners(ApplicationEvent event, Object payload) {
+		Object copy;
+		if (payload instanceof FromApp) {
+			FromApp fromApp = (FromApp) payload;
+			copy = FromApp.of(copy(fromApp.getMessage()), fromApp.getSessionId());
+		} else if (payload instanceof FromAdmin) {
+			FromAdmin fromAdmin = (FromAdmin) payload;
+			copy = FromAdmin.of(copy(fromAdmin.getMessage()), fromAdmin.getSessionId());
+		} else if (payload instanceof ToAdmin) {
+			ToAdmin toAdmin = (ToAdmin) payload;
+			copy = ToAdmin.of(copy(toAdmin.getMessage()), toAdmin.getSessionId());
+		} else if (payload instanceof ToApp) {
+			ToApp toApp = (ToApp) payload;
+			copy = ToApp.of(copy(toApp.getMessage()), toApp.getSessionId());
+		} else {
+			return event;
+		}
+		return new PayloadApplicationEvent<>(event.getSource(), copy);
+	}
+
+	private static Message copy(Message message) {
+		return (Message) message.clone();
+	}
+
+	private static final class Dispatch {
+
+		private final ApplicationEvent event;
+
+		private final ResolvableType eventType;
+
+		private Dispatch(ApplicationEvent event, ResolvableType eventType) {
+			this.event = event;
+			this.eventType = eventType;
+		}
+	}
+
+	private final class Lane {
+
+		private final int id;
+
+		private final RingBuffer<Dispatch> ring;
+
+		private final Thread consumer;
+
+		private Lane(int id, RingBuffer<Dispatch> ring) {
+			this.id = id;
+			this.ring = ring;
+			this.consumer = new Thread(this::consume, "quickfixj-events-" + id);
+			this.consumer.setDaemon(true);
+			this.consumer.start();
+		}
+
+		private void consume() {
+			while (!ring.isDrained()) {
+				Dispatch dispatch = ring.poll();
+				if (dispatch == null) {
+					LockSupport.parkNanos(IDLE_PARK_NANOS);
+					continue;
+				}
+				for (ApplicationListener<?> listener : getApplicationListeners(dispatch.event, dispatch.eventType)) {
+					try {
+						invokeListener(listener, dispatch.event);
+					} catch (RuntimeException e) {
+						log.error("Listener {} failed to handle {}", listener, dispatch.eventType, e);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.eventloop;
+
+import quickfix.LogUtil;
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.mina.EventHandlingStrategy;
+import quickfix.mina.SessionConnector;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches the incoming messages of all the sessions of a connector on a fixed number of event loop threads.
+ * <p>
+ * Each session is pinned to one loop by the hash of its {@link SessionID}, so its messages are processed in order, on
+ * one thread, as with the {@code ThreadPerSessionEventHandlingStrategy}, but the thread count does not grow with the
+ * number of sessions. A session that is slow to process its messages delays the other sessions of its loop.
+ */
+public class EventLoopEventHandlingStrategy implements EventHandlingStrategy {
+
+	private static final Event STOP = new Event(null, null);
+
+	private final SessionConnector sessionConnector;
+
+	private final EventLoop[] loops;
+
+	public EventLoopEventHandlingStrategy(SessionConnector sessionConnector, int threads, int queueCapacity) {
+		this.sessionConnector = sessionConnector;
+		this.loops = new EventLoop[threads > 0 ? threads : Runtime.getRuntime().availableProcessors()];
+		for (int i = 0; i < loops.length; i++) {
+			loops[i] = new EventLoop(i, queueCapacity);
+		}
+	}
+
+	@Override
+	public void onMessage(Session session, Message message) {
+		EventLoop loop = loopFor(session.getSessionID());
+		if (message == END_OF_STREAM && !loop.running) {
+			return;
+		}
+		try {
+			loop.queue.put(new Event(session, message));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public SessionConnector getSessionConnector() {
+		return sessionConnector;
+	}
+
+	@Override
+	public int getQueueSize() {
+		int size = 0;
+		for (EventLoop loop : loops) {
+			size += loop.queue.size();
+		}
+		return size;
+	}
+
+	@Override
+	public int getQueueSize(SessionID sessionID) {
+		int size = 0;
+		for (Event event : loopFor(sessionID).queue) {
+			if (event.session != null && event.session.getSessionID().equals(sessionID)) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	public int getEventLoopCount() {
+		return loops.length;
+	}
+
+	public synchronized void start() {
+		for (EventLoop loop : loops) {
+			loop.start();
+		}
+	}
+
+	/**
+	 * Lets every loop process the messages already queued before it stops.
+	 */
+	public synchronized void stop() throws InterruptedException {
+		for (EventLoop loop : loops) {
+			loop.stop();
+		}
+		for (EventLoop loop : loops) {
+			if (loop.thread != null) {
+				loop.thread.join(TimeUnit.SECONDS.toMillis(5));
+				loop.thread = null;
+			}
+		}
+	}
+
+	private EventLoop loopFor(SessionID sessionID) {
+		int hash = sessionID.hashCode();
+		return loops[Math.floorMod(hash ^ (hash >>> 16), loops.length)];
+	}
+
+	private static final class EventLoop implements Runnable {
+
+		private final String name;
+
+		private final BlockingQueue<Event> queue;
+
+		private volatile boolean running;
+
+		private Thread thread;
+
+		private EventLoop(int index, int queueCapacity) {
+			this.name = "QFJ Event Loop " + index;
+			this.queue = new LinkedBlockingQueue<>(queueCapacity);
+		}
+
+		private void start() {
+			if (thread == null) {
+				running = true;
+				thread = new Thread(this, name);
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+
+		private void stop() throws InterruptedException {
+			if (thread != null) {
+				running = false;
+				queue.put(STOP);
+			}
+		}
+
+		@Override
+		public void run() {
+			for (;;) {
+				Event event;
+				try {
+					event = queue.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (event == STOP) {
+					return;
+				}
+				try {
+					event.session.next(event.message);
+				} catch (Throwable e) {
+					LogUtil.logThrowable(event.session.getSessionID(), "Error during message processing", e);
+				}
+			}
+		}
+	}
+
+	private static final class Event {
+
+		private final Session session;
+
+		private final Message message;
+
+		private Event(Session session, Message message) {
+			this.session = session;
+			this.message = message;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.eventloop;
+
+import quickfix.Application;
+import quickfix.ConfigError;
+import quickfix.LogFactory;
+import quickfix.MessageFactory;
+import quickfix.MessageStoreFactory;
+import quickfix.RuntimeError;
+import quickfix.Session;
+import quickfix.SessionSettings;
+import quickfix.mina.EventHandlingStrategy;
+import quickfix.mina.acceptor.AbstractSocketAcceptor;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Socket acceptor that processes the messages of all its sessions, on all its ports, on a fixed pool of event loops.
+ * <p>
+ * Sits between the {@code SocketAcceptor}, one message processing thread for all the sessions, and the
+ * {@code ThreadedSocketAcceptor}, one thread per session: see {@link EventLoopEventHandlingStrategy}.
+ */
+public class EventLoopSocketAcceptor extends AbstractSocketAcceptor {
+
+	private final EventLoopEventHandlingStrategy eventHandlingStrategy;
+
+	private boolean started;
+
+	public EventLoopSocketAcceptor(Application application, MessageStoreFactory messageStoreFactory,
+	                               SessionSettings settings, LogFactory logFactory, MessageFactory messageFactory,
+	                               int eventLoops, int queueCapacity) throws ConfigError {
+		super(application, messageStoreFactory, settings, logFactory, messageFactory);
+		this.eventHandlingStrategy = new EventLoopEventHandlingStrategy(this, eventLoops, queueCapacity);
+	}
+
+	@Override
+	public synchronized void start() throws ConfigError, RuntimeError {
+		if (started) {
+			log.warn("Ignored attempt to start already running EventLoopSocketAcceptor.");
+			return;
+		}
+		eventHandlingStrategy.start();
+		startAcceptingConnections();
+		started = true;
+		log.info("Processing the messages of {} sessions on {} event loops", getSessions().size(),
+				eventHandlingStrategy.getEventLoopCount());
+	}
+
+	@Override
+	public synchronized void stop(boolean forceDisconnect) {
+		if (!started) {
+			return;
+		}
+		try {
+			logoutAllSessions(forceDisconnect);
+			stopAcceptingConnections();
+			// the Logout replies are processed by the event loops, they are stopped once the sessions are disconnected
+			waitForDisconnect(forceDisconnect);
+			stopSessionTimer();
+			eventHandlingStrategy.stop();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			closeSessions();
+			clearConnectorSessions();
+			started = false;
+		}
+	}
+
+	@Override
+	protected EventHandlingStrategy getEventHandlingStrategy() {
+		return eventHandlingStrategy;
+	}
+
+	/**
+	 * Waits for the sessions still connected to complete their logout, then disconnects those over their
+	 * LogoutTimeout, or all of them when forced. The session timer sends the Logout of the sessions logged on.
+	 */
+	private void waitForDisconnect(boolean forceDisconnect) throws InterruptedException {
+		long start = System.currentTimeMillis();
+		List<Session> connected = getManagedSessions().stream()
+				.filter(Session::hasResponder)
+				.collect(Collectors.toList());
+		while (!connected.isEmpty()) {
+			long elapsed = System.currentTimeMillis() - start;
+			for (Iterator<Session> sessions = connected.iterator(); sessions.hasNext(); ) {
+				Session session = sessions.next();
+				if (!session.hasResponder()) {
+					sessions.remove();
+				} else if (forceDisconnect) {
+					disconnect(session, "Forcibly disconnecting session");
+					sessions.remove();
+				} else if (elapsed >= TimeUnit.SECONDS.toMillis(session.getLogoutTimeout())) {
+					disconnect(session, "Logout timeout, force disconnect");
+					sessions.remove();
+				}
+			}
+			if (!connected.isEmpty()) {
+				Thread.sleep(100);
+			}
+		}
+	}
+
+	private void disconnect(Session session, String reason) {
+		try {
+			session.disconnect(reason, false);
+		} catch (IOException e) {
+			log.error("Unable to disconnect the session {}", session.getSessionID(), e);
+		}
+	}
+
+	/**
+	 * Closes the store and the log of the sessions, and drops them from the global registry of QuickFIX/J.
+	 */
+	private void closeSessions() {
+		for (Session session : getManagedSessions()) {
+			try {
+				session.close();
+			} catch (IOException e) {
+				log.error("Unable to close the session {}", session.getSessionID(), e);
+			}
+		}
+	}
+}
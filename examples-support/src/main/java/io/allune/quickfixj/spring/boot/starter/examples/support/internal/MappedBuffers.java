@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Releases the mapping of a {@link MappedByteBuffer} without waiting for the garbage collector, which the JDK has no
+ * API for.
+ * <p>
+ * It uses {@code sun.misc.Unsafe.invokeCleaner} on Java 9 and later and the {@code sun.nio.ch.DirectBuffer} cleaner on
+ * Java 8. When neither is available a warning is logged once and the mapping is left to the garbage collector. A
+ * buffer must never be read or written once unmapped: the JVM would crash.
+ */
+public final class MappedBuffers {
+
+	private static final Logger log = LoggerFactory.getLogger(MappedBuffers.class);
+
+	private static final Unmapper UNMAPPER = unmapper();
+
+	private MappedBuffers() {
+	}
+
+	public static boolean isUnmapSupported() {
+		return UNMAPPER != null;
+	}
+
+	/**
+	 * Unmaps the buffer.
+	 *
+	 * @return false if the mapping is left to the garbage collector
+	 */
+	public static boolean unmap(MappedByteBuffer buffer) {
+		if (UNMAPPER == null || buffer == null) {
+			return false;
+		}
+		try {
+			UNMAPPER.unmap(buffer);
+			return true;
+		} catch (Exception e) {
+			log.warn("Unable to unmap a buffer, it is left to the garbage collector: {}", e.toString());
+			return false;
+		}
+	}
+
+	private static Unmapper unmapper() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			Object unsafe = theUnsafe.get(null);
+			return buffer -> invokeCleaner.invoke(unsafe, buffer);
+		} catch (ReflectiveOperationException | RuntimeException java9) {
+			try {
+				Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+				Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+				return buffer -> clean.invoke(cleaner.invoke(buffer));
+			} catch (ReflectiveOperationException | RuntimeException java8) {
+				log.warn("Mapped buffers cannot be unmapped in this JVM, they are left to the garbage collector: {}",
+						java8.toString());
+				return null;
+			}
+		}
+	}
+
+	private interface Unmapper {
+
+		void unmap(MappedByteBuffer buffer) throws Exception;
+	}
+}
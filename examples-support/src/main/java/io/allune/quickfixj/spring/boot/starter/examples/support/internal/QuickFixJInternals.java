@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.internal;
+
+import org.apache.mina.core.session.IoSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.Responder;
+import quickfix.Session;
+import quickfix.mina.IoSessionResponder;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * The members of QuickFIX/J that are not part of its API, for the optimizations that cannot be done without them.
+ * <p>
+ * A member is looked up the first time it is used, not when the class using it is loaded, and a member that is
+ * missing, as after an upgrade of QuickFIX/J that renamed it, only logs a warning once: {@code isAvailable()} then
+ * returns false and the caller falls back to the public API, or to no optimization at all. An application never
+ * fails to start because of one of them.
+ */
+public final class QuickFixJInternals {
+
+	private static final Logger log = LoggerFactory.getLogger(QuickFixJInternals.class);
+
+	private static final InternalMethod GET_IO_SESSION = method(IoSessionResponder.class, "getIoSession");
+
+	private QuickFixJInternals() {
+	}
+
+	public static InternalMethod method(Class<?> type, String name, Class<?>... parameterTypes) {
+		return new InternalMethod(type, name, parameterTypes);
+	}
+
+	public static InternalField field(Class<?> type, String name) {
+		return new InternalField(type, name);
+	}
+
+	/**
+	 * Returns the bytes queued for writing to the socket of the session, or -1 if they are not known: the session is
+	 * not connected through MINA, or {@code IoSessionResponder.getIoSession} is not available.
+	 */
+	public static long scheduledWriteBytes(Session session) {
+		IoSession ioSession = ioSession(session.getResponder());
+		return ioSession != null ? ioSession.getScheduledWriteBytes() : -1;
+	}
+
+	/**
+	 * Returns the MINA session of the responder, or null if it is not known.
+	 */
+	public static IoSession ioSession(Responder responder) {
+		if (!(responder instanceof IoSessionResponder) || !GET_IO_SESSION.isAvailable()) {
+			return null;
+		}
+		try {
+			return (IoSession) GET_IO_SESSION.invoke(responder);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * A member resolved once, on first use.
+	 */
+	public abstract static class InternalMember<T extends AccessibleObject> {
+
+		private final Class<?> type;
+
+		private final String name;
+
+		private volatile boolean resolved;
+
+		private T member;
+
+		InternalMember(Class<?> type, String name) {
+			this.type = type;
+			this.name = name;
+		}
+
+		public boolean isAvailable() {
+			return resolve() != null;
+		}
+
+		T resolve() {
+			if (!resolved) {
+				synchronized (this) {
+					if (!resolved) {
+						try {
+							T found = find(type, name);
+							found.setAccessible(true);
+							member = found;
+						} catch (ReflectiveOperationException | RuntimeException e) {
+							log.warn("{}.{} is not available in this version of QuickFIX/J, the features relying on it "
+									+ "are disabled: {}", type.getName(), name, e.toString());
+						}
+						resolved = true;
+					}
+				}
+			}
+			return member;
+		}
+
+		T require() {
+			T resolvedMember = resolve();
+			if (resolvedMember == null) {
+				throw new UnsupportedOperationException(type.getName() + "." + name + " is not available");
+			}
+			return resolvedMember;
+		}
+
+		abstract T find(Class<?> type, String name) throws ReflectiveOperationException;
+	}
+
+	public static final class InternalMethod extends InternalMember<Method> {
+
+		private final Class<?>[] parameterTypes;
+
+		private InternalMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+			super(type, name);
+			this.parameterTypes = Arrays.copyOf(parameterTypes, parameterTypes.length);
+		}
+
+		/**
+		 * Invokes the method, rethrowing what it throws as is.
+		 *
+		 * @throws UnsupportedOperationException if the method is not available
+		 */
+		public Object invoke(Object target, Object... args) throws Exception {
+			try {
+				return require().invoke(target, args);
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof Exception) {
+					throw (Exception) cause;
+				}
+				throw (Error) cause;
+			}
+		}
+
+		@Override
+		Method find(Class<?> type, String name) throws NoSuchMethodException {
+			return type.getDeclaredMethod(name, parameterTypes);
+		}
+	}
+
+	public static final class InternalField extends InternalMember<Field> {
+
+		private InternalField(Class<?> type, String name) {
+			super(type, name);
+		}
+
+		/**
+		 * @throws UnsupportedOperationException if the field is not available
+		 */
+		public Object get(Object target) {
+			try {
+				return require().get(target);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		Field find(Class<?> type, String name) throws NoSuchFieldException {
+			return type.getDeclaredField(name);
+		}
+	}
+}
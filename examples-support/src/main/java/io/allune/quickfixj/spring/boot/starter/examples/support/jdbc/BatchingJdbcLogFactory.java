@@ -0,0 +1,566 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.JdbcSetting;
+import quickfix.Log;
+import quickfix.LogFactory;
+import quickfix.MessageUtils;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.SystemTime;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Drop-in replacement for {@code JdbcLogFactory} that queues the log records and writes them from a single thread
+ * with multi-row batch inserts, instead of one INSERT per line on the session threads.
+ * <p>
+ * The records are flushed when {@value #SETTING_BATCH_SIZE} are pending or {@value #SETTING_FLUSH_INTERVAL}
+ * milliseconds after the first one. When the queue is full new records are dropped and counted, logging never blocks
+ * a session. A batch which cannot be written is retried {@value #SETTING_MAX_RETRIES} times, then dropped and counted.
+ * <p>
+ * With {@value #SETTING_PARTITIONING} set to {@code DAY} or {@code SESSION} the configured log tables are used as
+ * templates and every record goes to a {@code <table>_<yyyyMMdd>} or {@code <table>_<session>} table, created on first
+ * use with {@value #SETTING_CREATE_PARTITION_SQL}, outside the transaction of the batch since some databases commit
+ * on DDL. The {@code DAY} tables are shared by all the sessions, their records told apart by the session columns as in
+ * the configured tables; {@code SESSION} gives each session its own tables. Clearing the log of a session deletes its
+ * records from the configured tables and from every partition found in the database, including the ones of earlier
+ * runs or of another partitioning.
+ */
+public class BatchingJdbcLogFactory implements LogFactory, AutoCloseable {
+
+	public static final String SETTING_QUEUE_CAPACITY = "BatchingLogQueueCapacity";
+
+	public static final String SETTING_BATCH_SIZE = "BatchingLogBatchSize";
+
+	public static final String SETTING_ROWS_PER_INSERT = "BatchingLogRowsPerInsert";
+
+	public static final String SETTING_FLUSH_INTERVAL = "BatchingLogFlushInterval";
+
+	public static final String SETTING_PARTITIONING = "BatchingLogPartitioning";
+
+	public static final String SETTING_CREATE_PARTITION_SQL = "BatchingLogCreatePartitionSql";
+
+	public static final String SETTING_MAX_RETRIES = "BatchingLogMaxRetries";
+
+	private static final Logger log = LoggerFactory.getLogger(BatchingJdbcLogFactory.class);
+
+	private static final long RETRY_BACKOFF_MILLIS = 1000;
+
+	private static final Pattern DAY_SUFFIX = Pattern.compile("\\d{8}");
+
+	private static final String COLUMNS = "time, beginstring, sendercompid, sendersubid, senderlocid, "
+			+ "targetcompid, targetsubid, targetlocid, session_qualifier, text";
+
+	private static final String ROW_PLACEHOLDERS = "(?,?,?,?,?,?,?,?,?,?)";
+
+	private static final String ID_WHERE_CLAUSE = "beginstring = ? AND sendercompid = ? AND sendersubid = ? "
+			+ "AND senderlocid = ? AND targetcompid = ? AND targetsubid = ? AND targetlocid = ? "
+			+ "AND session_qualifier = ?";
+
+	private final SessionSettings settings;
+
+	private final DataSource dataSource;
+
+	private final BlockingQueue<LogRecord> records;
+
+	private final int queueCapacity;
+
+	private final int batchSize;
+
+	private final int rowsPerInsert;
+
+	private final long flushIntervalNanos;
+
+	private final Partitioning partitioning;
+
+	private final String createPartitionSql;
+
+	private final int maxRetries;
+
+	private final Thread writer;
+
+	private final LongAdder droppedCount = new LongAdder();
+
+	private volatile boolean running = true;
+
+	// written by the writer thread only
+
+	private final Map<String, String> insertSql = new HashMap<>();
+
+	private final Set<String> createdPartitions = new HashSet<>();
+
+	private final Calendar utcCalendar = SystemTime.getUtcCalendar();
+
+	private long currentEpochDay = -1;
+
+	private String currentDaySuffix;
+
+	private volatile long writtenCount;
+
+	private volatile long failedCount;
+
+	private volatile long retryCount;
+
+	private volatile long flushCount;
+
+	private volatile long totalFlushNanos;
+
+	private volatile long lastFlushNanos;
+
+	private volatile long maxFlushNanos;
+
+	public BatchingJdbcLogFactory(SessionSettings settings, DataSource dataSource)
+			throws ConfigError, FieldConvertError {
+		this.settings = settings;
+		this.dataSource = dataSource;
+		this.queueCapacity = (int) getLong(SETTING_QUEUE_CAPACITY, 65536);
+		this.batchSize = (int) getLong(SETTING_BATCH_SIZE, 1000);
+		this.rowsPerInsert = (int) getLong(SETTING_ROWS_PER_INSERT, 100);
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(getLong(SETTING_FLUSH_INTERVAL, 50));
+		this.partitioning = settings.isSetting(SETTING_PARTITIONING)
+				? Partitioning.valueOf(settings.getString(SETTING_PARTITIONING).trim().toUpperCase())
+				: Partitioning.NONE;
+		this.createPartitionSql = settings.isSetting(SETTING_CREATE_PARTITION_SQL)
+				? settings.getString(SETTING_CREATE_PARTITION_SQL)
+				: "CREATE TABLE IF NOT EXISTS %s LIKE %s";
+		this.maxRetries = (int) getLong(SETTING_MAX_RETRIES, 10);
+		if (maxRetries < 0) {
+			throw new ConfigError(SETTING_MAX_RETRIES + " must not be negative");
+		}
+		this.records = new ArrayBlockingQueue<>(queueCapacity);
+		this.writer = new Thread(this::drain, "batching-jdbc-log");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public Log create(SessionID sessionID) {
+		try {
+			return new BatchingJdbcLog(sessionID);
+		} catch (ConfigError | FieldConvertError e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public Map<String, Object> getMetrics() {
+		long flushes = flushCount;
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("partitioning", partitioning);
+		metrics.put("queueCapacity", queueCapacity);
+		metrics.put("queueDepth", records.size());
+		metrics.put("written", writtenCount);
+		metrics.put("dropped", droppedCount.sum());
+		metrics.put("failed", failedCount);
+		metrics.put("retries", retryCount);
+		metrics.put("flushes", flushes);
+		metrics.put("lastFlushLatencyMicros", TimeUnit.NANOSECONDS.toMicros(lastFlushNanos));
+		metrics.put("meanFlushLatencyMicros", flushes == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalFlushNanos / flushes));
+		metrics.put("maxFlushLatencyMicros", TimeUnit.NANOSECONDS.toMicros(maxFlushNanos));
+		return metrics;
+	}
+
+	/**
+	 * Stops accepting records, flushes the pending ones and stops the writer thread.
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		running = false;
+		writer.join(TimeUnit.SECONDS.toMillis(10));
+		if (writer.isAlive()) {
+			log.warn("Log writer still flushing {} records after 10 seconds", records.size());
+		}
+	}
+
+	private long getLong(String key, long defaultValue) throws ConfigError, FieldConvertError {
+		return settings.isSetting(key) ? settings.getLong(key) : defaultValue;
+	}
+
+	private void enqueue(LogRecord record) {
+		if (!running || !records.offer(record)) {
+			droppedCount.increment();
+		}
+	}
+
+	private void drain() {
+		List<LogRecord> batch = new ArrayList<>(batchSize);
+		while (running || !records.isEmpty()) {
+			try {
+				collect(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (batch.isEmpty()) {
+				continue;
+			}
+
+			long start = System.nanoTime();
+			for (int attempt = 0; ; attempt++) {
+				try {
+					flush(batch);
+					writtenCount += batch.size();
+					break;
+				} catch (SQLException | RuntimeException e) {
+					if (!running) {
+						log.error("Unable to write {} log records on shutdown", batch.size(), e);
+						failedCount += batch.size();
+						break;
+					}
+					if (attempt == maxRetries) {
+						log.error("Unable to write {} log records after {} retries, dropping them", batch.size(),
+								maxRetries, e);
+						failedCount += batch.size();
+						break;
+					}
+					log.error("Unable to write {} log records, retrying", batch.size(), e);
+					retryCount++;
+					LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MILLIS));
+				}
+			}
+			long latency = System.nanoTime() - start;
+			lastFlushNanos = latency;
+			totalFlushNanos += latency;
+			maxFlushNanos = Math.max(maxFlushNanos, latency);
+			flushCount++;
+			batch.clear();
+		}
+	}
+
+	private void collect(List<LogRecord> batch) throws InterruptedException {
+		LogRecord first = records.poll(100, TimeUnit.MILLISECONDS);
+		if (first == null) {
+			return;
+		}
+		batch.add(first);
+		long deadline = System.nanoTime() + flushIntervalNanos;
+		while (batch.size() < batchSize) {
+			long remaining = deadline - System.nanoTime();
+			LogRecord next = remaining > 0 ? records.poll(remaining, TimeUnit.NANOSECONDS) : records.poll();
+			if (next == null) {
+				break;
+			}
+			batch.add(next);
+		}
+		records.drainTo(batch, batchSize - batch.size());
+	}
+
+	private void flush(List<LogRecord> batch) throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			// the partitions are created before the transaction starts, as DDL commits it on some databases
+			List<String> tables = new ArrayList<>(batch.size());
+			for (LogRecord record : batch) {
+				tables.add(record.text == null ? null : tableFor(connection, record));
+			}
+
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				Map<String, List<LogRecord>> rowsByTable = new LinkedHashMap<>();
+				for (int i = 0; i < batch.size(); i++) {
+					LogRecord record = batch.get(i);
+					if (record.text == null) {
+						insert(connection, rowsByTable);
+						rowsByTable.clear();
+						delete(connection, record);
+					} else {
+						rowsByTable.computeIfAbsent(tables.get(i), table -> new ArrayList<>()).add(record);
+					}
+				}
+				insert(connection, rowsByTable);
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+	}
+
+	private void insert(Connection connection, Map<String, List<LogRecord>> rowsByTable) throws SQLException {
+		for (Map.Entry<String, List<LogRecord>> entry : rowsByTable.entrySet()) {
+			String table = entry.getKey();
+			List<LogRecord> rows = entry.getValue();
+			int fullInserts = rows.size() / rowsPerInsert;
+			int remainder = rows.size() % rowsPerInsert;
+
+			if (fullInserts > 0) {
+				try (PreparedStatement insert = connection.prepareStatement(insertSql(table, rowsPerInsert))) {
+					for (int i = 0; i < fullInserts; i++) {
+						setRows(insert, rows, i * rowsPerInsert, rowsPerInsert);
+						insert.addBatch();
+					}
+					insert.executeBatch();
+				}
+			}
+			if (remainder > 0) {
+				try (PreparedStatement insert = connection.prepareStatement(insertSql(table, remainder))) {
+					setRows(insert, rows, fullInserts * rowsPerInsert, remainder);
+					insert.executeUpdate();
+				}
+			}
+		}
+	}
+
+	private void setRows(PreparedStatement insert, List<LogRecord> rows, int offset, int count) throws SQLException {
+		int index = 1;
+		for (int i = offset; i < offset + count; i++) {
+			LogRecord record = rows.get(i);
+			insert.setTimestamp(index++, new Timestamp(record.time), utcCalendar);
+			for (String value : record.log.sessionIdValues) {
+				insert.setString(index++, value);
+			}
+			insert.setString(index++, record.text);
+		}
+	}
+
+	private String insertSql(String table, int rows) {
+		return insertSql.computeIfAbsent(table + '#' + rows, key -> {
+			StringBuilder sql = new StringBuilder("INSERT INTO ").append(table)
+					.append(" (").append(COLUMNS).append(") VALUES ").append(ROW_PLACEHOLDERS);
+			for (int i = 1; i < rows; i++) {
+				sql.append(',').append(ROW_PLACEHOLDERS);
+			}
+			return sql.toString();
+		});
+	}
+
+	private String tableFor(Connection connection, LogRecord record) throws SQLException {
+		String suffix;
+		switch (partitioning) {
+			case DAY:
+				long epochDay = Math.floorDiv(record.time, TimeUnit.DAYS.toMillis(1));
+				if (epochDay != currentEpochDay) {
+					currentEpochDay = epochDay;
+					currentDaySuffix = LocalDate.ofEpochDay(epochDay).format(DateTimeFormatter.BASIC_ISO_DATE);
+				}
+				suffix = currentDaySuffix;
+				break;
+			case SESSION:
+				suffix = record.log.partitionSuffix;
+				break;
+			default:
+				return record.table;
+		}
+
+		String partition = record.table + '_' + suffix;
+		if (!createdPartitions.contains(partition)) {
+			try (Statement create = connection.createStatement()) {
+				create.execute(String.format(createPartitionSql, partition, record.table));
+			}
+			createdPartitions.add(partition);
+		}
+		return partition;
+	}
+
+	private void delete(Connection connection, LogRecord clear) throws SQLException {
+		Set<String> tables = new LinkedHashSet<>();
+		for (String table : clear.log.tables) {
+			tables.add(table);
+			tables.addAll(findPartitions(connection, table, clear.log));
+		}
+		for (String table : tables) {
+			try (PreparedStatement delete = connection.prepareStatement(
+					"DELETE FROM " + table + " WHERE " + ID_WHERE_CLAUSE)) {
+				int index = 1;
+				for (String value : clear.log.sessionIdValues) {
+					delete.setString(index++, value);
+				}
+				delete.executeUpdate();
+			}
+		}
+	}
+
+	/**
+	 * Looks the partitions of a table holding records of the session up in the database: the day partitions and the
+	 * partition of the session, whichever partitioning they were created with.
+	 */
+	private List<String> findPartitions(Connection connection, String table, BatchingJdbcLog log) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		String prefix = table + '_';
+		String escape = metaData.getSearchStringEscape();
+		String pattern = (escape == null || escape.isEmpty() ? prefix : prefix.replace("_", escape + "_")) + '%';
+		if (metaData.storesUpperCaseIdentifiers()) {
+			pattern = pattern.toUpperCase(Locale.ROOT);
+		} else if (metaData.storesLowerCaseIdentifiers()) {
+			pattern = pattern.toLowerCase(Locale.ROOT);
+		}
+
+		List<String> partitions = new ArrayList<>();
+		try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, pattern, new String[]{"TABLE"})) {
+			while (tables.next()) {
+				String name = tables.getString("TABLE_NAME");
+				if (!name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+					continue;
+				}
+				String suffix = name.substring(prefix.length());
+				if (DAY_SUFFIX.matcher(suffix).matches() || suffix.equalsIgnoreCase(log.partitionSuffix)) {
+					partitions.add(name);
+				}
+			}
+		}
+		return partitions;
+	}
+
+	private static String valueOrDefault(String value, String defaultValue) {
+		return value == null || value.isEmpty() || SessionID.NOT_SET.equals(value) ? defaultValue : value;
+	}
+
+	/**
+	 * How the log records are spread over tables.
+	 */
+	public enum Partitioning {
+
+		/**
+		 * All the records go to the configured tables.
+		 */
+		NONE,
+
+		/**
+		 * One table per configured table and UTC day, shared by all the sessions.
+		 */
+		DAY,
+
+		/**
+		 * One table per configured table and session.
+		 */
+		SESSION
+	}
+
+	private final class BatchingJdbcLog implements Log {
+
+		private final String[] sessionIdValues;
+
+		private final String partitionSuffix;
+
+		private final String incomingTable;
+
+		private final String outgoingTable;
+
+		private final String eventTable;
+
+		private final String[] tables;
+
+		private final boolean logHeartbeats;
+
+		private BatchingJdbcLog(SessionID sessionID) throws ConfigError, FieldConvertError {
+			String defaultValue = settings.isSetting(sessionID, JdbcSetting.SETTING_JDBC_SESSION_ID_DEFAULT_PROPERTY_VALUE)
+					? settings.getString(sessionID, JdbcSetting.SETTING_JDBC_SESSION_ID_DEFAULT_PROPERTY_VALUE)
+					: "";
+			this.sessionIdValues = new String[]{
+					sessionID.getBeginString(),
+					sessionID.getSenderCompID(),
+					valueOrDefault(sessionID.getSenderSubID(), defaultValue),
+					valueOrDefault(sessionID.getSenderLocationID(), defaultValue),
+					sessionID.getTargetCompID(),
+					valueOrDefault(sessionID.getTargetSubID(), defaultValue),
+					valueOrDefault(sessionID.getTargetLocationID(), defaultValue),
+					valueOrDefault(sessionID.getSessionQualifier(), defaultValue)
+			};
+			this.partitionSuffix = sessionID.toString().replaceAll("[^A-Za-z0-9]+", "_").toLowerCase();
+			this.incomingTable = getString(sessionID, JdbcSetting.SETTING_LOG_INCOMING_TABLE, "messages_log");
+			this.outgoingTable = getString(sessionID, JdbcSetting.SETTING_LOG_OUTGOING_TABLE, "messages_log");
+			this.eventTable = getString(sessionID, JdbcSetting.SETTING_LOG_EVENT_TABLE, "event_log");
+			this.tables = new LinkedHashSet<>(Arrays.asList(incomingTable, outgoingTable, eventTable))
+					.toArray(new String[0]);
+			this.logHeartbeats = !settings.isSetting(sessionID, JdbcSetting.SETTING_JDBC_LOG_HEARTBEATS)
+					|| settings.getBool(sessionID, JdbcSetting.SETTING_JDBC_LOG_HEARTBEATS);
+		}
+
+		private String getString(SessionID sessionID, String key, String defaultValue) throws ConfigError,
+				FieldConvertError {
+			return settings.isSetting(sessionID, key) ? settings.getString(sessionID, key) : defaultValue;
+		}
+
+		@Override
+		public void clear() {
+			enqueue(new LogRecord(this, null, null));
+		}
+
+		@Override
+		public void onIncoming(String message) {
+			if (logHeartbeats || !MessageUtils.isHeartbeat(message)) {
+				enqueue(new LogRecord(this, incomingTable, message));
+			}
+		}
+
+		@Override
+		public void onOutgoing(String message) {
+			if (logHeartbeats || !MessageUtils.isHeartbeat(message)) {
+				enqueue(new LogRecord(this, outgoingTable, message));
+			}
+		}
+
+		@Override
+		public void onEvent(String text) {
+			enqueue(new LogRecord(this, eventTable, text));
+		}
+
+		@Override
+		public void onErrorEvent(String text) {
+			enqueue(new LogRecord(this, eventTable, text));
+		}
+	}
+
+	private static final class LogRecord {
+
+		private final BatchingJdbcLog log;
+
+		private final String table;
+
+		private final String text;
+
+		private final long time = SystemTime.currentTimeMillis();
+
+		private LogRecord(BatchingJdbcLog log, String table, String text) {
+			this.log = log;
+			this.table = table;
+			this.text = text;
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.jdbc;
+
+import quickfix.Application;
+import quickfix.DoNotSend;
+import quickfix.FieldNotFound;
+import quickfix.IncorrectDataFormat;
+import quickfix.IncorrectTagValue;
+import quickfix.InvalidMessage;
+import quickfix.Message;
+import quickfix.MessageStore;
+import quickfix.MessageUtils;
+import quickfix.RejectLogon;
+import quickfix.Responder;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SystemTime;
+import quickfix.UnsupportedMessageType;
+import quickfix.field.BeginSeqNo;
+import quickfix.field.BeginString;
+import quickfix.field.EndSeqNo;
+import quickfix.field.GapFillFlag;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.MsgType;
+import quickfix.field.NewSeqNo;
+import quickfix.field.OrigSendingTime;
+import quickfix.field.PossDupFlag;
+import quickfix.field.SenderCompID;
+import quickfix.field.SenderLocationID;
+import quickfix.field.SenderSubID;
+import quickfix.field.SendingTime;
+import quickfix.field.TargetCompID;
+import quickfix.field.TargetLocationID;
+import quickfix.field.TargetSubID;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * {@link Application} decorator that answers the part of a ResendRequest older than the in-memory window of a
+ * {@link WriteBehindJdbcStore} itself, and leaves the rest of the range to the session.
+ * <p>
+ * {@code Session} reads the whole range of a ResendRequest into a list before it resends anything, so the range
+ * requested after a long outage is held in memory at once. The ResendRequest reaches {@link #fromAdmin} before the
+ * session reads its range: the messages older than the window are read back from the database a page of
+ * {@value WriteBehindJdbcStore#SETTING_RESEND_PAGE_SIZE} messages at a time and written to the responder a page at a
+ * time, resent as the session resends them (PossDupFlag, OrigSendingTime and a new SendingTime, approved by
+ * {@link #toApp}), with each run of administrative, missing or {@link DoNotSend} messages replaced by one
+ * SequenceReset-GapFill. BeginSeqNo of the ResendRequest is then moved past the streamed part, so the session only
+ * resends the messages of the window, and at least the last one requested.
+ * <p>
+ * Limitations: the ResendRequest is rewritten in place, after the session logged it as received. The messages sent
+ * by other threads while the older part is streamed are interleaved with it, as they are with the resend of the
+ * session. Writes the counterparty is not reading yet are queued by the responder, so memory only stays flat with
+ * {@code SocketSynchronousWrites=Y}. The streamed messages are stamped with a SendingTime in milliseconds whatever
+ * the TimeStampPrecision of the session, and the gap fills carry no LastMsgSeqNumProcessed. If streaming fails the
+ * ResendRequest is left untouched and the session resends the whole range again. Sessions with another store are
+ * left to the session.
+ */
+public class ChunkedResendApplication implements Application {
+
+	private final Application delegate;
+
+	public ChunkedResendApplication(Application delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void onCreate(SessionID sessionId) {
+		delegate.onCreate(sessionId);
+	}
+
+	@Override
+	public void onLogon(SessionID sessionId) {
+		delegate.onLogon(sessionId);
+	}
+
+	@Override
+	public void onLogout(SessionID sessionId) {
+		delegate.onLogout(sessionId);
+	}
+
+	@Override
+	public void toAdmin(Message message, SessionID sessionId) {
+		delegate.toAdmin(message, sessionId);
+	}
+
+	@Override
+	public void fromAdmin(Message message, SessionID sessionId)
+			throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
+
+		delegate.fromAdmin(message, sessionId);
+		if (MsgType.RESEND_REQUEST.equals(message.getHeader().getString(MsgType.FIELD))) {
+			resendOlderThanWindow(message, Session.lookupSession(sessionId));
+		}
+	}
+
+	@Override
+	public void toApp(Message message, SessionID sessionId) throws DoNotSend {
+		delegate.toApp(message, sessionId);
+	}
+
+	@Override
+	public void fromApp(Message message, SessionID sessionId)
+			throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType {
+
+		delegate.fromApp(message, sessionId);
+	}
+
+	private void resendOlderThanWindow(Message resendRequest, Session session) throws FieldNotFound {
+		MessageStore store = session == null ? null : session.getStore();
+		Responder responder = session == null ? null : session.getResponder();
+		if (!(store instanceof WriteBehindJdbcStore) || responder == null || !session.isLoggedOn()) {
+			return;
+		}
+		WriteBehindJdbcStore jdbcStore = (WriteBehindJdbcStore) store;
+
+		int beginSeqNo = Math.max(1, resendRequest.getInt(BeginSeqNo.FIELD));
+		int endSeqNo = resendRequest.getInt(EndSeqNo.FIELD);
+		int lastSeqNo = jdbcStore.getNextSenderMsgSeqNum() - 1;
+		if (endSeqNo == 0 || endSeqNo > lastSeqNo) {
+			endSeqNo = lastSeqNo;
+		}
+		// the session resends the window and at least the last message requested, so it sends no gap fill of its own
+		int splitSeqNo = Math.min(jdbcStore.getWindowStart(), endSeqNo);
+		if (beginSeqNo >= splitSeqNo) {
+			return;
+		}
+
+		Resend resend = new Resend(session, responder, beginSeqNo, jdbcStore.getResendPageSize());
+		try {
+			jdbcStore.forEachMessage(beginSeqNo, splitSeqNo - 1, resend::message);
+			resend.finish(splitSeqNo);
+		} catch (IOException e) {
+			session.getLog().onErrorEvent("Streaming resend of " + beginSeqNo + " to " + (splitSeqNo - 1)
+					+ " failed, leaving the range to the session: " + e.getMessage());
+			return;
+		}
+		session.getLog().onEvent("Resent " + beginSeqNo + " to " + (splitSeqNo - 1) + " from the database");
+		resendRequest.setInt(BeginSeqNo.FIELD, splitSeqNo);
+	}
+
+	/**
+	 * The state of one streamed resend: the next sequence number expected from the store, the start of the open gap
+	 * fill run, and the page of messages not written yet.
+	 */
+	private final class Resend {
+
+		private final Session session;
+
+		private final Responder responder;
+
+		private final int chunkSize;
+
+		private final StringBuilder chunk = new StringBuilder();
+
+		private int chunkMessages;
+
+		private int expectedSeqNo;
+
+		private int gapStartSeqNo;
+
+		Resend(Session session, Responder responder, int beginSeqNo, int chunkSize) {
+			this.session = session;
+			this.responder = responder;
+			this.expectedSeqNo = beginSeqNo;
+			this.chunkSize = chunkSize;
+		}
+
+		void message(int sequence, String message) throws IOException {
+			if (sequence > expectedSeqNo && gapStartSeqNo == 0) {
+				gapStartSeqNo = expectedSeqNo;
+			}
+			expectedSeqNo = sequence + 1;
+
+			String resent = resendable(message);
+			if (resent == null) {
+				if (gapStartSeqNo == 0) {
+					gapStartSeqNo = sequence;
+				}
+				return;
+			}
+			if (gapStartSeqNo != 0) {
+				write(gapFill(gapStartSeqNo, sequence));
+				gapStartSeqNo = 0;
+			}
+			write(resent);
+		}
+
+		void finish(int splitSeqNo) throws IOException {
+			if (expectedSeqNo < splitSeqNo && gapStartSeqNo == 0) {
+				gapStartSeqNo = expectedSeqNo;
+			}
+			if (gapStartSeqNo != 0) {
+				write(gapFill(gapStartSeqNo, splitSeqNo));
+			}
+			flush();
+		}
+
+		/**
+		 * The stored message stamped for the resend, or {@code null} if a gap fill replaces it.
+		 */
+		private String resendable(String message) {
+			try {
+				if (MessageUtils.isAdminMessage(MessageUtils.getMessageType(message))) {
+					return null;
+				}
+				Message resent = MessageUtils.parse(session, message);
+				Message.Header header = resent.getHeader();
+				if (header.isSetField(SendingTime.FIELD)) {
+					header.setString(OrigSendingTime.FIELD, header.getString(SendingTime.FIELD));
+				}
+				header.setBoolean(PossDupFlag.FIELD, true);
+				header.setUtcTimeStamp(SendingTime.FIELD, SystemTime.getLocalDateTime(), true);
+				toApp(resent, session.getSessionID());
+				return resent.toString();
+			} catch (DoNotSend e) {
+				return null;
+			} catch (InvalidMessage | FieldNotFound e) {
+				session.getLog().onErrorEvent("Unable to resend stored message, sending a gap fill: " + e.getMessage());
+				return null;
+			}
+		}
+
+		private String gapFill(int sequence, int newSequence) {
+			SessionID sessionID = session.getSessionID();
+			Message gapFill = session.getMessageFactory().create(sessionID.getBeginString(), MsgType.SEQUENCE_RESET);
+			Message.Header header = gapFill.getHeader();
+			header.setString(BeginString.FIELD, sessionID.getBeginString());
+			header.setString(SenderCompID.FIELD, sessionID.getSenderCompID());
+			setIfSet(header, SenderSubID.FIELD, sessionID.getSenderSubID());
+			setIfSet(header, SenderLocationID.FIELD, sessionID.getSenderLocationID());
+			header.setString(TargetCompID.FIELD, sessionID.getTargetCompID());
+			setIfSet(header, TargetSubID.FIELD, sessionID.getTargetSubID());
+			setIfSet(header, TargetLocationID.FIELD, sessionID.getTargetLocationID());
+			header.setInt(MsgSeqNum.FIELD, sequence);
+			header.setBoolean(PossDupFlag.FIELD, true);
+			LocalDateTime now = SystemTime.getLocalDateTime();
+			header.setUtcTimeStamp(SendingTime.FIELD, now, true);
+			header.setUtcTimeStamp(OrigSendingTime.FIELD, now, true);
+			gapFill.setBoolean(GapFillFlag.FIELD, true);
+			gapFill.setInt(NewSeqNo.FIELD, newSequence);
+			return gapFill.toString();
+		}
+
+		private void write(String message) throws IOException {
+			session.getLog().onOutgoing(message);
+			chunk.append(message);
+			if (++chunkMessages >= chunkSize) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			if (chunkMessages == 0) {
+				return;
+			}
+			if (!responder.send(chunk.toString())) {
+				throw new IOException("The responder did not accept the resent messages");
+			}
+			chunk.setLength(0);
+			chunkMessages = 0;
+		}
+
+		private void setIfSet(Message.Header header, int field, String value) {
+			if (!SessionID.NOT_SET.equals(value)) {
+				header.setString(field, value);
+			}
+		}
+	}
+}
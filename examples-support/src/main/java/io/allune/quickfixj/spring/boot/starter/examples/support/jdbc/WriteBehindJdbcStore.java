@@ -0,0 +1,387 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.jdbc;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.jdbc.WriteBehindJdbcStoreFactory.MessageWrite;
+import io.allune.quickfixj.spring.boot.starter.examples.support.jdbc.WriteBehindJdbcStoreFactory.Reset;
+import io.allune.quickfixj.spring.boot.starter.examples.support.jdbc.WriteBehindJdbcStoreFactory.SessionState;
+import java.util.Map;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.JdbcSetting;
+import quickfix.MessageStore;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.SystemTime;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+import java.util.TreeMap;
+
+/**
+ * {@link MessageStore} that serves the session from memory and persists to the {@code JdbcStoreFactory} schema
+ * behind the session's back.
+ * <p>
+ * The last {@value #SETTING_WINDOW_SIZE} messages are kept in memory for resend requests, older ones are read back
+ * from the database {@value #SETTING_RESEND_PAGE_SIZE} messages at a time, so a large resend range is never read with
+ * one unbounded {@code SELECT}. {@link #get(int, int, Collection)} still adds the whole range to the collection of the
+ * session, {@link ChunkedResendApplication} streams the part older than the window instead. The state is recovered
+ * from the {@code sessions} and {@code messages} tables when the store is created, so a restarted session continues
+ * where the last committed write left it.
+ */
+public class WriteBehindJdbcStore implements MessageStore {
+
+	public static final String SETTING_DURABLE = "WriteBehindDurable";
+
+	public static final String SETTING_WINDOW_SIZE = "WriteBehindWindowSize";
+
+	public static final String SETTING_RESEND_PAGE_SIZE = "WriteBehindResendPageSize";
+
+	private static final String ID_COLUMNS = "beginstring, sendercompid, sendersubid, senderlocid, "
+			+ "targetcompid, targetsubid, targetlocid, session_qualifier";
+
+	private static final String ID_WHERE_CLAUSE = "beginstring = ? AND sendercompid = ? AND sendersubid = ? "
+			+ "AND senderlocid = ? AND targetcompid = ? AND targetsubid = ? AND targetlocid = ? "
+			+ "AND session_qualifier = ?";
+
+	private final WriteBehindJdbcStoreFactory factory;
+
+	private final String[] sessionIdValues;
+
+	private final boolean durable;
+
+	private final int windowSize;
+
+	private final int resendPageSize;
+
+	private final TreeMap<Integer, String> window = new TreeMap<>();
+
+	private final String insertMessageSql;
+
+	private final String updateMessageSql;
+
+	private final String deleteMessagesSql;
+
+	private final String selectMessagesSql;
+
+	private final String insertSessionSql;
+
+	private final String updateSessionSql;
+
+	private final String selectSessionSql;
+
+	private Timestamp creationTime;
+
+	private int nextSenderMsgSeqNum;
+
+	private int nextTargetMsgSeqNum;
+
+	WriteBehindJdbcStore(WriteBehindJdbcStoreFactory factory, SessionSettings settings, SessionID sessionID)
+			throws ConfigError, FieldConvertError, SQLException {
+
+		this.factory = factory;
+		this.durable = settings.isSetting(sessionID, SETTING_DURABLE) && settings.getBool(sessionID, SETTING_DURABLE);
+		this.windowSize = settings.isSetting(sessionID, SETTING_WINDOW_SIZE)
+				? (int) settings.getLong(sessionID, SETTING_WINDOW_SIZE)
+				: 10000;
+		this.resendPageSize = settings.isSetting(sessionID, SETTING_RESEND_PAGE_SIZE)
+				? (int) settings.getLong(sessionID, SETTING_RESEND_PAGE_SIZE)
+				: 1000;
+		if (resendPageSize < 1) {
+			throw new ConfigError(SETTING_RESEND_PAGE_SIZE + " must be positive");
+		}
+
+		String defaultValue = settings.isSetting(sessionID, JdbcSetting.SETTING_JDBC_SESSION_ID_DEFAULT_PROPERTY_VALUE)
+				? settings.getString(sessionID, JdbcSetting.SETTING_JDBC_SESSION_ID_DEFAULT_PROPERTY_VALUE)
+				: "";
+		this.sessionIdValues = new String[]{
+				sessionID.getBeginString(),
+				sessionID.getSenderCompID(),
+				valueOrDefault(sessionID.getSenderSubID(), defaultValue),
+				valueOrDefault(sessionID.getSenderLocationID(), defaultValue),
+				sessionID.getTargetCompID(),
+				valueOrDefault(sessionID.getTargetSubID(), defaultValue),
+				valueOrDefault(sessionID.getTargetLocationID(), defaultValue),
+				valueOrDefault(sessionID.getSessionQualifier(), defaultValue)
+		};
+
+		String messagesTable = settings.isSetting(sessionID, JdbcSetting.SETTING_JDBC_STORE_MESSAGES_TABLE_NAME)
+				? settings.getString(sessionID, JdbcSetting.SETTING_JDBC_STORE_MESSAGES_TABLE_NAME)
+				: "messages";
+		String sessionsTable = settings.isSetting(sessionID, JdbcSetting.SETTING_JDBC_STORE_SESSIONS_TABLE_NAME)
+				? settings.getString(sessionID, JdbcSetting.SETTING_JDBC_STORE_SESSIONS_TABLE_NAME)
+				: "sessions";
+		this.insertMessageSql = "INSERT INTO " + messagesTable + " (" + ID_COLUMNS + ", msgseqnum, message) "
+				+ "VALUES (?,?,?,?,?,?,?,?,?,?)";
+		this.updateMessageSql = "UPDATE " + messagesTable + " SET message = ? WHERE " + ID_WHERE_CLAUSE
+				+ " AND msgseqnum = ?";
+		this.deleteMessagesSql = "DELETE FROM " + messagesTable + " WHERE " + ID_WHERE_CLAUSE;
+		this.selectMessagesSql = "SELECT msgseqnum, message FROM " + messagesTable + " WHERE " + ID_WHERE_CLAUSE
+				+ " AND msgseqnum >= ? AND msgseqnum <= ? ORDER BY msgseqnum";
+		this.insertSessionSql = "INSERT INTO " + sessionsTable + " (" + ID_COLUMNS + ", creation_time, "
+				+ "incoming_seqnum, outgoing_seqnum) VALUES (?,?,?,?,?,?,?,?,?,?,?)";
+		this.updateSessionSql = "UPDATE " + sessionsTable + " SET creation_time = ?, incoming_seqnum = ?, "
+				+ "outgoing_seqnum = ? WHERE " + ID_WHERE_CLAUSE;
+		this.selectSessionSql = "SELECT creation_time, incoming_seqnum, outgoing_seqnum FROM " + sessionsTable
+				+ " WHERE " + ID_WHERE_CLAUSE;
+
+		load();
+	}
+
+	@Override
+	public synchronized boolean set(int sequence, String message) throws IOException {
+		window.put(sequence, message);
+		while (window.size() > windowSize) {
+			window.pollFirstEntry();
+		}
+		factory.submit(new MessageWrite(this, sequence, message), durable);
+		return true;
+	}
+
+	@Override
+	public void get(int startSequence, int endSequence, Collection<String> messages) throws IOException {
+		synchronized (this) {
+			if (!window.isEmpty() && window.firstKey() <= startSequence) {
+				messages.addAll(window.subMap(startSequence, true, endSequence, true).values());
+				return;
+			}
+		}
+		forEachMessage(startSequence, endSequence, (sequence, message) -> messages.add(message));
+	}
+
+	/**
+	 * Reads the stored messages of a range back from the database once the pending writes are committed, and hands
+	 * them to the handler in sequence order one page at a time, so no more than a page is held in memory.
+	 */
+	public void forEachMessage(int startSequence, int endSequence, MessageHandler handler) throws IOException {
+		int lastSequence;
+		synchronized (this) {
+			lastSequence = Math.min(endSequence, nextSenderMsgSeqNum - 1);
+		}
+
+		factory.awaitFlushed();
+		TreeMap<Integer, String> page = new TreeMap<>();
+		try (Connection connection = factory.getDataSource().getConnection();
+		     PreparedStatement select = connection.prepareStatement(selectMessagesSql)) {
+			select.setFetchSize(resendPageSize);
+			int index = setSessionIdParameters(select, 1);
+			for (long pageStart = startSequence; pageStart <= lastSequence; pageStart += resendPageSize) {
+				select.setInt(index, (int) pageStart);
+				select.setInt(index + 1, (int) Math.min(lastSequence, pageStart + resendPageSize - 1));
+				try (ResultSet resultSet = select.executeQuery()) {
+					while (resultSet.next()) {
+						page.put(resultSet.getInt(1), resultSet.getString(2));
+					}
+				}
+				for (Map.Entry<Integer, String> message : page.entrySet()) {
+					handler.handle(message.getKey(), message.getValue());
+				}
+				page.clear();
+			}
+		} catch (SQLException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * The first sequence number kept in memory, the next sender sequence number when none is.
+	 */
+	public synchronized int getWindowStart() {
+		return window.isEmpty() ? nextSenderMsgSeqNum : window.firstKey();
+	}
+
+	@Override
+	public synchronized int getNextSenderMsgSeqNum() {
+		return nextSenderMsgSeqNum;
+	}
+
+	@Override
+	public synchronized int getNextTargetMsgSeqNum() {
+		return nextTargetMsgSeqNum;
+	}
+
+	@Override
+	public synchronized void setNextSenderMsgSeqNum(int next) throws IOException {
+		nextSenderMsgSeqNum = next;
+		submitSessionState();
+	}
+
+	@Override
+	public synchronized void setNextTargetMsgSeqNum(int next) throws IOException {
+		nextTargetMsgSeqNum = next;
+		submitSessionState();
+	}
+
+	@Override
+	public synchronized void incrNextSenderMsgSeqNum() throws IOException {
+		setNextSenderMsgSeqNum(nextSenderMsgSeqNum + 1);
+	}
+
+	@Override
+	public synchronized void incrNextTargetMsgSeqNum() throws IOException {
+		setNextTargetMsgSeqNum(nextTargetMsgSeqNum + 1);
+	}
+
+	@Override
+	public synchronized Date getCreationTime() {
+		return creationTime;
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		creationTime = new Timestamp(SystemTime.getUtcCalendar().getTimeInMillis());
+		nextSenderMsgSeqNum = 1;
+		nextTargetMsgSeqNum = 1;
+		window.clear();
+		factory.submit(new Reset(this), false);
+		submitSessionState();
+	}
+
+	@Override
+	public synchronized void refresh() throws IOException {
+		factory.awaitFlushed();
+		try {
+			load();
+		} catch (SQLException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	int getResendPageSize() {
+		return resendPageSize;
+	}
+
+	String getInsertMessageSql() {
+		return insertMessageSql;
+	}
+
+	void addInsertMessage(PreparedStatement insert, int sequence, String message) throws SQLException {
+		int index = setSessionIdParameters(insert, 1);
+		insert.setInt(index++, sequence);
+		insert.setString(index, message);
+		insert.addBatch();
+	}
+
+	void upsertMessage(Connection connection, int sequence, String message) throws SQLException {
+		try (PreparedStatement update = connection.prepareStatement(updateMessageSql)) {
+			update.setString(1, message);
+			int index = setSessionIdParameters(update, 2);
+			update.setInt(index, sequence);
+			if (update.executeUpdate() > 0) {
+				return;
+			}
+		}
+		try (PreparedStatement insert = connection.prepareStatement(insertMessageSql)) {
+			addInsertMessage(insert, sequence, message);
+			insert.executeBatch();
+		}
+	}
+
+	void deleteMessages(Connection connection) throws SQLException {
+		try (PreparedStatement delete = connection.prepareStatement(deleteMessagesSql)) {
+			setSessionIdParameters(delete, 1);
+			delete.executeUpdate();
+		}
+	}
+
+	void updateSession(Connection connection, Timestamp creationTime, int nextSenderMsgSeqNum,
+	                   int nextTargetMsgSeqNum) throws SQLException {
+		try (PreparedStatement update = connection.prepareStatement(updateSessionSql)) {
+			update.setTimestamp(1, creationTime, SystemTime.getUtcCalendar());
+			update.setInt(2, nextTargetMsgSeqNum);
+			update.setInt(3, nextSenderMsgSeqNum);
+			setSessionIdParameters(update, 4);
+			update.executeUpdate();
+		}
+	}
+
+	private void submitSessionState() throws IOException {
+		factory.submit(new SessionState(this, creationTime, nextSenderMsgSeqNum, nextTargetMsgSeqNum), durable);
+	}
+
+	private synchronized void load() throws SQLException {
+		try (Connection connection = factory.getDataSource().getConnection()) {
+			try (PreparedStatement select = connection.prepareStatement(selectSessionSql)) {
+				setSessionIdParameters(select, 1);
+				try (ResultSet resultSet = select.executeQuery()) {
+					if (resultSet.next()) {
+						creationTime = resultSet.getTimestamp(1, SystemTime.getUtcCalendar());
+						nextTargetMsgSeqNum = resultSet.getInt(2);
+						nextSenderMsgSeqNum = resultSet.getInt(3);
+					} else {
+						creationTime = new Timestamp(SystemTime.getUtcCalendar().getTimeInMillis());
+						nextTargetMsgSeqNum = 1;
+						nextSenderMsgSeqNum = 1;
+						insertSession(connection);
+					}
+				}
+			}
+
+			window.clear();
+			try (PreparedStatement select = connection.prepareStatement(selectMessagesSql)) {
+				int index = setSessionIdParameters(select, 1);
+				select.setInt(index++, Math.max(1, nextSenderMsgSeqNum - windowSize));
+				select.setInt(index, nextSenderMsgSeqNum - 1);
+				try (ResultSet resultSet = select.executeQuery()) {
+					while (resultSet.next()) {
+						window.put(resultSet.getInt(1), resultSet.getString(2));
+					}
+				}
+			}
+		}
+	}
+
+	private void insertSession(Connection connection) throws SQLException {
+		try (PreparedStatement insert = connection.prepareStatement(insertSessionSql)) {
+			int index = setSessionIdParameters(insert, 1);
+			insert.setTimestamp(index++, creationTime, SystemTime.getUtcCalendar());
+			insert.setInt(index++, nextTargetMsgSeqNum);
+			insert.setInt(index, nextSenderMsgSeqNum);
+			insert.executeUpdate();
+		}
+	}
+
+	private int setSessionIdParameters(PreparedStatement statement, int offset) throws SQLException {
+		for (String value : sessionIdValues) {
+			statement.setString(offset++, value);
+		}
+		return offset;
+	}
+
+	private static String valueOrDefault(String value, String defaultValue) {
+		return value == null || value.isEmpty() || SessionID.NOT_SET.equals(value) ? defaultValue : value;
+	}
+
+	@Override
+	public String toString() {
+		return String.join(":", sessionIdValues);
+	}
+
+	/**
+	 * Receives the messages read back by {@link #forEachMessage(int, int, MessageHandler)}.
+	 */
+	@FunctionalInterface
+	public interface MessageHandler {
+
+		void handle(int sequence, String message) throws IOException;
+	}
+}
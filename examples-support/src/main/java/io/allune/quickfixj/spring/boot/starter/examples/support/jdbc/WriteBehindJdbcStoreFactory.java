@@ -0,0 +1,388 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link MessageStoreFactory} for {@link WriteBehindJdbcStore}s, which keep the session state and the resend window
+ * in memory and persist them to the {@code messages}/{@code sessions} tables of the {@code JdbcStoreFactory} from a
+ * single writer thread.
+ * <p>
+ * The writer groups the pending writes of all the sessions into one transaction, flushed when
+ * {@value #SETTING_BATCH_SIZE} writes are pending or {@value #SETTING_FLUSH_INTERVAL} milliseconds after the first
+ * one, whichever comes first. Sessions configured with {@value WriteBehindJdbcStore#SETTING_DURABLE}=Y wait for
+ * their writes to be committed before returning, and trigger the flush immediately.
+ * <p>
+ * At most {@value #SETTING_QUEUE_CAPACITY} writes are queued, the sessions waiting for room beyond that. A batch which
+ * cannot be flushed is retried {@value #SETTING_MAX_RETRIES} times, then dropped and its durable writes failed. The
+ * writes submitted once the factory is closed are rejected.
+ */
+public class WriteBehindJdbcStoreFactory implements MessageStoreFactory, AutoCloseable {
+
+	public static final String SETTING_BATCH_SIZE = "WriteBehindBatchSize";
+
+	public static final String SETTING_FLUSH_INTERVAL = "WriteBehindFlushInterval";
+
+	public static final String SETTING_QUEUE_CAPACITY = "WriteBehindQueueCapacity";
+
+	public static final String SETTING_MAX_RETRIES = "WriteBehindMaxRetries";
+
+	private static final Logger log = LoggerFactory.getLogger(WriteBehindJdbcStoreFactory.class);
+
+	private static final long RETRY_BACKOFF_MILLIS = 1000;
+
+	private final SessionSettings settings;
+
+	private final DataSource dataSource;
+
+	private final BlockingQueue<Write> writes;
+
+	private final int batchSize;
+
+	private final long flushIntervalNanos;
+
+	private final int maxRetries;
+
+	private final Thread writer;
+
+	/**
+	 * Held to queue a write, and exclusively to close the factory, so that no write is queued once the writer stops.
+	 */
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+	private volatile boolean closed;
+
+	public WriteBehindJdbcStoreFactory(SessionSettings settings, DataSource dataSource)
+			throws ConfigError, FieldConvertError {
+		this.settings = settings;
+		this.dataSource = dataSource;
+		int queueCapacity = settings.isSetting(SETTING_QUEUE_CAPACITY)
+				? (int) settings.getLong(SETTING_QUEUE_CAPACITY)
+				: 65536;
+		if (queueCapacity < 1) {
+			throw new ConfigError(SETTING_QUEUE_CAPACITY + " must be positive");
+		}
+		this.writes = new ArrayBlockingQueue<>(queueCapacity);
+		this.batchSize = settings.isSetting(SETTING_BATCH_SIZE)
+				? (int) settings.getLong(SETTING_BATCH_SIZE)
+				: 500;
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(settings.isSetting(SETTING_FLUSH_INTERVAL)
+				? settings.getLong(SETTING_FLUSH_INTERVAL)
+				: 5);
+		this.maxRetries = settings.isSetting(SETTING_MAX_RETRIES)
+				? (int) settings.getLong(SETTING_MAX_RETRIES)
+				: 10;
+		if (maxRetries < 0) {
+			throw new ConfigError(SETTING_MAX_RETRIES + " must not be negative");
+		}
+		this.writer = new Thread(this::drain, "write-behind-jdbc-store");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public MessageStore create(SessionID sessionID) {
+		try {
+			return new WriteBehindJdbcStore(this, settings, sessionID);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public int getPendingWrites() {
+		return writes.size();
+	}
+
+	/**
+	 * Stops accepting writes, flushes the pending ones and stops the writer thread.
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		closeLock.writeLock().lock();
+		try {
+			closed = true;
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+		writer.join(TimeUnit.SECONDS.toMillis(10));
+		if (writer.isAlive()) {
+			log.warn("Store writer still flushing {} writes after 10 seconds", writes.size());
+		}
+	}
+
+	DataSource getDataSource() {
+		return dataSource;
+	}
+
+	/**
+	 * Queues a write, waiting for room in the queue, and for the write to be committed if {@code durable} is set.
+	 */
+	void submit(Write write, boolean durable) throws IOException {
+		CompletableFuture<Void> committed = durable ? new CompletableFuture<>() : null;
+		write.committed = committed;
+		try {
+			while (!offer(write)) {
+				// the queue is full, try again unless the factory was closed meanwhile
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for room in the store queue", e);
+		}
+		if (committed != null) {
+			await(committed);
+		}
+	}
+
+	/**
+	 * Waits until every write queued so far has been committed.
+	 */
+	void awaitFlushed() throws IOException {
+		submit(new Barrier(), true);
+	}
+
+	private boolean offer(Write write) throws IOException, InterruptedException {
+		closeLock.readLock().lock();
+		try {
+			if (closed) {
+				throw new IOException("Store factory is closed");
+			}
+			return writes.offer(write, 100, TimeUnit.MILLISECONDS);
+		} finally {
+			closeLock.readLock().unlock();
+		}
+	}
+
+	private static void await(CompletableFuture<Void> committed) throws IOException {
+		try {
+			committed.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for the store to be flushed", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Unable to persist the store", e.getCause());
+		}
+	}
+
+	private void drain() {
+		List<Write> batch = new ArrayList<>(batchSize);
+		while (!closed || !writes.isEmpty()) {
+			try {
+				collect(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (batch.isEmpty()) {
+				continue;
+			}
+
+			for (int attempt = 0; ; attempt++) {
+				try {
+					flush(batch);
+					complete(batch, null);
+					break;
+				} catch (SQLException | RuntimeException e) {
+					if (closed) {
+						log.error("Unable to flush {} store writes on shutdown", batch.size(), e);
+						complete(batch, e);
+						break;
+					}
+					if (attempt == maxRetries) {
+						log.error("Unable to flush {} store writes after {} retries, dropping them", batch.size(),
+								maxRetries, e);
+						complete(batch, e);
+						break;
+					}
+					log.error("Unable to flush {} store writes, retrying", batch.size(), e);
+					LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_BACKOFF_MILLIS));
+				}
+			}
+			batch.clear();
+		}
+	}
+
+	private void collect(List<Write> batch) throws InterruptedException {
+		Write first = writes.poll(100, TimeUnit.MILLISECONDS);
+		if (first == null) {
+			return;
+		}
+		batch.add(first);
+		long deadline = System.nanoTime() + flushIntervalNanos;
+		while (batch.size() < batchSize && batch.get(batch.size() - 1).committed == null) {
+			long remaining = deadline - System.nanoTime();
+			Write next = remaining > 0 ? writes.poll(remaining, TimeUnit.NANOSECONDS) : writes.poll();
+			if (next == null) {
+				break;
+			}
+			batch.add(next);
+		}
+		writes.drainTo(batch, batchSize - batch.size());
+	}
+
+	private void flush(List<Write> batch) throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				try {
+					write(connection, batch, false);
+				} catch (SQLException e) {
+					// most likely a message stored again under the same sequence number, redo it row by row
+					connection.rollback();
+					write(connection, batch, true);
+				}
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		}
+	}
+
+	private void write(Connection connection, List<Write> batch, boolean upsert) throws SQLException {
+		Map<WriteBehindJdbcStore, SessionState> sessionStates = new LinkedHashMap<>();
+		Map<WriteBehindJdbcStore, PreparedStatement> inserts = new LinkedHashMap<>();
+		try {
+			for (Write write : batch) {
+				if (write instanceof MessageWrite) {
+					MessageWrite messageWrite = (MessageWrite) write;
+					if (upsert) {
+						messageWrite.store.upsertMessage(connection, messageWrite.sequence, messageWrite.message);
+					} else {
+						PreparedStatement insert = inserts.get(messageWrite.store);
+						if (insert == null) {
+							insert = connection.prepareStatement(messageWrite.store.getInsertMessageSql());
+							inserts.put(messageWrite.store, insert);
+						}
+						messageWrite.store.addInsertMessage(insert, messageWrite.sequence, messageWrite.message);
+					}
+				} else if (write instanceof SessionState) {
+					sessionStates.put(((SessionState) write).store, (SessionState) write);
+				} else if (write instanceof Reset) {
+					executeBatches(inserts);
+					((Reset) write).store.deleteMessages(connection);
+				}
+			}
+			executeBatches(inserts);
+			for (SessionState sessionState : sessionStates.values()) {
+				sessionState.store.updateSession(connection, sessionState.creationTime,
+						sessionState.nextSenderMsgSeqNum, sessionState.nextTargetMsgSeqNum);
+			}
+		} finally {
+			for (PreparedStatement insert : inserts.values()) {
+				insert.close();
+			}
+		}
+	}
+
+	private static void executeBatches(Map<WriteBehindJdbcStore, PreparedStatement> inserts) throws SQLException {
+		for (PreparedStatement insert : inserts.values()) {
+			insert.executeBatch();
+		}
+	}
+
+	private static void complete(List<Write> batch, Exception failure) {
+		for (Write write : batch) {
+			if (write.committed != null) {
+				if (failure == null) {
+					write.committed.complete(null);
+				} else {
+					write.committed.completeExceptionally(failure);
+				}
+			}
+		}
+	}
+
+	abstract static class Write {
+
+		private CompletableFuture<Void> committed;
+	}
+
+	static final class MessageWrite extends Write {
+
+		private final WriteBehindJdbcStore store;
+
+		private final int sequence;
+
+		private final String message;
+
+		MessageWrite(WriteBehindJdbcStore store, int sequence, String message) {
+			this.store = store;
+			this.sequence = sequence;
+			this.message = message;
+		}
+	}
+
+	static final class SessionState extends Write {
+
+		private final WriteBehindJdbcStore store;
+
+		private final Timestamp creationTime;
+
+		private final int nextSenderMsgSeqNum;
+
+		private final int nextTargetMsgSeqNum;
+
+		SessionState(WriteBehindJdbcStore store, Timestamp creationTime, int nextSenderMsgSeqNum,
+		             int nextTargetMsgSeqNum) {
+			this.store = store;
+			this.creationTime = creationTime;
+			this.nextSenderMsgSeqNum = nextSenderMsgSeqNum;
+			this.nextTargetMsgSeqNum = nextTargetMsgSeqNum;
+		}
+	}
+
+	static final class Reset extends Write {
+
+		private final WriteBehindJdbcStore store;
+
+		Reset(WriteBehindJdbcStore store) {
+			this.store = store;
+		}
+	}
+
+	static final class Barrier extends Write {
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.logging;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLogger.Callback;
+import quickfix.InvalidMessage;
+import quickfix.Log;
+import quickfix.LogFactory;
+import quickfix.MessageUtils;
+import quickfix.SessionID;
+
+/**
+ * {@link LogFactory} decorator that hands the outgoing messages to an {@link AsyncMessageLogger}: the session logs
+ * them right before writing them to the wire, as the String it writes, so nothing is rendered again to log them.
+ */
+public class AsyncMessageLogFactory implements LogFactory {
+
+	private final LogFactory delegate;
+
+	private final AsyncMessageLogger messageLogger;
+
+	public AsyncMessageLogFactory(LogFactory delegate, AsyncMessageLogger messageLogger) {
+		this.delegate = delegate;
+		this.messageLogger = messageLogger;
+	}
+
+	@Override
+	public Log create(SessionID sessionID) {
+		Log log = delegate.create(sessionID);
+		return new Log() {
+
+			@Override
+			public void clear() {
+				log.clear();
+			}
+
+			@Override
+			public void onIncoming(String message) {
+				log.onIncoming(message);
+			}
+
+			@Override
+			public void onOutgoing(String message) {
+				messageLogger.log(callback(message), message, sessionID);
+				log.onOutgoing(message);
+			}
+
+			@Override
+			public void onEvent(String text) {
+				log.onEvent(text);
+			}
+
+			@Override
+			public void onErrorEvent(String text) {
+				log.onErrorEvent(text);
+			}
+		};
+	}
+
+	private static Callback callback(String message) {
+		try {
+			return MessageUtils.isAdminMessage(MessageUtils.getMessageType(message)) ? Callback.TO_ADMIN : Callback.TO_APP;
+		} catch (InvalidMessage e) {
+			return Callback.TO_APP;
+		}
+	}
+}
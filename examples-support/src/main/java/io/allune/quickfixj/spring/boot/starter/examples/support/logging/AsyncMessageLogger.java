@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.logging;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.concurrent.OverflowPolicy;
+import io.allune.quickfixj.spring.boot.starter.examples.support.concurrent.RingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.Message;
+import quickfix.SessionID;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Moves message logging off the QuickFIX/J session threads through a {@link RingBuffer}.
+ * <p>
+ * The message is captured as a String on the session thread, where QuickFIX/J owns it: a {@link Message} is mutable
+ * and is changed by the session after the callback returns, so it cannot be read by another thread. An incoming
+ * message keeps the String it was parsed from, which is logged as is; {@link Message#toString()}, which renders the
+ * whole message again and sets its BodyLength and CheckSum, is only used for a message built by the application.
+ * Outgoing messages are logged from the session log by {@link AsyncMessageLogFactory}, which is handed the String
+ * written to the wire. Only the formatting and the appenders of the log line run on the single writer thread.
+ */
+public class AsyncMessageLogger implements AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(AsyncMessageLogger.class);
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final RingBuffer<Entry> ring;
+
+	private final BooleanSupplier enabled;
+
+	private final Consumer<Entry> writer;
+
+	private final Thread writerThread;
+
+	public AsyncMessageLogger(int bufferSize, OverflowPolicy overflowPolicy) {
+		this(bufferSize, overflowPolicy, log::isInfoEnabled,
+				entry -> log.info("{}: Message={}, SessionId={}", entry.callback, entry.message, entry.sessionId));
+	}
+
+	AsyncMessageLogger(int bufferSize, OverflowPolicy overflowPolicy, BooleanSupplier enabled, Consumer<Entry> writer) {
+		this.ring = new RingBuffer<>(bufferSize, overflowPolicy);
+		this.enabled = enabled;
+		this.writer = writer;
+		this.writerThread = new Thread(this::drain, "async-message-logger");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+
+	/**
+	 * @return false if the entry was dropped
+	 */
+	public boolean log(Callback callback, Message message, SessionID sessionId) {
+		if (!enabled.getAsBoolean()) {
+			return true;
+		}
+		String rawMessage = message.toRawString();
+		return ring.offer(new Entry(callback, rawMessage != null ? rawMessage : message.toString(), sessionId));
+	}
+
+	/**
+	 * @return false if the entry was dropped
+	 */
+	public boolean log(Callback callback, String message, SessionID sessionId) {
+		if (!enabled.getAsBoolean()) {
+			return true;
+		}
+		return ring.offer(new Entry(callback, message, sessionId));
+	}
+
+	public long getDroppedCount() {
+		return ring.getDroppedCount();
+	}
+
+	public long getBlockedCount() {
+		return ring.getBlockedCount();
+	}
+
+	public long getPendingCount() {
+		return ring.getPendingCount();
+	}
+
+	public int getCapacity() {
+		return ring.getCapacity();
+	}
+
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("capacity", getCapacity());
+		metrics.put("pending", getPendingCount());
+		metrics.put("blocked", getBlockedCount());
+		metrics.put("dropped", getDroppedCount());
+		return metrics;
+	}
+
+	/**
+	 * Writes the entries already logged and stops the writer. The entries logged afterwards are dropped.
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		ring.close();
+		LockSupport.unpark(writerThread);
+		writerThread.join(TimeUnit.SECONDS.toMillis(5));
+	}
+
+	private void drain() {
+		while (!ring.isDrained()) {
+			Entry entry = ring.poll();
+			if (entry == null) {
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+				continue;
+			}
+			try {
+				writer.accept(entry);
+			} catch (RuntimeException e) {
+				log.warn("Unable to log {} message for SessionId={}", entry.callback, entry.sessionId, e);
+			}
+		}
+
+		long dropped = getDroppedCount();
+		if (dropped > 0) {
+			log.warn("Dropped {} log entries due to a full buffer", dropped);
+		}
+	}
+
+	public enum Callback {
+		FROM_ADMIN("fromAdmin"),
+		FROM_APP("fromApp"),
+		TO_ADMIN("toAdmin"),
+		TO_APP("toApp");
+
+		private final String name;
+
+		Callback(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * A message logged by a session, captured when it was logged.
+	 */
+	static final class Entry {
+
+		final Callback callback;
+
+		final String message;
+
+		final SessionID sessionId;
+
+		private Entry(Callback callback, String message, SessionID sessionId) {
+			this.callback = callback;
+			this.message = message;
+			this.sessionId = sessionId;
+		}
+	}
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.loopback;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.Initiator;
+import quickfix.InvalidMessage;
+import quickfix.Message;
+import quickfix.MessageUtils;
+import quickfix.Responder;
+import quickfix.Session;
+import quickfix.SessionFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.field.HeartBtInt;
+import quickfix.field.MsgType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects co-located initiator and acceptor sessions through in-memory queues instead of MINA and TCP.
+ * <p>
+ * Every initiator session is paired with the acceptor session with the reversed session ID. Each side of a pair is
+ * driven by its own thread, which hands the peer's messages to {@link Session#next(quickfix.Message)} and calls
+ * {@link Session#next()} once a second, as the socket connectors do. The sessions themselves are regular QuickFIX/J
+ * sessions: logon, sequence numbers, heartbeats, test requests and resends behave as over a socket. A disconnect from
+ * either side closes the link, and the initiator reconnects after its {@code ReconnectInterval}.
+ */
+public class LoopbackTransport implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(LoopbackTransport.class);
+
+	private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final SessionFactory acceptorSessionFactory;
+
+	private final SessionSettings acceptorSettings;
+
+	private final SessionFactory initiatorSessionFactory;
+
+	private final SessionSettings initiatorSettings;
+
+	private final List<Pair> pairs = new ArrayList<>();
+
+	private volatile boolean running;
+
+	public LoopbackTransport(SessionFactory acceptorSessionFactory, SessionSettings acceptorSettings,
+	                         SessionFactory initiatorSessionFactory, SessionSettings initiatorSettings) {
+		this.acceptorSessionFactory = acceptorSessionFactory;
+		this.acceptorSettings = acceptorSettings;
+		this.initiatorSessionFactory = initiatorSessionFactory;
+		this.initiatorSettings = initiatorSettings;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		Set<SessionID> acceptorIDs = new HashSet<>();
+		acceptorSettings.sectionIterator().forEachRemaining(acceptorIDs::add);
+		try {
+			for (Iterator<SessionID> sessionIDs = initiatorSettings.sectionIterator(); sessionIDs.hasNext(); ) {
+				SessionID initiatorID = sessionIDs.next();
+				SessionID acceptorID = new SessionID(initiatorID.getBeginString(),
+						initiatorID.getTargetCompID(), initiatorID.getTargetSubID(), initiatorID.getTargetLocationID(),
+						initiatorID.getSenderCompID(), initiatorID.getSenderSubID(), initiatorID.getSenderLocationID(),
+						initiatorID.getSessionQualifier());
+				if (!acceptorIDs.contains(acceptorID)) {
+					log.warn("No acceptor session {} for initiator session {}, not connected", acceptorID, initiatorID);
+					continue;
+				}
+				long reconnectInterval = initiatorSettings.isSetting(initiatorID, Initiator.SETTING_RECONNECT_INTERVAL)
+						? initiatorSettings.getLong(initiatorID, Initiator.SETTING_RECONNECT_INTERVAL)
+						: 30;
+				pairs.add(new Pair(acceptorSessionFactory.create(acceptorID, acceptorSettings),
+						initiatorSessionFactory.create(initiatorID, initiatorSettings),
+						TimeUnit.SECONDS.toNanos(reconnectInterval)));
+			}
+		} catch (ConfigError | FieldConvertError e) {
+			throw new IllegalStateException("Unable to create the loopback sessions", e);
+		}
+		for (Pair pair : pairs) {
+			pair.acceptor.start();
+			pair.initiator.start();
+		}
+		running = true;
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+		for (Pair pair : pairs) {
+			pair.initiator.execute(() -> pair.initiator.session.logout("Loopback transport stopped"));
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		for (Pair pair : pairs) {
+			while (pair.initiator.session.isLoggedOn() && System.nanoTime() < deadline) {
+				sleep();
+			}
+			pair.initiator.stop();
+			pair.acceptor.stop();
+		}
+		pairs.clear();
+		running = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	public synchronized List<Session> getSessions() {
+		List<Session> sessions = new ArrayList<>();
+		for (Pair pair : pairs) {
+			sessions.add(pair.acceptor.session);
+			sessions.add(pair.initiator.session);
+		}
+		return sessions;
+	}
+
+	private static void sleep() {
+		try {
+			Thread.sleep(10);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static final class Pair {
+
+		private final Endpoint acceptor;
+
+		private final Endpoint initiator;
+
+		private final long reconnectIntervalNanos;
+
+		private long lastConnectNanos;
+
+		private boolean connected;
+
+		private Pair(Session acceptorSession, Session initiatorSession, long reconnectIntervalNanos) {
+			this.acceptor = new Endpoint(acceptorSession, true, null);
+			this.initiator = new Endpoint(initiatorSession, false, this::connectIfNeeded);
+			this.reconnectIntervalNanos = reconnectIntervalNanos;
+		}
+
+		/**
+		 * Runs on the initiator thread before each tick, like the socket initiator's reconnect task.
+		 */
+		private void connectIfNeeded() {
+			Session session = initiator.session;
+			long now = System.nanoTime();
+			if (session.hasResponder() || !session.isEnabled() || !session.isSessionTime()
+					|| (connected && now - lastConnectNanos < reconnectIntervalNanos)) {
+				return;
+			}
+			Link link = new Link(acceptor, initiator);
+			acceptor.session.setResponder(new LoopbackResponder(link, acceptor, initiator));
+			session.setResponder(new LoopbackResponder(link, initiator, acceptor));
+			lastConnectNanos = now;
+			connected = true;
+		}
+	}
+
+	/**
+	 * One side of a pair: the session and the thread that drives it.
+	 */
+	private static final class Endpoint implements Runnable {
+
+		private final Session session;
+
+		private final boolean acceptor;
+
+		private final Runnable beforeTick;
+
+		private final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+
+		private final Thread thread;
+
+		private volatile boolean running = true;
+
+		private Endpoint(Session session, boolean acceptor, Runnable beforeTick) {
+			this.session = session;
+			this.acceptor = acceptor;
+			this.beforeTick = beforeTick;
+			this.thread = new Thread(this, "loopback-" + session.getSessionID());
+			this.thread.setDaemon(true);
+		}
+
+		private void start() {
+			thread.start();
+		}
+
+		private void stop() {
+			running = false;
+			try {
+				thread.join(TimeUnit.SECONDS.toMillis(5));
+				session.close();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (IOException e) {
+				log.error("Unable to close session {}", session.getSessionID(), e);
+			}
+		}
+
+		private void execute(Runnable task) {
+			tasks.add(task);
+		}
+
+		@Override
+		public void run() {
+			long nextTick = System.nanoTime();
+			while (running) {
+				try {
+					long remaining = nextTick - System.nanoTime();
+					Runnable task = remaining > 0 ? tasks.poll(remaining, TimeUnit.NANOSECONDS) : tasks.poll();
+					if (task != null) {
+						task.run();
+					}
+					if (System.nanoTime() - nextTick >= 0) {
+						if (beforeTick != null) {
+							beforeTick.run();
+						}
+						session.next();
+						nextTick += TICK_NANOS;
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				} catch (Exception e) {
+					session.getLog().onErrorEvent("Loopback transport error: " + e);
+				}
+			}
+		}
+
+		private void receive(String data) {
+			// logged before it is parsed, as AbstractIoHandler.messageReceived does, so a garbled message is logged too
+			session.getLog().onIncoming(data);
+			try {
+				Message message = MessageUtils.parse(session, data);
+				if (acceptor && MsgType.LOGON.equals(message.getHeader().getString(MsgType.FIELD))
+						&& message.isSetField(HeartBtInt.FIELD)) {
+					// the socket acceptor also takes the heartbeat interval from the initiator's logon
+					session.setHeartBeatInterval(message.getInt(HeartBtInt.FIELD));
+				}
+				session.next(message);
+			} catch (InvalidMessage e) {
+				session.getLog().onErrorEvent("Invalid message: " + e.getMessage() + " " + data);
+			} catch (Exception e) {
+				session.getLog().onErrorEvent("Unable to process message: " + e + " " + data);
+			}
+		}
+	}
+
+	/**
+	 * A connection between the two sides of a pair; messages still queued when it closes are dropped, as they would
+	 * be with a closed socket.
+	 */
+	private static final class Link {
+
+		private final Endpoint acceptor;
+
+		private final Endpoint initiator;
+
+		private volatile boolean open = true;
+
+		private Link(Endpoint acceptor, Endpoint initiator) {
+			this.acceptor = acceptor;
+			this.initiator = initiator;
+		}
+
+		private boolean send(Endpoint to, String data) {
+			if (!open) {
+				return false;
+			}
+			to.execute(() -> {
+				if (open) {
+					to.receive(data);
+				}
+			});
+			return true;
+		}
+
+		private void close(Endpoint closedBy) {
+			if (!open) {
+				return;
+			}
+			open = false;
+			Endpoint peer = closedBy == acceptor ? initiator : acceptor;
+			peer.execute(() -> {
+				Responder responder = peer.session.getResponder();
+				if (responder instanceof LoopbackResponder && ((LoopbackResponder) responder).link == this) {
+					try {
+						peer.session.disconnect("Loopback peer disconnected", false);
+					} catch (IOException e) {
+						log.error("Unable to disconnect session {}", peer.session.getSessionID(), e);
+					}
+				}
+			});
+		}
+	}
+
+	private static final class LoopbackResponder implements Responder {
+
+		private final Link link;
+
+		private final Endpoint local;
+
+		private final Endpoint remote;
+
+		private LoopbackResponder(Link link, Endpoint local, Endpoint remote) {
+			this.link = link;
+			this.local = local;
+			this.remote = remote;
+		}
+
+		@Override
+		public boolean send(String data) {
+			return link.send(remote, data);
+		}
+
+		@Override
+		public void disconnect() {
+			link.close(local);
+		}
+
+		@Override
+		public String getRemoteAddress() {
+			return "loopback:" + remote.session.getSessionID();
+		}
+	}
+}
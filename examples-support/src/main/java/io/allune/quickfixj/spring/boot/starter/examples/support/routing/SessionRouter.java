@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.routing;
+
+import io.allune.quickfixj.spring.boot.starter.model.Create;
+import io.allune.quickfixj.spring.boot.starter.model.Logon;
+import io.allune.quickfixj.spring.boot.starter.model.Logout;
+import org.springframework.context.event.EventListener;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Index of the logged on sessions of a connector, maintained from the onCreate/onLogon/onLogout events.
+ * <p>
+ * A session can be addressed by its BeginString, by its full {@link SessionID} string
+ * ({@code BeginString:SenderCompID->TargetCompID}) or by the logical route name configured with the
+ * {@value #ROUTE_NAME_SETTING} session setting. Each key resolves to a group of logged on sessions in constant
+ * time, and the group picks one of them in round-robin or least-queued order.
+ */
+public class SessionRouter {
+
+	public static final String ROUTE_NAME_SETTING = "RouteName";
+
+	private final SelectionStrategy selectionStrategy;
+
+	private final Map<SessionID, List<String>> routeKeysBySessionId = new HashMap<>();
+
+	private final Map<SessionID, RoutedSession> createdSessions = new ConcurrentHashMap<>();
+
+	private final Map<String, RouteGroup> routeGroups = new ConcurrentHashMap<>();
+
+	public SessionRouter(SessionSettings sessionSettings, SelectionStrategy selectionStrategy)
+			throws ConfigError, FieldConvertError {
+
+		this.selectionStrategy = selectionStrategy;
+		for (Iterator<SessionID> sessionIds = sessionSettings.sectionIterator(); sessionIds.hasNext(); ) {
+			SessionID sessionId = sessionIds.next();
+			List<String> routeKeys = new ArrayList<>(Arrays.asList(sessionId.getBeginString(), sessionId.toString()));
+			if (sessionSettings.isSetting(sessionId, ROUTE_NAME_SETTING)) {
+				routeKeys.add(sessionSettings.getString(sessionId, ROUTE_NAME_SETTING));
+			}
+			routeKeysBySessionId.put(sessionId, routeKeys);
+		}
+	}
+
+	@EventListener
+	public void onCreate(Create create) {
+		SessionID sessionId = create.getSessionId();
+		List<String> routeKeys = routeKeysBySessionId.get(sessionId);
+		if (routeKeys != null) {
+			createdSessions.putIfAbsent(sessionId, new RoutedSession(sessionId, routeKeys));
+		}
+	}
+
+	@EventListener
+	public void onLogon(Logon logon) {
+		RoutedSession routedSession = createdSessions.get(logon.getSessionId());
+		if (routedSession != null) {
+			for (String routeKey : routedSession.routeKeys) {
+				routeGroups.computeIfAbsent(routeKey, key -> new RouteGroup()).add(routedSession);
+			}
+		}
+	}
+
+	@EventListener
+	public void onLogout(Logout logout) {
+		RoutedSession routedSession = createdSessions.get(logout.getSessionId());
+		if (routedSession != null) {
+			for (String routeKey : routedSession.routeKeys) {
+				RouteGroup routeGroup = routeGroups.get(routeKey);
+				if (routeGroup != null) {
+					routeGroup.remove(routedSession);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Selects a logged on session for the given route key and hands its {@link SessionID} to the sender.
+	 *
+	 * @throws IllegalStateException if no session is logged on for the route key
+	 */
+	public <T> T send(String routeKey, Function<SessionID, T> sender) {
+		RouteGroup routeGroup = routeGroups.get(routeKey);
+		RoutedSession routedSession = routeGroup != null ? routeGroup.select(selectionStrategy) : null;
+		if (routedSession == null) {
+			throw new IllegalStateException("No logged on session for route " + routeKey);
+		}
+
+		routedSession.inFlight.incrementAndGet();
+		try {
+			return sender.apply(routedSession.sessionId);
+		} finally {
+			routedSession.inFlight.decrementAndGet();
+		}
+	}
+
+	public enum SelectionStrategy {
+		/**
+		 * Rotate over the logged on sessions of the route
+		 */
+		ROUND_ROBIN,
+		/**
+		 * Pick the logged on session of the route with the fewest sends in flight
+		 */
+		LEAST_QUEUED
+	}
+
+	private static final class RoutedSession {
+
+		private final SessionID sessionId;
+
+		private final List<String> routeKeys;
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private RoutedSession(SessionID sessionId, List<String> routeKeys) {
+			this.sessionId = sessionId;
+			this.routeKeys = routeKeys;
+		}
+	}
+
+	/**
+	 * Copy-on-write group: logons and logouts are rare, so they pay for the copy and selection reads a plain array.
+	 */
+	private static final class RouteGroup {
+
+		private static final RoutedSession[] EMPTY = new RoutedSession[0];
+
+		private final AtomicInteger cursor = new AtomicInteger();
+
+		private volatile RoutedSession[] loggedOn = EMPTY;
+
+		private synchronized void add(RoutedSession routedSession) {
+			RoutedSession[] current = loggedOn;
+			for (RoutedSession member : current) {
+				if (member == routedSession) {
+					return;
+				}
+			}
+			RoutedSession[] updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = routedSession;
+			loggedOn = updated;
+		}
+
+		private synchronized void remove(RoutedSession routedSession) {
+			RoutedSession[] current = loggedOn;
+			List<RoutedSession> updated = new ArrayList<>(Arrays.asList(current));
+			if (updated.remove(routedSession)) {
+				loggedOn = updated.toArray(EMPTY);
+			}
+		}
+
+		private RoutedSession select(SelectionStrategy selectionStrategy) {
+			RoutedSession[] candidates = loggedOn;
+			if (candidates.length == 0) {
+				return null;
+			}
+			int start = (cursor.getAndIncrement() & Integer.MAX_VALUE) % candidates.length;
+			if (selectionStrategy == SelectionStrategy.ROUND_ROBIN || candidates.length == 1) {
+				return candidates[start];
+			}
+
+			RoutedSession selected = candidates[start];
+			for (int i = 1; i < candidates.length && selected.inFlight.get() > 0; i++) {
+				RoutedSession candidate = candidates[(start + i) % candidates.length];
+				if (candidate.inFlight.get() < selected.inFlight.get()) {
+					selected = candidate;
+				}
+			}
+			return selected;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.sender;
+
+import quickfix.SessionID;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Moves the sends of the asynchronous endpoints off the HTTP worker threads.
+ * <p>
+ * A send can block on the session lock and on the socket write, so the endpoints hand it to a small pool of sender
+ * threads and return a {@link CompletableFuture} that completes once the session has handled the message; Spring MVC
+ * releases the worker thread in the meantime. The sends of a session are queued and run one at a time, in order, so a
+ * session blocked on its socket holds a single sender thread and the other sessions keep being served by the rest of
+ * the pool. Each session admits at most {@code maxInFlightPerSession} queued and running sends, any send beyond that
+ * fails fast with a {@link SessionBusyException}, answered with 429 Too Many Requests, instead of queueing up behind a
+ * slow session.
+ */
+public class AsyncMessageSender implements AutoCloseable {
+
+	private final int maxInFlightPerSession;
+
+	private final ExecutorService executor;
+
+	private final ConcurrentMap<SessionID, Lane> lanes = new ConcurrentHashMap<>();
+
+	public AsyncMessageSender(int senderThreads, int maxInFlightPerSession) {
+		this.maxInFlightPerSession = maxInFlightPerSession;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(senderThreads, runnable -> {
+			Thread thread = new Thread(runnable, "async-sender-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @throws SessionBusyException if the session already has {@code maxInFlightPerSession} sends in flight
+	 * @throws RejectedExecutionException if the sender is closed
+	 */
+	public <T> CompletableFuture<T> send(SessionID sessionID, Function<SessionID, T> sender) {
+		if (executor.isShutdown()) {
+			throw new RejectedExecutionException("The async message sender is closed");
+		}
+		Lane lane = lanes.computeIfAbsent(sessionID, Lane::new);
+		if (!lane.permits.tryAcquire()) {
+			throw new SessionBusyException(sessionID, maxInFlightPerSession);
+		}
+		Send<T> send = new Send<>(sender);
+		lane.sends.offer(send);
+		try {
+			lane.schedule();
+		} catch (RejectedExecutionException e) {
+			if (lane.sends.remove(send)) {
+				lane.permits.release();
+			}
+			throw e;
+		}
+		return send.future;
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	/**
+	 * A send waiting in the queue of its session.
+	 */
+	private static final class Send<T> {
+
+		private final Function<SessionID, T> sender;
+
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+
+		private Send(Function<SessionID, T> sender) {
+			this.sender = sender;
+		}
+
+		private void run(SessionID sessionID) {
+			try {
+				future.complete(sender.apply(sessionID));
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		}
+	}
+
+	/**
+	 * The sends of a session. At most one task per session is submitted to the pool at any time, and it runs the
+	 * queued sends in order.
+	 */
+	private final class Lane implements Runnable {
+
+		private final SessionID sessionID;
+
+		private final Semaphore permits = new Semaphore(maxInFlightPerSession);
+
+		private final Queue<Send<?>> sends = new ConcurrentLinkedQueue<>();
+
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		private Lane(SessionID sessionID) {
+			this.sessionID = sessionID;
+		}
+
+		private void schedule() {
+			if (!sends.isEmpty() && scheduled.compareAndSet(false, true)) {
+				try {
+					executor.execute(this);
+				} catch (RejectedExecutionException e) {
+					scheduled.set(false);
+					throw e;
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			Send<?> send;
+			while ((send = sends.poll()) != null) {
+				try {
+					send.run(sessionID);
+				} finally {
+					permits.release();
+				}
+			}
+			// cleared before the queue is checked again, a send queued meanwhile schedules the next run
+			scheduled.set(false);
+			try {
+				schedule();
+			} catch (RejectedExecutionException e) {
+				// closed while a send was being queued
+				while ((send = sends.poll()) != null) {
+					send.future.completeExceptionally(e);
+					permits.release();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.sender;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+import quickfix.SessionID;
+
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * Thrown when a session has reached its limit of sends in flight, the caller should retry later.
+ */
+@ResponseStatus(TOO_MANY_REQUESTS)
+public class SessionBusyException extends RuntimeException {
+
+	public SessionBusyException(SessionID sessionID, int maxInFlight) {
+		super("Session " + sessionID + " already has " + maxInFlight + " messages in flight");
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.template;
+
+import quickfix.Message;
+import quickfix.StringField;
+import quickfix.field.ClOrdID;
+import quickfix.field.Text;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+import static java.util.UUID.randomUUID;
+
+/**
+ * Registry of message prototypes per FIX version and message type.
+ * <p>
+ * The prototypes are never handed out: every call returns a private copy with the variable fields stamped on it,
+ * so concurrent requests can neither see nor corrupt each other's messages.
+ */
+public class MessageTemplateRegistry {
+
+	private final Map<String, Map<String, Message>> prototypes = new HashMap<>();
+
+	public MessageTemplateRegistry register(String fixVersion, String messageType, Message prototype) {
+		prototypes.computeIfAbsent(fixVersion, version -> new HashMap<>()).put(messageType, prototype);
+		return this;
+	}
+
+	public Message newMessage(String fixVersion, String messageType, String text) {
+		Message prototype = prototypes.getOrDefault(fixVersion, emptyMap()).get(messageType);
+		if (prototype == null) {
+			throw new IllegalArgumentException("No template registered for fixVersion=" + fixVersion
+					+ ", messageType=" + messageType);
+		}
+
+		Message message = (Message) prototype.clone();
+		message.setField(new StringField(Text.FIELD, text));
+		if (prototype.isSetField(ClOrdID.FIELD)) {
+			message.setField(new StringField(ClOrdID.FIELD, randomUUID().toString()));
+		}
+		return message;
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RingBufferTest {
+
+	@Test
+	public void shouldRoundTheCapacityUpToAPowerOfTwo() {
+		assertThat(new RingBuffer<>(1, OverflowPolicy.DROP).getCapacity()).isEqualTo(2);
+		assertThat(new RingBuffer<>(5, OverflowPolicy.DROP).getCapacity()).isEqualTo(8);
+		assertThat(new RingBuffer<>(8, OverflowPolicy.DROP).getCapacity()).isEqualTo(8);
+		assertThatThrownBy(() -> new RingBuffer<>(0, OverflowPolicy.DROP))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void shouldPollTheEntriesInTheOrderTheyWereOffered() {
+		RingBuffer<Integer> ring = new RingBuffer<>(4, OverflowPolicy.DROP);
+		List<Integer> polled = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			assertThat(ring.offer(i)).isTrue();
+			if (i % 3 == 2) {
+				drainTo(ring, polled);
+			}
+		}
+		drainTo(ring, polled);
+
+		assertThat(polled).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+		assertThat(ring.poll()).isNull();
+		assertThat(ring.getConsumedCount()).isEqualTo(10);
+	}
+
+	@Test
+	public void shouldDropAndCountTheEntriesOfAFullRingWithTheDropPolicy() {
+		RingBuffer<Integer> ring = new RingBuffer<>(2, OverflowPolicy.DROP);
+
+		assertThat(ring.offer(1)).isTrue();
+		assertThat(ring.offer(2)).isTrue();
+		assertThat(ring.offer(3)).isFalse();
+		assertThat(ring.offer(4)).isFalse();
+
+		assertThat(ring.getDroppedCount()).isEqualTo(2);
+		assertThat(ring.getBlockedCount()).isZero();
+		assertThat(ring.getPendingCount()).isEqualTo(2);
+		assertThat(ring.poll()).isEqualTo(1);
+		assertThat(ring.offer(5)).isTrue();
+		assertThat(ring.poll()).isEqualTo(2);
+		assertThat(ring.poll()).isEqualTo(5);
+	}
+
+	@Test
+	public void shouldWaitForAFreeSlotWithTheBlockPolicy() throws Exception {
+		RingBuffer<Integer> ring = new RingBuffer<>(2, OverflowPolicy.BLOCK);
+		ring.offer(1);
+		ring.offer(2);
+
+		CompletableFuture<Boolean> offered = CompletableFuture.supplyAsync(() -> ring.offer(3));
+		assertThatThrownBy(() -> offered.get(100, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+		assertThat(ring.getBlockedCount()).isEqualTo(1);
+
+		assertThat(ring.poll()).isEqualTo(1);
+		assertThat(offered.get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(ring.poll()).isEqualTo(2);
+		assertThat(ring.poll()).isEqualTo(3);
+		assertThat(ring.getDroppedCount()).isZero();
+	}
+
+	@Test
+	public void shouldReleaseTheBlockedProducersWhenClosed() throws Exception {
+		RingBuffer<Integer> ring = new RingBuffer<>(2, OverflowPolicy.BLOCK);
+		ring.offer(1);
+		ring.offer(2);
+		CompletableFuture<Boolean> offered = CompletableFuture.supplyAsync(() -> ring.offer(3));
+		assertThatThrownBy(() -> offered.get(100, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+		ring.close();
+
+		assertThat(offered.get(5, TimeUnit.SECONDS)).isFalse();
+		assertThat(ring.offer(4)).isFalse();
+		assertThat(ring.getDroppedCount()).isEqualTo(2);
+		assertThat(ring.isDrained()).isFalse();
+		assertThat(ring.poll()).isEqualTo(1);
+		assertThat(ring.poll()).isEqualTo(2);
+		assertThat(ring.isDrained()).isTrue();
+	}
+
+	@Test
+	public void shouldHandOverEveryEntryOfConcurrentProducers() throws Exception {
+		RingBuffer<Long> ring = new RingBuffer<>(64, OverflowPolicy.BLOCK);
+		int producers = 4;
+		int perProducer = 10000;
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			long base = (long) p * perProducer;
+			futures.add(CompletableFuture.runAsync(() -> {
+				for (long i = 0; i < perProducer; i++) {
+					ring.offer(base + i);
+				}
+			}));
+		}
+
+		long[] next = new long[producers];
+		for (int p = 0; p < producers; p++) {
+			next[p] = (long) p * perProducer;
+		}
+		int received = 0;
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (received < producers * perProducer && System.nanoTime() < deadline) {
+			Long entry = ring.poll();
+			if (entry == null) {
+				Thread.yield();
+				continue;
+			}
+			int producer = (int) (entry / perProducer);
+			assertThat(entry).isEqualTo(next[producer]++);
+			received++;
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+		assertThat(received).isEqualTo(producers * perProducer);
+		assertThat(ring.getDroppedCount()).isZero();
+	}
+
+	private static <E> void drainTo(RingBuffer<E> ring, List<E> polled) {
+		for (E entry = ring.poll(); entry != null; entry = ring.poll()) {
+			polled.add(entry);
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.event;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.concurrent.OverflowPolicy;
+import io.allune.quickfixj.spring.boot.starter.model.Create;
+import io.allune.quickfixj.spring.boot.starter.model.FromAdmin;
+import io.allune.quickfixj.spring.boot.starter.model.FromApp;
+import io.allune.quickfixj.spring.boot.starter.model.Logon;
+import io.allune.quickfixj.spring.boot.starter.model.Logout;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import quickfix.FieldNotFound;
+import quickfix.Message;
+import quickfix.SessionID;
+import quickfix.field.ClOrdID;
+import quickfix.fix44.NewOrderSingle;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SessionOrderedEventMulticasterTest {
+
+	private static final SessionID SESSION_ID = new SessionID("FIX.4.4", "SENDER", "TARGET");
+
+	private SessionOrderedEventMulticaster multicaster;
+
+	@After
+	public void tearDown() throws InterruptedException {
+		if (multicaster != null) {
+			multicaster.destroy();
+		}
+	}
+
+	@Test
+	public void shouldHandTheListenersACopyOfTheMessage() throws Exception {
+		multicaster = multicaster(FromApp.class, Logout.class);
+		List<Message> received = new CopyOnWriteArrayList<>();
+		multicaster.addApplicationListener(payloadListener(FromApp.class, fromApp -> received.add(fromApp.getMessage())));
+		NewOrderSingle message = new NewOrderSingle();
+		message.set(new ClOrdID("first"));
+
+		publish(FromApp.of(message, SESSION_ID));
+		message.set(new ClOrdID("second"));
+
+		awaitSize(received, 1);
+		assertThat(received.get(0)).isNotSameAs(message);
+		assertThat(received.get(0).getString(ClOrdID.FIELD)).isEqualTo("first");
+	}
+
+	@Test
+	public void shouldDispatchTheEventsOfASessionInOrderOffTheSessionThread() throws Exception {
+		multicaster = multicaster(FromApp.class, Create.class, Logout.class);
+		List<String> received = new CopyOnWriteArrayList<>();
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		multicaster.addApplicationListener((ApplicationListener<PayloadApplicationEvent<?>>) event -> {
+			threads.add(Thread.currentThread());
+			Object payload = event.getPayload();
+			received.add(payload instanceof FromApp
+					? clOrdID(((FromApp) payload).getMessage())
+					: payload.getClass().getSimpleName());
+		});
+
+		publish(Create.of(SESSION_ID));
+		for (int i = 0; i < 100; i++) {
+			publish(FromApp.of(order(Integer.toString(i)), SESSION_ID));
+		}
+		publish(Logout.of(SESSION_ID));
+
+		awaitSize(received, 102);
+		assertThat(received.get(0)).isEqualTo("Create");
+		for (int i = 0; i < 100; i++) {
+			assertThat(received.get(i + 1)).isEqualTo(Integer.toString(i));
+		}
+		assertThat(received.get(101)).isEqualTo("Logout");
+		assertThat(threads).doesNotContain(Thread.currentThread());
+	}
+
+	@Test
+	public void shouldDispatchFromAdminAndLogonOnTheSessionThread() {
+		multicaster = multicaster(FromApp.class);
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		multicaster.addApplicationListener(payloadListener(Logon.class, logon -> threads.add(Thread.currentThread())));
+		multicaster.addApplicationListener(payloadListener(FromAdmin.class, fromAdmin -> {
+			throw new IllegalStateException("Logon rejected");
+		}));
+
+		publish(Logon.of(SESSION_ID));
+
+		assertThat(threads).containsExactly(Thread.currentThread());
+		assertThatThrownBy(() -> publish(FromAdmin.of(new quickfix.fix44.Logon(), SESSION_ID)))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("Logon rejected");
+	}
+
+	@Test
+	public void shouldDispatchFromAdminOffTheSessionThreadWhenConfigured() throws Exception {
+		multicaster = multicaster(FromAdmin.class);
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		multicaster.addApplicationListener(payloadListener(FromAdmin.class, fromAdmin -> {
+			threads.add(Thread.currentThread());
+			throw new IllegalStateException("Logon rejected");
+		}));
+
+		publish(FromAdmin.of(new quickfix.fix44.Logon(), SESSION_ID));
+
+		awaitSize(threads, 1);
+		assertThat(threads.get(0)).isNotSameAs(Thread.currentThread());
+	}
+
+	@Test
+	public void shouldRejectAsynchronousLogon() {
+		assertThatThrownBy(() -> multicaster(Logon.class))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("Logon");
+	}
+
+	@Test
+	public void shouldDispatchSynchronouslyOnceDestroyed() throws Exception {
+		multicaster = multicaster(FromApp.class);
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		multicaster.addApplicationListener(payloadListener(FromApp.class, fromApp -> threads.add(Thread.currentThread())));
+
+		multicaster.destroy();
+		publish(FromApp.of(order("1"), SESSION_ID));
+
+		assertThat(threads).containsExactly(Thread.currentThread());
+	}
+
+	private SessionOrderedEventMulticaster multicaster(Class<?>... asyncEventTypes) {
+		return new SessionOrderedEventMulticaster(2, 16, new HashSet<>(Arrays.asList(asyncEventTypes)),
+				OverflowPolicy.BLOCK);
+	}
+
+	private void publish(Object payload) {
+		multicaster.multicastEvent(new PayloadApplicationEvent<>(this, payload));
+	}
+
+	/**
+	 * A listener of one payload type, as the {@code @EventListener} methods of the examples.
+	 */
+	private static <T> ApplicationListener<PayloadApplicationEvent<?>> payloadListener(Class<T> type,
+	                                                                                   Consumer<T> consumer) {
+		return event -> {
+			if (type.isInstance(event.getPayload())) {
+				consumer.accept(type.cast(event.getPayload()));
+			}
+		};
+	}
+
+	private static NewOrderSingle order(String clOrdID) {
+		NewOrderSingle message = new NewOrderSingle();
+		message.set(new ClOrdID(clOrdID));
+		return message;
+	}
+
+	private static String clOrdID(Message message) {
+		try {
+			return message.getString(ClOrdID.FIELD);
+		} catch (FieldNotFound e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void awaitSize(List<?> list, int size) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (list.size() < size && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(list).hasSize(size);
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.eventloop;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.TestSessions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import quickfix.ApplicationAdapter;
+import quickfix.DefaultMessageFactory;
+import quickfix.FieldNotFound;
+import quickfix.Initiator;
+import quickfix.MemoryStoreFactory;
+import quickfix.Message;
+import quickfix.SLF4JLogFactory;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.SocketInitiator;
+import quickfix.field.MsgType;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventLoopSocketAcceptorTest {
+
+	private static final SessionID ACCEPTOR_ID = new SessionID("FIX.4.4", "EXEC", "BANZAI");
+
+	private static final SessionID INITIATOR_ID = new SessionID("FIX.4.4", "BANZAI", "EXEC");
+
+	private final RecordingApplication acceptorApplication = new RecordingApplication();
+
+	private final RecordingApplication initiatorApplication = new RecordingApplication();
+
+	private EventLoopSocketAcceptor acceptor;
+
+	private Initiator initiator;
+
+	@Before
+	public void setUp() throws Exception {
+		int port = freePort();
+		SessionSettings acceptorSettings = TestSessions.acceptorSettings(ACCEPTOR_ID);
+		acceptorSettings.setLong(ACCEPTOR_ID, "SocketAcceptPort", port);
+		acceptor = new EventLoopSocketAcceptor(acceptorApplication, new MemoryStoreFactory(), acceptorSettings,
+				new SLF4JLogFactory(acceptorSettings), new DefaultMessageFactory(), 2, 100);
+
+		SessionSettings initiatorSettings = new SessionSettings();
+		initiatorSettings.setString(INITIATOR_ID, SessionSettings.BEGINSTRING, INITIATOR_ID.getBeginString());
+		initiatorSettings.setString(INITIATOR_ID, SessionSettings.SENDERCOMPID, INITIATOR_ID.getSenderCompID());
+		initiatorSettings.setString(INITIATOR_ID, SessionSettings.TARGETCOMPID, INITIATOR_ID.getTargetCompID());
+		initiatorSettings.setString(INITIATOR_ID, "ConnectionType", "initiator");
+		initiatorSettings.setString(INITIATOR_ID, Session.SETTING_NON_STOP_SESSION, "Y");
+		initiatorSettings.setString(INITIATOR_ID, Session.SETTING_USE_DATA_DICTIONARY, "N");
+		initiatorSettings.setString(INITIATOR_ID, "SocketConnectHost", "localhost");
+		initiatorSettings.setLong(INITIATOR_ID, "SocketConnectPort", port);
+		initiatorSettings.setLong(INITIATOR_ID, Session.SETTING_HEARTBTINT, 30);
+		initiatorSettings.setLong(INITIATOR_ID, "ReconnectInterval", 30);
+		initiator = new SocketInitiator(initiatorApplication, new MemoryStoreFactory(), initiatorSettings,
+				new SLF4JLogFactory(initiatorSettings), new DefaultMessageFactory());
+	}
+
+	@After
+	public void tearDown() {
+		initiator.stop(true);
+		acceptor.stop(true);
+	}
+
+	@Test
+	public void shouldLogOutTheSessionsBeforeStoppingTheEventLoops() throws Exception {
+		acceptor.start();
+		initiator.start();
+		assertThat(acceptorApplication.loggedOn.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(initiatorApplication.loggedOn.await(10, TimeUnit.SECONDS)).isTrue();
+
+		acceptor.stop(false);
+
+		// the Logout reply of the counterparty was processed by an event loop before they stopped
+		assertThat(initiatorApplication.logoutReceived.getCount()).isZero();
+		assertThat(acceptorApplication.loggedOut.getCount()).isZero();
+		assertThat(eventLoopThreads()).isZero();
+		assertThat(Session.lookupSession(ACCEPTOR_ID)).isNull();
+		assertThat(acceptor.getSessions()).isEmpty();
+	}
+
+	@Test
+	public void shouldStartAgainOnceStopped() throws Exception {
+		acceptor.start();
+		acceptor.start();
+		assertThat(eventLoopThreads()).isEqualTo(2);
+		assertThat(Session.lookupSession(ACCEPTOR_ID)).isNotNull();
+
+		acceptor.stop(true);
+		acceptor.stop(true);
+		assertThat(eventLoopThreads()).isZero();
+		assertThat(Session.lookupSession(ACCEPTOR_ID)).isNull();
+
+		acceptor.start();
+		initiator.start();
+		assertThat(acceptorApplication.loggedOn.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(eventLoopThreads()).isEqualTo(2);
+	}
+
+	private static long eventLoopThreads() {
+		return Thread.getAllStackTraces().keySet().stream()
+				.filter(thread -> thread.getName().startsWith("QFJ Event Loop"))
+				.count();
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	private static final class RecordingApplication extends ApplicationAdapter {
+
+		private final CountDownLatch loggedOn = new CountDownLatch(1);
+
+		private final CountDownLatch loggedOut = new CountDownLatch(1);
+
+		private final CountDownLatch logoutReceived = new CountDownLatch(1);
+
+		@Override
+		public void onLogon(SessionID sessionId) {
+			loggedOn.countDown();
+		}
+
+		@Override
+		public void onLogout(SessionID sessionId) {
+			loggedOut.countDown();
+		}
+
+		@Override
+		public void fromAdmin(Message message, SessionID sessionId) throws FieldNotFound {
+			if (MsgType.LOGOUT.equals(message.getHeader().getString(MsgType.FIELD))) {
+				logoutReceived.countDown();
+			}
+		}
+	}
+}
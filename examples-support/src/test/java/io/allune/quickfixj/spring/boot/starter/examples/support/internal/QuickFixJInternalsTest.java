@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.internal;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals.InternalField;
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals.InternalMethod;
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.RecordingResponder;
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.TestSessions;
+import org.junit.Test;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionNotFound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QuickFixJInternalsTest {
+
+	@Test
+	public void shouldReportAMissingMethodAsUnavailable() {
+		InternalMethod method = QuickFixJInternals.method(Session.class, "noSuchMethod", String.class);
+
+		assertThat(method.isAvailable()).isFalse();
+		assertThatThrownBy(() -> method.invoke(null, "x")).isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	public void shouldReportAMissingFieldAsUnavailable() {
+		InternalField field = QuickFixJInternals.field(Session.class, "noSuchField");
+
+		assertThat(field.isAvailable()).isFalse();
+		assertThatThrownBy(() -> field.get(null)).isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	public void shouldInvokeAPrivateMethodAndRethrowItsException() throws Exception {
+		InternalMethod method = QuickFixJInternals.method(Session.class, "getTargetCompIDFromMessage",
+				quickfix.Message.class);
+
+		assertThat(method.isAvailable()).isTrue();
+		assertThatThrownBy(() -> method.invoke(null, new quickfix.Message()))
+				.isInstanceOf(quickfix.FieldNotFound.class);
+	}
+
+	@Test
+	public void shouldNotKnowTheBacklogOfASessionWithoutSocket() throws Exception {
+		SessionID sessionID = new SessionID("FIX.4.4", "INTERNALS", "TEST");
+		Session session = TestSessions.loggedOnAcceptor(sessionID, new RecordingResponder());
+		try {
+			assertThat(QuickFixJInternals.scheduledWriteBytes(session)).isEqualTo(-1);
+		} finally {
+			session.close();
+		}
+		assertThatThrownBy(() -> Session.sendToTarget(new quickfix.fix44.Heartbeat(), sessionID))
+				.isInstanceOf(SessionNotFound.class);
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.jdbc;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import quickfix.Log;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.SystemTime;
+import quickfix.SystemTimeSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchingJdbcLogFactoryTest {
+
+	private static final SessionID SESSION_ID = new SessionID("FIX.4.4", "EXEC", "BANZAI");
+
+	private static final SessionID OTHER_SESSION_ID = new SessionID("FIX.4.4", "EXEC", "OTHER");
+
+	private static final LocalDateTime NOW = LocalDateTime.of(2020, 11, 11, 10, 30);
+
+	private final AtomicBoolean unavailable = new AtomicBoolean();
+
+	private SessionSettings settings;
+
+	private DataSource dataSource;
+
+	private BatchingJdbcLogFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		SystemTime.setTimeSource(new SystemTimeSource() {
+
+			@Override
+			public long getTime() {
+				return NOW.toInstant(ZoneOffset.UTC).toEpochMilli();
+			}
+
+			@Override
+			public LocalDateTime getNow() {
+				return NOW;
+			}
+		});
+
+		JDBCDataSource hsqldb = new JDBCDataSource();
+		hsqldb.setUrl("jdbc:hsqldb:mem:" + UUID.randomUUID());
+		hsqldb.setUser("sa");
+		hsqldb.setPassword("");
+		new ResourceDatabasePopulator(new ClassPathResource("hsqldb/data.sql")).execute(hsqldb);
+		dataSource = failingWhileUnavailable(hsqldb);
+
+		settings = new SessionSettings();
+		settings.setString(BatchingJdbcLogFactory.SETTING_FLUSH_INTERVAL, "5");
+		settings.setString(BatchingJdbcLogFactory.SETTING_CREATE_PARTITION_SQL,
+				"CREATE TABLE IF NOT EXISTS %s (LIKE %s INCLUDING IDENTITY)");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (factory != null) {
+			factory.close();
+		}
+		SystemTime.setTimeSource(null);
+	}
+
+	@Test
+	public void shouldWriteTheRecordsOfAllTheSessionsToTheTablesOfTheDay() throws Exception {
+		factory = newFactory("DAY");
+		Log log = factory.create(SESSION_ID);
+		log.onIncoming("incoming");
+		log.onOutgoing("outgoing");
+		log.onEvent("event");
+		factory.create(OTHER_SESSION_ID).onIncoming("other incoming");
+		factory.close();
+
+		assertThat(texts("messages_log_20201111", "BANZAI")).containsExactly("incoming", "outgoing");
+		assertThat(texts("messages_log_20201111", "OTHER")).containsExactly("other incoming");
+		assertThat(texts("event_log_20201111", "BANZAI")).containsExactly("event");
+		assertThat(texts("messages_log", "BANZAI")).isEmpty();
+	}
+
+	@Test
+	public void shouldWriteTheRecordsOfASessionToItsOwnTables() throws Exception {
+		factory = newFactory("SESSION");
+		factory.create(SESSION_ID).onIncoming("incoming");
+		factory.create(OTHER_SESSION_ID).onIncoming("other incoming");
+		factory.close();
+
+		assertThat(texts("messages_log_fix_4_4_exec_banzai", "BANZAI")).containsExactly("incoming");
+		assertThat(texts("messages_log_fix_4_4_exec_other", "OTHER")).containsExactly("other incoming");
+	}
+
+	@Test
+	public void shouldClearThePartitionsWrittenByAnEarlierRun() throws Exception {
+		factory = newFactory("SESSION");
+		factory.create(SESSION_ID).onIncoming("earlier run");
+		factory.close();
+
+		factory = newFactory("DAY");
+		Log log = factory.create(SESSION_ID);
+		log.onIncoming("incoming");
+		factory.create(OTHER_SESSION_ID).onIncoming("other incoming");
+		log.clear();
+		factory.close();
+
+		assertThat(texts("messages_log_fix_4_4_exec_banzai", "BANZAI")).isEmpty();
+		assertThat(texts("messages_log_20201111", "BANZAI")).isEmpty();
+		assertThat(texts("messages_log_20201111", "OTHER")).containsExactly("other incoming");
+	}
+
+	@Test
+	public void shouldRetryABatchUntilTheDatabaseIsBack() throws Exception {
+		factory = newFactory("DAY");
+		unavailable.set(true);
+		factory.create(SESSION_ID).onIncoming("incoming");
+		assertThat(await(() -> (long) factory.getMetrics().get("retries") > 0)).isTrue();
+
+		unavailable.set(false);
+		factory.close();
+
+		assertThat(texts("messages_log_20201111", "BANZAI")).containsExactly("incoming");
+		assertThat(factory.getMetrics()).containsEntry("written", 1L).containsEntry("failed", 0L);
+	}
+
+	@Test
+	public void shouldDropABatchOnceTheRetriesAreExhausted() throws Exception {
+		settings.setString(BatchingJdbcLogFactory.SETTING_MAX_RETRIES, "0");
+		factory = newFactory("NONE");
+		Log log = factory.create(SESSION_ID);
+		unavailable.set(true);
+		log.onIncoming("dropped");
+		assertThat(await(() -> (long) factory.getMetrics().get("failed") == 1)).isTrue();
+
+		unavailable.set(false);
+		log.onIncoming("incoming");
+		factory.close();
+
+		assertThat(texts("messages_log", "BANZAI")).containsExactly("incoming");
+		assertThat(factory.getMetrics()).containsEntry("written", 1L).containsEntry("retries", 0L);
+	}
+
+	private BatchingJdbcLogFactory newFactory(String partitioning) throws Exception {
+		settings.setString(BatchingJdbcLogFactory.SETTING_PARTITIONING, partitioning);
+		return new BatchingJdbcLogFactory(settings, dataSource);
+	}
+
+	private List<String> texts(String table, String targetCompID) throws SQLException {
+		List<String> texts = new ArrayList<>();
+		try (Connection connection = dataSource.getConnection();
+		     Statement select = connection.createStatement();
+		     ResultSet rows = select.executeQuery("SELECT text FROM " + table
+				     + " WHERE targetcompid = '" + targetCompID + "' ORDER BY id")) {
+			while (rows.next()) {
+				texts.add(rows.getString(1));
+			}
+		}
+		return texts;
+	}
+
+	private static boolean await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				return false;
+			}
+			Thread.sleep(10);
+		}
+		return true;
+	}
+
+	/**
+	 * Fails to connect while the database is made unavailable.
+	 */
+	private DataSource failingWhileUnavailable(DataSource target) {
+		return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+				(proxy, method, args) -> {
+					if (unavailable.get() && method.getName().equals("getConnection")) {
+						throw new SQLException("Database unavailable");
+					}
+					try {
+						return method.invoke(target, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+}
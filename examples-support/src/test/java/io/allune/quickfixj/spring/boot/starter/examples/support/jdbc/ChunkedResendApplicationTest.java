@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.jdbc;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.RecordingResponder;
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.TestSessions;
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import quickfix.ApplicationAdapter;
+import quickfix.DoNotSend;
+import quickfix.FieldNotFound;
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.field.BeginSeqNo;
+import quickfix.field.EndSeqNo;
+import quickfix.field.GapFillFlag;
+import quickfix.field.Headline;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.MsgType;
+import quickfix.field.NewSeqNo;
+import quickfix.field.OrigSendingTime;
+import quickfix.field.PossDupFlag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChunkedResendApplicationTest {
+
+	private static final SessionID SESSION_ID = new SessionID("FIX.4.4", "EXEC", "BANZAI");
+
+	private static final String SKIPPED = "skipped";
+
+	private final RecordingResponder responder = new RecordingResponder();
+
+	private WriteBehindJdbcStoreFactory factory;
+
+	private Session session;
+
+	@Before
+	public void setUp() throws Exception {
+		JDBCDataSource dataSource = new JDBCDataSource();
+		dataSource.setUrl("jdbc:hsqldb:mem:" + UUID.randomUUID());
+		dataSource.setUser("sa");
+		dataSource.setPassword("");
+		new ResourceDatabasePopulator(new ClassPathResource("hsqldb/data.sql")).execute(dataSource);
+
+		SessionSettings settings = TestSessions.acceptorSettings(SESSION_ID);
+		settings.setString(SESSION_ID, WriteBehindJdbcStore.SETTING_WINDOW_SIZE, "100");
+		settings.setString(SESSION_ID, WriteBehindJdbcStore.SETTING_RESEND_PAGE_SIZE, "250");
+		factory = new WriteBehindJdbcStoreFactory(settings, dataSource);
+		session = TestSessions.loggedOnAcceptor(SESSION_ID, new ChunkedResendApplication(new SkippingApplication()),
+				factory, settings, responder);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		session.close();
+		factory.close();
+	}
+
+	@Test
+	public void shouldStreamTheRangeOlderThanTheWindowInChunks() throws Exception {
+		// the Logon is 1, the news 2 to 2001 with a heartbeat after 1000, and the news 2 to 11 are not resent
+		for (int i = 0; i < 2000; i++) {
+			session.send(news(i < 10 ? SKIPPED : "news " + i));
+			if (i == 998) {
+				session.generateHeartbeat();
+			}
+		}
+		int lastSeqNo = session.getExpectedSenderNum() - 1;
+		assertThat(lastSeqNo).isEqualTo(2002);
+
+		responder.clear();
+		requestResend(1, 0);
+
+		List<String> writes = responder.getSent();
+		List<Message> resent = new ArrayList<>();
+		for (String write : writes) {
+			resent.addAll(split(write));
+		}
+		// the older part is written a page at a time, the window resent by the session one message at a time
+		assertThat(writes.get(0)).isEqualTo(String.join("", toStrings(resent.subList(0, 250))));
+		assertThat(writes.subList(writes.size() - 100, writes.size())).allMatch(write -> split(write).size() == 1);
+
+		assertThat(resent.get(0).getBoolean(GapFillFlag.FIELD)).isTrue();
+		assertThat(resent.get(0).getHeader().getInt(MsgSeqNum.FIELD)).isEqualTo(1);
+		assertThat(resent.get(0).getInt(NewSeqNo.FIELD)).isEqualTo(12);
+
+		int expectedSeqNo = 1;
+		int gapFills = 0;
+		for (Message message : resent) {
+			Message.Header header = message.getHeader();
+			assertThat(header.getInt(MsgSeqNum.FIELD)).isEqualTo(expectedSeqNo);
+			assertThat(header.getBoolean(PossDupFlag.FIELD)).isTrue();
+			assertThat(header.isSetField(OrigSendingTime.FIELD)).isTrue();
+			if (MsgType.SEQUENCE_RESET.equals(header.getString(MsgType.FIELD))) {
+				expectedSeqNo = message.getInt(NewSeqNo.FIELD);
+				gapFills++;
+			} else {
+				assertThat(message.getString(Headline.FIELD)).isNotEqualTo(SKIPPED);
+				expectedSeqNo++;
+			}
+		}
+		assertThat(expectedSeqNo).isEqualTo(lastSeqNo + 1);
+		assertThat(gapFills).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldLeaveARangeOfTheWindowToTheSession() throws Exception {
+		for (int i = 0; i < 300; i++) {
+			session.send(news("news " + i));
+		}
+
+		responder.clear();
+		requestResend(250, 260);
+
+		assertThat(responder.getSent()).hasSize(11).allMatch(write -> split(write).size() == 1);
+		assertThat(responder.getSent(MsgType.NEWS).get(0).getHeader().getInt(MsgSeqNum.FIELD)).isEqualTo(250);
+	}
+
+	@Test
+	public void shouldLeaveTheLastMessageOfARangeOlderThanTheWindowToTheSession() throws Exception {
+		for (int i = 0; i < 300; i++) {
+			session.send(news("news " + i));
+		}
+
+		responder.clear();
+		requestResend(2, 51);
+
+		List<String> writes = responder.getSent();
+		assertThat(writes).hasSize(2);
+		assertThat(split(writes.get(0))).hasSize(49);
+		assertThat(split(writes.get(1)).get(0).getHeader().getInt(MsgSeqNum.FIELD)).isEqualTo(51);
+	}
+
+	private void requestResend(int beginSeqNo, int endSeqNo) throws Exception {
+		Message resendRequest = session.getMessageFactory().create(SESSION_ID.getBeginString(), MsgType.RESEND_REQUEST);
+		resendRequest.setInt(BeginSeqNo.FIELD, beginSeqNo);
+		resendRequest.setInt(EndSeqNo.FIELD, endSeqNo);
+		TestSessions.receive(session, resendRequest);
+	}
+
+	private static Message news(String headline) {
+		Message news = new Message();
+		news.getHeader().setString(MsgType.FIELD, MsgType.NEWS);
+		news.setString(Headline.FIELD, headline);
+		return news;
+	}
+
+	private static List<Message> split(String write) {
+		List<Message> messages = new ArrayList<>();
+		int start = 0;
+		while (start < write.length()) {
+			int end = write.indexOf("\u000110=", start) + 8;
+			Message message = new Message();
+			try {
+				message.fromString(write.substring(start, end), null, false);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			messages.add(message);
+			start = end;
+		}
+		return messages;
+	}
+
+	private static List<String> toStrings(List<Message> messages) {
+		List<String> strings = new ArrayList<>();
+		for (Message message : messages) {
+			strings.add(message.toString());
+		}
+		return strings;
+	}
+
+	/**
+	 * Refuses to resend the news with the {@link #SKIPPED} headline.
+	 */
+	private static final class SkippingApplication extends ApplicationAdapter {
+
+		@Override
+		public void toApp(Message message, SessionID sessionId) throws DoNotSend {
+			try {
+				if (message.getHeader().isSetField(PossDupFlag.FIELD)
+						&& SKIPPED.equals(message.getString(Headline.FIELD))) {
+					throw new DoNotSend();
+				}
+			} catch (FieldNotFound e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
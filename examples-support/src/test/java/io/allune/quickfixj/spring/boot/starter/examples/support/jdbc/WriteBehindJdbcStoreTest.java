@@ -0,0 +1,254 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.jdbc;
+
+import org.hsqldb.jdbc.JDBCDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import quickfix.MessageStore;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WriteBehindJdbcStoreTest {
+
+	private static final SessionID SESSION_ID = new SessionID("FIX.4.4", "EXEC", "BANZAI");
+
+	private final AtomicInteger selects = new AtomicInteger();
+
+	private final AtomicBoolean unavailable = new AtomicBoolean();
+
+	private SessionSettings settings;
+
+	private DataSource dataSource;
+
+	private WriteBehindJdbcStoreFactory factory;
+
+	@Before
+	public void setUp() throws Exception {
+		JDBCDataSource hsqldb = new JDBCDataSource();
+		hsqldb.setUrl("jdbc:hsqldb:mem:" + UUID.randomUUID());
+		hsqldb.setUser("sa");
+		hsqldb.setPassword("");
+		new ResourceDatabasePopulator(new ClassPathResource("hsqldb/data.sql")).execute(hsqldb);
+		dataSource = countingSelects(hsqldb);
+
+		settings = new SessionSettings();
+		settings.setString(SESSION_ID, SessionSettings.BEGINSTRING, SESSION_ID.getBeginString());
+		settings.setString(SESSION_ID, SessionSettings.SENDERCOMPID, SESSION_ID.getSenderCompID());
+		settings.setString(SESSION_ID, SessionSettings.TARGETCOMPID, SESSION_ID.getTargetCompID());
+		settings.setString(SESSION_ID, WriteBehindJdbcStore.SETTING_WINDOW_SIZE, "100");
+		settings.setString(SESSION_ID, WriteBehindJdbcStore.SETTING_RESEND_PAGE_SIZE, "250");
+		factory = newFactory();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		factory.close();
+	}
+
+	@Test
+	public void shouldReadALargeResendRangeBackOnePageAtATime() throws Exception {
+		MessageStore store = factory.create(SESSION_ID);
+		for (int sequence = 1; sequence <= 5000; sequence++) {
+			store.set(sequence, message(sequence));
+			store.incrNextSenderMsgSeqNum();
+		}
+
+		selects.set(0);
+		List<String> messages = new ArrayList<>();
+		store.get(2, 4999, messages);
+
+		assertThat(messages).hasSize(4998);
+		for (int i = 0; i < messages.size(); i++) {
+			assertThat(messages.get(i)).isEqualTo(message(i + 2));
+		}
+		assertThat(selects.get()).isEqualTo(20);
+	}
+
+	@Test
+	public void shouldServeTheRangesOfTheWindowFromMemory() throws Exception {
+		MessageStore store = factory.create(SESSION_ID);
+		for (int sequence = 1; sequence <= 500; sequence++) {
+			store.set(sequence, message(sequence));
+			store.incrNextSenderMsgSeqNum();
+		}
+
+		selects.set(0);
+		List<String> messages = new ArrayList<>();
+		store.get(450, 500, messages);
+
+		assertThat(messages).hasSize(51).startsWith(message(450)).endsWith(message(500));
+		assertThat(selects.get()).isZero();
+	}
+
+	@Test
+	public void shouldReadARangeEndingBeyondTheLastMessage() throws Exception {
+		MessageStore store = factory.create(SESSION_ID);
+		for (int sequence = 1; sequence <= 300; sequence++) {
+			store.set(sequence, message(sequence));
+			store.incrNextSenderMsgSeqNum();
+		}
+
+		selects.set(0);
+		List<String> messages = new ArrayList<>();
+		store.get(1, Integer.MAX_VALUE - 1, messages);
+
+		assertThat(messages).hasSize(300).startsWith(message(1)).endsWith(message(300));
+		assertThat(selects.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldRecoverTheSessionStateAndTheMessagesInANewFactory() throws Exception {
+		MessageStore store = factory.create(SESSION_ID);
+		for (int sequence = 1; sequence <= 3; sequence++) {
+			store.set(sequence, message(sequence));
+			store.incrNextSenderMsgSeqNum();
+		}
+		store.setNextTargetMsgSeqNum(7);
+		factory.close();
+
+		factory = newFactory();
+		MessageStore recovered = factory.create(SESSION_ID);
+		List<String> messages = new ArrayList<>();
+		recovered.get(1, 3, messages);
+
+		assertThat(recovered.getNextSenderMsgSeqNum()).isEqualTo(4);
+		assertThat(recovered.getNextTargetMsgSeqNum()).isEqualTo(7);
+		assertThat(recovered.getCreationTime()).isEqualTo(store.getCreationTime());
+		assertThat(messages).containsExactly(message(1), message(2), message(3));
+	}
+
+	@Test
+	public void shouldOnlyKeepTheMessagesStoredAfterAReset() throws Exception {
+		MessageStore store = factory.create(SESSION_ID);
+		for (int sequence = 1; sequence <= 3; sequence++) {
+			store.set(sequence, message(sequence));
+			store.incrNextSenderMsgSeqNum();
+		}
+		store.reset();
+		store.set(1, "reset " + message(1));
+		store.incrNextSenderMsgSeqNum();
+		store.set(2, "reset " + message(2));
+		store.incrNextSenderMsgSeqNum();
+		factory.close();
+
+		factory = newFactory();
+		MessageStore recovered = factory.create(SESSION_ID);
+		List<String> messages = new ArrayList<>();
+		recovered.get(1, 3, messages);
+
+		assertThat(recovered.getNextSenderMsgSeqNum()).isEqualTo(3);
+		assertThat(messages).containsExactly("reset " + message(1), "reset " + message(2));
+	}
+
+	@Test
+	public void shouldRejectWritesOnceClosed() throws Exception {
+		MessageStore store = factory.create(SESSION_ID);
+		factory.close();
+
+		assertThatThrownBy(() -> store.set(1, message(1)))
+				.isInstanceOf(IOException.class)
+				.hasMessage("Store factory is closed");
+	}
+
+	@Test
+	public void shouldFailTheDurableWritesOnceTheRetriesAreExhausted() throws Exception {
+		settings.setString(SESSION_ID, WriteBehindJdbcStore.SETTING_DURABLE, "Y");
+		settings.setString(WriteBehindJdbcStoreFactory.SETTING_MAX_RETRIES, "1");
+		factory.close();
+		factory = newFactory();
+		MessageStore store = factory.create(SESSION_ID);
+
+		unavailable.set(true);
+		assertThatThrownBy(() -> store.set(1, message(1)))
+				.isInstanceOf(IOException.class)
+				.hasMessage("Unable to persist the store")
+				.hasCauseInstanceOf(SQLException.class);
+
+		unavailable.set(false);
+		assertThat(store.set(2, message(2))).isTrue();
+	}
+
+	private WriteBehindJdbcStoreFactory newFactory() throws Exception {
+		return new WriteBehindJdbcStoreFactory(settings, dataSource);
+	}
+
+	private static String message(int sequence) {
+		return "8=FIX.4.4\u00019=5\u000135=0\u000134=" + sequence + "\u000110=000\u0001";
+	}
+
+	/**
+	 * Counts the queries of the messages table run through the data source, and fails to connect while the database
+	 * is made unavailable.
+	 */
+	private DataSource countingSelects(DataSource target) {
+		return proxy(DataSource.class, target, (proxy, method, args) -> {
+			if (unavailable.get() && method.getName().equals("getConnection")) {
+				throw new SQLException("Database unavailable");
+			}
+			Object result = invoke(method, target, args);
+			if (!(result instanceof Connection)) {
+				return result;
+			}
+			Connection connection = (Connection) result;
+			return proxy(Connection.class, connection, (connectionProxy, connectionMethod, connectionArgs) -> {
+				Object statement = invoke(connectionMethod, connection, connectionArgs);
+				if (!(statement instanceof PreparedStatement)
+						|| !((String) connectionArgs[0]).startsWith("SELECT msgseqnum")) {
+					return statement;
+				}
+				return proxy(PreparedStatement.class, statement, (statementProxy, statementMethod, statementArgs) -> {
+					if (statementMethod.getName().equals("executeQuery")) {
+						selects.incrementAndGet();
+					}
+					return invoke(statementMethod, statement, statementArgs);
+				});
+			});
+		});
+	}
+
+	private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+	}
+
+	private static Object invoke(java.lang.reflect.Method method, Object target, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.logging;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.concurrent.OverflowPolicy;
+import io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLogger.Callback;
+import io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLogger.Entry;
+import org.junit.After;
+import org.junit.Test;
+import quickfix.Log;
+import quickfix.Message;
+import quickfix.ScreenLogFactory;
+import quickfix.SessionID;
+import quickfix.field.ClOrdID;
+import quickfix.fix44.Heartbeat;
+import quickfix.fix44.NewOrderSingle;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncMessageLoggerTest {
+
+	private static final SessionID SESSION_ID = new SessionID("FIX.4.4", "SENDER", "TARGET");
+
+	private final List<Entry> written = new CopyOnWriteArrayList<>();
+
+	private final CountDownLatch writerStarted = new CountDownLatch(1);
+
+	private final CountDownLatch writerReleased = new CountDownLatch(1);
+
+	private AsyncMessageLogger logger;
+
+	@After
+	public void tearDown() throws InterruptedException {
+		writerReleased.countDown();
+		logger.close();
+	}
+
+	@Test
+	public void shouldLogTheMessageAsItWasWhenLogged() throws Exception {
+		logger = new AsyncMessageLogger(8, OverflowPolicy.DROP, () -> true, blockingWriter());
+		NewOrderSingle message = new NewOrderSingle();
+		message.set(new ClOrdID("first"));
+
+		logger.log(Callback.FROM_APP, message, SESSION_ID);
+		message.set(new ClOrdID("second"));
+		writerReleased.countDown();
+		logger.close();
+
+		assertThat(written).hasSize(1);
+		assertThat(written.get(0).callback).isEqualTo(Callback.FROM_APP);
+		assertThat(written.get(0).message).contains("11=first").doesNotContain("second");
+		assertThat(written.get(0).sessionId).isEqualTo(SESSION_ID);
+	}
+
+	@Test
+	public void shouldLogAParsedMessageAsItWasReceived() throws Exception {
+		logger = new AsyncMessageLogger(8, OverflowPolicy.DROP, () -> true, written::add);
+		String received = order("0").toString();
+		Message message = new Message(received);
+		message.setString(ClOrdID.FIELD, "changed");
+
+		logger.log(Callback.FROM_APP, message, SESSION_ID);
+		logger.close();
+
+		assertThat(written).extracting(entry -> entry.message).containsExactly(received);
+	}
+
+	@Test
+	public void shouldLogTheOutgoingMessagesOfTheSessionLog() throws Exception {
+		logger = new AsyncMessageLogger(8, OverflowPolicy.DROP, () -> true, written::add);
+		Log log = new AsyncMessageLogFactory(new ScreenLogFactory(false, false, false), logger).create(SESSION_ID);
+		String heartbeat = new Heartbeat().toString();
+		String order = order("0").toString();
+
+		log.onOutgoing(heartbeat);
+		log.onOutgoing(order);
+		log.onIncoming(order);
+		logger.close();
+
+		assertThat(written).extracting(entry -> entry.callback).containsExactly(Callback.TO_ADMIN, Callback.TO_APP);
+		assertThat(written).extracting(entry -> entry.message).containsExactly(heartbeat, order);
+		assertThat(logger.getMetrics()).containsEntry("dropped", 0L).containsEntry("capacity", 8);
+	}
+
+	@Test
+	public void shouldDropTheEntriesOfAFullBufferWithTheDropPolicy() throws Exception {
+		logger = new AsyncMessageLogger(2, OverflowPolicy.DROP, () -> true, blockingWriter());
+		assertThat(logger.log(Callback.TO_APP, order("0"), SESSION_ID)).isTrue();
+		assertThat(writerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(logger.log(Callback.TO_APP, order("1"), SESSION_ID)).isTrue();
+		assertThat(logger.log(Callback.TO_APP, order("2"), SESSION_ID)).isTrue();
+		assertThat(logger.log(Callback.TO_APP, order("3"), SESSION_ID)).isFalse();
+		assertThat(logger.getDroppedCount()).isEqualTo(1);
+
+		writerReleased.countDown();
+		logger.close();
+		assertThat(written).extracting(entry -> entry.message.contains("11=3")).containsExactly(false, false, false);
+	}
+
+	@Test
+	public void shouldWaitForTheWriterWithTheBlockPolicy() throws Exception {
+		logger = new AsyncMessageLogger(2, OverflowPolicy.BLOCK, () -> true, blockingWriter());
+		logger.log(Callback.TO_APP, order("0"), SESSION_ID);
+		assertThat(writerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+		logger.log(Callback.TO_APP, order("1"), SESSION_ID);
+		logger.log(Callback.TO_APP, order("2"), SESSION_ID);
+
+		CompletableFuture<Boolean> logged = CompletableFuture.supplyAsync(
+				() -> logger.log(Callback.TO_APP, order("3"), SESSION_ID));
+		assertThatThrownBy(() -> logged.get(100, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+		assertThat(logger.getBlockedCount()).isEqualTo(1);
+
+		writerReleased.countDown();
+		assertThat(logged.get(5, TimeUnit.SECONDS)).isTrue();
+		logger.close();
+		assertThat(written).hasSize(4);
+		assertThat(logger.getDroppedCount()).isZero();
+	}
+
+	@Test
+	public void shouldNotCaptureTheMessageWhenTheLevelIsDisabled() throws Exception {
+		logger = new AsyncMessageLogger(2, OverflowPolicy.DROP, () -> false, written::add);
+
+		assertThat(logger.log(Callback.FROM_ADMIN, order("0"), SESSION_ID)).isTrue();
+		logger.close();
+
+		assertThat(written).isEmpty();
+		assertThat(logger.getPendingCount()).isZero();
+	}
+
+	private Consumer<Entry> blockingWriter() {
+		return entry -> {
+			writerStarted.countDown();
+			try {
+				writerReleased.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			written.add(entry);
+		};
+	}
+
+	private static NewOrderSingle order(String clOrdID) {
+		NewOrderSingle message = new NewOrderSingle();
+		message.set(new ClOrdID(clOrdID));
+		return message;
+	}
+}
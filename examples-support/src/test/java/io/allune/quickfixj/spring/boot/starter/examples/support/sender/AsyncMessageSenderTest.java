@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.sender;
+
+import org.junit.After;
+import org.junit.Test;
+import quickfix.SessionID;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AsyncMessageSenderTest {
+
+	private static final SessionID BLOCKED_SESSION_ID = new SessionID("FIX.4.4", "SENDER", "BLOCKED");
+
+	private static final SessionID OTHER_SESSION_ID = new SessionID("FIX.4.4", "SENDER", "OTHER");
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private final CountDownLatch blocked = new CountDownLatch(1);
+
+	private final AsyncMessageSender sender = new AsyncMessageSender(2, 4);
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		sender.close();
+	}
+
+	@Test
+	public void shouldKeepSendingToTheOtherSessionsWhileOneIsBlocked() throws Exception {
+		List<CompletableFuture<Boolean>> blockedSends = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			blockedSends.add(sender.send(BLOCKED_SESSION_ID, blockingSend()));
+		}
+		assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(sender.send(OTHER_SESSION_ID, sessionID -> true).get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(blockedSends).noneMatch(CompletableFuture::isDone);
+
+		release.countDown();
+		for (CompletableFuture<Boolean> send : blockedSends) {
+			assertThat(send.get(5, TimeUnit.SECONDS)).isTrue();
+		}
+	}
+
+	@Test
+	public void shouldRejectTheSendsBeyondTheInFlightLimitOfTheSession() throws Exception {
+		List<CompletableFuture<Boolean>> blockedSends = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			blockedSends.add(sender.send(BLOCKED_SESSION_ID, blockingSend()));
+		}
+		assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThatThrownBy(() -> sender.send(BLOCKED_SESSION_ID, sessionID -> true))
+				.isInstanceOf(SessionBusyException.class);
+
+		release.countDown();
+		for (CompletableFuture<Boolean> send : blockedSends) {
+			send.get(5, TimeUnit.SECONDS);
+		}
+		assertThat(sender.send(BLOCKED_SESSION_ID, sessionID -> true).get(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void shouldSendTheMessagesOfASessionInOrder() throws Exception {
+		AsyncMessageSender sender = new AsyncMessageSender(4, 1000);
+		try {
+			List<Integer> sent = new CopyOnWriteArrayList<>();
+			List<CompletableFuture<Boolean>> sends = new ArrayList<>();
+			for (int i = 0; i < 1000; i++) {
+				int index = i;
+				sends.add(sender.send(BLOCKED_SESSION_ID, sessionID -> sent.add(index)));
+			}
+			for (CompletableFuture<Boolean> send : sends) {
+				send.get(5, TimeUnit.SECONDS);
+			}
+			assertThat(sent).hasSize(1000).isSorted();
+		} finally {
+			sender.close();
+		}
+	}
+
+	@Test
+	public void shouldFailOnlyTheSendWhichThrows() throws Exception {
+		CompletableFuture<Boolean> failed = sender.send(BLOCKED_SESSION_ID, sessionID -> {
+			throw new IllegalStateException("Session not found");
+		});
+		CompletableFuture<Boolean> next = sender.send(BLOCKED_SESSION_ID, sessionID -> true);
+
+		assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(IllegalStateException.class);
+		assertThat(next.get(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void shouldRejectTheSendsAfterClose() {
+		sender.close();
+
+		assertThatThrownBy(() -> sender.send(OTHER_SESSION_ID, sessionID -> true))
+				.isInstanceOf(RejectedExecutionException.class);
+	}
+
+	private Function<SessionID, Boolean> blockingSend() {
+		return sessionID -> {
+			blocked.countDown();
+			try {
+				return release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		};
+	}
+}
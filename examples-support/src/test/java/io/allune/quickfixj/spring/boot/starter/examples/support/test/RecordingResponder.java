@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.test;
+
+import quickfix.DataDictionary;
+import quickfix.InvalidMessage;
+import quickfix.Message;
+import quickfix.MessageUtils;
+import quickfix.Responder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * {@link Responder} that keeps what the session writes instead of writing it to a socket.
+ */
+public class RecordingResponder implements Responder {
+
+	private final List<String> sent = new CopyOnWriteArrayList<>();
+
+	private volatile boolean disconnected;
+
+	@Override
+	public boolean send(String data) {
+		sent.add(data);
+		return true;
+	}
+
+	@Override
+	public void disconnect() {
+		disconnected = true;
+	}
+
+	@Override
+	public String getRemoteAddress() {
+		return "127.0.0.1:0";
+	}
+
+	public List<String> getSent() {
+		return new ArrayList<>(sent);
+	}
+
+	/**
+	 * The messages sent of the MsgType, parsed without a data dictionary: their groups are not parsed.
+	 */
+	public List<Message> getSent(String msgType) {
+		return getSent(msgType, null);
+	}
+
+	/**
+	 * The messages sent of the MsgType, parsed with the groups of the data dictionary.
+	 */
+	public List<Message> getSent(String msgType, DataDictionary dataDictionary) {
+		return sent.stream()
+				.filter(data -> msgType.equals(messageType(data)))
+				.map(data -> parse(data, dataDictionary))
+				.collect(Collectors.toList());
+	}
+
+	public boolean isDisconnected() {
+		return disconnected;
+	}
+
+	public void clear() {
+		sent.clear();
+	}
+
+	/**
+	 * Waits for a sent message matching the predicate.
+	 */
+	public boolean await(Predicate<String> predicate, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (System.nanoTime() < deadline) {
+			if (sent.stream().anyMatch(predicate)) {
+				return true;
+			}
+			Thread.sleep(5);
+		}
+		return false;
+	}
+
+	private static String messageType(String data) {
+		try {
+			return MessageUtils.getMessageType(data);
+		} catch (InvalidMessage e) {
+			return null;
+		}
+	}
+
+	private static Message parse(String data, DataDictionary dataDictionary) {
+		try {
+			Message message = new Message();
+			message.fromString(data, dataDictionary, false);
+			return message;
+		} catch (InvalidMessage e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.support.test;
+
+import quickfix.Application;
+import quickfix.ApplicationAdapter;
+import quickfix.DefaultMessageFactory;
+import quickfix.DefaultSessionFactory;
+import quickfix.Log;
+import quickfix.LogFactory;
+import quickfix.MemoryStoreFactory;
+import quickfix.Message;
+import quickfix.MessageStoreFactory;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.field.EncryptMethod;
+import quickfix.field.HeartBtInt;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.MsgType;
+import quickfix.field.SenderCompID;
+import quickfix.field.SendingTime;
+import quickfix.field.TargetCompID;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Acceptor sessions for the tests, registered as the connectors register them, logged on by a Logon of their
+ * counterparty fed to {@link Session#next(Message)} and writing to a {@link RecordingResponder}.
+ */
+public final class TestSessions {
+
+	private TestSessions() {
+	}
+
+	public static SessionSettings acceptorSettings(SessionID sessionID) {
+		SessionSettings settings = new SessionSettings();
+		settings.setString(sessionID, SessionSettings.BEGINSTRING, sessionID.getBeginString());
+		settings.setString(sessionID, SessionSettings.SENDERCOMPID, sessionID.getSenderCompID());
+		settings.setString(sessionID, SessionSettings.TARGETCOMPID, sessionID.getTargetCompID());
+		settings.setString(sessionID, "ConnectionType", "acceptor");
+		settings.setString(sessionID, Session.SETTING_NON_STOP_SESSION, "Y");
+		settings.setString(sessionID, Session.SETTING_USE_DATA_DICTIONARY, "N");
+		return settings;
+	}
+
+	public static Session loggedOnAcceptor(SessionID sessionID, RecordingResponder responder) throws Exception {
+		return loggedOnAcceptor(sessionID, new ApplicationAdapter(), new MemoryStoreFactory(),
+				acceptorSettings(sessionID), responder);
+	}
+
+	public static Session loggedOnAcceptor(SessionID sessionID, Application application,
+	                                       MessageStoreFactory messageStoreFactory, SessionSettings settings,
+	                                       RecordingResponder responder) throws Exception {
+
+		Session session = new DefaultSessionFactory(application, messageStoreFactory, new NullLogFactory(),
+				new DefaultMessageFactory()).create(sessionID, settings);
+		session.setResponder(responder);
+		Message logon = session.getMessageFactory().create(sessionID.getBeginString(), MsgType.LOGON);
+		logon.setInt(EncryptMethod.FIELD, EncryptMethod.NONE_OTHER);
+		logon.setInt(HeartBtInt.FIELD, 30);
+		receive(session, logon);
+		if (!session.isLoggedOn()) {
+			session.close();
+			throw new IllegalStateException("Session " + sessionID + " did not log on: " + responder.getSent());
+		}
+		return session;
+	}
+
+	/**
+	 * Stamps the header of a message of the counterparty, with its next sequence number, and hands it to the session.
+	 */
+	public static void receive(Session session, Message message) throws Exception {
+		SessionID sessionID = session.getSessionID();
+		Message.Header header = message.getHeader();
+		header.setString(SenderCompID.FIELD, sessionID.getTargetCompID());
+		header.setString(TargetCompID.FIELD, sessionID.getSenderCompID());
+		header.setInt(MsgSeqNum.FIELD, session.getExpectedTargetNum());
+		header.setUtcTimeStamp(SendingTime.FIELD, LocalDateTime.now(ZoneOffset.UTC), true);
+		session.next(message);
+	}
+
+	/**
+	 * The logs of the sessions are not needed by the tests.
+	 */
+	private static final class NullLogFactory implements LogFactory {
+
+		@Override
+		public Log create(SessionID sessionID) {
+			return new Log() {
+
+				@Override
+				public void clear() {
+				}
+
+				@Override
+				public void onIncoming(String message) {
+				}
+
+				@Override
+				public void onOutgoing(String message) {
+				}
+
+				@Override
+				public void onEvent(String text) {
+				}
+
+				@Override
+				public void onErrorEvent(String text) {
+				}
+			};
+		}
+	}
+}
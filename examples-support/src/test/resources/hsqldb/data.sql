@@ -0,0 +1,72 @@
+DROP TABLE messages IF EXISTS;
+DROP TABLE messages_log IF EXISTS;
+DROP TABLE event_log IF EXISTS;
+DROP TABLE sessions IF EXISTS;
+
+CREATE TABLE messages
+(
+    beginstring       CHAR(8)       NOT NULL,
+    sendercompid      VARCHAR(64)   NOT NULL,
+    sendersubid       VARCHAR(64)   NOT NULL,
+    senderlocid       VARCHAR(64)   NOT NULL,
+    targetcompid      VARCHAR(64)   NOT NULL,
+    targetsubid       VARCHAR(64)   NOT NULL,
+    targetlocid       VARCHAR(64)   NOT NULL,
+    session_qualifier VARCHAR(64)   NOT NULL,
+    msgseqnum         INT           NOT NULL,
+    message           VARCHAR(2048) NOT NULL,
+    PRIMARY KEY (beginstring, sendercompid, sendersubid, senderlocid,
+                 targetcompid, targetsubid, targetlocid, session_qualifier,
+                 msgseqnum)
+);
+
+-- messages_log and event_log are also the templates of the partitions created by BatchingJdbcLogFactory
+-- when BatchingLogPartitioning is DAY (messages_log_20201111, ...) or SESSION (messages_log_fix_4_4_exec_banzai, ...).
+-- Each partition gets its own identity counter. The DAY partitions are shared by all the sessions, told apart by
+-- the session columns, the SESSION partitions give every session its own tables and counters.
+CREATE TABLE messages_log
+(
+    id                INT IDENTITY PRIMARY KEY,
+    time              DATETIME      NOT NULL,
+    beginstring       CHAR(8)       NOT NULL,
+    sendercompid      VARCHAR(64)   NOT NULL,
+    sendersubid       VARCHAR(64)   NOT NULL,
+    senderlocid       VARCHAR(64)   NOT NULL,
+    targetcompid      VARCHAR(64)   NOT NULL,
+    targetsubid       VARCHAR(64)   NOT NULL,
+    targetlocid       VARCHAR(64)   NOT NULL,
+    session_qualifier VARCHAR(64)   NOT NULL,
+    text              VARCHAR(2048) NOT NULL
+);
+
+CREATE TABLE event_log
+(
+    id                INT IDENTITY PRIMARY KEY,
+    time              DATETIME      NOT NULL,
+    beginstring       CHAR(8)       NOT NULL,
+    sendercompid      VARCHAR(64)   NOT NULL,
+    sendersubid       VARCHAR(64)   NOT NULL,
+    senderlocid       VARCHAR(64)   NOT NULL,
+    targetcompid      VARCHAR(64)   NOT NULL,
+    targetsubid       VARCHAR(64)   NOT NULL,
+    targetlocid       VARCHAR(64)   NOT NULL,
+    session_qualifier VARCHAR(64),
+    text              VARCHAR(2048) NOT NULL
+);
+
+CREATE TABLE sessions
+(
+    beginstring       CHAR(8)     NOT NULL,
+    sendercompid      VARCHAR(64) NOT NULL,
+    sendersubid       VARCHAR(64) NOT NULL,
+    senderlocid       VARCHAR(64) NOT NULL,
+    targetcompid      VARCHAR(64) NOT NULL,
+    targetsubid       VARCHAR(64) NOT NULL,
+    targetlocid       VARCHAR(64) NOT NULL,
+    session_qualifier VARCHAR(64) NOT NULL,
+    creation_time     DATETIME    NOT NULL,
+    incoming_seqnum   INT         NOT NULL,
+    outgoing_seqnum   INT         NOT NULL,
+    PRIMARY KEY (beginstring, sendercompid, sendersubid, senderlocid,
+                 targetcompid, targetsubid, targetlocid, session_qualifier)
+);
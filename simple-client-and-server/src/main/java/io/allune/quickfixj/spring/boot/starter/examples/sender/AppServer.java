@@ -17,8 +17,25 @@ package io.allune.quickfixj.spring.boot.starter.examples.sender;
 
 import io.allune.quickfixj.spring.boot.starter.EnableQuickFixJClient;
 import io.allune.quickfixj.spring.boot.starter.EnableQuickFixJServer;
+import io.allune.quickfixj.spring.boot.starter.examples.support.loopback.LoopbackTransport;
+import io.allune.quickfixj.spring.boot.starter.examples.support.routing.SessionRouter;
+import io.allune.quickfixj.spring.boot.starter.examples.support.routing.SessionRouter.SelectionStrategy;
+import io.allune.quickfixj.spring.boot.starter.examples.support.sender.AsyncMessageSender;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import quickfix.Application;
+import quickfix.ConfigError;
+import quickfix.DefaultSessionFactory;
+import quickfix.FieldConvertError;
+import quickfix.LogFactory;
+import quickfix.MessageFactory;
+import quickfix.MessageStoreFactory;
+import quickfix.SessionSettings;
+
+import java.util.Arrays;
 
 @EnableQuickFixJServer
 @EnableQuickFixJClient
@@ -28,4 +45,66 @@ public class AppServer {
 	public static void main(String[] args) {
 		SpringApplication.run(AppServer.class, args);
 	}
+
+	@Bean
+	public SessionRouter serverSessionRouter(
+			SessionSettings serverSessionSettings,
+			@Value("${examples.session-routing.selection-strategy:ROUND_ROBIN}") SelectionStrategy selectionStrategy
+	) throws ConfigError, FieldConvertError {
+
+		return new SessionRouter(serverSessionSettings, selectionStrategy);
+	}
+
+	@Bean
+	public SessionRouter clientSessionRouter(
+			SessionSettings clientSessionSettings,
+			@Value("${examples.session-routing.selection-strategy:ROUND_ROBIN}") SelectionStrategy selectionStrategy
+	) throws ConfigError, FieldConvertError {
+
+		return new SessionRouter(clientSessionSettings, selectionStrategy);
+	}
+
+	@Bean
+	public AsyncMessageSender asyncMessageSender(
+			@Value("${examples.async-sender.threads:4}") int threads,
+			@Value("${examples.async-sender.max-in-flight-per-session:256}") int maxInFlightPerSession
+	) {
+		return new AsyncMessageSender(threads, maxInFlightPerSession);
+	}
+
+	@Bean
+	public DataDictionaryCache dataDictionaryCache(SessionSettings serverSessionSettings,
+	                                               SessionSettings clientSessionSettings) throws ConfigError, FieldConvertError {
+
+		return new DataDictionaryCache(Arrays.asList(serverSessionSettings, clientSessionSettings));
+	}
+
+	@Bean
+	public DataDictionaryEndpoint dataDictionaryEndpoint(DataDictionaryCache dataDictionaryCache) {
+		return new DataDictionaryEndpoint(dataDictionaryCache);
+	}
+
+	/**
+	 * Connects the client and server sessions in memory; the {@code loopback} profile enables it and disables the
+	 * socket connectors.
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "examples.transport.loopback.enabled", havingValue = "true")
+	public LoopbackTransport loopbackTransport(Application serverApplication,
+	                                           MessageStoreFactory serverMessageStoreFactory,
+	                                           LogFactory serverLogFactory,
+	                                           MessageFactory serverMessageFactory,
+	                                           SessionSettings serverSessionSettings,
+	                                           Application clientApplication,
+	                                           MessageStoreFactory clientMessageStoreFactory,
+	                                           LogFactory clientLogFactory,
+	                                           MessageFactory clientMessageFactory,
+	                                           SessionSettings clientSessionSettings) {
+
+		return new LoopbackTransport(
+				new DefaultSessionFactory(serverApplication, serverMessageStoreFactory, serverLogFactory, serverMessageFactory),
+				serverSessionSettings,
+				new DefaultSessionFactory(clientApplication, clientMessageStoreFactory, clientLogFactory, clientMessageFactory),
+				clientSessionSettings);
+	}
 }
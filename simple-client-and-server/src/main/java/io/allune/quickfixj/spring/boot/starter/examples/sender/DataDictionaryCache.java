@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals;
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals.InternalField;
+import org.quickfixj.SimpleCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.ConfigError;
+import quickfix.DataDictionary;
+import quickfix.DefaultSessionFactory;
+import quickfix.FieldConvertError;
+import quickfix.FixVersions;
+import quickfix.MessageUtils;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.field.ApplVerID;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Preloads, in parallel, the data dictionaries of every session of the given settings into the process-wide cache of
+ * the {@link DefaultSessionFactory}, so the acceptor and initiator find them parsed when they start their sessions.
+ * <p>
+ * The factory already shares one {@link DataDictionary} per path across all the connectors of the JVM, but it parses
+ * them one at a time, on first use, while the connectors start. The number of dictionaries, the load time of each and
+ * of the whole preload are reported by {@link #getMetrics()}, with the heap they retain as an approximation: the
+ * growth of the used heap across the preload, without forcing a collection, which counts the garbage of the parsing
+ * and the allocations of the other threads, and misses what a collection meanwhile reclaimed. The cache of the factory
+ * is private: when it is not accessible in the QuickFIX/J version in use nothing is preloaded and the sessions load
+ * their dictionaries as usual.
+ * <p>
+ * The factory caches the dictionaries by path only, so two sessions loading the same path get the same dictionary
+ * whatever their FIX version.
+ */
+public class DataDictionaryCache {
+
+	private static final Logger log = LoggerFactory.getLogger(DataDictionaryCache.class);
+
+	private static final InternalField DICTIONARY_CACHE = QuickFixJInternals.field(DefaultSessionFactory.class,
+			"dictionaryCache");
+
+	private final Map<String, Map<String, Object>> dictionaries = new LinkedHashMap<>();
+
+	private boolean preloaded;
+
+	private long loadTimeMillis;
+
+	private long approximateRetainedBytes;
+
+	public DataDictionaryCache(List<SessionSettings> settings) throws ConfigError, FieldConvertError {
+		Set<String> paths = new LinkedHashSet<>();
+		for (SessionSettings sessionSettings : settings) {
+			for (Iterator<SessionID> sessionIDs = sessionSettings.sectionIterator(); sessionIDs.hasNext(); ) {
+				paths.addAll(dictionaryPaths(sessionSettings, sessionIDs.next()));
+			}
+		}
+		if (paths.isEmpty()) {
+			return;
+		}
+		if (!DICTIONARY_CACHE.isAvailable()) {
+			log.warn("Unable to preload {} data dictionaries, the DefaultSessionFactory cache is not accessible",
+					paths.size());
+			return;
+		}
+		preload(paths);
+	}
+
+	public synchronized Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("preloaded", preloaded);
+		metrics.put("count", dictionaries.size());
+		metrics.put("loadTimeMillis", loadTimeMillis);
+		metrics.put("approximateRetainedBytes", approximateRetainedBytes);
+		metrics.put("dictionaries", Collections.unmodifiableMap(dictionaries));
+		return metrics;
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized void preload(Set<String> paths) {
+		SimpleCache<String, DataDictionary> cache = (SimpleCache<String, DataDictionary>) DICTIONARY_CACHE.get(null);
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long usedBefore = memory.getHeapMemoryUsage().getUsed();
+		long start = System.nanoTime();
+
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(paths.size(), Runtime.getRuntime().availableProcessors()));
+		try {
+			List<CompletableFuture<Void>> loads = new ArrayList<>();
+			for (String path : paths) {
+				loads.add(CompletableFuture.runAsync(() -> {
+					long loadStart = System.nanoTime();
+					DataDictionary dataDictionary = cache.computeIfAbsent(path);
+					long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart);
+					Map<String, Object> dictionary = new LinkedHashMap<>();
+					dictionary.put("version", dataDictionary.getVersion());
+					dictionary.put("loadTimeMillis", loadMillis);
+					synchronized (dictionaries) {
+						dictionaries.put(path, dictionary);
+					}
+				}, executor));
+			}
+			CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])).join();
+		} finally {
+			executor.shutdown();
+		}
+
+		loadTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		approximateRetainedBytes = Math.max(0, memory.getHeapMemoryUsage().getUsed() - usedBefore);
+		preloaded = true;
+		log.info("Preloaded {} data dictionaries in {} ms, retaining about {} KB: {}", dictionaries.size(),
+				loadTimeMillis, approximateRetainedBytes / 1024, dictionaries);
+	}
+
+	/**
+	 * Resolves the dictionary paths the same way the {@link DefaultSessionFactory} does.
+	 */
+	private static Set<String> dictionaryPaths(SessionSettings settings, SessionID sessionID) throws ConfigError,
+			FieldConvertError {
+		Set<String> paths = new LinkedHashSet<>();
+		if (settings.isSetting(sessionID, Session.SETTING_USE_DATA_DICTIONARY)
+				&& !settings.getBool(sessionID, Session.SETTING_USE_DATA_DICTIONARY)) {
+			return paths;
+		}
+
+		String beginString = sessionID.getBeginString();
+		if (FixVersions.BEGINSTRING_FIXT11.equals(beginString)) {
+			paths.add(dictionaryPath(settings, sessionID, Session.SETTING_TRANSPORT_DATA_DICTIONARY, beginString));
+			if (settings.isSetting(sessionID, Session.SETTING_DEFAULT_APPL_VER_ID)) {
+				String defaultApplVerID = settings.getString(sessionID, Session.SETTING_DEFAULT_APPL_VER_ID);
+				String applBeginString = defaultApplVerID.matches("\\d+")
+						? MessageUtils.toBeginString(new ApplVerID(defaultApplVerID))
+						: defaultApplVerID;
+				paths.add(dictionaryPath(settings, sessionID, Session.SETTING_APP_DATA_DICTIONARY, applBeginString));
+			}
+		} else if (beginString != null && !beginString.isEmpty()) {
+			paths.add(dictionaryPath(settings, sessionID, Session.SETTING_DATA_DICTIONARY, beginString));
+		}
+		return paths;
+	}
+
+	private static String dictionaryPath(SessionSettings settings, SessionID sessionID, String key,
+	                                     String beginString) throws ConfigError, FieldConvertError {
+		return settings.isSetting(sessionID, key)
+				? settings.getString(sessionID, key)
+				: beginString.replaceAll("\\.", "") + ".xml";
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+
+/**
+ * Exposes the number and load times of the preloaded data dictionaries.
+ */
+@Endpoint(id = "quickfixjdictionaries")
+public class DataDictionaryEndpoint {
+
+	private final DataDictionaryCache dataDictionaryCache;
+
+	public DataDictionaryEndpoint(DataDictionaryCache dataDictionaryCache) {
+		this.dataDictionaryCache = dataDictionaryCache;
+	}
+
+	@ReadOperation
+	public Map<String, Object> metrics() {
+		return dataDictionaryCache.getMetrics();
+	}
+}
@@ -15,25 +15,23 @@
  */
 package io.allune.quickfixj.spring.boot.starter.examples.sender;
 
+import io.allune.quickfixj.spring.boot.starter.examples.support.routing.SessionRouter;
+import io.allune.quickfixj.spring.boot.starter.examples.support.sender.AsyncMessageSender;
+import io.allune.quickfixj.spring.boot.starter.examples.support.template.MessageTemplateRegistry;
 import io.allune.quickfixj.spring.boot.starter.template.QuickFixJTemplate;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
-import quickfix.Acceptor;
-import quickfix.Initiator;
 import quickfix.Message;
-import quickfix.SessionID;
-import quickfix.StringField;
 import quickfix.field.ClOrdID;
 import quickfix.field.OrigClOrdID;
 import quickfix.field.QuoteID;
 import quickfix.field.Side;
 import quickfix.field.Symbol;
-import quickfix.field.Text;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.UUID.randomUUID;
 import static org.springframework.http.HttpStatus.OK;
@@ -43,76 +41,96 @@ import static quickfix.FixVersions.BEGINSTRING_FIXT11;
 @RestController
 public class SenderController {
 
-	private static final Map<String, Map<String, Message>> messageMap = createMessageMap();
+	private static final MessageTemplateRegistry messageTemplates = createMessageTemplates();
 
 	private final QuickFixJTemplate serverQuickFixJTemplate;
 
-	private final Acceptor serverAcceptor;
+	private final SessionRouter serverSessionRouter;
 
 	private final QuickFixJTemplate clientQuickFixJTemplate;
 
-	private final Initiator clientInitiator;
+	private final SessionRouter clientSessionRouter;
+
+	private final AsyncMessageSender asyncMessageSender;
 
 	public SenderController(QuickFixJTemplate serverQuickFixJTemplate,
-	                        Acceptor serverAcceptor,
+	                        SessionRouter serverSessionRouter,
 	                        QuickFixJTemplate clientQuickFixJTemplate,
-	                        Initiator clientInitiator) {
+	                        SessionRouter clientSessionRouter,
+	                        AsyncMessageSender asyncMessageSender) {
 		this.serverQuickFixJTemplate = serverQuickFixJTemplate;
-		this.serverAcceptor = serverAcceptor;
+		this.serverSessionRouter = serverSessionRouter;
 		this.clientQuickFixJTemplate = clientQuickFixJTemplate;
-		this.clientInitiator = clientInitiator;
-	}
-
-	private static HashMap<String, Map<String, Message>> createMessageMap() {
-		HashMap<String, Map<String, Message>> stringMapHashMap = new HashMap<>();
-		stringMapHashMap.put(BEGINSTRING_FIX41, initialiseFix41MessageMap());
-		stringMapHashMap.put(BEGINSTRING_FIXT11, initialiseFix50MessageMap());
-		return stringMapHashMap;
-	}
-
-	private static Map<String, Message> initialiseFix41MessageMap() {
-		Map<String, Message> messageMap = new HashMap<>();
-		messageMap.put("OrderCancelRequest", new quickfix.fix41.OrderCancelRequest(
-				new OrigClOrdID("123"),
-				new ClOrdID("321"),
-				new Symbol("LNUX"),
-				new Side(Side.BUY)));
-		return messageMap;
+		this.clientSessionRouter = clientSessionRouter;
+		this.asyncMessageSender = asyncMessageSender;
 	}
 
-	private static Map<String, Message> initialiseFix50MessageMap() {
-		Map<String, Message> messageMap = new HashMap<>();
-		messageMap.put("Quote", new quickfix.fix50.Quote(new QuoteID("123")));
-		return messageMap;
+	private static MessageTemplateRegistry createMessageTemplates() {
+		return new MessageTemplateRegistry()
+				.register(BEGINSTRING_FIX41, "OrderCancelRequest", new quickfix.fix41.OrderCancelRequest(
+						new OrigClOrdID("123"),
+						new ClOrdID("321"),
+						new Symbol("LNUX"),
+						new Side(Side.BUY)))
+				.register(BEGINSTRING_FIXT11, "Quote", new quickfix.fix50.Quote(new QuoteID("123")));
 	}
 
 	@RequestMapping("/send-client-message")
 	@ResponseStatus(OK)
-	public void sendMessageToClient(@RequestParam String fixVersion, @RequestParam String messageType) {
+	public void sendMessageToClient(@RequestParam String fixVersion,
+	                                @RequestParam String messageType,
+	                                @RequestParam(required = false) String route) {
 
-		Map<String, Message> stringMessageMap = messageMap.get(fixVersion);
-		Message message = stringMessageMap.get(messageType);
-		message.setField(new StringField(Text.FIELD, "Text: " + randomUUID().toString()));
+		Message message = messageTemplates.newMessage(fixVersion, messageType, "Text: " + randomUUID().toString());
 
-		SessionID sessionID = serverAcceptor.getSessions().stream()
-				.filter(id -> id.getBeginString().equals(fixVersion))
-				.findFirst()
-				.orElseThrow(RuntimeException::new);
-		serverQuickFixJTemplate.send(message, sessionID);
+		serverSessionRouter.send(route != null ? route : fixVersion,
+				sessionID -> serverQuickFixJTemplate.send(message, sessionID));
 	}
 
 	@RequestMapping("/send-server-message")
 	@ResponseStatus(OK)
-	public void sendMessageToServer(@RequestParam String fixVersion, @RequestParam String messageType) {
+	public void sendMessageToServer(@RequestParam String fixVersion,
+	                                @RequestParam String messageType,
+	                                @RequestParam(required = false) String route) {
+
+		Message message = messageTemplates.newMessage(fixVersion, messageType, "Text: " + randomUUID().toString());
+
+		clientSessionRouter.send(route != null ? route : fixVersion,
+				sessionID -> clientQuickFixJTemplate.send(message, sessionID));
+	}
 
-		Map<String, Message> stringMessageMap = messageMap.get(fixVersion);
-		Message message = stringMessageMap.get(messageType);
-		message.setField(new StringField(Text.FIELD, "Text: " + randomUUID().toString()));
+	/**
+	 * Same as {@code /send-client-message}, without holding a worker thread while the session sends. Answers 200 once
+	 * the message is sent, 202 if the session stored it without sending it, and 429 if the session is saturated.
+	 */
+	@RequestMapping("/send-client-message-async")
+	public CompletableFuture<ResponseEntity<Void>> sendMessageToClientAsync(@RequestParam String fixVersion,
+	                                                                        @RequestParam String messageType,
+	                                                                        @RequestParam(required = false) String route) {
+
+		Message message = messageTemplates.newMessage(fixVersion, messageType, "Text: " + randomUUID().toString());
+
+		return serverSessionRouter.send(route != null ? route : fixVersion,
+				sessionID -> asyncMessageSender.send(sessionID, id -> serverQuickFixJTemplate.send(message, id)))
+				.thenApply(SenderController::toResponse);
+	}
+
+	/**
+	 * Same as {@code /send-server-message}, without holding a worker thread while the session sends.
+	 */
+	@RequestMapping("/send-server-message-async")
+	public CompletableFuture<ResponseEntity<Void>> sendMessageToServerAsync(@RequestParam String fixVersion,
+	                                                                        @RequestParam String messageType,
+	                                                                        @RequestParam(required = false) String route) {
+
+		Message message = messageTemplates.newMessage(fixVersion, messageType, "Text: " + randomUUID().toString());
+
+		return clientSessionRouter.send(route != null ? route : fixVersion,
+				sessionID -> asyncMessageSender.send(sessionID, id -> clientQuickFixJTemplate.send(message, id)))
+				.thenApply(SenderController::toResponse);
+	}
 
-		SessionID sessionID = clientInitiator.getSessions().stream()
-				.filter(id -> id.getBeginString().equals(fixVersion))
-				.findFirst()
-				.orElseThrow(RuntimeException::new);
-		clientQuickFixJTemplate.send(message, sessionID);
+	private static ResponseEntity<Void> toResponse(boolean sent) {
+		return sent ? ResponseEntity.ok().build() : ResponseEntity.accepted().build();
 	}
 }
@@ -16,6 +16,10 @@
 package io.allune.quickfixj.spring.boot.starter.examples.client;
 
 import io.allune.quickfixj.spring.boot.starter.EnableQuickFixJClient;
+import io.allune.quickfixj.spring.boot.starter.examples.support.jdbc.BatchingJdbcLogFactory;
+import io.allune.quickfixj.spring.boot.starter.examples.support.jdbc.ChunkedResendApplication;
+import io.allune.quickfixj.spring.boot.starter.examples.support.jdbc.JdbcLogEndpoint;
+import io.allune.quickfixj.spring.boot.starter.examples.support.jdbc.WriteBehindJdbcStoreFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
@@ -23,15 +27,16 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import quickfix.Application;
 import quickfix.ConfigError;
+import quickfix.FieldConvertError;
 import quickfix.Initiator;
-import quickfix.JdbcLogFactory;
-import quickfix.JdbcStoreFactory;
 import quickfix.LogFactory;
 import quickfix.MessageFactory;
 import quickfix.MessageStoreFactory;
 import quickfix.SessionSettings;
 import quickfix.ThreadedSocketInitiator;
 
+import javax.sql.DataSource;
+
 @Slf4j
 @EnableQuickFixJClient
 @SpringBootApplication
@@ -49,7 +54,7 @@ public class AppClient implements CommandLineRunner {
 
 	@Bean
 	public Application clientApplication() {
-		return new ClientApplicationAdapter();
+		return new ChunkedResendApplication(new ClientApplicationAdapter());
 	}
 
 	@Bean
@@ -62,12 +67,19 @@ public class AppClient implements CommandLineRunner {
 	}
 
 	@Bean
-	public MessageStoreFactory clientMessageStoreFactory(SessionSettings clientSessionSettings) {
-		return new JdbcStoreFactory(clientSessionSettings);
+	public MessageStoreFactory clientMessageStoreFactory(SessionSettings clientSessionSettings, DataSource dataSource)
+			throws ConfigError, FieldConvertError {
+		return new WriteBehindJdbcStoreFactory(clientSessionSettings, dataSource);
+	}
+
+	@Bean
+	public BatchingJdbcLogFactory clientLogFactory(SessionSettings clientSessionSettings, DataSource dataSource)
+			throws ConfigError, FieldConvertError {
+		return new BatchingJdbcLogFactory(clientSessionSettings, dataSource);
 	}
 
 	@Bean
-	public LogFactory clientLogFactory(SessionSettings clientSessionSettings) {
-		return new JdbcLogFactory(clientSessionSettings);
+	public JdbcLogEndpoint jdbcLogEndpoint(BatchingJdbcLogFactory clientLogFactory) {
+		return new JdbcLogEndpoint(clientLogFactory);
 	}
 }
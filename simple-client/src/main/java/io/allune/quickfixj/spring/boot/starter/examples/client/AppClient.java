@@ -16,10 +16,18 @@
 package io.allune.quickfixj.spring.boot.starter.examples.client;
 
 import io.allune.quickfixj.spring.boot.starter.EnableQuickFixJClient;
+import io.allune.quickfixj.spring.boot.starter.examples.client.ParallelProbeFailover.Selection;
+import io.allune.quickfixj.spring.boot.starter.examples.support.concurrent.OverflowPolicy;
+import io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLogFactory;
+import io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLogger;
+import io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLoggerEndpoint;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import quickfix.Application;
 import quickfix.ConfigError;
@@ -32,6 +40,10 @@ import quickfix.SessionSettings;
 import quickfix.ThreadedSocketInitiator;
 import quickfix.fix41.MessageCracker;
 
+import java.io.IOException;
+
+import static quickfix.FixVersions.BEGINSTRING_FIX41;
+
 @Slf4j
 @EnableQuickFixJClient
 @SpringBootApplication
@@ -48,8 +60,44 @@ public class AppClient implements CommandLineRunner {
 	}
 
 	@Bean
-	public Application clientApplication(MessageCracker messageCracker) {
-		return new ClientApplicationAdapter(messageCracker);
+	public Application clientApplication(MessageDispatcher messageDispatcher,
+	                                     ObjectProvider<AsyncMessageLogger> asyncMessageLogger,
+	                                     ObjectProvider<LoadGenerator> loadGenerator) {
+		LoadGenerator generator = loadGenerator.getIfAvailable();
+		if (generator != null) {
+			return generator;
+		}
+		AsyncMessageLogger messageLogger = asyncMessageLogger.getIfAvailable();
+		return messageLogger != null
+				? new AsyncLoggingClientApplicationAdapter(messageDispatcher, messageLogger)
+				: new ClientApplicationAdapter(messageDispatcher);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "examples.async-logging.enabled", havingValue = "true")
+	public AsyncMessageLogger asyncMessageLogger(@Value("${examples.async-logging.buffer-size:8192}") int bufferSize,
+	                                             @Value("${examples.async-logging.overflow-policy:DROP}") OverflowPolicy overflowPolicy) {
+		return new AsyncMessageLogger(bufferSize, overflowPolicy);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "examples.async-logging.enabled", havingValue = "true")
+	public AsyncMessageLoggerEndpoint asyncMessageLoggerEndpoint(AsyncMessageLogger asyncMessageLogger) {
+		return new AsyncMessageLoggerEndpoint(asyncMessageLogger);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "examples.load-generator.enabled", havingValue = "true")
+	public LoadGenerator loadGenerator(@Value("${examples.load-generator.rate:1000}") int rate,
+	                                   @Value("${examples.load-generator.warmup-seconds:10}") int warmupSeconds,
+	                                   @Value("${examples.load-generator.duration-seconds:60}") int durationSeconds,
+	                                   @Value("${examples.load-generator.response-timeout-seconds:5}") int responseTimeoutSeconds,
+	                                   @Value("${examples.load-generator.sessions:0}") int sessions,
+	                                   @Value("${examples.load-generator.mix.orders:70}") int orders,
+	                                   @Value("${examples.load-generator.mix.cancels:20}") int cancels,
+	                                   @Value("${examples.load-generator.mix.market-data:10}") int marketData) {
+		return new LoadGenerator(rate, warmupSeconds, durationSeconds, responseTimeoutSeconds, sessions, orders, cancels,
+				marketData);
 	}
 
 	@Bean
@@ -57,6 +105,11 @@ public class AppClient implements CommandLineRunner {
 		return new ApplicationMessageCracker();
 	}
 
+	@Bean
+	public MessageDispatcher messageDispatcher(MessageCracker messageCracker) {
+		return new MessageDispatcher().register(BEGINSTRING_FIX41, messageCracker);
+	}
+
 	@Bean
 	public Initiator clientInitiator(quickfix.Application clientApplication, MessageStoreFactory clientMessageStoreFactory,
 	                                 SessionSettings clientSessionSettings, LogFactory clientLogFactory,
@@ -67,7 +120,23 @@ public class AppClient implements CommandLineRunner {
 	}
 
 	@Bean
-	public LogFactory clientLogFactory(SessionSettings clientSessionSettings) {
-		return new FileLogFactory(clientSessionSettings);
+	@ConditionalOnProperty(name = "examples.failover.parallel-probe.enabled", havingValue = "true")
+	public ParallelProbeFailover parallelProbeFailover(Initiator clientInitiator, SessionSettings clientSessionSettings,
+	                                                   @Value("${examples.failover.parallel-probe.selection:FIRST_HEALTHY}") Selection selection,
+	                                                   @Value("${examples.failover.parallel-probe.interval-millis:500}") long intervalMillis,
+	                                                   @Value("${examples.failover.parallel-probe.timeout-millis:250}") long timeoutMillis,
+	                                                   @Value("${examples.failover.parallel-probe.failure-threshold:3}") int failureThreshold,
+	                                                   @Value("${examples.failover.parallel-probe.min-restart-interval-millis:5000}") long minRestartIntervalMillis)
+			throws IOException {
+		return new ParallelProbeFailover(clientInitiator, clientSessionSettings, selection, intervalMillis,
+				timeoutMillis, failureThreshold, minRestartIntervalMillis);
+	}
+
+	@Bean
+	public LogFactory clientLogFactory(SessionSettings clientSessionSettings,
+	                                   ObjectProvider<AsyncMessageLogger> asyncMessageLogger) {
+		LogFactory logFactory = new FileLogFactory(clientSessionSettings);
+		AsyncMessageLogger messageLogger = asyncMessageLogger.getIfAvailable();
+		return messageLogger != null ? new AsyncMessageLogFactory(logFactory, messageLogger) : logFactory;
 	}
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.client;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLogFactory;
+import io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.Application;
+import quickfix.FieldNotFound;
+import quickfix.IncorrectTagValue;
+import quickfix.Message;
+import quickfix.SessionID;
+import quickfix.UnsupportedMessageType;
+
+import static io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLogger.Callback.FROM_ADMIN;
+import static io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLogger.Callback.FROM_APP;
+
+/**
+ * Variant of {@link ClientApplicationAdapter} that hands the message callbacks to an {@link AsyncMessageLogger}
+ * so the session thread only pays for a single enqueue of the String the message was parsed from. The outgoing
+ * messages are logged by {@link AsyncMessageLogFactory}.
+ */
+public class AsyncLoggingClientApplicationAdapter implements Application {
+
+	private static final Logger log = LoggerFactory.getLogger(AsyncLoggingClientApplicationAdapter.class);
+
+	private final MessageDispatcher messageDispatcher;
+
+	private final AsyncMessageLogger messageLogger;
+
+	public AsyncLoggingClientApplicationAdapter(MessageDispatcher messageDispatcher, AsyncMessageLogger messageLogger) {
+		this.messageDispatcher = messageDispatcher;
+		this.messageLogger = messageLogger;
+	}
+
+	@Override
+	public void fromAdmin(Message message, SessionID sessionId) {
+		messageLogger.log(FROM_ADMIN, message, sessionId);
+	}
+
+	@Override
+	public void fromApp(Message message, SessionID sessionId) {
+		messageLogger.log(FROM_APP, message, sessionId);
+
+		try {
+			messageDispatcher.dispatch(message, sessionId);
+		} catch (UnsupportedMessageType | FieldNotFound | IncorrectTagValue e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void onCreate(SessionID sessionId) {
+		log.info("onCreate: SessionId={}", sessionId);
+	}
+
+	@Override
+	public void onLogon(SessionID sessionId) {
+		log.info("onLogon: SessionId={}", sessionId);
+	}
+
+	@Override
+	public void onLogout(SessionID sessionId) {
+		log.info("onLogout: SessionId={}", sessionId);
+	}
+
+	@Override
+	public void toAdmin(Message message, SessionID sessionId) {
+		// logged as written to the wire, by AsyncMessageLogFactory
+	}
+
+	@Override
+	public void toApp(Message message, SessionID sessionId) {
+		// logged as written to the wire, by AsyncMessageLogFactory
+	}
+}
@@ -23,16 +23,15 @@ import quickfix.IncorrectTagValue;
 import quickfix.Message;
 import quickfix.SessionID;
 import quickfix.UnsupportedMessageType;
-import quickfix.fix41.MessageCracker;
 
 public class ClientApplicationAdapter implements Application {
 
 	private static final Logger log = LoggerFactory.getLogger(ClientApplicationAdapter.class);
 
-	private final MessageCracker messageCracker;
+	private final MessageDispatcher messageDispatcher;
 
-	public ClientApplicationAdapter(MessageCracker messageCracker) {
-		this.messageCracker = messageCracker;
+	public ClientApplicationAdapter(MessageDispatcher messageDispatcher) {
+		this.messageDispatcher = messageDispatcher;
 	}
 
 	@Override
@@ -45,7 +44,7 @@ public class ClientApplicationAdapter implements Application {
 		log.info("fromApp: Message={}, SessionId={}", message, sessionId);
 
 		try {
-			messageCracker.crack(message, sessionId);
+			messageDispatcher.dispatch(message, sessionId);
 		} catch (UnsupportedMessageType | FieldNotFound | IncorrectTagValue e) {
 			log.error(e.getMessage(), e);
 		}
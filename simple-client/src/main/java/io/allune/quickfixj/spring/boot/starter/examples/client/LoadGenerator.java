@@ -0,0 +1,326 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.client;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import quickfix.Application;
+import quickfix.FieldNotFound;
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.field.ClOrdID;
+import quickfix.field.MDReqID;
+import quickfix.field.MsgType;
+import quickfix.field.Side;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Closed loop load generator: sends a mix of NewOrderSingle, OrderCancelRequest and MarketDataRequest messages at a
+ * fixed rate over the client sessions, matches every response by its ClOrdID or MDReqID and reports the latency and
+ * the throughput once the run is over, then exits.
+ * <p>
+ * Each request has an intended send time on the fixed rate schedule, and its latency is measured from that time, not
+ * from the time it was actually sent. When the generator or the counterparty falls behind, the requests that should
+ * have been sent in the meantime are charged for the wait, so the percentiles do not suffer from coordinated omission.
+ */
+public class LoadGenerator implements Application, ApplicationListener<ApplicationReadyEvent> {
+
+	private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+	private static final long LOGON_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+	private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final int rate;
+
+	private final long warmupNanos;
+
+	private final long durationNanos;
+
+	private final long responseTimeoutNanos;
+
+	private final int maxSessions;
+
+	private final int orderWeight;
+
+	private final int cancelWeight;
+
+	private final int marketDataWeight;
+
+	private final List<SessionID> sessionIds = new CopyOnWriteArrayList<>();
+
+	private final ConcurrentMap<String, Pending> pending = new ConcurrentHashMap<>();
+
+	private final Recorder[] latencies = new Recorder[Kind.values().length];
+
+	private final LongAdder[] sent = new LongAdder[Kind.values().length];
+
+	private final LongAdder[] received = new LongAdder[Kind.values().length];
+
+	private final LongAdder rejects = new LongAdder();
+
+	private volatile long measurementStartNanos = Long.MAX_VALUE;
+
+	public LoadGenerator(int rate, int warmupSeconds, int durationSeconds, int responseTimeoutSeconds, int maxSessions,
+	                     int orderWeight, int cancelWeight, int marketDataWeight) {
+		if (rate <= 0 || orderWeight + cancelWeight + marketDataWeight <= 0) {
+			throw new IllegalArgumentException("The rate and the message mix must be positive");
+		}
+		this.rate = rate;
+		this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+		this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+		this.responseTimeoutNanos = TimeUnit.SECONDS.toNanos(responseTimeoutSeconds);
+		this.maxSessions = maxSessions;
+		this.orderWeight = orderWeight;
+		this.cancelWeight = cancelWeight;
+		this.marketDataWeight = marketDataWeight;
+		for (Kind kind : Kind.values()) {
+			latencies[kind.ordinal()] = new Recorder(3);
+			sent[kind.ordinal()] = new LongAdder();
+			received[kind.ordinal()] = new LongAdder();
+		}
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		Thread generator = new Thread(() -> {
+			int exitCode = 0;
+			try {
+				run();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				exitCode = 1;
+			} catch (RuntimeException e) {
+				log.error("Load generation failed", e);
+				exitCode = 1;
+			}
+			int status = exitCode;
+			System.exit(SpringApplication.exit(event.getApplicationContext(), () -> status));
+		}, "load-generator");
+		generator.start();
+	}
+
+	@Override
+	public void onCreate(SessionID sessionId) {
+		if (maxSessions <= 0 || sessionIds.size() < maxSessions) {
+			sessionIds.add(sessionId);
+		}
+	}
+
+	@Override
+	public void onLogon(SessionID sessionId) {
+		log.info("onLogon: SessionId={}", sessionId);
+	}
+
+	@Override
+	public void onLogout(SessionID sessionId) {
+		log.info("onLogout: SessionId={}", sessionId);
+	}
+
+	@Override
+	public void toAdmin(Message message, SessionID sessionId) {
+	}
+
+	@Override
+	public void fromAdmin(Message message, SessionID sessionId) throws FieldNotFound {
+		if (MsgType.REJECT.equals(message.getHeader().getString(MsgType.FIELD))) {
+			rejects.increment();
+			log.warn("Session level reject: Message={}, SessionId={}", message, sessionId);
+		}
+	}
+
+	@Override
+	public void toApp(Message message, SessionID sessionId) {
+	}
+
+	@Override
+	public void fromApp(Message message, SessionID sessionId) throws FieldNotFound {
+		long now = System.nanoTime();
+		String msgType = message.getHeader().getString(MsgType.FIELD);
+		String id;
+		switch (msgType) {
+			case MsgType.EXECUTION_REPORT:
+				id = message.getString(ClOrdID.FIELD);
+				break;
+			case MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH:
+				id = message.getString(MDReqID.FIELD);
+				break;
+			case MsgType.BUSINESS_MESSAGE_REJECT:
+				rejects.increment();
+				log.warn("Business message reject: Message={}, SessionId={}", message, sessionId);
+				return;
+			default:
+				return;
+		}
+		Pending request = pending.remove(id);
+		if (request != null && request.intendedNanos >= measurementStartNanos) {
+			latencies[request.kind.ordinal()].recordValue(TimeUnit.NANOSECONDS.toMicros(now - request.intendedNanos));
+			received[request.kind.ordinal()].increment();
+		}
+	}
+
+	private void run() throws InterruptedException {
+		List<Session> sessions = awaitLogon();
+		if (sessions.isEmpty()) {
+			log.error("No session logged on within {} seconds, nothing to do",
+					TimeUnit.NANOSECONDS.toSeconds(LOGON_TIMEOUT_NANOS));
+			return;
+		}
+		List<LoadMessages> messages = new ArrayList<>();
+		for (Session session : sessions) {
+			messages.add(new LoadMessages(session));
+		}
+		String[] lastOrders = new String[sessions.size()];
+		SplittableRandom random = new SplittableRandom(42);
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		log.info("Sending {} messages/s over {} sessions, {} s of warmup and {} s of measurement", rate,
+				sessions.size(), TimeUnit.NANOSECONDS.toSeconds(warmupNanos),
+				TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+
+		long start = System.nanoTime();
+		measurementStartNanos = start + warmupNanos;
+		long end = measurementStartNanos + durationNanos;
+		for (long i = 0; ; i++) {
+			long intended = start + i * intervalNanos;
+			if (intended - end >= 0) {
+				break;
+			}
+			awaitNanos(intended);
+
+			int index = (int) (i % sessions.size());
+			LoadMessages factory = messages.get(index);
+			String id = Long.toString(i);
+			char side = (i & 1) == 0 ? Side.BUY : Side.SELL;
+			Kind kind = nextKind(random, factory, lastOrders[index]);
+			Message message;
+			switch (kind) {
+				case CANCEL:
+					message = factory.orderCancelRequest(id, lastOrders[index], side);
+					lastOrders[index] = null;
+					break;
+				case MARKET_DATA:
+					message = factory.marketDataRequest(id);
+					break;
+				default:
+					message = factory.newOrderSingle(id, side);
+					lastOrders[index] = id;
+			}
+			pending.put(id, new Pending(kind, intended));
+			if (sessions.get(index).send(message) && intended - measurementStartNanos >= 0) {
+				sent[kind.ordinal()].increment();
+			}
+		}
+
+		long deadline = System.nanoTime() + responseTimeoutNanos;
+		while (!pending.isEmpty() && System.nanoTime() - deadline < 0) {
+			Thread.sleep(10);
+		}
+		report();
+	}
+
+	private List<Session> awaitLogon() throws InterruptedException {
+		long deadline = System.nanoTime() + LOGON_TIMEOUT_NANOS;
+		List<Session> sessions = new ArrayList<>();
+		while (System.nanoTime() - deadline < 0) {
+			sessions.clear();
+			for (SessionID sessionId : sessionIds) {
+				Session session = Session.lookupSession(sessionId);
+				if (session != null && session.isLoggedOn()) {
+					sessions.add(session);
+				}
+			}
+			if (!sessionIds.isEmpty() && sessions.size() == sessionIds.size()) {
+				break;
+			}
+			Thread.sleep(100);
+		}
+		return sessions;
+	}
+
+	private Kind nextKind(SplittableRandom random, LoadMessages factory, String lastOrder) {
+		int draw = random.nextInt(orderWeight + cancelWeight + marketDataWeight);
+		if (draw < orderWeight) {
+			return Kind.ORDER;
+		}
+		if (draw < orderWeight + cancelWeight) {
+			return lastOrder != null ? Kind.CANCEL : Kind.ORDER;
+		}
+		return factory.supportsMarketData() ? Kind.MARKET_DATA : Kind.ORDER;
+	}
+
+	/**
+	 * Parks until shortly before the intended time and spins the rest, the park granularity is too coarse for high
+	 * rates. Returns right away when the schedule is already behind.
+	 */
+	private static void awaitNanos(long intended) {
+		long remaining;
+		while ((remaining = intended - System.nanoTime()) > 0) {
+			if (remaining > SPIN_THRESHOLD_NANOS) {
+				LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+			}
+		}
+	}
+
+	private void report() {
+		double seconds = durationNanos / 1e9;
+		log.info("Load generation finished after {} s at {} messages/s, {} unanswered, {} rejected", seconds, rate,
+				pending.size(), rejects.sum());
+		for (Kind kind : Kind.values()) {
+			Histogram histogram = latencies[kind.ordinal()].getIntervalHistogram();
+			long sentCount = sent[kind.ordinal()].sum();
+			if (sentCount == 0) {
+				continue;
+			}
+			log.info("{}: sent={} ({}/s), received={} ({}/s), latency us p50={} p90={} p99={} p99.9={} max={}",
+					kind, sentCount, Math.round(sentCount / seconds), received[kind.ordinal()].sum(),
+					Math.round(received[kind.ordinal()].sum() / seconds),
+					histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+					histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9),
+					histogram.getMaxValue());
+		}
+	}
+
+	private enum Kind {
+		ORDER, CANCEL, MARKET_DATA
+	}
+
+	private static final class Pending {
+
+		private final Kind kind;
+
+		private final long intendedNanos;
+
+		private Pending(Kind kind, long intendedNanos) {
+			this.kind = kind;
+			this.intendedNanos = intendedNanos;
+		}
+	}
+}
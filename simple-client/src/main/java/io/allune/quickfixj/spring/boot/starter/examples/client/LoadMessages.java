@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.client;
+
+import quickfix.DefaultMessageFactory;
+import quickfix.FixVersions;
+import quickfix.Group;
+import quickfix.Message;
+import quickfix.MessageFactory;
+import quickfix.MessageUtils;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.field.ApplVerID;
+import quickfix.field.ClOrdID;
+import quickfix.field.CxlType;
+import quickfix.field.HandlInst;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDReqID;
+import quickfix.field.MarketDepth;
+import quickfix.field.MsgType;
+import quickfix.field.NoMDEntryTypes;
+import quickfix.field.NoRelatedSym;
+import quickfix.field.OrdType;
+import quickfix.field.OrderQty;
+import quickfix.field.OrigClOrdID;
+import quickfix.field.Price;
+import quickfix.field.Side;
+import quickfix.field.SubscriptionRequestType;
+import quickfix.field.Symbol;
+import quickfix.field.TransactTime;
+
+/**
+ * Builds the requests of the {@link LoadGenerator} for the FIX version of a session, with the required fields of each
+ * version: TransactTime from FIX.4.2, CxlType only in FIX.4.0, and no market data before FIX.4.2.
+ */
+class LoadMessages {
+
+	private static final String SYMBOL = "USD/CLP";
+
+	private final MessageFactory messageFactory = new DefaultMessageFactory();
+
+	private final String beginString;
+
+	private final ApplVerID applVerID;
+
+	private final String applBeginString;
+
+	LoadMessages(Session session) {
+		SessionID sessionId = session.getSessionID();
+		this.beginString = sessionId.getBeginString();
+		this.applVerID = sessionId.isFIXT() ? session.getSenderDefaultApplicationVersionID() : null;
+		this.applBeginString = applVerID != null ? MessageUtils.toBeginString(applVerID) : beginString;
+	}
+
+	boolean supportsMarketData() {
+		return applBeginString.compareTo(FixVersions.BEGINSTRING_FIX42) >= 0;
+	}
+
+	Message newOrderSingle(String clOrdID, char side) {
+		Message order = create(MsgType.ORDER_SINGLE);
+		order.setString(ClOrdID.FIELD, clOrdID);
+		order.setChar(HandlInst.FIELD, HandlInst.AUTOMATED_EXECUTION_ORDER_PRIVATE_NO_BROKER_INTERVENTION);
+		order.setString(Symbol.FIELD, SYMBOL);
+		order.setChar(Side.FIELD, side);
+		order.setDouble(OrderQty.FIELD, 1_000_000);
+		order.setChar(OrdType.FIELD, OrdType.LIMIT);
+		order.setDouble(Price.FIELD, 755.93);
+		setTransactTime(order);
+		return order;
+	}
+
+	Message orderCancelRequest(String clOrdID, String origClOrdID, char side) {
+		Message cancel = create(MsgType.ORDER_CANCEL_REQUEST);
+		cancel.setString(OrigClOrdID.FIELD, origClOrdID);
+		cancel.setString(ClOrdID.FIELD, clOrdID);
+		if (FixVersions.BEGINSTRING_FIX40.equals(applBeginString)) {
+			cancel.setChar(CxlType.FIELD, 'F');
+		}
+		cancel.setString(Symbol.FIELD, SYMBOL);
+		cancel.setChar(Side.FIELD, side);
+		cancel.setDouble(OrderQty.FIELD, 1_000_000);
+		setTransactTime(cancel);
+		return cancel;
+	}
+
+	Message marketDataRequest(String mdReqID) {
+		Message request = create(MsgType.MARKET_DATA_REQUEST);
+		request.setString(MDReqID.FIELD, mdReqID);
+		request.setChar(SubscriptionRequestType.FIELD, SubscriptionRequestType.SNAPSHOT);
+		request.setInt(MarketDepth.FIELD, 1);
+		for (char entryType : new char[]{MDEntryType.BID, MDEntryType.OFFER}) {
+			Group mdEntryType = messageFactory.create(applBeginString, MsgType.MARKET_DATA_REQUEST, NoMDEntryTypes.FIELD);
+			mdEntryType.setChar(MDEntryType.FIELD, entryType);
+			request.addGroup(mdEntryType);
+		}
+		Group relatedSym = messageFactory.create(applBeginString, MsgType.MARKET_DATA_REQUEST, NoRelatedSym.FIELD);
+		relatedSym.setString(Symbol.FIELD, SYMBOL);
+		request.addGroup(relatedSym);
+		return request;
+	}
+
+	private Message create(String msgType) {
+		return applVerID != null
+				? messageFactory.create(beginString, applVerID, msgType)
+				: messageFactory.create(beginString, msgType);
+	}
+
+	private void setTransactTime(Message message) {
+		if (applBeginString.compareTo(FixVersions.BEGINSTRING_FIX42) >= 0) {
+			message.setField(new TransactTime());
+		}
+	}
+}
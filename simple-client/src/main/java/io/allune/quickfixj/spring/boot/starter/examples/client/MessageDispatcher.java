@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.client;
+
+import quickfix.FieldNotFound;
+import quickfix.IncorrectTagValue;
+import quickfix.Message;
+import quickfix.SessionID;
+import quickfix.UnsupportedMessageType;
+import quickfix.field.BeginString;
+import quickfix.field.MsgType;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reflection-free replacement for {@code MessageCracker.crack}.
+ * <p>
+ * The {@code onMessage} overloads of each registered cracker are resolved once at startup and bound to
+ * generated {@link Handler} classes keyed on BeginString and MsgType, so dispatching a message is a lookup
+ * and a direct call instead of walking the chain of MsgType comparisons of the generated crackers.
+ */
+public class MessageDispatcher {
+
+	private static final String HANDLER_METHOD = "onMessage";
+
+	private final Map<String, Map<String, Handler>> handlersByBeginString = new HashMap<>();
+
+	public MessageDispatcher register(String beginString, Object messageCracker) {
+		handlersByBeginString.put(beginString, createHandlers(messageCracker));
+		return this;
+	}
+
+	public void dispatch(Message message, SessionID sessionId)
+			throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
+
+		Message.Header header = message.getHeader();
+		Map<String, Handler> handlers = handlersByBeginString.get(header.getString(BeginString.FIELD));
+		Handler handler = handlers != null ? handlers.get(header.getString(MsgType.FIELD)) : null;
+		if (handler == null) {
+			throw new UnsupportedMessageType();
+		}
+		handler.handle(message, sessionId);
+	}
+
+	private static Map<String, Handler> createHandlers(Object messageCracker) {
+		Map<String, Handler> handlers = new HashMap<>();
+		for (Method method : messageCracker.getClass().getMethods()) {
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			if (!method.getName().equals(HANDLER_METHOD)
+					|| parameterTypes.length != 2
+					|| parameterTypes[1] != SessionID.class
+					|| parameterTypes[0] == Message.class
+					|| !Message.class.isAssignableFrom(parameterTypes[0])) {
+				continue;
+			}
+			handlers.put(msgTypeOf(parameterTypes[0]), createHandler(messageCracker, method));
+		}
+		return handlers;
+	}
+
+	private static String msgTypeOf(Class<?> messageType) {
+		try {
+			return (String) messageType.getField("MSGTYPE").get(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("No MSGTYPE defined for " + messageType.getName(), e);
+		}
+	}
+
+	private static Handler createHandler(Object messageCracker, Method method) {
+		Class<?> crackerType = Modifier.isPublic(messageCracker.getClass().getModifiers())
+				? messageCracker.getClass()
+				: method.getDeclaringClass();
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			CallSite callSite = LambdaMetafactory.metafactory(lookup,
+					"handle",
+					MethodType.methodType(Handler.class, crackerType),
+					MethodType.methodType(void.class, Message.class, SessionID.class),
+					lookup.unreflect(method),
+					MethodType.methodType(void.class, method.getParameterTypes()));
+			return (Handler) callSite.getTarget().invoke(messageCracker);
+		} catch (Throwable e) {
+			throw new IllegalStateException("Unable to bind " + method, e);
+		}
+	}
+
+	@FunctionalInterface
+	public interface Handler {
+
+		void handle(Message message, SessionID sessionId)
+				throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue;
+	}
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.Initiator;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes all the {@code SocketConnectHost<n>}/{@code SocketConnectPort<n>} endpoints of the initiator sessions
+ * concurrently and steers the initiator to a healthy one through its settings.
+ * <p>
+ * The QuickFIX/J initiator walks the configured endpoints in order and waits {@code ReconnectInterval} after every
+ * failed attempt, so each dead endpoint ahead of a live one costs a full interval. Here every endpoint is probed with
+ * a non-blocking TCP connect each round, all of them on one selector. When a session is not logged on and its first
+ * endpoint missed {@code failureThreshold} probes in a row while another one is up, the endpoints of the session are
+ * reordered in the settings, the selected healthy one first: the first healthy endpoint in the configured order, or
+ * the one with the lowest connect time. The initiator is then restarted, at most every {@code minRestartInterval}, so
+ * that its next attempt goes to an endpoint known to be up.
+ * <p>
+ * A restart stops all the sessions of the initiator, so the initiator is only restarted while none of them is logged
+ * on: a FIX connection that is up is never closed, whatever the probes of its endpoint say.
+ */
+public class ParallelProbeFailover implements AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(ParallelProbeFailover.class);
+
+	private final Initiator initiator;
+
+	private final SessionSettings settings;
+
+	private final Selection selection;
+
+	private final long probeTimeoutNanos;
+
+	private final int failureThreshold;
+
+	private final long minRestartIntervalNanos;
+
+	private final Selector selector;
+
+	private final ScheduledExecutorService prober;
+
+	private final Map<InetSocketAddress, Endpoint> endpoints = new HashMap<>();
+
+	private long lastRestart;
+
+	private volatile int restarts;
+
+	public ParallelProbeFailover(Initiator initiator, SessionSettings settings, Selection selection,
+	                             long probeIntervalMillis, long probeTimeoutMillis, int failureThreshold,
+	                             long minRestartIntervalMillis) throws IOException {
+		this.initiator = initiator;
+		this.settings = settings;
+		this.selection = selection;
+		this.probeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(probeTimeoutMillis);
+		this.failureThreshold = failureThreshold;
+		this.minRestartIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minRestartIntervalMillis);
+		this.lastRestart = System.nanoTime() - minRestartIntervalNanos;
+		this.selector = Selector.open();
+		this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "failover-prober");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.prober.scheduleWithFixedDelay(this::probe, 0, probeIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * The number of times the initiator was restarted on another endpoint.
+	 */
+	public int getRestarts() {
+		return restarts;
+	}
+
+	@Override
+	public void close() throws IOException, InterruptedException {
+		prober.shutdownNow();
+		prober.awaitTermination(5, TimeUnit.SECONDS);
+		selector.close();
+	}
+
+	/**
+	 * One round, always on the prober thread: reads the endpoints of the sessions of the initiator, which only has
+	 * sessions once started, probes the distinct ones and then restarts the initiator if a session is to be steered.
+	 */
+	private void probe() {
+		try {
+			Map<SessionID, List<InetSocketAddress>> sessionEndpoints = new LinkedHashMap<>();
+			Set<InetSocketAddress> addresses = new HashSet<>();
+			for (SessionID sessionID : initiator.getSessions()) {
+				List<InetSocketAddress> sessionAddresses = addresses(sessionID);
+				sessionEndpoints.put(sessionID, sessionAddresses);
+				addresses.addAll(sessionAddresses);
+			}
+			endpoints.keySet().retainAll(addresses);
+			probe(addresses);
+
+			Map<SessionID, Integer> steered = new LinkedHashMap<>();
+			for (Map.Entry<SessionID, List<InetSocketAddress>> entry : sessionEndpoints.entrySet()) {
+				if (isLoggedOn(entry.getKey())) {
+					// never restart the initiator under a session that is up
+					return;
+				}
+				int selected = select(entry.getValue());
+				if (selected > 0) {
+					steered.put(entry.getKey(), selected);
+				}
+			}
+			if (!steered.isEmpty() && System.nanoTime() - lastRestart >= minRestartIntervalNanos) {
+				restart(sessionEndpoints, steered);
+			}
+		} catch (Exception e) {
+			// an exception would cancel the scheduled rounds
+			log.warn("Failover probe round failed", e);
+		}
+	}
+
+	private List<InetSocketAddress> addresses(SessionID sessionID) throws ConfigError, FieldConvertError {
+		List<InetSocketAddress> addresses = new ArrayList<>();
+		for (int index = 0; ; index++) {
+			String hostKey = hostKey(index);
+			String portKey = portKey(index);
+			if (!settings.isSetting(sessionID, hostKey) || !settings.isSetting(sessionID, portKey)) {
+				return addresses;
+			}
+			addresses.add(InetSocketAddress.createUnresolved(settings.getString(sessionID, hostKey),
+					(int) settings.getLong(sessionID, portKey)));
+		}
+	}
+
+	private void probe(Set<InetSocketAddress> addresses) throws IOException {
+		int pending = 0;
+		for (InetSocketAddress address : addresses) {
+			Endpoint endpoint = endpoints.computeIfAbsent(address, key -> new Endpoint());
+			// resolved again on every round, like the initiator does for the hosts unknown at startup
+			InetSocketAddress socketAddress = new InetSocketAddress(address.getHostString(), address.getPort());
+			if (socketAddress.isUnresolved()) {
+				endpoint.failed();
+				continue;
+			}
+			SocketChannel channel = SocketChannel.open();
+			try {
+				channel.configureBlocking(false);
+				endpoint.probeStart = System.nanoTime();
+				if (channel.connect(socketAddress)) {
+					endpoint.succeeded(System.nanoTime());
+					channel.close();
+				} else {
+					channel.register(selector, SelectionKey.OP_CONNECT, endpoint);
+					pending++;
+				}
+			} catch (IOException e) {
+				endpoint.failed();
+				channel.close();
+			}
+		}
+
+		long deadline = System.nanoTime() + probeTimeoutNanos;
+		while (pending > 0) {
+			long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remainingMillis <= 0) {
+				break;
+			}
+			selector.select(remainingMillis);
+			long now = System.nanoTime();
+			Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+			while (selected.hasNext()) {
+				SelectionKey key = selected.next();
+				selected.remove();
+				Endpoint endpoint = (Endpoint) key.attachment();
+				try {
+					((SocketChannel) key.channel()).finishConnect();
+					endpoint.succeeded(now);
+				} catch (IOException e) {
+					endpoint.failed();
+				}
+				key.channel().close();
+				pending--;
+			}
+		}
+		for (SelectionKey key : selector.keys()) {
+			if (key.isValid()) {
+				((Endpoint) key.attachment()).failed();
+				key.channel().close();
+			}
+		}
+		// deregisters the closed channels
+		selector.selectNow();
+	}
+
+	/**
+	 * Returns the index of the endpoint to move first, or -1 to leave the endpoints of the session as they are: the
+	 * first one did not miss enough probes yet, or no other one is up.
+	 */
+	private int select(List<InetSocketAddress> addresses) {
+		if (addresses.size() < 2 || endpoints.get(addresses.get(0)).consecutiveFailures < failureThreshold) {
+			return -1;
+		}
+		int selected = -1;
+		long selectedRtt = Long.MAX_VALUE;
+		for (int i = 1; i < addresses.size(); i++) {
+			Endpoint endpoint = endpoints.get(addresses.get(i));
+			if (!endpoint.healthy) {
+				continue;
+			}
+			if (selection == Selection.FIRST_HEALTHY) {
+				return i;
+			}
+			if (endpoint.rttNanos < selectedRtt) {
+				selected = i;
+				selectedRtt = endpoint.rttNanos;
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Stops the initiator, moves the selected endpoint of each steered session first in its settings, the others
+	 * keeping their order, and starts the initiator again, which reads the endpoints from the settings on start.
+	 */
+	private void restart(Map<SessionID, List<InetSocketAddress>> sessionEndpoints, Map<SessionID, Integer> steered)
+			throws ConfigError {
+		initiator.stop();
+		for (Map.Entry<SessionID, Integer> entry : steered.entrySet()) {
+			SessionID sessionID = entry.getKey();
+			List<InetSocketAddress> reordered = new ArrayList<>(sessionEndpoints.get(sessionID));
+			InetSocketAddress selected = reordered.remove((int) entry.getValue());
+			reordered.add(0, selected);
+			for (int index = 0; index < reordered.size(); index++) {
+				settings.setString(sessionID, hostKey(index), reordered.get(index).getHostString());
+				settings.setLong(sessionID, portKey(index), reordered.get(index).getPort());
+			}
+			log.warn("Session {} missed {} probes to {}, failing over to {}", sessionID, failureThreshold,
+					sessionEndpoints.get(sessionID).get(0), selected);
+		}
+		lastRestart = System.nanoTime();
+		restarts++;
+		initiator.start();
+	}
+
+	private static boolean isLoggedOn(SessionID sessionID) {
+		Session session = Session.lookupSession(sessionID);
+		return session != null && session.isLoggedOn();
+	}
+
+	private static String hostKey(int index) {
+		return Initiator.SETTING_SOCKET_CONNECT_HOST + (index == 0 ? "" : Integer.toString(index));
+	}
+
+	private static String portKey(int index) {
+		return Initiator.SETTING_SOCKET_CONNECT_PORT + (index == 0 ? "" : Integer.toString(index));
+	}
+
+	public enum Selection {
+		/**
+		 * The first endpoint that is up, in the {@code SocketConnectHost<n>} order of the session settings
+		 */
+		FIRST_HEALTHY,
+		/**
+		 * The endpoint that is up with the lowest TCP connect time in the last probe
+		 */
+		LOWEST_RTT
+	}
+
+	private static final class Endpoint {
+
+		private long probeStart;
+
+		private boolean healthy;
+
+		private long rttNanos;
+
+		private int consecutiveFailures;
+
+		private void succeeded(long now) {
+			healthy = true;
+			rttNanos = now - probeStart;
+			consecutiveFailures = 0;
+		}
+
+		private void failed() {
+			healthy = false;
+			consecutiveFailures++;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.client;
+
+import org.junit.Before;
+import org.junit.Test;
+import quickfix.FieldNotFound;
+import quickfix.IncorrectTagValue;
+import quickfix.Message;
+import quickfix.SessionID;
+import quickfix.UnsupportedMessageType;
+import quickfix.field.ClOrdID;
+import quickfix.field.OrigClOrdID;
+import quickfix.field.Side;
+import quickfix.field.Symbol;
+import quickfix.fix41.MessageCracker;
+import quickfix.fix41.NewOrderSingle;
+import quickfix.fix41.OrderCancelRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static quickfix.FixVersions.BEGINSTRING_FIX41;
+import static quickfix.FixVersions.BEGINSTRING_FIX42;
+
+public class MessageDispatcherTest {
+
+	private static final SessionID SESSION_ID = new SessionID(BEGINSTRING_FIX41, "BANZAI", "EXEC");
+
+	private RecordingCracker cracker;
+
+	private MessageDispatcher messageDispatcher;
+
+	@Before
+	public void setUp() {
+		cracker = new RecordingCracker();
+		messageDispatcher = new MessageDispatcher().register(BEGINSTRING_FIX41, cracker);
+	}
+
+	@Test
+	public void shouldDispatchToTheOverloadOfTheMsgType() throws Exception {
+		OrderCancelRequest orderCancelRequest = orderCancelRequest();
+
+		messageDispatcher.dispatch(orderCancelRequest, SESSION_ID);
+
+		assertThat(cracker.received).containsExactly(orderCancelRequest);
+		assertThat(cracker.sessionIDs).containsExactly(SESSION_ID);
+	}
+
+	@Test
+	public void shouldRejectAnUnregisteredBeginString() {
+		quickfix.fix42.OrderCancelRequest orderCancelRequest = new quickfix.fix42.OrderCancelRequest();
+
+		assertThatThrownBy(() -> messageDispatcher.dispatch(orderCancelRequest,
+				new SessionID(BEGINSTRING_FIX42, "BANZAI", "EXEC")))
+				.isInstanceOf(UnsupportedMessageType.class);
+		assertThat(cracker.received).isEmpty();
+	}
+
+	@Test
+	public void shouldRejectAnUnknownMsgType() {
+		Message message = new Message();
+		message.getHeader().setString(quickfix.field.BeginString.FIELD, BEGINSTRING_FIX41);
+		message.getHeader().setString(quickfix.field.MsgType.FIELD, "UXX");
+
+		assertThatThrownBy(() -> messageDispatcher.dispatch(message, SESSION_ID))
+				.isInstanceOf(UnsupportedMessageType.class);
+	}
+
+	@Test
+	public void shouldPropagateTheUnsupportedMessageTypeOfTheCrackerDefaults() {
+		// NewOrderSingle is not overridden, the generated MessageCracker rejects it
+		NewOrderSingle newOrderSingle = new NewOrderSingle();
+
+		assertThatThrownBy(() -> messageDispatcher.dispatch(newOrderSingle, SESSION_ID))
+				.isInstanceOf(UnsupportedMessageType.class);
+		assertThat(cracker.received).isEmpty();
+	}
+
+	@Test
+	public void shouldPropagateTheExceptionsOfTheHandler() {
+		cracker.failure = new IncorrectTagValue(Side.FIELD);
+
+		assertThatThrownBy(() -> messageDispatcher.dispatch(orderCancelRequest(), SESSION_ID))
+				.isSameAs(cracker.failure);
+	}
+
+	@Test
+	public void shouldFailWithoutMsgType() {
+		Message message = new Message();
+		message.getHeader().setString(quickfix.field.BeginString.FIELD, BEGINSTRING_FIX41);
+
+		assertThatThrownBy(() -> messageDispatcher.dispatch(message, SESSION_ID))
+				.isInstanceOf(FieldNotFound.class);
+	}
+
+	@Test
+	public void shouldBindTheHandlersOfANonPublicCracker() throws Exception {
+		PackagePrivateCracker packagePrivateCracker = new PackagePrivateCracker();
+		MessageDispatcher dispatcher = new MessageDispatcher().register(BEGINSTRING_FIX41, packagePrivateCracker);
+
+		dispatcher.dispatch(orderCancelRequest(), SESSION_ID);
+
+		assertThat(packagePrivateCracker.count).isEqualTo(1);
+	}
+
+	private static OrderCancelRequest orderCancelRequest() {
+		OrderCancelRequest orderCancelRequest = new OrderCancelRequest(new OrigClOrdID("123"), new ClOrdID("321"),
+				new Symbol("LNUX"), new Side(Side.BUY));
+		orderCancelRequest.getHeader().setString(quickfix.field.BeginString.FIELD, BEGINSTRING_FIX41);
+		return orderCancelRequest;
+	}
+
+	public static class RecordingCracker extends MessageCracker {
+
+		private final List<Message> received = new ArrayList<>();
+
+		private final List<SessionID> sessionIDs = new ArrayList<>();
+
+		private IncorrectTagValue failure;
+
+		@Override
+		public void onMessage(OrderCancelRequest orderCancelRequest, SessionID sessionID) throws IncorrectTagValue {
+			if (failure != null) {
+				throw failure;
+			}
+			received.add(orderCancelRequest);
+			sessionIDs.add(sessionID);
+		}
+	}
+
+	static class PackagePrivateCracker extends MessageCracker {
+
+		private int count;
+
+		@Override
+		public void onMessage(OrderCancelRequest orderCancelRequest, SessionID sessionID) {
+			count++;
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.client;
+
+import io.allune.quickfixj.spring.boot.starter.examples.client.ParallelProbeFailover.Selection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import quickfix.Acceptor;
+import quickfix.ApplicationAdapter;
+import quickfix.CompositeLogFactory;
+import quickfix.DefaultMessageFactory;
+import quickfix.Initiator;
+import quickfix.LogFactory;
+import quickfix.MemoryStoreFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.SocketAcceptor;
+import quickfix.SocketInitiator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static quickfix.FixVersions.BEGINSTRING_FIX44;
+
+public class ParallelProbeFailoverTest {
+
+	private final SessionID initiatorID = new SessionID(BEGINSTRING_FIX44, "BANZAI", "EXEC");
+
+	private final SessionID acceptorID = new SessionID(BEGINSTRING_FIX44, "EXEC", "BANZAI");
+
+	private final LogFactory logFactory = new CompositeLogFactory(new LogFactory[0]);
+
+	private int acceptorPort;
+
+	private Acceptor acceptor;
+
+	private SessionSettings initiatorSettings;
+
+	private Initiator initiator;
+
+	private ParallelProbeFailover failover;
+
+	private StandInServer standIn;
+
+	@Before
+	public void setUp() throws Exception {
+		acceptorPort = freePort();
+		SessionSettings acceptorSettings = settings(acceptorID, "acceptor");
+		acceptorSettings.setLong(acceptorID, "SocketAcceptPort", acceptorPort);
+		acceptor = new SocketAcceptor(new ApplicationAdapter(), new MemoryStoreFactory(), acceptorSettings, logFactory,
+				new DefaultMessageFactory());
+		acceptor.start();
+		initiatorSettings = settings(initiatorID, "initiator");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (failover != null) {
+			failover.close();
+		}
+		if (initiator != null) {
+			initiator.stop(true);
+		}
+		if (standIn != null) {
+			standIn.close();
+		}
+		acceptor.stop(true);
+	}
+
+	@Test
+	public void shouldRestartTheInitiatorOnAHealthyEndpointWhenTheFirstOneIsDown() throws Exception {
+		int deadPort = freePort();
+		startInitiator(deadPort, acceptorPort);
+
+		assertThat(await(() -> initiator.isLoggedOn())).isTrue();
+		assertThat(failover.getRestarts()).isEqualTo(1);
+		assertThat(initiatorSettings.getLong(initiatorID, "SocketConnectPort")).isEqualTo(acceptorPort);
+		assertThat(initiatorSettings.getLong(initiatorID, "SocketConnectPort1")).isEqualTo(deadPort);
+	}
+
+	@Test
+	public void shouldNotRestartTheInitiatorWhileASessionIsLoggedOn() throws Exception {
+		standIn = new StandInServer(freePort(), acceptorPort);
+		startInitiator(standIn.port, acceptorPort);
+		assertThat(await(() -> initiator.isLoggedOn())).isTrue();
+
+		// the endpoint of the session fails its probes, but the connection to it is still up
+		standIn.stopListening();
+		Thread.sleep(500);
+		assertThat(initiator.isLoggedOn()).isTrue();
+		assertThat(failover.getRestarts()).isZero();
+		assertThat(initiatorSettings.getLong(initiatorID, "SocketConnectPort")).isEqualTo(standIn.port);
+
+		standIn.close();
+		assertThat(await(() -> failover.getRestarts() == 1 && initiator.isLoggedOn())).isTrue();
+		assertThat(initiatorSettings.getLong(initiatorID, "SocketConnectPort")).isEqualTo(acceptorPort);
+	}
+
+	private void startInitiator(int firstPort, int secondPort) throws Exception {
+		initiatorSettings.setString(initiatorID, "SocketConnectHost", "localhost");
+		initiatorSettings.setLong(initiatorID, "SocketConnectPort", firstPort);
+		initiatorSettings.setString(initiatorID, "SocketConnectHost1", "localhost");
+		initiatorSettings.setLong(initiatorID, "SocketConnectPort1", secondPort);
+		initiator = new SocketInitiator(new ApplicationAdapter(), new MemoryStoreFactory(), initiatorSettings,
+				logFactory, new DefaultMessageFactory());
+		initiator.start();
+		failover = new ParallelProbeFailover(initiator, initiatorSettings, Selection.FIRST_HEALTHY, 50, 50, 2, 0);
+	}
+
+	/**
+	 * With a ReconnectInterval of 30 seconds, the initiator would only try the second endpoint 30 seconds after the
+	 * first one failed.
+	 */
+	private static SessionSettings settings(SessionID sessionID, String connectionType) {
+		SessionSettings settings = new SessionSettings();
+		settings.setString(sessionID, "ConnectionType", connectionType);
+		settings.setString(sessionID, "StartTime", "00:00:00");
+		settings.setString(sessionID, "EndTime", "00:00:00");
+		settings.setLong(sessionID, "HeartBtInt", 30);
+		settings.setLong(sessionID, "ReconnectInterval", 30);
+		settings.setBool(sessionID, "ResetOnLogon", true);
+		settings.setBool(sessionID, "UseDataDictionary", false);
+		return settings;
+	}
+
+	private static boolean await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				return false;
+			}
+			Thread.sleep(10);
+		}
+		return true;
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			return socket.getLocalPort();
+		}
+	}
+
+	/**
+	 * Forwards every connection to the acceptor. It can stop accepting connections while keeping the forwarded ones,
+	 * and then drop them, as a crashed server would.
+	 */
+	private static final class StandInServer implements Closeable {
+
+		private final ServerSocket serverSocket;
+
+		private final int port;
+
+		private final int targetPort;
+
+		private final List<Socket> connections = new CopyOnWriteArrayList<>();
+
+		private StandInServer(int port, int targetPort) throws IOException {
+			this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+			this.port = port;
+			this.targetPort = targetPort;
+			start(this::accept, "stand-in-" + port);
+		}
+
+		private void stopListening() throws IOException {
+			serverSocket.close();
+		}
+
+		private void accept() {
+			try {
+				while (!serverSocket.isClosed()) {
+					Socket inbound = serverSocket.accept();
+					Socket outbound = new Socket(InetAddress.getLoopbackAddress(), targetPort);
+					connections.add(inbound);
+					connections.add(outbound);
+					start(() -> pump(inbound, outbound), "stand-in-in");
+					start(() -> pump(outbound, inbound), "stand-in-out");
+				}
+			} catch (IOException e) {
+				// closed
+			}
+		}
+
+		private void pump(Socket from, Socket to) {
+			byte[] buffer = new byte[8192];
+			try {
+				InputStream in = from.getInputStream();
+				OutputStream out = to.getOutputStream();
+				int read;
+				while ((read = in.read(buffer)) >= 0) {
+					out.write(buffer, 0, read);
+				}
+			} catch (IOException e) {
+				// closed
+			} finally {
+				closeQuietly(from);
+				closeQuietly(to);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			serverSocket.close();
+			for (Socket connection : connections) {
+				closeQuietly(connection);
+			}
+		}
+
+		private static void start(Runnable runnable, String name) {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		private static void closeQuietly(Socket socket) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// already closed
+			}
+		}
+	}
+}
@@ -18,6 +18,7 @@ package io.allune.quickfixj.spring.boot.starter.examples.server;
 import io.allune.quickfixj.spring.boot.starter.EnableQuickFixJServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -26,14 +27,12 @@ import quickfix.Acceptor;
 import quickfix.Application;
 import quickfix.ConfigError;
 import quickfix.FileLogFactory;
-import quickfix.FileStoreFactory;
 import quickfix.LogFactory;
 import quickfix.MessageFactory;
 import quickfix.MessageStoreFactory;
 import quickfix.SessionID;
 import quickfix.SessionSettings;
 import quickfix.ThreadedSocketAcceptor;
-import quickfix.mina.acceptor.DynamicAcceptorSessionProvider;
 
 import java.net.InetSocketAddress;
 
@@ -67,25 +66,39 @@ public class AppServer implements CommandLineRunner {
 	@Bean
 	public Acceptor serverAcceptor(quickfix.Application serverApplication, MessageStoreFactory serverMessageStoreFactory,
 	                               SessionSettings serverSessionSettings, LogFactory serverLogFactory,
-	                               MessageFactory serverMessageFactory) throws ConfigError {
+	                               MessageFactory serverMessageFactory,
+	                               PooledDynamicSessionProvider dynamicSessionProvider) throws ConfigError {
 
 		ThreadedSocketAcceptor threadedSocketAcceptor = new ThreadedSocketAcceptor(serverApplication, serverMessageStoreFactory, serverSessionSettings,
 				serverLogFactory, serverMessageFactory);
+		threadedSocketAcceptor.setSessionProvider(new InetSocketAddress("0.0.0.0", 9876), dynamicSessionProvider);
+		return threadedSocketAcceptor;
+	}
+
+	@Bean
+	public PooledDynamicSessionProvider dynamicSessionProvider(quickfix.Application serverApplication,
+	                                                           MessageStoreFactory serverMessageStoreFactory,
+	                                                           SessionSettings serverSessionSettings,
+	                                                           LogFactory serverLogFactory,
+	                                                           MessageFactory serverMessageFactory,
+	                                                           @Value("${examples.dynamic-sessions.max-sessions:1000}") int maxSessions,
+	                                                           @Value("${examples.dynamic-sessions.eviction-grace-millis:10000}") long evictionGraceMillis) {
 
 		final SessionID anySession = new SessionID(BEGINSTRING_FIX40, WILDCARD, WILDCARD);
 		serverSessionSettings.setBool(anySession, SETTING_ACCEPTOR_TEMPLATE, true);
 		serverSessionSettings.setString(anySession, BEGINSTRING, BEGINSTRING_FIX44);
-		threadedSocketAcceptor.setSessionProvider(
-				new InetSocketAddress("0.0.0.0", 9876),
-				new DynamicAcceptorSessionProvider(serverSessionSettings, anySession, serverApplication, serverMessageStoreFactory,
-						serverLogFactory, serverMessageFactory)
-		);
-		return threadedSocketAcceptor;
+		return new PooledDynamicSessionProvider(serverSessionSettings, anySession, serverApplication, serverMessageStoreFactory,
+				serverLogFactory, serverMessageFactory, maxSessions, evictionGraceMillis);
+	}
+
+	@Bean
+	public DynamicSessionsEndpoint dynamicSessionsEndpoint(PooledDynamicSessionProvider dynamicSessionProvider) {
+		return new DynamicSessionsEndpoint(dynamicSessionProvider);
 	}
 
 	@Bean
 	public MessageStoreFactory serverMessageStoreFactory(SessionSettings serverSessionSettings) {
-		return new FileStoreFactory(serverSessionSettings);
+		return new MappedFileStoreFactory(serverSessionSettings);
 	}
 
 	@Bean
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.server;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+
+/**
+ * Exposes the live session count and session creation time of the {@link PooledDynamicSessionProvider}.
+ */
+@Endpoint(id = "quickfixjdynamicsessions")
+public class DynamicSessionsEndpoint {
+
+	private final PooledDynamicSessionProvider sessionProvider;
+
+	public DynamicSessionsEndpoint(PooledDynamicSessionProvider sessionProvider) {
+		this.sessionProvider = sessionProvider;
+	}
+
+	@ReadOperation
+	public Map<String, Object> metrics() {
+		return sessionProvider.getMetrics();
+	}
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.server;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.MappedBuffers;
+import org.quickfixj.CharsetSupport;
+import quickfix.MessageStore;
+import quickfix.SystemTime;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * {@link MessageStore} backed by memory-mapped, append-only segment files.
+ * <p>
+ * Every message is appended to the current segment as a {@code length, sequence, checksum, bytes} record. The mapping
+ * of the current segment starts small and doubles as it fills, up to {@code segmentSize}; the store then rolls over to
+ * a new segment and trims the full one to the bytes it holds. The sequence numbers and creation time live in a small
+ * mapped {@code session} file and are updated in place.
+ * <p>
+ * The segments are scanned on startup to rebuild the index. The pages of a mapping reach the disk in no particular
+ * order, so after a crash of the machine a record may be partly written: its length or checksum does not match and it
+ * ends the segment, the record and any written after it in that segment are lost. With {@code sync} set every write
+ * is forced to disk before returning. The index holds the sequence number and position of each stored message, sorted,
+ * so its size does not depend on how high the sequence numbers go.
+ * <p>
+ * {@link #close()} unmaps the files, the store rejects any use afterwards.
+ */
+public class MappedFileStore implements MessageStore, Closeable {
+
+	private static final String SESSION_FILE = "session";
+
+	private static final String SEGMENT_SUFFIX = ".segment";
+
+	private static final int SESSION_FILE_SIZE = 16;
+
+	private static final int CREATION_TIME_OFFSET = 0;
+
+	private static final int NEXT_SENDER_OFFSET = 8;
+
+	private static final int NEXT_TARGET_OFFSET = 12;
+
+	private static final int RECORD_HEADER_SIZE = 12;
+
+	private static final int INITIAL_MAPPING_SIZE = 1024 * 1024;
+
+	private final File directory;
+
+	private final int segmentSize;
+
+	private final boolean sync;
+
+	private final Charset charset = CharsetSupport.getCharsetInstance();
+
+	private final CRC32 checksum = new CRC32();
+
+	/**
+	 * The segments, all trimmed and read-only but the last one, which is appended to.
+	 */
+	private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+	private final SequenceIndex index = new SequenceIndex();
+
+	private MappedByteBuffer session;
+
+	private boolean closed;
+
+	public MappedFileStore(File directory, int segmentSize, boolean sync) throws IOException {
+		if (segmentSize <= RECORD_HEADER_SIZE) {
+			throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.sync = sync;
+		load();
+	}
+
+	@Override
+	public synchronized boolean set(int sequence, String message) throws IOException {
+		checkOpen();
+		byte[] bytes = message.getBytes(charset);
+		if (bytes.length == 0) {
+			throw new IOException("Unable to store an empty message for sequence " + sequence);
+		}
+		MappedByteBuffer segment = appendableSegment(RECORD_HEADER_SIZE + bytes.length);
+		int offset = segment.position();
+		segment.putInt(offset + 4, sequence);
+		segment.putInt(offset + 8, checksum(sequence, bytes, 0, bytes.length));
+		segment.position(offset + RECORD_HEADER_SIZE);
+		segment.put(bytes);
+		segment.putInt(offset, bytes.length);
+		if (sync) {
+			segment.force();
+		}
+		index.put(sequence, ((long) (segments.size() - 1) << 32) | offset);
+		return true;
+	}
+
+	@Override
+	public synchronized void get(int startSequence, int endSequence, Collection<String> messages) throws IOException {
+		checkOpen();
+		for (int i = index.ceiling(startSequence); i < index.size && index.sequences[i] <= endSequence; i++) {
+			long position = index.positions[i];
+			ByteBuffer segment = segments.get((int) (position >>> 32)).duplicate();
+			int offset = (int) position;
+			byte[] bytes = new byte[segment.getInt(offset)];
+			segment.position(offset + RECORD_HEADER_SIZE);
+			segment.get(bytes);
+			messages.add(new String(bytes, charset));
+		}
+	}
+
+	@Override
+	public synchronized int getNextSenderMsgSeqNum() throws IOException {
+		checkOpen();
+		return session.getInt(NEXT_SENDER_OFFSET);
+	}
+
+	@Override
+	public synchronized int getNextTargetMsgSeqNum() throws IOException {
+		checkOpen();
+		return session.getInt(NEXT_TARGET_OFFSET);
+	}
+
+	@Override
+	public synchronized void setNextSenderMsgSeqNum(int next) throws IOException {
+		checkOpen();
+		session.putInt(NEXT_SENDER_OFFSET, next);
+		syncSession();
+	}
+
+	@Override
+	public synchronized void setNextTargetMsgSeqNum(int next) throws IOException {
+		checkOpen();
+		session.putInt(NEXT_TARGET_OFFSET, next);
+		syncSession();
+	}
+
+	@Override
+	public synchronized void incrNextSenderMsgSeqNum() throws IOException {
+		setNextSenderMsgSeqNum(getNextSenderMsgSeqNum() + 1);
+	}
+
+	@Override
+	public synchronized void incrNextTargetMsgSeqNum() throws IOException {
+		setNextTargetMsgSeqNum(getNextTargetMsgSeqNum() + 1);
+	}
+
+	@Override
+	public synchronized Date getCreationTime() throws IOException {
+		checkOpen();
+		return new Date(session.getLong(CREATION_TIME_OFFSET));
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		checkOpen();
+		unmapSegments();
+		for (int i = 0; segmentFile(i).exists(); i++) {
+			if (!segmentFile(i).delete()) {
+				throw new IOException("Unable to delete " + segmentFile(i));
+			}
+		}
+		session.putLong(CREATION_TIME_OFFSET, SystemTime.currentTimeMillis());
+		session.putInt(NEXT_SENDER_OFFSET, 1);
+		session.putInt(NEXT_TARGET_OFFSET, 1);
+		syncSession();
+	}
+
+	@Override
+	public synchronized void refresh() throws IOException {
+		checkOpen();
+		unmapSegments();
+		MappedBuffers.unmap(session);
+		load();
+	}
+
+	/**
+	 * Trims the current segment, unmaps the files and closes the store.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (!segments.isEmpty()) {
+				seal(segments.size() - 1);
+			}
+		} finally {
+			unmapSegments();
+			MappedBuffers.unmap(session);
+			session = null;
+		}
+	}
+
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("The store of " + directory + " is closed");
+		}
+	}
+
+	/**
+	 * Returns the current segment with room for the record: its mapping grown, or a new segment once it is full.
+	 */
+	private MappedByteBuffer appendableSegment(int recordSize) throws IOException {
+		int last = segments.size() - 1;
+		if (last >= 0) {
+			MappedByteBuffer segment = segments.get(last);
+			if (segment.remaining() >= recordSize) {
+				return segment;
+			}
+			int used = segment.position();
+			if (used == 0 || used + recordSize <= segmentSize) {
+				int size = Math.max(Math.min(segmentSize, Math.max(segment.capacity() * 2, INITIAL_MAPPING_SIZE)),
+						used + recordSize);
+				MappedByteBuffer grown = map(segmentFile(last), size, FileChannel.MapMode.READ_WRITE);
+				grown.position(used);
+				segments.set(last, grown);
+				MappedBuffers.unmap(segment);
+				return grown;
+			}
+			seal(last);
+		}
+		MappedByteBuffer segment = map(segmentFile(last + 1),
+				Math.max(Math.min(segmentSize, INITIAL_MAPPING_SIZE), recordSize), FileChannel.MapMode.READ_WRITE);
+		segments.add(segment);
+		return segment;
+	}
+
+	/**
+	 * Trims the segment file to its records and maps it read-only. The file is only trimmed once unmapped, as some
+	 * systems do not truncate a mapped file.
+	 */
+	private void seal(int segmentIndex) throws IOException {
+		MappedByteBuffer segment = segments.get(segmentIndex);
+		int used = segment.position();
+		if (sync) {
+			segment.force();
+		}
+		File file = segmentFile(segmentIndex);
+		if (MappedBuffers.unmap(segment)) {
+			try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+				randomAccessFile.setLength(used);
+			}
+		}
+		MappedByteBuffer sealed = map(file, used, FileChannel.MapMode.READ_ONLY);
+		sealed.position(used);
+		segments.set(segmentIndex, sealed);
+	}
+
+	private void load() throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create " + directory);
+		}
+
+		File sessionFile = new File(directory, SESSION_FILE);
+		boolean created = !sessionFile.exists();
+		session = map(sessionFile, SESSION_FILE_SIZE, FileChannel.MapMode.READ_WRITE);
+		if (created) {
+			session.putLong(CREATION_TIME_OFFSET, SystemTime.currentTimeMillis());
+			session.putInt(NEXT_SENDER_OFFSET, 1);
+			session.putInt(NEXT_TARGET_OFFSET, 1);
+			syncSession();
+		}
+
+		index.clear();
+		for (int i = 0; segmentFile(i).exists(); i++) {
+			File file = segmentFile(i);
+			MappedByteBuffer segment = map(file, (int) file.length(), FileChannel.MapMode.READ_WRITE);
+			segment.position(scan(segment, i));
+			segments.add(segment);
+			if (segmentFile(i + 1).exists()) {
+				seal(i);
+			}
+		}
+	}
+
+	/**
+	 * Indexes the records of the segment up to the first one that is not complete.
+	 *
+	 * @return the offset after the last complete record
+	 */
+	private int scan(MappedByteBuffer segment, int segmentIndex) {
+		ByteBuffer records = segment.duplicate();
+		byte[] bytes = new byte[256];
+		int offset = 0;
+		while (offset + RECORD_HEADER_SIZE <= records.capacity()) {
+			int length = records.getInt(offset);
+			if (length <= 0 || length > records.capacity() - offset - RECORD_HEADER_SIZE) {
+				break;
+			}
+			if (length > bytes.length) {
+				bytes = new byte[Math.max(length, bytes.length * 2)];
+			}
+			int sequence = records.getInt(offset + 4);
+			records.position(offset + RECORD_HEADER_SIZE);
+			records.get(bytes, 0, length);
+			if (records.getInt(offset + 8) != checksum(sequence, bytes, 0, length)) {
+				break;
+			}
+			index.put(sequence, ((long) segmentIndex << 32) | offset);
+			offset += RECORD_HEADER_SIZE + length;
+		}
+		return offset;
+	}
+
+	private int checksum(int sequence, byte[] bytes, int offset, int length) {
+		checksum.reset();
+		checksum.update(sequence >>> 24);
+		checksum.update(sequence >>> 16);
+		checksum.update(sequence >>> 8);
+		checksum.update(sequence);
+		checksum.update(bytes, offset, length);
+		return (int) checksum.getValue();
+	}
+
+	private void unmapSegments() {
+		for (MappedByteBuffer segment : segments) {
+			MappedBuffers.unmap(segment);
+		}
+		segments.clear();
+		index.clear();
+	}
+
+	private void syncSession() {
+		if (sync) {
+			session.force();
+		}
+	}
+
+	private File segmentFile(int segment) {
+		return new File(directory, String.format("%08d%s", segment, SEGMENT_SUFFIX));
+	}
+
+	private static MappedByteBuffer map(File file, int size, FileChannel.MapMode mode) throws IOException {
+		boolean readOnly = mode == FileChannel.MapMode.READ_ONLY;
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, readOnly ? "r" : "rw");
+		     FileChannel channel = randomAccessFile.getChannel()) {
+			long length = readOnly ? size : Math.max(size, randomAccessFile.length());
+			return channel.map(mode, 0, length);
+		}
+	}
+
+	/**
+	 * The position of every stored message, sorted by sequence number: appending the next sequence number is O(1),
+	 * storing an older one again, after a reset of the sequence numbers, updates or inserts it in place.
+	 */
+	private static final class SequenceIndex {
+
+		private int[] sequences = new int[1024];
+
+		private long[] positions = new long[1024];
+
+		private int size;
+
+		private void put(int sequence, long position) {
+			int i = size == 0 || sequence > sequences[size - 1]
+					? -(size + 1)
+					: Arrays.binarySearch(sequences, 0, size, sequence);
+			if (i >= 0) {
+				positions[i] = position;
+				return;
+			}
+			i = -(i + 1);
+			if (size == sequences.length) {
+				sequences = Arrays.copyOf(sequences, size * 2);
+				positions = Arrays.copyOf(positions, size * 2);
+			}
+			System.arraycopy(sequences, i, sequences, i + 1, size - i);
+			System.arraycopy(positions, i, positions, i + 1, size - i);
+			sequences[i] = sequence;
+			positions[i] = position;
+			size++;
+		}
+
+		/**
+		 * @return the index of the lowest sequence number greater than or equal to the given one, or size
+		 */
+		private int ceiling(int sequence) {
+			int i = Arrays.binarySearch(sequences, 0, size, sequence);
+			return i >= 0 ? i : -(i + 1);
+		}
+
+		private void clear() {
+			size = 0;
+		}
+	}
+}
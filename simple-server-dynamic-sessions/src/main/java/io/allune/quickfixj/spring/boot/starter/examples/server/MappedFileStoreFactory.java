@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.server;
+
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.FileStoreFactory;
+import quickfix.FileUtil;
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.io.File;
+
+/**
+ * {@link MessageStoreFactory} for {@link MappedFileStore}s, a drop-in replacement for {@link FileStoreFactory}.
+ * <p>
+ * The stores are created under {@code FileStorePath}, one directory per session. {@value #SETTING_SEGMENT_SIZE} sets
+ * the size at which a store rolls over to a new segment file (64MB by default), the mapping of a segment grows up to
+ * it from 1MB. {@code FileStoreSync=Y} forces every write to disk.
+ */
+public class MappedFileStoreFactory implements MessageStoreFactory {
+
+	public static final String SETTING_SEGMENT_SIZE = "MappedFileStoreSegmentSize";
+
+	private final SessionSettings settings;
+
+	public MappedFileStoreFactory(SessionSettings settings) {
+		this.settings = settings;
+	}
+
+	@Override
+	public MessageStore create(SessionID sessionID) {
+		try {
+			String path = settings.getString(sessionID, FileStoreFactory.SETTING_FILE_STORE_PATH);
+			boolean sync = settings.isSetting(sessionID, FileStoreFactory.SETTING_FILE_STORE_SYNC)
+					&& settings.getBool(sessionID, FileStoreFactory.SETTING_FILE_STORE_SYNC);
+			int segmentSize = settings.isSetting(sessionID, SETTING_SEGMENT_SIZE)
+					? (int) settings.getLong(sessionID, SETTING_SEGMENT_SIZE)
+					: 64 * 1024 * 1024;
+			File directory = new File(FileUtil.fileAppendPath(path, FileUtil.sessionIdFileName(sessionID)));
+			return new MappedFileStore(directory, segmentSize, sync);
+		} catch (ConfigError | FieldConvertError e) {
+			throw new RuntimeException(e);
+		} catch (Exception e) {
+			throw new RuntimeException("Unable to create the message store for " + sessionID, e);
+		}
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.server;
+
+import org.quickfixj.QFJException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.Application;
+import quickfix.ConfigError;
+import quickfix.DefaultSessionFactory;
+import quickfix.LogFactory;
+import quickfix.MessageFactory;
+import quickfix.MessageStoreFactory;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+import quickfix.mina.SessionConnector;
+import quickfix.mina.acceptor.DynamicAcceptorSessionProvider;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static quickfix.SessionSettings.BEGINSTRING;
+import static quickfix.SessionSettings.SENDERCOMPID;
+import static quickfix.SessionSettings.SENDERLOCID;
+import static quickfix.SessionSettings.SENDERSUBID;
+import static quickfix.SessionSettings.TARGETCOMPID;
+import static quickfix.SessionSettings.TARGETLOCID;
+import static quickfix.SessionSettings.TARGETSUBID;
+
+/**
+ * {@link DynamicAcceptorSessionProvider} that keeps a bounded pool of dynamic sessions.
+ * <p>
+ * Sessions are only created when a counterparty logs on, and different counterparties are created concurrently
+ * instead of one at a time under the provider lock. Parsed data dictionaries are shared by the
+ * {@link DefaultSessionFactory}, which caches them by path. Once more than {@code maxSessions} dynamic sessions
+ * exist, the least recently logged on sessions that are not connected are evicted: removed from the connector and
+ * closed, which closes their store and log and unregisters them. The eviction happens under the pool lock, so that a
+ * counterparty logging on meanwhile either gets the session before it is evicted, or creates a new one once the
+ * evicted session is unregistered.
+ * <p>
+ * A session handed out is only given its responder by the acceptor afterwards, once the provider lock is released.
+ * Until then it looks as idle as a session nobody connects to, so a session is only evicted once it was last handed
+ * out at least {@code evictionGraceMillis} ago. The pool may exceed {@code maxSessions} meanwhile.
+ */
+public class PooledDynamicSessionProvider extends DynamicAcceptorSessionProvider {
+
+	private static final Logger log = LoggerFactory.getLogger(PooledDynamicSessionProvider.class);
+
+	private static final long DEFAULT_EVICTION_GRACE_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+	private final int maxSessions;
+
+	private final long evictionGraceNanos;
+
+	private final ConcurrentMap<SessionID, FutureTask<Session>> pendingSessions = new ConcurrentHashMap<>();
+
+	/**
+	 * Dynamic sessions in access order, guarded by itself.
+	 */
+	private final LinkedHashMap<SessionID, PooledSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final LongAdder createdCount = new LongAdder();
+
+	private final LongAdder evictedCount = new LongAdder();
+
+	private final LongAdder totalCreationNanos = new LongAdder();
+
+	private volatile long lastCreationNanos;
+
+	private volatile long maxCreationNanos;
+
+	public PooledDynamicSessionProvider(SessionSettings settings, SessionID templateID, Application application,
+	                                    MessageStoreFactory messageStoreFactory, LogFactory logFactory,
+	                                    MessageFactory messageFactory, int maxSessions) {
+		this(settings, templateID, application, messageStoreFactory, logFactory, messageFactory, maxSessions,
+				DEFAULT_EVICTION_GRACE_MILLIS);
+	}
+
+	public PooledDynamicSessionProvider(SessionSettings settings, SessionID templateID, Application application,
+	                                    MessageStoreFactory messageStoreFactory, LogFactory logFactory,
+	                                    MessageFactory messageFactory, int maxSessions, long evictionGraceMillis) {
+		super(settings, templateID, application, messageStoreFactory, logFactory, messageFactory);
+		this.maxSessions = maxSessions;
+		this.evictionGraceNanos = TimeUnit.MILLISECONDS.toNanos(evictionGraceMillis);
+	}
+
+	@Override
+	public Session getSession(SessionID sessionID, SessionConnector sessionConnector) {
+		Session pooled = handOut(sessionID);
+		if (pooled != null) {
+			return pooled;
+		}
+		Session session = Session.lookupSession(sessionID);
+		if (session != null) {
+			return session;
+		}
+
+		FutureTask<Session> task = new FutureTask<>(() -> create(sessionID, sessionConnector));
+		FutureTask<Session> pending = pendingSessions.putIfAbsent(sessionID, task);
+		if (pending == null) {
+			pending = task;
+			task.run();
+		}
+		try {
+			return pending.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new QFJException(e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof QFJException ? (QFJException) e.getCause() : new QFJException(e.getCause());
+		} finally {
+			pendingSessions.remove(sessionID, pending);
+		}
+	}
+
+	public Map<String, Object> getMetrics() {
+		long created = createdCount.sum();
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		synchronized (sessions) {
+			metrics.put("liveSessions", sessions.size());
+		}
+		metrics.put("maxSessions", maxSessions);
+		metrics.put("created", created);
+		metrics.put("evicted", evictedCount.sum());
+		metrics.put("lastCreationTimeMicros", TimeUnit.NANOSECONDS.toMicros(lastCreationNanos));
+		metrics.put("meanCreationTimeMicros", created == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalCreationNanos.sum() / created));
+		metrics.put("maxCreationTimeMicros", TimeUnit.NANOSECONDS.toMicros(maxCreationNanos));
+		return metrics;
+	}
+
+	private Session create(SessionID sessionID, SessionConnector sessionConnector) throws ConfigError {
+		// another logon may have created the session between the lookup and the pending task of this one
+		Session pooled = handOut(sessionID);
+		if (pooled != null) {
+			return pooled;
+		}
+		SessionID templateID = lookupTemplateID(sessionID);
+		if (templateID == null) {
+			throw new ConfigError("Unable to find a session template for " + sessionID);
+		}
+		SessionSettings dynamicSettings = new SessionSettings();
+		copySettings(dynamicSettings, settings.getDefaultProperties());
+		copySettings(dynamicSettings, settings.getSessionProperties(templateID));
+		dynamicSettings.setString(BEGINSTRING, sessionID.getBeginString());
+		dynamicSettings.setString(SENDERCOMPID, sessionID.getSenderCompID());
+		optionallySetValue(dynamicSettings, SENDERSUBID, sessionID.getSenderSubID());
+		optionallySetValue(dynamicSettings, SENDERLOCID, sessionID.getSenderLocationID());
+		dynamicSettings.setString(TARGETCOMPID, sessionID.getTargetCompID());
+		optionallySetValue(dynamicSettings, TARGETSUBID, sessionID.getTargetSubID());
+		optionallySetValue(dynamicSettings, TARGETLOCID, sessionID.getTargetLocationID());
+
+		long start = System.nanoTime();
+		Session session = sessionFactory.create(sessionID, dynamicSettings);
+		long creationNanos = System.nanoTime() - start;
+		createdCount.increment();
+		totalCreationNanos.add(creationNanos);
+		lastCreationNanos = creationNanos;
+		if (creationNanos > maxCreationNanos) {
+			maxCreationNanos = creationNanos;
+		}
+
+		synchronized (sessions) {
+			long now = System.nanoTime();
+			sessions.put(sessionID, new PooledSession(session, now));
+			Iterator<PooledSession> leastRecentlyUsed = sessions.values().iterator();
+			while (sessions.size() > maxSessions && leastRecentlyUsed.hasNext()) {
+				PooledSession candidate = leastRecentlyUsed.next();
+				if (candidate.session != session && candidate.isIdle(now)) {
+					leastRecentlyUsed.remove();
+					evict(candidate.session, sessionConnector);
+				}
+			}
+		}
+
+		if (sessionConnector != null) {
+			sessionConnector.addDynamicSession(session);
+		}
+		return session;
+	}
+
+	/**
+	 * @return the pooled session, marked as just handed out, or null if there is none
+	 */
+	private Session handOut(SessionID sessionID) {
+		synchronized (sessions) {
+			PooledSession pooled = sessions.get(sessionID);
+			if (pooled == null) {
+				return null;
+			}
+			pooled.handedOutNanos = System.nanoTime();
+			return pooled.session;
+		}
+	}
+
+	private void evict(Session session, SessionConnector sessionConnector) {
+		SessionID sessionID = session.getSessionID();
+		if (sessionConnector != null) {
+			sessionConnector.removeDynamicSession(sessionID);
+		}
+		try {
+			session.close();
+			evictedCount.increment();
+			log.debug("Evicted idle dynamic session {}", sessionID);
+		} catch (IOException e) {
+			log.error("Unable to close dynamic session {}", sessionID, e);
+		}
+	}
+
+	/**
+	 * A session of the pool, guarded by the pool lock.
+	 */
+	private final class PooledSession {
+
+		private final Session session;
+
+		private long handedOutNanos;
+
+		private PooledSession(Session session, long handedOutNanos) {
+			this.session = session;
+			this.handedOutNanos = handedOutNanos;
+		}
+
+		private boolean isIdle(long now) {
+			return !session.hasResponder() && !session.isLoggedOn() && now - handedOutNanos >= evictionGraceNanos;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedFileStoreTest {
+
+	private static final int SEGMENT_SIZE = 4096;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	private MappedFileStore store;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("FIX.4.4-EXEC-BANZAI");
+		store = new MappedFileStore(directory, SEGMENT_SIZE, false);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		store.close();
+	}
+
+	@Test
+	public void shouldRecoverTheMessagesAndSequenceNumbersOnReopen() throws IOException {
+		for (int sequence = 1; sequence <= 200; sequence++) {
+			store.set(sequence, message(sequence));
+			store.incrNextSenderMsgSeqNum();
+		}
+		store.setNextTargetMsgSeqNum(42);
+		Date creationTime = store.getCreationTime();
+		store.close();
+
+		store = new MappedFileStore(directory, SEGMENT_SIZE, false);
+
+		assertThat(store.getNextSenderMsgSeqNum()).isEqualTo(201);
+		assertThat(store.getNextTargetMsgSeqNum()).isEqualTo(42);
+		assertThat(store.getCreationTime()).isEqualTo(creationTime);
+		assertThat(get(1, 200)).hasSize(200).startsWith(message(1)).endsWith(message(200));
+	}
+
+	@Test
+	public void shouldRollOverAndTrimTheFullSegments() throws IOException {
+		for (int sequence = 1; sequence <= 200; sequence++) {
+			store.set(sequence, message(sequence));
+		}
+
+		File[] segments = segmentFiles();
+		assertThat(segments.length).isGreaterThan(1);
+		for (int i = 0; i < segments.length - 1; i++) {
+			assertThat(segments[i].length()).isLessThanOrEqualTo(SEGMENT_SIZE);
+		}
+		assertThat(get(1, 200)).hasSize(200);
+		assertThat(get(50, 60)).containsExactly(messages(50, 60));
+
+		store.close();
+		assertThat(segments[segments.length - 1].length()).isLessThan(SEGMENT_SIZE);
+		long stored = 0;
+		for (File segment : segments) {
+			stored += segment.length();
+		}
+		long records = 0;
+		for (int sequence = 1; sequence <= 200; sequence++) {
+			records += 12 + message(sequence).length();
+		}
+		assertThat(stored).isEqualTo(records);
+	}
+
+	@Test
+	public void shouldDropATornRecordAndAppendOverIt() throws IOException {
+		for (int sequence = 1; sequence <= 10; sequence++) {
+			store.set(sequence, message(sequence));
+		}
+		// a crash of the machine before the pages of the last record all reached the disk
+		File segment = segmentFiles()[0];
+		long lastRecord = 9L * (12 + message(1).length());
+		store.close();
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.seek(lastRecord + 12 + 5);
+			file.write('X');
+		}
+
+		store = new MappedFileStore(directory, SEGMENT_SIZE, false);
+		assertThat(get(1, 10)).containsExactly(messages(1, 9));
+
+		store.set(10, message(10));
+		store.set(11, message(11));
+		store.close();
+		store = new MappedFileStore(directory, SEGMENT_SIZE, false);
+		assertThat(get(1, 11)).containsExactly(messages(1, 11));
+	}
+
+	@Test
+	public void shouldIgnoreTheUnwrittenTailOfASegmentAfterACrash() throws IOException {
+		for (int sequence = 1; sequence <= 5; sequence++) {
+			store.set(sequence, message(sequence));
+		}
+		// not closed, the mapped segment keeps its zeroed tail
+		MappedFileStore recovered = new MappedFileStore(directory, SEGMENT_SIZE, false);
+		try {
+			assertThat(segmentFiles()[0].length()).isGreaterThan(5L * (12 + message(1).length()));
+			assertThat(recovered.getNextSenderMsgSeqNum()).isEqualTo(1);
+			List<String> messages = new ArrayList<>();
+			recovered.get(1, 100, messages);
+			assertThat(messages).containsExactly(messages(1, 5));
+		} finally {
+			recovered.close();
+		}
+	}
+
+	@Test
+	public void shouldIndexHighSequenceNumbersWithoutGrowingByThem() throws IOException {
+		store.set(2_000_000_000, message(2_000_000_000));
+		store.set(2_000_000_001, message(2_000_000_001));
+
+		assertThat(get(1_999_999_999, 2_000_000_001)).containsExactly(message(2_000_000_000), message(2_000_000_001));
+		assertThat(get(1, 1_999_999_999)).isEmpty();
+	}
+
+	@Test
+	public void shouldReturnTheLastMessageStoredUnderASequenceNumber() throws IOException {
+		for (int sequence = 1; sequence <= 5; sequence++) {
+			store.set(sequence, message(sequence));
+		}
+		store.set(3, "replaced");
+		store.set(0, "zero");
+
+		assertThat(get(0, 5)).containsExactly("zero", message(1), message(2), "replaced", message(4), message(5));
+		store.close();
+		store = new MappedFileStore(directory, SEGMENT_SIZE, false);
+		assertThat(get(0, 5)).containsExactly("zero", message(1), message(2), "replaced", message(4), message(5));
+	}
+
+	@Test
+	public void shouldDeleteTheSegmentsOnReset() throws IOException {
+		for (int sequence = 1; sequence <= 100; sequence++) {
+			store.set(sequence, message(sequence));
+			store.incrNextSenderMsgSeqNum();
+		}
+
+		store.reset();
+
+		assertThat(segmentFiles()).isEmpty();
+		assertThat(store.getNextSenderMsgSeqNum()).isEqualTo(1);
+		assertThat(get(1, 100)).isEmpty();
+		store.set(1, message(1));
+		assertThat(get(1, 100)).containsExactly(message(1));
+	}
+
+	@Test
+	public void shouldRejectAnyUseOnceClosed() throws IOException {
+		store.set(1, message(1));
+		store.close();
+
+		assertThatThrownBy(() -> store.set(2, message(2))).isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> store.get(1, 1, new ArrayList<>())).isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> store.getNextSenderMsgSeqNum()).isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> store.refresh()).isInstanceOf(IOException.class);
+		store.close();
+	}
+
+	private List<String> get(int startSequence, int endSequence) throws IOException {
+		List<String> messages = new ArrayList<>();
+		store.get(startSequence, endSequence, messages);
+		return messages;
+	}
+
+	private File[] segmentFiles() {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".segment"));
+		Arrays.sort(files);
+		return files;
+	}
+
+	private static String[] messages(int startSequence, int endSequence) {
+		String[] messages = new String[endSequence - startSequence + 1];
+		for (int i = 0; i < messages.length; i++) {
+			messages[i] = message(startSequence + i);
+		}
+		return messages;
+	}
+
+	private static String message(int sequence) {
+		return "8=FIX.4.4\u00019=5\u000135=0\u000134=" + sequence + "\u000110=000\u0001";
+	}
+}
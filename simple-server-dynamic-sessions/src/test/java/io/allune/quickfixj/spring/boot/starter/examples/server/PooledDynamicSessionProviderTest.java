@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import quickfix.ApplicationAdapter;
+import quickfix.CompositeLogFactory;
+import quickfix.DefaultMessageFactory;
+import quickfix.LogFactory;
+import quickfix.MemoryStoreFactory;
+import quickfix.Responder;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static quickfix.FixVersions.BEGINSTRING_FIX44;
+
+public class PooledDynamicSessionProviderTest {
+
+	private static final SessionID TEMPLATE_ID = new SessionID(BEGINSTRING_FIX44, "EXEC", "ANY");
+
+	private static final int COUNTERPARTIES = 64;
+
+	private SessionSettings settings;
+
+	private PooledDynamicSessionProvider provider;
+
+	@Before
+	public void setUp() {
+		SessionSettings settings = new SessionSettings();
+		settings.setString("ConnectionType", "acceptor");
+		settings.setString("StartTime", "00:00:00");
+		settings.setString("EndTime", "00:00:00");
+		settings.setLong("HeartBtInt", 30);
+		settings.setBool("UseDataDictionary", false);
+		settings.setBool(TEMPLATE_ID, "AcceptorTemplate", true);
+		this.settings = settings;
+		provider = newProvider(settings, 4, 0);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (int i = 0; i < COUNTERPARTIES; i++) {
+			Session session = Session.lookupSession(sessionID(i));
+			if (session != null) {
+				session.close();
+			}
+		}
+	}
+
+	@Test
+	public void shouldEvictTheLeastRecentlyUsedSessions() {
+		List<Session> sessions = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			sessions.add(provider.getSession(sessionID(i), null));
+		}
+		provider.getSession(sessionID(0), null);
+		Session created = provider.getSession(sessionID(4), null);
+
+		assertThat(Session.lookupSession(sessionID(1))).isNull();
+		assertThat(Session.lookupSession(sessionID(0))).isSameAs(sessions.get(0));
+		assertThat(Session.lookupSession(sessionID(4))).isSameAs(created);
+		assertThat(provider.getMetrics()).containsEntry("liveSessions", 4).containsEntry("evicted", 1L);
+	}
+
+	@Test
+	public void shouldNotEvictASessionHandedOutWithinTheGracePeriod() {
+		provider = newProvider(settings, 4, TimeUnit.MINUTES.toMillis(1));
+		List<Session> sessions = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			sessions.add(provider.getSession(sessionID(i), null));
+		}
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(Session.lookupSession(sessionID(i))).isSameAs(sessions.get(i));
+		}
+		assertThat(provider.getMetrics()).containsEntry("liveSessions", 5).containsEntry("evicted", 0L);
+	}
+
+	@Test
+	public void shouldNotEvictASessionRacingItsLogon() throws Exception {
+		provider = newProvider(settings, 4, 50);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> logons = new ArrayList<>();
+		for (int thread = 0; thread < 8; thread++) {
+			logons.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < 100; i++) {
+					SessionID sessionID = sessionID(ThreadLocalRandom.current().nextInt(COUNTERPARTIES));
+					Session session = provider.getSession(sessionID, null);
+					// an evicted session would have been closed and unregistered before it got its responder
+					assertThat(Session.lookupSession(sessionID)).isSameAs(session);
+					connect(session);
+					session.setResponder(null);
+					// lets the disconnected sessions outlive the grace period, so that the logons keep evicting
+					Thread.sleep(5);
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> logon : logons) {
+			logon.get(30, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		assertThat((long) provider.getMetrics().get("evicted")).isPositive();
+	}
+
+	@Test
+	public void shouldKeepThePoolAndTheSessionRegistryConsistentUnderConcurrentLogons() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> logons = new ArrayList<>();
+		for (int thread = 0; thread < 8; thread++) {
+			logons.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < 500; i++) {
+					SessionID sessionID = sessionID(ThreadLocalRandom.current().nextInt(COUNTERPARTIES));
+					assertThat(provider.getSession(sessionID, null).getSessionID()).isEqualTo(sessionID);
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> logon : logons) {
+			logon.get(30, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		int registered = 0;
+		for (int i = 0; i < COUNTERPARTIES; i++) {
+			if (Session.lookupSession(sessionID(i)) != null) {
+				registered++;
+			}
+		}
+		long created = (long) provider.getMetrics().get("created");
+		long evicted = (long) provider.getMetrics().get("evicted");
+		assertThat(registered).isEqualTo(provider.getMetrics().get("liveSessions")).isEqualTo(4);
+		assertThat(created - evicted).isEqualTo(4);
+	}
+
+	private static PooledDynamicSessionProvider newProvider(SessionSettings settings, int maxSessions,
+	                                                        long evictionGraceMillis) {
+		return new PooledDynamicSessionProvider(settings, TEMPLATE_ID, new ApplicationAdapter(),
+				new MemoryStoreFactory(), new CompositeLogFactory(new LogFactory[0]), new DefaultMessageFactory(),
+				maxSessions, evictionGraceMillis);
+	}
+
+	/**
+	 * Connects the session as the acceptor does once the provider returned it.
+	 */
+	private static void connect(Session session) {
+		session.setResponder(new Responder() {
+
+			@Override
+			public boolean send(String data) {
+				return true;
+			}
+
+			@Override
+			public void disconnect() {
+			}
+
+			@Override
+			public String getRemoteAddress() {
+				return "localhost";
+			}
+		});
+	}
+
+	private static SessionID sessionID(int counterparty) {
+		return new SessionID(BEGINSTRING_FIX44, "EXEC", "BANZAI" + counterparty);
+	}
+}
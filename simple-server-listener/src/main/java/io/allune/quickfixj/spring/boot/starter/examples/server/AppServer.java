@@ -16,14 +16,17 @@
 package io.allune.quickfixj.spring.boot.starter.examples.server;
 
 import io.allune.quickfixj.spring.boot.starter.EnableQuickFixJServer;
+import io.allune.quickfixj.spring.boot.starter.examples.support.event.EventDispatchConfiguration;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 @Slf4j
 @EnableQuickFixJServer
 @SpringBootApplication
+@Import(EventDispatchConfiguration.class)
 public class AppServer implements CommandLineRunner {
 
 	public static void main(String[] args) {
@@ -15,13 +15,21 @@
  */
 package io.allune.quickfixj.spring.boot.starter.examples.sender;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.allune.quickfixj.spring.boot.starter.EnableQuickFixJServer;
+import io.allune.quickfixj.spring.boot.starter.examples.support.routing.SessionRouter;
+import io.allune.quickfixj.spring.boot.starter.examples.support.routing.SessionRouter.SelectionStrategy;
+import io.allune.quickfixj.spring.boot.starter.examples.support.sender.AsyncMessageSender;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import quickfix.Application;
 import quickfix.ApplicationAdapter;
 import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.FileStoreFactory;
 import quickfix.Initiator;
 import quickfix.LogFactory;
 import quickfix.MessageFactory;
@@ -59,4 +67,59 @@ public class AppServer {
 				clientMessageFactory
 		);
 	}
+
+	@Bean
+	public SessionRouter serverSessionRouter(
+			SessionSettings serverSessionSettings,
+			@Value("${examples.session-routing.selection-strategy:ROUND_ROBIN}") SelectionStrategy selectionStrategy
+	) throws ConfigError, FieldConvertError {
+
+		return new SessionRouter(serverSessionSettings, selectionStrategy);
+	}
+
+	@Bean
+	public BatchMessageSender batchMessageSender(ObjectMapper objectMapper) {
+		return new BatchMessageSender(objectMapper);
+	}
+
+	@Bean
+	public RawMessageSender rawMessageSender() {
+		return new RawMessageSender();
+	}
+
+	@Bean
+	public AsyncMessageSender asyncMessageSender(
+			@Value("${examples.async-sender.threads:4}") int threads,
+			@Value("${examples.async-sender.max-in-flight-per-session:256}") int maxInFlightPerSession
+	) {
+		return new AsyncMessageSender(threads, maxInFlightPerSession);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "examples.async-sender.session-writer.enabled", havingValue = "true")
+	public QueuedMessageSender queuedMessageSender(
+			@Value("${examples.async-sender.max-in-flight-per-session:256}") int maxInFlightPerSession,
+			@Value("${examples.async-sender.session-writer.max-batch-size:64}") int maxBatchSize
+	) {
+		return new QueuedMessageSender(maxInFlightPerSession, maxBatchSize);
+	}
+
+	@Bean
+	public MarketDataPublisher marketDataPublisher(
+			@Value("${examples.market-data.depth:10}") int depth,
+			@Value("${examples.market-data.max-backlog-bytes:65536}") long maxBacklogBytes,
+			@Value("${examples.market-data.publisher-threads:2}") int publisherThreads
+	) {
+		return new MarketDataPublisher(depth, maxBacklogBytes, publisherThreads);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "examples.resend-cache.enabled", havingValue = "true")
+	public ResendCachingStoreFactory serverMessageStoreFactory(
+			SessionSettings serverSessionSettings,
+			@Value("${examples.resend-cache.max-messages:65536}") int maxMessages,
+			@Value("${examples.resend-cache.max-bytes:16777216}") int maxBytes
+	) {
+		return new ResendCachingStoreFactory(new FileStoreFactory(serverSessionSettings), maxMessages, maxBytes);
+	}
 }
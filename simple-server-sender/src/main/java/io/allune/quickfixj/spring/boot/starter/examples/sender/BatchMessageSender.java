@@ -0,0 +1,349 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals;
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals.InternalField;
+import quickfix.DataDictionary;
+import quickfix.DataDictionaryProvider;
+import quickfix.FixVersions;
+import quickfix.Message;
+import quickfix.MessageUtils;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionState;
+import quickfix.field.ApplVerID;
+import quickfix.field.BeginString;
+import quickfix.field.BodyLength;
+import quickfix.field.CheckSum;
+import quickfix.field.MsgType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Sends a batch of messages to a single session in one pass.
+ * <p>
+ * The session and its data dictionaries are resolved once per batch and every message is parsed and validated. A
+ * message that cannot be parsed or fails validation is reported and skipped without aborting the rest of the batch.
+ * The valid messages are sent in order, in chunks of a few hundred messages as they are parsed, so a large batch is
+ * never held in memory at once. Each chunk is sent while holding the sender sequence number lock of the session, so
+ * that no other message of the session, not even a heartbeat, is sequenced in between: a chunk gets contiguous
+ * sequence numbers. The lock is released between the chunks, which lets the session send its heartbeats and the
+ * other senders their messages while a large batch is sent. When the session state is not accessible the messages
+ * are still sent in order, but other messages of the session may be interleaved with them.
+ */
+public class BatchMessageSender {
+
+	private static final InternalField SESSION_STATE = QuickFixJInternals.field(Session.class, "state");
+
+	private static final char SOH = '\u0001';
+
+	private static final String CHECKSUM_PREFIX = SOH + "10=";
+
+	private static final TypeReference<LinkedHashMap<String, String>> FIELDS_TYPE =
+			new TypeReference<LinkedHashMap<String, String>>() {
+			};
+
+	private static final int DEFAULT_CHUNK_SIZE = 256;
+
+	private final ObjectMapper objectMapper;
+
+	private final int chunkSize;
+
+	public BatchMessageSender(ObjectMapper objectMapper) {
+		this(objectMapper, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param chunkSize the number of messages sent under a single hold of the sender sequence number lock
+	 */
+	public BatchMessageSender(ObjectMapper objectMapper, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("The chunk size must be positive");
+		}
+		this.objectMapper = objectMapper;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Sends NDJSON encoded messages, one JSON object of tag/value pairs per line. Repeating groups are not supported
+	 * by this format, use {@link #sendFix(String, SessionID)} for messages that contain them.
+	 */
+	public List<MessageStatus> sendNdjson(String body, SessionID sessionID) {
+		return sendNdjson(new StringReader(body), sessionID);
+	}
+
+	/**
+	 * Sends NDJSON encoded messages as they are read, see {@link #sendNdjson(String, SessionID)}. The reader is not
+	 * closed.
+	 *
+	 * @throws UncheckedIOException if the messages cannot be read, the messages read before were sent
+	 */
+	public List<MessageStatus> sendNdjson(Reader reader, SessionID sessionID) {
+		BatchSession batchSession = new BatchSession(sessionID, chunkSize);
+		BufferedReader lines = new BufferedReader(reader);
+		try {
+			String line;
+			while ((line = lines.readLine()) != null) {
+				if (!line.trim().isEmpty()) {
+					String json = line;
+					batchSession.add(() -> toMessage(objectMapper.readValue(json, FIELDS_TYPE), batchSession));
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			batchSession.flush();
+		}
+		return batchSession.statuses;
+	}
+
+	/**
+	 * Sends SOH delimited FIX messages, either concatenated or separated by line breaks.
+	 */
+	public List<MessageStatus> sendFix(String body, SessionID sessionID) {
+		BatchSession batchSession = new BatchSession(sessionID, chunkSize);
+		int start = 0;
+		while (start < body.length()) {
+			while (start < body.length() && Character.isWhitespace(body.charAt(start))) {
+				start++;
+			}
+			if (start == body.length()) {
+				break;
+			}
+			int checksum = body.indexOf(CHECKSUM_PREFIX, start);
+			int end = checksum < 0 ? -1 : body.indexOf(SOH, checksum + CHECKSUM_PREFIX.length());
+			end = end < 0 ? body.length() : end + 1;
+
+			String fix = body.substring(start, end);
+			batchSession.add(() -> MessageUtils.parse(batchSession.session, fix));
+			start = end;
+		}
+		return batchSession.send();
+	}
+
+	/**
+	 * Batch counterpart of {@code QuickFixJTemplate.send(Message, SessionID)}.
+	 */
+	public List<MessageStatus> send(List<Message> messages, SessionID sessionID) {
+		BatchSession batchSession = new BatchSession(sessionID, chunkSize);
+		for (Message message : messages) {
+			batchSession.add(() -> message);
+		}
+		return batchSession.send();
+	}
+
+	/**
+	 * The header and trailer fields are told apart with the session data dictionary, or, when the session does not
+	 * use one, as the standard header and trailer fields.
+	 */
+	private static Message toMessage(Map<String, String> fields, BatchSession batchSession) {
+		String msgType = fields.get(String.valueOf(MsgType.FIELD));
+		if (msgType == null) {
+			throw new IllegalArgumentException("Missing MsgType(35)");
+		}
+
+		Message message = batchSession.session.getMessageFactory()
+				.create(batchSession.sessionID.getBeginString(), msgType);
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			int tag = Integer.parseInt(field.getKey());
+			if (tag == BeginString.FIELD || tag == BodyLength.FIELD || tag == MsgType.FIELD || tag == CheckSum.FIELD) {
+				continue;
+			}
+			DataDictionary dataDictionary = batchSession.sessionDataDictionary;
+			if (dataDictionary != null ? dataDictionary.isHeaderField(tag) : StandardFields.isHeaderField(tag)) {
+				message.getHeader().setString(tag, field.getValue());
+			} else if (dataDictionary != null
+					? dataDictionary.isTrailerField(tag)
+					: StandardFields.isTrailerField(tag)) {
+				message.getTrailer().setString(tag, field.getValue());
+			} else {
+				message.setString(tag, field.getValue());
+			}
+		}
+		return message;
+	}
+
+	private static final class BatchSession {
+
+		private final SessionID sessionID;
+
+		private final Session session;
+
+		private final DataDictionaryProvider dataDictionaryProvider;
+
+		private final DataDictionary sessionDataDictionary;
+
+		private final int chunkSize;
+
+		private final List<MessageStatus> statuses = new ArrayList<>();
+
+		private final List<Message> messages = new ArrayList<>();
+
+		private final List<Integer> indexes = new ArrayList<>();
+
+		private BatchSession(SessionID sessionID, int chunkSize) {
+			this.sessionID = sessionID;
+			this.chunkSize = chunkSize;
+			this.session = Session.lookupSession(sessionID);
+			if (session == null) {
+				throw new IllegalStateException("Unknown session " + sessionID);
+			}
+			this.dataDictionaryProvider = session.getDataDictionaryProvider();
+			this.sessionDataDictionary = dataDictionaryProvider != null
+					? dataDictionaryProvider.getSessionDataDictionary(sessionID.getBeginString())
+					: null;
+		}
+
+		/**
+		 * Parses and validates a message of the batch, which is rejected if either fails, and sends the pending
+		 * messages once they make a chunk.
+		 */
+		private void add(Callable<Message> parser) {
+			int index = statuses.size();
+			try {
+				Message message = parser.call();
+				DataDictionary applicationDataDictionary = applicationDataDictionary(message);
+				if (applicationDataDictionary != null) {
+					applicationDataDictionary.validate(message, true);
+				}
+				statuses.add(null);
+				messages.add(message);
+				indexes.add(index);
+			} catch (Exception e) {
+				statuses.add(MessageStatus.rejected(index, e));
+				return;
+			}
+			if (messages.size() >= chunkSize) {
+				flush();
+			}
+		}
+
+		private List<MessageStatus> send() {
+			flush();
+			return statuses;
+		}
+
+		/**
+		 * Sends the pending messages in order, holding the sender sequence number lock if possible.
+		 */
+		private void flush() {
+			if (messages.isEmpty()) {
+				return;
+			}
+			SessionState state = SESSION_STATE.isAvailable() ? (SessionState) SESSION_STATE.get(session) : null;
+			if (state != null) {
+				state.lockSenderMsgSeqNum();
+			}
+			try {
+				for (int i = 0; i < messages.size(); i++) {
+					int index = indexes.get(i);
+					try {
+						statuses.set(index, session.send(messages.get(i))
+								? MessageStatus.sent(index)
+								: MessageStatus.notSent(index));
+					} catch (RuntimeException e) {
+						statuses.set(index, MessageStatus.rejected(index, e));
+					}
+				}
+			} finally {
+				if (state != null) {
+					state.unlockSenderMsgSeqNum();
+				}
+				messages.clear();
+				indexes.clear();
+			}
+		}
+
+		private DataDictionary applicationDataDictionary(Message message) throws Exception {
+			if (dataDictionaryProvider == null) {
+				return null;
+			}
+			if (!FixVersions.BEGINSTRING_FIXT11.equals(sessionID.getBeginString())) {
+				return sessionDataDictionary;
+			}
+			ApplVerID applVerID = message.getHeader().isSetField(ApplVerID.FIELD)
+					? new ApplVerID(message.getHeader().getString(ApplVerID.FIELD))
+					: session.getTargetDefaultApplicationVersionID();
+			return applVerID != null ? dataDictionaryProvider.getApplicationDataDictionary(applVerID) : null;
+		}
+	}
+
+	public static final class MessageStatus {
+
+		private final int index;
+
+		private final Status status;
+
+		private final String reason;
+
+		private MessageStatus(int index, Status status, String reason) {
+			this.index = index;
+			this.status = status;
+			this.reason = reason;
+		}
+
+		static MessageStatus sent(int index) {
+			return new MessageStatus(index, Status.SENT, null);
+		}
+
+		static MessageStatus notSent(int index) {
+			return new MessageStatus(index, Status.NOT_SENT, "Session is not logged on");
+		}
+
+		static MessageStatus rejected(int index, Exception e) {
+			return new MessageStatus(index, Status.REJECTED, e.getClass().getSimpleName() + ": " + e.getMessage());
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+	}
+
+	public enum Status {
+		/**
+		 * Handed to the session for transmission
+		 */
+		SENT,
+		/**
+		 * Stored by the session but not transmitted, typically because it is not logged on
+		 */
+		NOT_SENT,
+		/**
+		 * Could not be parsed or failed validation, nothing was sent
+		 */
+		REJECTED
+	}
+}
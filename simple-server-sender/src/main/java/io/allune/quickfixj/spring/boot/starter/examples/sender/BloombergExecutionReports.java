@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import io.allune.quickfixj.spring.boot.starter.examples.sender.customfields.NoCompDealerQuotes;
+import io.allune.quickfixj.spring.boot.starter.examples.sender.customfields.NoRefPrices;
+import quickfix.DoubleField;
+import quickfix.IntField;
+import quickfix.StringField;
+import quickfix.field.Currency;
+import quickfix.field.ExecType;
+import quickfix.field.LastMkt;
+import quickfix.field.MarketSegmentID;
+import quickfix.field.OnBehalfOfCompID;
+import quickfix.field.OrdStatus;
+import quickfix.field.OrdType;
+import quickfix.field.PartyID;
+import quickfix.field.PartyIDSource;
+import quickfix.field.PartyRole;
+import quickfix.field.PartySubID;
+import quickfix.field.PartySubIDType;
+import quickfix.field.Product;
+import quickfix.field.QtyType;
+import quickfix.field.SecurityType;
+import quickfix.field.SettlCurrency;
+import quickfix.field.SettlType;
+import quickfix.field.Side;
+import quickfix.field.Spread;
+import quickfix.field.Symbol;
+import quickfix.field.TradePublishIndicator;
+import quickfix.fix44.ExecutionReport;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static io.allune.quickfixj.spring.boot.starter.examples.sender.ExecutionReportBuilder.executionReport;
+
+/**
+ * Bloomberg USD/CLP execution reports. Only the trade specific fields are set per report, the constant fields and
+ * repeating groups are spliced in from blocks built once.
+ */
+public final class BloombergExecutionReports {
+
+	private static final FieldBlock USD_CLP_TRADE = FieldBlock.builder()
+			.header(new OnBehalfOfCompID("FX"))
+			.field(new SettlCurrency("CLP"))
+			.field(new Spread(0))
+			.field(new OrdType(OrdType.MARKET))
+			.field(new Product(Product.CURRENCY))
+			.field(new Symbol("USD/CLP"))
+			.field(new Currency("USD"))
+			.field(new LastMkt("XOFF"))
+			.field(new StringField(797, "Y"))
+			.field(new QtyType(QtyType.UNITS))
+			.field(new StringField(1057, "Y"))
+			.field(new MarketSegmentID("XOFF"))
+			.field(new TradePublishIndicator(0))
+			.group(compDealerQuote("BGD1", 755.93))
+			.group(compDealerQuote("BGD2", 0))
+			.group(compDealerQuote("BGD5", 0))
+			.group(compDealerQuote("MidRate", 756.15))
+			.group(compDealerQuote("RefRate", 755.93))
+			.group(compDealerQuote("BGDM Mid", 756.15))
+			.group(compDealerQuote("BGDM Nts", 756.15))
+			.group(refPrices())
+			.build();
+
+	private static final FieldBlock SPOT_PARTIES = parties("SCOTT");
+
+	private static final FieldBlock FORWARD_PARTIES = parties("SCOT");
+
+	private static final LocalDateTime FORWARD_TRANSACT_TIME = LocalDateTime.of(2021, 5, 31, 18, 27, 9, 940_000_000);
+
+	private BloombergExecutionReports() {
+	}
+
+	public static ExecutionReport spot() {
+		return executionReport()
+				.orderID("3-2-805950014T-0-0")
+				.execID("3-2-805950014T-0-0")
+				.clOrdID("3-2-805950014T-0-0")
+				.execType(ExecType.TRADE)
+				.ordStatus(OrdStatus.FILLED)
+				.side(Side.SELL)
+				.orderQty(1)
+				.leavesQty(0)
+				.cumQty(1)
+				.avgPx(755.93)
+				.transactTime(LocalDateTime.now(ZoneOffset.UTC))
+				.settlType(SettlType.REGULAR_FX_SPOT_SETTLEMENT)
+				.settlDate("20201116")
+				.settlCurrAmt(756)
+				.tradeDate("20201111")
+				.securityType(SecurityType.FX_SPOT)
+				.lastPx(757.9015)
+				.lastQty(1)
+				.bidPx(755.93)
+				.lastSpotRate(755.93)
+				.lastForwardPoints(0)
+				.calculatedCcyLastQty(756)
+				.block(USD_CLP_TRADE)
+				.block(SPOT_PARTIES)
+				.build();
+	}
+
+	public static ExecutionReport forward() {
+		return executionReport()
+				.orderID("3-2-805950014T-0-0")
+				.execID("3-2-816816706M-0-0")
+				.clOrdID("3-2-816816706M-0-0")
+				.execType(ExecType.TRADE)
+				.ordStatus(OrdStatus.FILLED)
+				.side(Side.SELL)
+				.orderQty(1000)
+				.leavesQty(0)
+				.cumQty(1000)
+				.avgPx(755.93)
+				.transactTime(FORWARD_TRANSACT_TIME)
+				.settlType("M3")
+				.settlDate("20210902")
+				.settlCurrAmt(725700)
+				.tradeDate("20210531")
+				.securityType(SecurityType.FX_FORWARD)
+				.lastPx(725.70)
+				.lastQty(1000)
+				.bidPx(725.70)
+				.lastSpotRate(725)
+				.lastForwardPoints(0.7)
+				.calculatedCcyLastQty(756)
+				.block(USD_CLP_TRADE)
+				.block(FORWARD_PARTIES)
+				.build();
+	}
+
+	private static NoCompDealerQuotes compDealerQuote(String dealer, double price) {
+		NoCompDealerQuotes group = new NoCompDealerQuotes();
+		group.setField(new StringField(10010, dealer));
+		group.setField(new DoubleField(10011, price));
+		group.setField(new DoubleField(22485, price));
+		group.setField(new IntField(22486, 0));
+		return group;
+	}
+
+	private static NoRefPrices refPrices() {
+		NoRefPrices group = new NoRefPrices();
+		group.setField(new DoubleField(22079, 755.93));
+		group.setField(new IntField(22080, 20));
+		group.setField(new IntField(22081, 12));
+		return group;
+	}
+
+	private static FieldBlock parties(String clientDesk) {
+		return FieldBlock.builder()
+				.group(party(clientDesk, PartyIDSource.PROPRIETARY_CUSTOM_CODE, PartyRole.EXECUTING_FIRM,
+						partySubID("SCOTIABANK SUD AMERICANO ( CLIENT DESK ), SANTIAGO, CHILE", PartySubIDType.FIRM),
+						partySubID("16601104", PartySubIDType.PERSON),
+						partySubID("CRISTOBAL PALACIOS", PartySubIDType.CONTACT_NAME)))
+				.group(party("REPO", PartyIDSource.PROPRIETARY_CUSTOM_CODE, PartyRole.ORDER_ORIGINATION_FIRM,
+						partySubID("SCOTIA CORREDORA DE BOLSA CHILE", PartySubIDType.FIRM),
+						partySubID("27971561", PartySubIDType.PERSON),
+						partySubID("DIEGO SUSBIELLES", PartySubIDType.CONTACT_NAME)))
+				.group(party("PRODUCT TYPE", PartyIDSource.PROPRIETARY_CUSTOM_CODE, PartyRole.EXECUTING_SYSTEM,
+						partySubID("Dealing (RFQ)", PartySubIDType.APPLICATION)))
+				.group(party("16601104", PartyIDSource.PROPRIETARY_CUSTOM_CODE, PartyRole.ORDER_ORIGINATION_TRADER))
+				.build();
+	}
+
+	private static ExecutionReport.NoPartyIDs party(String partyID, char partyIDSource, int partyRole,
+	                                                ExecutionReport.NoPartyIDs.NoPartySubIDs... partySubIDs) {
+		ExecutionReport.NoPartyIDs group = new ExecutionReport.NoPartyIDs();
+		group.set(new PartyID(partyID));
+		group.set(new PartyIDSource(partyIDSource));
+		group.set(new PartyRole(partyRole));
+		for (ExecutionReport.NoPartyIDs.NoPartySubIDs partySubID : partySubIDs) {
+			group.addGroup(partySubID);
+		}
+		return group;
+	}
+
+	private static ExecutionReport.NoPartyIDs.NoPartySubIDs partySubID(String partySubID, int partySubIDType) {
+		ExecutionReport.NoPartyIDs.NoPartySubIDs group = new ExecutionReport.NoPartyIDs.NoPartySubIDs();
+		group.set(new PartySubID(partySubID));
+		group.set(new PartySubIDType(partySubIDType));
+		return group;
+	}
+}
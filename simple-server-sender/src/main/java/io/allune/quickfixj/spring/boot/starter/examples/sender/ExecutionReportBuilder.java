@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import quickfix.field.AvgPx;
+import quickfix.field.BidPx;
+import quickfix.field.CalculatedCcyLastQty;
+import quickfix.field.ClOrdID;
+import quickfix.field.CumQty;
+import quickfix.field.ExecID;
+import quickfix.field.ExecType;
+import quickfix.field.LastForwardPoints;
+import quickfix.field.LastPx;
+import quickfix.field.LastQty;
+import quickfix.field.LastSpotRate;
+import quickfix.field.LeavesQty;
+import quickfix.field.OrdStatus;
+import quickfix.field.OrderID;
+import quickfix.field.OrderQty;
+import quickfix.field.SecurityType;
+import quickfix.field.SettlCurrAmt;
+import quickfix.field.SettlDate;
+import quickfix.field.SettlType;
+import quickfix.field.Side;
+import quickfix.field.TradeDate;
+import quickfix.field.TransactTime;
+import quickfix.fix44.ExecutionReport;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fluent builder for FIX 4.4 {@link ExecutionReport}s.
+ * <p>
+ * The typed setters cover the fields that change from one report to the next, everything that is constant across
+ * reports is expected to come from a precomputed {@link FieldBlock}.
+ */
+public final class ExecutionReportBuilder {
+
+	private final ExecutionReport executionReport = new ExecutionReport();
+
+	private ExecutionReportBuilder() {
+	}
+
+	public static ExecutionReportBuilder executionReport() {
+		return new ExecutionReportBuilder();
+	}
+
+	public ExecutionReportBuilder orderID(String orderID) {
+		executionReport.set(new OrderID(orderID));
+		return this;
+	}
+
+	public ExecutionReportBuilder execID(String execID) {
+		executionReport.set(new ExecID(execID));
+		return this;
+	}
+
+	public ExecutionReportBuilder clOrdID(String clOrdID) {
+		executionReport.set(new ClOrdID(clOrdID));
+		return this;
+	}
+
+	public ExecutionReportBuilder execType(char execType) {
+		executionReport.set(new ExecType(execType));
+		return this;
+	}
+
+	public ExecutionReportBuilder ordStatus(char ordStatus) {
+		executionReport.set(new OrdStatus(ordStatus));
+		return this;
+	}
+
+	public ExecutionReportBuilder side(char side) {
+		executionReport.set(new Side(side));
+		return this;
+	}
+
+	public ExecutionReportBuilder orderQty(double orderQty) {
+		executionReport.set(new OrderQty(orderQty));
+		return this;
+	}
+
+	public ExecutionReportBuilder leavesQty(double leavesQty) {
+		executionReport.set(new LeavesQty(leavesQty));
+		return this;
+	}
+
+	public ExecutionReportBuilder cumQty(double cumQty) {
+		executionReport.set(new CumQty(cumQty));
+		return this;
+	}
+
+	public ExecutionReportBuilder avgPx(double avgPx) {
+		executionReport.set(new AvgPx(avgPx));
+		return this;
+	}
+
+	public ExecutionReportBuilder lastPx(double lastPx) {
+		executionReport.set(new LastPx(lastPx));
+		return this;
+	}
+
+	public ExecutionReportBuilder lastQty(double lastQty) {
+		executionReport.set(new LastQty(lastQty));
+		return this;
+	}
+
+	public ExecutionReportBuilder bidPx(double bidPx) {
+		executionReport.setField(new BidPx(bidPx));
+		return this;
+	}
+
+	public ExecutionReportBuilder lastSpotRate(double lastSpotRate) {
+		executionReport.set(new LastSpotRate(lastSpotRate));
+		return this;
+	}
+
+	public ExecutionReportBuilder lastForwardPoints(double lastForwardPoints) {
+		executionReport.set(new LastForwardPoints(lastForwardPoints));
+		return this;
+	}
+
+	public ExecutionReportBuilder calculatedCcyLastQty(double calculatedCcyLastQty) {
+		executionReport.setField(new CalculatedCcyLastQty(calculatedCcyLastQty));
+		return this;
+	}
+
+	public ExecutionReportBuilder transactTime(LocalDateTime transactTime) {
+		executionReport.set(new TransactTime(transactTime));
+		return this;
+	}
+
+	public ExecutionReportBuilder tradeDate(String tradeDate) {
+		executionReport.set(new TradeDate(tradeDate));
+		return this;
+	}
+
+	public ExecutionReportBuilder settlType(String settlType) {
+		executionReport.set(new SettlType(settlType));
+		return this;
+	}
+
+	public ExecutionReportBuilder settlDate(String settlDate) {
+		executionReport.set(new SettlDate(settlDate));
+		return this;
+	}
+
+	public ExecutionReportBuilder settlCurrAmt(double settlCurrAmt) {
+		executionReport.set(new SettlCurrAmt(settlCurrAmt));
+		return this;
+	}
+
+	public ExecutionReportBuilder securityType(String securityType) {
+		executionReport.set(new SecurityType(securityType));
+		return this;
+	}
+
+	public ExecutionReportBuilder block(FieldBlock block) {
+		block.applyTo(executionReport);
+		return this;
+	}
+
+	public ExecutionReport build() {
+		return executionReport;
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import quickfix.CharField;
+import quickfix.DoubleField;
+import quickfix.Field;
+import quickfix.FieldMap;
+import quickfix.Group;
+import quickfix.IntField;
+import quickfix.Message;
+import quickfix.StringField;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Precomputed, immutable block of header fields, body fields and repeating groups.
+ * <p>
+ * The fields are converted to their wire representation once, when the block is built. Applying the block to a
+ * message sets the prebuilt values, which are immutable strings, and adds deep copies of the groups, nested groups
+ * included, so the messages the block is applied to share no field or group instance with the block or with each
+ * other.
+ */
+public final class FieldBlock {
+
+	private final int[] headerTags;
+
+	private final String[] headerValues;
+
+	private final int[] bodyTags;
+
+	private final String[] bodyValues;
+
+	private final Group[] groups;
+
+	private FieldBlock(FieldMap header, FieldMap body, Group[] groups) {
+		this.headerTags = tags(header);
+		this.headerValues = values(header);
+		this.bodyTags = tags(body);
+		this.bodyValues = values(body);
+		this.groups = groups;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public void applyTo(Message message) {
+		Message.Header header = message.getHeader();
+		for (int i = 0; i < headerTags.length; i++) {
+			header.setString(headerTags[i], headerValues[i]);
+		}
+		for (int i = 0; i < bodyTags.length; i++) {
+			message.setString(bodyTags[i], bodyValues[i]);
+		}
+		for (Group group : groups) {
+			message.addGroupRef(copy(group));
+		}
+	}
+
+	/**
+	 * Copies the group and its nested groups, unlike {@link Group#Group(Group)}, which shares the nested groups.
+	 */
+	private static Group copy(Group group) {
+		Group copy = new Group(group.getFieldTag(), group.delim(), group.getFieldOrder());
+		for (Iterator<Field<?>> fields = group.iterator(); fields.hasNext(); ) {
+			Field<?> field = fields.next();
+			copy.setString(field.getTag(), field.getObject().toString());
+		}
+		for (Iterator<Integer> groupTags = group.groupKeyIterator(); groupTags.hasNext(); ) {
+			for (Group nested : group.getGroups(groupTags.next())) {
+				copy.addGroupRef(copy(nested));
+			}
+		}
+		return copy;
+	}
+
+	private static int[] tags(FieldMap fieldMap) {
+		List<Field<?>> fields = fields(fieldMap);
+		int[] tags = new int[fields.size()];
+		for (int i = 0; i < tags.length; i++) {
+			tags[i] = fields.get(i).getTag();
+		}
+		return tags;
+	}
+
+	private static String[] values(FieldMap fieldMap) {
+		List<Field<?>> fields = fields(fieldMap);
+		String[] values = new String[fields.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = fields.get(i).getObject().toString();
+		}
+		return values;
+	}
+
+	private static List<Field<?>> fields(FieldMap fieldMap) {
+		List<Field<?>> list = new ArrayList<>();
+		for (Iterator<Field<?>> iterator = fieldMap.iterator(); iterator.hasNext(); ) {
+			list.add(iterator.next());
+		}
+		return list;
+	}
+
+	public static final class Builder {
+
+		private final Message fields = new Message();
+
+		private final List<Group> groups = new ArrayList<>();
+
+		private Builder() {
+		}
+
+		public Builder header(StringField field) {
+			fields.getHeader().setField(field);
+			return this;
+		}
+
+		public Builder field(StringField field) {
+			fields.setField(field);
+			return this;
+		}
+
+		public Builder field(CharField field) {
+			fields.setField(field);
+			return this;
+		}
+
+		public Builder field(IntField field) {
+			fields.setField(field);
+			return this;
+		}
+
+		public Builder field(DoubleField field) {
+			fields.setField(field);
+			return this;
+		}
+
+		/**
+		 * Adds a copy of the group, so the same group instance can be refilled and added again.
+		 */
+		public Builder group(Group group) {
+			groups.add(copy(group));
+			return this;
+		}
+
+		public FieldBlock build() {
+			return new FieldBlock(fields.getHeader(), fields, groups.toArray(new Group[0]));
+		}
+	}
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals;
+import io.allune.quickfixj.spring.boot.starter.model.FromApp;
+import io.allune.quickfixj.spring.boot.starter.model.Logout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import quickfix.FieldNotFound;
+import quickfix.Group;
+import quickfix.Message;
+import quickfix.MessageUtils;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.field.ApplVerID;
+import quickfix.field.MDEntryPositionNo;
+import quickfix.field.MDEntryPx;
+import quickfix.field.MDEntrySize;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDReqID;
+import quickfix.field.MDUpdateAction;
+import quickfix.field.MsgType;
+import quickfix.field.NoMDEntries;
+import quickfix.field.NoRelatedSym;
+import quickfix.field.SubscriptionRequestType;
+import quickfix.field.Symbol;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes the {@link OrderBook}s to the sessions that subscribed to them with a MarketDataRequest.
+ * <p>
+ * A new subscriber gets a MarketDataSnapshotFullRefresh of the book first, then MarketDataIncrementalRefresh deltas.
+ * Updates do not build messages: they only set the bit of the changed level in the dirty mask of every subscription
+ * to the Symbol and schedule the subscriber. The subscriber's task then sends one delta with the current value of all
+ * the dirty levels. As long as the bytes queued for writing to a subscriber's socket stay above
+ * {@code maxBacklogBytes}, its task is postponed and the updates keep conflating into the same mask, so a slow
+ * subscriber only receives the latest value of each level and never holds up the publishing thread or the others.
+ */
+public class MarketDataPublisher implements AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(MarketDataPublisher.class);
+
+	private static final long RETRY_DELAY_MICROS = 500;
+
+	private final int depth;
+
+	private final long maxBacklogBytes;
+
+	private final ScheduledExecutorService executor;
+
+	private final ConcurrentMap<String, OrderBook> books = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, List<Subscription>> subscriptionsBySymbol = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<SessionID, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+	public MarketDataPublisher(int depth, long maxBacklogBytes, int threads) {
+		if (depth < 1 || depth > OrderBook.MAX_DEPTH) {
+			throw new IllegalArgumentException("The depth must be between 1 and " + OrderBook.MAX_DEPTH);
+		}
+		this.depth = depth;
+		this.maxBacklogBytes = maxBacklogBytes;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "market-data-publisher-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Sets a level of the book of the Symbol, a size of zero clears it, and publishes it to the subscribers.
+	 */
+	public void update(String symbol, char side, int level, double price, double size) {
+		long bit = book(symbol).update(side, level, price, size);
+		List<Subscription> subscriptions = subscriptionsBySymbol.get(symbol);
+		if (subscriptions == null) {
+			return;
+		}
+		for (Subscription subscription : subscriptions) {
+			if ((subscription.dirty.getAndAccumulate(bit, (mask, update) -> mask | update) & bit) != 0) {
+				subscription.subscriber.conflated.increment();
+			}
+			subscription.subscriber.schedule();
+		}
+	}
+
+	@EventListener
+	public void onFromApp(FromApp fromApp) throws FieldNotFound {
+		Message message = fromApp.getMessage();
+		if (!MsgType.MARKET_DATA_REQUEST.equals(message.getHeader().getString(MsgType.FIELD))) {
+			return;
+		}
+		Session session = Session.lookupSession(fromApp.getSessionId());
+		if (session == null) {
+			return;
+		}
+		String mdReqID = message.getString(MDReqID.FIELD);
+		char requestType = message.getChar(SubscriptionRequestType.FIELD);
+		Subscriber subscriber = subscribers.computeIfAbsent(session.getSessionID(), id -> new Subscriber(session));
+		if (requestType == SubscriptionRequestType.DISABLE_PREVIOUS_SNAPSHOT_UPDATE_REQUEST) {
+			subscriber.unsubscribe(mdReqID);
+			return;
+		}
+		for (Group relatedSym : message.getGroups(NoRelatedSym.FIELD)) {
+			String symbol = relatedSym.getString(Symbol.FIELD);
+			Subscription subscription = new Subscription(subscriber, book(symbol), mdReqID,
+					requestType == SubscriptionRequestType.SNAPSHOT);
+			subscriber.subscriptions.add(subscription);
+			if (!subscription.snapshotOnly) {
+				subscriptionsBySymbol.computeIfAbsent(symbol, s -> new CopyOnWriteArrayList<>()).add(subscription);
+			}
+		}
+		subscriber.schedule();
+	}
+
+	@EventListener
+	public void onLogout(Logout logout) {
+		Subscriber subscriber = subscribers.remove(logout.getSessionId());
+		if (subscriber != null) {
+			for (Subscription subscription : subscriber.subscriptions) {
+				unregister(subscription);
+			}
+		}
+	}
+
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("books", books.size());
+		subscribers.forEach((sessionId, subscriber) -> {
+			Map<String, Object> subscriberMetrics = new LinkedHashMap<>();
+			subscriberMetrics.put("subscriptions", subscriber.subscriptions.size());
+			subscriberMetrics.put("snapshots", subscriber.snapshots.sum());
+			subscriberMetrics.put("incrementalRefreshes", subscriber.incrementalRefreshes.sum());
+			subscriberMetrics.put("conflatedUpdates", subscriber.conflated.sum());
+			subscriberMetrics.put("postponed", subscriber.postponed.sum());
+			subscriberMetrics.put("backlogBytes", subscriber.backlogBytes());
+			metrics.put(sessionId.toString(), subscriberMetrics);
+		});
+		return metrics;
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	private OrderBook book(String symbol) {
+		return books.computeIfAbsent(symbol, s -> new OrderBook(s, depth));
+	}
+
+	private void unregister(Subscription subscription) {
+		List<Subscription> subscriptions = subscriptionsBySymbol.get(subscription.book.getSymbol());
+		if (subscriptions != null) {
+			subscriptions.remove(subscription);
+		}
+	}
+
+	/**
+	 * A subscribing session. At most one task per subscriber is scheduled at any time, so its messages are sent in
+	 * order.
+	 */
+	private final class Subscriber implements Runnable {
+
+		private final Session session;
+
+		private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		private final double[] prices = new double[OrderBook.MAX_DEPTH * 2];
+
+		private final double[] sizes = new double[OrderBook.MAX_DEPTH * 2];
+
+		private final LongAdder snapshots = new LongAdder();
+
+		private final LongAdder incrementalRefreshes = new LongAdder();
+
+		private final LongAdder conflated = new LongAdder();
+
+		private final LongAdder postponed = new LongAdder();
+
+		private Subscriber(Session session) {
+			this.session = session;
+		}
+
+		private void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				executor.execute(this);
+			}
+		}
+
+		private void unsubscribe(String mdReqID) {
+			for (Subscription subscription : subscriptions) {
+				if (subscription.mdReqID.equals(mdReqID)) {
+					subscriptions.remove(subscription);
+					unregister(subscription);
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			if (backlogBytes() > maxBacklogBytes) {
+				postponed.increment();
+				executor.schedule(this, RETRY_DELAY_MICROS, TimeUnit.MICROSECONDS);
+				return;
+			}
+			// cleared before the masks, an update that lands after a mask is read schedules the next run
+			scheduled.set(false);
+			try {
+				for (Subscription subscription : subscriptions) {
+					if (subscription.snapshotPending) {
+						subscription.snapshotPending = false;
+						subscription.dirty.set(0);
+						send(subscription, snapshot(subscription));
+						snapshots.increment();
+						if (subscription.snapshotOnly) {
+							subscriptions.remove(subscription);
+						}
+						continue;
+					}
+					long dirty = subscription.dirty.getAndSet(0);
+					if (dirty != 0) {
+						send(subscription, incrementalRefresh(subscription, dirty));
+						incrementalRefreshes.increment();
+					}
+				}
+			} catch (RuntimeException e) {
+				log.error("Unable to publish market data to {}", session.getSessionID(), e);
+			}
+		}
+
+		/**
+		 * The bytes queued for writing to the socket of the session, or 0 when this is not known, when the session is
+		 * not connected through MINA or this QuickFIX/J version does not expose it: the subscriber is then never
+		 * postponed.
+		 */
+		private long backlogBytes() {
+			return Math.max(0, QuickFixJInternals.scheduledWriteBytes(session));
+		}
+
+		private void send(Subscription subscription, Message message) {
+			message.setString(MDReqID.FIELD, subscription.mdReqID);
+			session.send(message);
+		}
+
+		private Message snapshot(Subscription subscription) {
+			OrderBook book = subscription.book;
+			book.copyTo(prices, sizes);
+			Message snapshot = create(MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH);
+			snapshot.setString(Symbol.FIELD, book.getSymbol());
+			for (int bit = 0; bit < OrderBook.MAX_DEPTH * 2; bit++) {
+				if (sizes[bit] > 0) {
+					Group entry = group(MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH);
+					setEntry(entry, bit);
+					snapshot.addGroup(entry);
+				}
+			}
+			return snapshot;
+		}
+
+		private Message incrementalRefresh(Subscription subscription, long dirty) {
+			OrderBook book = subscription.book;
+			book.copyTo(prices, sizes);
+			Message refresh = create(MsgType.MARKET_DATA_INCREMENTAL_REFRESH);
+			for (long remaining = dirty; remaining != 0; remaining &= remaining - 1) {
+				int bit = Long.numberOfTrailingZeros(remaining);
+				Group entry = group(MsgType.MARKET_DATA_INCREMENTAL_REFRESH);
+				entry.setChar(MDUpdateAction.FIELD, sizes[bit] > 0 ? MDUpdateAction.CHANGE : MDUpdateAction.DELETE);
+				entry.setString(Symbol.FIELD, book.getSymbol());
+				setEntry(entry, bit);
+				refresh.addGroup(entry);
+			}
+			return refresh;
+		}
+
+		private void setEntry(Group entry, int bit) {
+			entry.setChar(MDEntryType.FIELD, bit < OrderBook.MAX_DEPTH ? MDEntryType.BID : MDEntryType.OFFER);
+			if (sizes[bit] > 0) {
+				entry.setDouble(MDEntryPx.FIELD, prices[bit]);
+				entry.setDouble(MDEntrySize.FIELD, sizes[bit]);
+			}
+			entry.setInt(MDEntryPositionNo.FIELD, bit % OrderBook.MAX_DEPTH + 1);
+		}
+
+		/**
+		 * FIXT sessions create their application messages for the default ApplVerID of the session.
+		 */
+		private Message create(String msgType) {
+			SessionID sessionId = session.getSessionID();
+			ApplVerID applVerID = sessionId.isFIXT() ? session.getSenderDefaultApplicationVersionID() : null;
+			return applVerID != null
+					? session.getMessageFactory().create(sessionId.getBeginString(), applVerID, msgType)
+					: session.getMessageFactory().create(sessionId.getBeginString(), msgType);
+		}
+
+		private Group group(String msgType) {
+			SessionID sessionId = session.getSessionID();
+			String beginString = sessionId.isFIXT()
+					? MessageUtils.toBeginString(session.getSenderDefaultApplicationVersionID())
+					: sessionId.getBeginString();
+			return session.getMessageFactory().create(beginString, msgType, NoMDEntries.FIELD);
+		}
+	}
+
+	/**
+	 * A subscription of a session to one Symbol. Bit {@code n} of the dirty mask is set when bid level {@code n}
+	 * changed since the last message, bit {@code 32 + n} for offer level {@code n}.
+	 */
+	private static final class Subscription {
+
+		private final Subscriber subscriber;
+
+		private final OrderBook book;
+
+		private final String mdReqID;
+
+		private final boolean snapshotOnly;
+
+		private final AtomicLong dirty = new AtomicLong();
+
+		private volatile boolean snapshotPending = true;
+
+		private Subscription(Subscriber subscriber, OrderBook book, String mdReqID, boolean snapshotOnly) {
+			this.subscriber = subscriber;
+			this.book = book;
+			this.mdReqID = mdReqID;
+			this.snapshotOnly = snapshotOnly;
+		}
+	}
+}
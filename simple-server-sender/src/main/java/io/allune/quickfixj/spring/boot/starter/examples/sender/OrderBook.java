@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import quickfix.field.MDEntryType;
+
+/**
+ * Price levels of one Symbol, kept by position in primitive arrays; a level with a size of zero is empty.
+ * <p>
+ * Updates and copies are guarded by the book's monitor, the arrays are small enough to be copied whole by the
+ * {@link MarketDataPublisher} every time it builds a message.
+ */
+public class OrderBook {
+
+	/**
+	 * Both sides of the book fit in the 64 bits of a subscription's dirty mask
+	 */
+	public static final int MAX_DEPTH = 32;
+
+	private final String symbol;
+
+	private final int depth;
+
+	private final double[] bidPrices;
+
+	private final double[] bidSizes;
+
+	private final double[] offerPrices;
+
+	private final double[] offerSizes;
+
+	public OrderBook(String symbol, int depth) {
+		if (depth < 1 || depth > MAX_DEPTH) {
+			throw new IllegalArgumentException("The depth must be between 1 and " + MAX_DEPTH);
+		}
+		this.symbol = symbol;
+		this.depth = depth;
+		this.bidPrices = new double[depth];
+		this.bidSizes = new double[depth];
+		this.offerPrices = new double[depth];
+		this.offerSizes = new double[depth];
+	}
+
+	public String getSymbol() {
+		return symbol;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Sets a level of a side, {@link MDEntryType#BID} or {@link MDEntryType#OFFER}; a size of zero clears it.
+	 *
+	 * @return the bit of the level in a dirty mask, bids in the low and offers in the high 32 bits
+	 */
+	public synchronized long update(char side, int level, double price, double size) {
+		if (level < 0 || level >= depth) {
+			throw new IllegalArgumentException("Level " + level + " is outside the depth " + depth + " of " + symbol);
+		}
+		if (side == MDEntryType.BID) {
+			bidPrices[level] = size > 0 ? price : 0;
+			bidSizes[level] = Math.max(size, 0);
+			return 1L << level;
+		}
+		if (side == MDEntryType.OFFER) {
+			offerPrices[level] = size > 0 ? price : 0;
+			offerSizes[level] = Math.max(size, 0);
+			return 1L << (MAX_DEPTH + level);
+		}
+		throw new IllegalArgumentException("Unsupported MDEntryType " + side);
+	}
+
+	/**
+	 * Copies the levels into arrays of {@link #MAX_DEPTH} * 2 entries, indexed like the bits of a dirty mask.
+	 */
+	public synchronized void copyTo(double[] prices, double[] sizes) {
+		System.arraycopy(bidPrices, 0, prices, 0, depth);
+		System.arraycopy(bidSizes, 0, sizes, 0, depth);
+		System.arraycopy(offerPrices, 0, prices, MAX_DEPTH, depth);
+		System.arraycopy(offerSizes, 0, sizes, MAX_DEPTH, depth);
+	}
+}
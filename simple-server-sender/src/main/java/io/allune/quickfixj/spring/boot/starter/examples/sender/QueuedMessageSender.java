@@ -0,0 +1,270 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals;
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals.InternalField;
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals.InternalMethod;
+import io.allune.quickfixj.spring.boot.starter.examples.support.sender.AsyncMessageSender;
+import io.allune.quickfixj.spring.boot.starter.examples.support.sender.SessionBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.Application;
+import quickfix.DoNotSend;
+import quickfix.Message;
+import quickfix.Responder;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionState;
+import quickfix.field.MsgSeqNum;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the application messages of each session from a dedicated writer thread.
+ * <p>
+ * Callers only enqueue the message on the session's lock-free queue and get a {@link CompletableFuture}; they never
+ * contend on the session lock. The writer drains up to {@code maxBatchSize} messages at a time and, holding the sender
+ * sequence lock once for the whole batch, gives each one its header and sequence number, calls
+ * {@code Application.toApp}, logs and persists it as {@code Session.send} does, then writes the whole batch to the
+ * socket in a single write. The futures complete once the batch is written. The session's own messages, such as
+ * heartbeats, wait for the lock and go out after the batch, in sequence.
+ * <p>
+ * A message which cannot be prepared, when its store fails for instance, fails its own future only: the messages
+ * prepared before it are written, and those after it go into the next batch. Without the internals of
+ * {@code Session} this relies on, the writer falls back to {@code Session.send} for each message.
+ * <p>
+ * The in-flight limit per session is the same as for the {@link AsyncMessageSender}, beyond it a send fails with a
+ * {@link SessionBusyException}.
+ */
+public class QueuedMessageSender implements AutoCloseable {
+
+	private static final Logger log = LoggerFactory.getLogger(QueuedMessageSender.class);
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static final InternalField SESSION_STATE = QuickFixJInternals.field(Session.class, "state");
+
+	private static final InternalField APPLICATION = QuickFixJInternals.field(Session.class, "application");
+
+	private static final InternalField PERSIST_MESSAGES = QuickFixJInternals.field(Session.class, "persistMessages");
+
+	/**
+	 * {@code Session.initializeHeader} also records the last sent time the heartbeats are scheduled from, so it is
+	 * called rather than reimplemented.
+	 */
+	private static final InternalMethod INITIALIZE_HEADER = QuickFixJInternals.method(Session.class, "initializeHeader",
+			Message.Header.class);
+
+	private final int maxInFlightPerSession;
+
+	private final int maxBatchSize;
+
+	private final ConcurrentMap<SessionID, Writer> writers = new ConcurrentHashMap<>();
+
+	private volatile boolean running = true;
+
+	public QueuedMessageSender(int maxInFlightPerSession, int maxBatchSize) {
+		this.maxInFlightPerSession = maxInFlightPerSession;
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * @return a future completed with {@code true} once the message is written, or {@code false} if it was only stored
+	 * because the session is not logged on or {@code toApp} threw {@link DoNotSend}
+	 * @throws SessionBusyException if the session already has {@code maxInFlightPerSession} messages queued
+	 */
+	public CompletableFuture<Boolean> send(Message message, SessionID sessionID) {
+		if (!running) {
+			throw new IllegalStateException("The queued message sender is closed");
+		}
+		Writer writer = writers.computeIfAbsent(sessionID, Writer::new);
+		if (!writer.permits.tryAcquire()) {
+			throw new SessionBusyException(sessionID, maxInFlightPerSession);
+		}
+		Pending pending = new Pending(message);
+		writer.queue.offer(pending);
+		if (writer.idle) {
+			LockSupport.unpark(writer.thread);
+		}
+		return pending.future;
+	}
+
+	@Override
+	public void close() throws InterruptedException {
+		running = false;
+		for (Writer writer : writers.values()) {
+			LockSupport.unpark(writer.thread);
+		}
+		for (Writer writer : writers.values()) {
+			writer.thread.join(TimeUnit.SECONDS.toMillis(5));
+		}
+	}
+
+	private static boolean isBatchingAvailable() {
+		return SESSION_STATE.isAvailable() && APPLICATION.isAvailable() && PERSIST_MESSAGES.isAvailable()
+				&& INITIALIZE_HEADER.isAvailable();
+	}
+
+	private static final class Pending {
+
+		private final Message message;
+
+		private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+		private Pending(Message message) {
+			this.message = message;
+		}
+	}
+
+	private final class Writer implements Runnable {
+
+		private final SessionID sessionID;
+
+		private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+		private final Semaphore permits = new Semaphore(maxInFlightPerSession);
+
+		private final Thread thread;
+
+		private volatile boolean idle;
+
+		private Writer(SessionID sessionID) {
+			this.sessionID = sessionID;
+			this.thread = new Thread(this, "session-writer-" + sessionID);
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+
+		@Override
+		public void run() {
+			List<Pending> batch = new ArrayList<>(maxBatchSize);
+			while (running || !queue.isEmpty()) {
+				Pending pending;
+				while (batch.size() < maxBatchSize && (pending = queue.poll()) != null) {
+					batch.add(pending);
+				}
+				if (batch.isEmpty()) {
+					idle = true;
+					if (queue.isEmpty() && running) {
+						LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+					}
+					idle = false;
+					continue;
+				}
+				int done = batch.size();
+				try {
+					Session session = Session.lookupSession(sessionID);
+					if (session == null) {
+						throw new IllegalStateException("Unknown session " + sessionID);
+					}
+					done = isBatchingAvailable() ? write(session, batch) : sendEach(session, batch);
+				} catch (Exception e) {
+					log.error("Unable to send a batch of {} messages to {}", batch.size(), sessionID, e);
+					for (Pending failed : batch) {
+						failed.future.completeExceptionally(e);
+					}
+				} finally {
+					permits.release(done);
+					batch.subList(0, done).clear();
+				}
+			}
+		}
+
+		/**
+		 * Writes the messages of the batch up to the first one which cannot be prepared, which is failed.
+		 *
+		 * @return the number of messages done with, written or failed
+		 */
+		private int write(Session session, List<Pending> batch) throws Exception {
+			SessionState state = (SessionState) SESSION_STATE.get(session);
+			Application application = (Application) APPLICATION.get(session);
+			boolean persistMessages = (Boolean) PERSIST_MESSAGES.get(session);
+			boolean[] toSend = new boolean[batch.size()];
+			StringBuilder data = new StringBuilder(batch.size() * 256);
+			int prepared = 0;
+			Exception failure = null;
+			boolean written = false;
+
+			state.lockSenderMsgSeqNum();
+			try {
+				boolean loggedOn = session.isLoggedOn();
+				for (; prepared < batch.size(); prepared++) {
+					Message message = batch.get(prepared).message;
+					try {
+						INITIALIZE_HEADER.invoke(session, message.getHeader());
+						try {
+							application.toApp(message, sessionID);
+						} catch (DoNotSend e) {
+							continue;
+						} catch (Throwable t) {
+							session.getLog().onErrorEvent("Application exception in toApp(): " + t);
+						}
+						String messageString = message.toString();
+						if (persistMessages) {
+							state.set(message.getHeader().getInt(MsgSeqNum.FIELD), messageString);
+						}
+						state.incrNextSenderMsgSeqNum();
+						if (loggedOn) {
+							session.getLog().onOutgoing(messageString);
+							data.append(messageString);
+							toSend[prepared] = true;
+						}
+					} catch (Exception e) {
+						failure = e;
+						break;
+					}
+				}
+				Responder responder = session.getResponder();
+				if (data.length() > 0 && responder != null) {
+					written = responder.send(data.toString());
+				}
+			} finally {
+				state.unlockSenderMsgSeqNum();
+			}
+			for (int i = 0; i < prepared; i++) {
+				batch.get(i).future.complete(written && toSend[i]);
+			}
+			if (failure == null) {
+				return prepared;
+			}
+			log.error("Unable to send a message to {}, the {} messages before it were sent", sessionID, prepared,
+					failure);
+			batch.get(prepared).future.completeExceptionally(failure);
+			return prepared + 1;
+		}
+
+		private int sendEach(Session session, List<Pending> batch) {
+			for (Pending pending : batch) {
+				try {
+					pending.future.complete(session.send(pending.message));
+				} catch (RuntimeException e) {
+					pending.future.completeExceptionally(e);
+				}
+			}
+			return batch.size();
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import io.allune.quickfixj.spring.boot.starter.examples.sender.BatchMessageSender.MessageStatus;
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals;
+import io.allune.quickfixj.spring.boot.starter.examples.support.internal.QuickFixJInternals.InternalField;
+import org.quickfixj.CharsetSupport;
+import quickfix.MessageUtils;
+import quickfix.Responder;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionState;
+import quickfix.SystemTime;
+import quickfix.UtcTimestampPrecision;
+import quickfix.field.BeginString;
+import quickfix.field.BodyLength;
+import quickfix.field.CheckSum;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.MsgType;
+import quickfix.field.PossDupFlag;
+import quickfix.field.SenderCompID;
+import quickfix.field.SenderLocationID;
+import quickfix.field.SenderSubID;
+import quickfix.field.SendingTime;
+import quickfix.field.TargetCompID;
+import quickfix.field.TargetLocationID;
+import quickfix.field.TargetSubID;
+import quickfix.field.converter.UtcTimestampConverter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sends already encoded FIX messages without parsing them into a {@link quickfix.Message}.
+ * <p>
+ * The buffer holds the MsgType field followed by the body fields, SOH delimited, as an upstream gateway produces
+ * them. The session only stamps the header: BeginString, BodyLength, SenderCompID, TargetCompID (and their sub and
+ * location IDs), MsgSeqNum and SendingTime, then the CheckSum, all computed in the single pass that validates the
+ * tags of the buffer. Under the session's sender lock, as {@code Session.send} does for a parsed message, the message
+ * is assigned its sequence number, persisted, the sequence number incremented and only then written, and the last
+ * sent time of the session updated. Application messages sent this way do not go through
+ * {@code Application.toApp}, there is no message to hand to it.
+ * <p>
+ * Only application messages are accepted: the admin messages, Logon or Logout among them, change the state of the
+ * session and are sent by the session itself. The fields of the standard header and trailer are rejected too, the
+ * PossDupFlag of a resend or the routing fields included, since the session owns the header it stamps. Sending fails
+ * with an {@link UnsupportedOperationException} if the internals of {@code Session} this relies on are not available
+ * in the QuickFIX/J version in use.
+ */
+public class RawMessageSender {
+
+	private static final byte SOH = '\u0001';
+
+	private static final InternalField SESSION_STATE = QuickFixJInternals.field(Session.class, "state");
+
+	private static final InternalField PERSIST_MESSAGES = QuickFixJInternals.field(Session.class, "persistMessages");
+
+	private static final InternalField TIMESTAMP_PRECISION = QuickFixJInternals.field(Session.class,
+			"timestampPrecision");
+
+	public MessageStatus send(ByteBuffer body, SessionID sessionID) {
+		try {
+			return sendRaw(body, sessionID) ? MessageStatus.sent(0) : MessageStatus.notSent(0);
+		} catch (Exception e) {
+			return MessageStatus.rejected(0, e);
+		}
+	}
+
+	/**
+	 * @return whether the message was written, it is stored for a resend either way, as with {@code Session.send}
+	 * @throws IllegalArgumentException if the body is not the MsgType of an application message followed by body fields
+	 * @throws UnsupportedOperationException if the internals of {@code Session} are not available
+	 */
+	public boolean sendRaw(ByteBuffer body, SessionID sessionID) throws Exception {
+		Session session = Session.lookupSession(sessionID);
+		if (session == null) {
+			throw new IllegalStateException("Unknown session " + sessionID);
+		}
+
+		int start = body.position();
+		int end = body.limit();
+		int msgTypeEnd = -1;
+		int sum = 0;
+		int tag = 0;
+		boolean inTag = true;
+		for (int i = start; i < end; i++) {
+			byte b = body.get(i);
+			sum += b & 0xff;
+			if (inTag) {
+				if (b == '=') {
+					validateTag(tag, msgTypeEnd < 0, i);
+					inTag = false;
+				} else if (b >= '0' && b <= '9' && tag < 100_000_000) {
+					tag = tag * 10 + (b - '0');
+				} else {
+					throw new IllegalArgumentException("Invalid tag at offset " + (i - start));
+				}
+			} else if (b == SOH) {
+				if (msgTypeEnd < 0) {
+					msgTypeEnd = i + 1;
+				}
+				inTag = true;
+				tag = 0;
+			}
+		}
+		if (msgTypeEnd < 0 || !inTag || tag != 0) {
+			throw new IllegalArgumentException("The body must start with MsgType(35) and end with SOH");
+		}
+		ByteBuffer msgTypeSource = body.duplicate();
+		msgTypeSource.position(start + 3);
+		byte[] msgTypeValue = new byte[msgTypeEnd - start - 4];
+		msgTypeSource.get(msgTypeValue);
+		String msgType = new String(msgTypeValue, StandardCharsets.US_ASCII);
+		if (msgType.isEmpty()) {
+			throw new IllegalArgumentException("Empty MsgType(35)");
+		}
+		if (MessageUtils.isAdminMessage(msgType)) {
+			throw new IllegalArgumentException("Admin message " + msgType + " is sent by the session");
+		}
+
+		SessionState state = (SessionState) SESSION_STATE.get(session);
+		state.lockSenderMsgSeqNum();
+		try {
+			int msgSeqNum = state.getNextSenderMsgSeqNum();
+			byte[] stamped = stampedFields(session, msgSeqNum);
+			// as Session.initializeHeader does, so the session does not heartbeat while it sends
+			state.setLastSentTime(SystemTime.currentTimeMillis());
+			int bodyLength = (end - start) + stamped.length;
+			byte[] prefix = encode(BeginString.FIELD + "=" + sessionID.getBeginString() + (char) SOH
+					+ BodyLength.FIELD + "=" + bodyLength + (char) SOH);
+			int checkSum = (sum + sum(prefix) + sum(stamped)) & 0xff;
+
+			byte[] message = new byte[prefix.length + bodyLength + 7];
+			int offset = 0;
+			System.arraycopy(prefix, 0, message, offset, prefix.length);
+			offset += prefix.length;
+			ByteBuffer source = body.duplicate();
+			source.limit(msgTypeEnd);
+			source.get(message, offset, msgTypeEnd - start);
+			offset += msgTypeEnd - start;
+			System.arraycopy(stamped, 0, message, offset, stamped.length);
+			offset += stamped.length;
+			source.limit(end);
+			source.get(message, offset, end - msgTypeEnd);
+			offset += end - msgTypeEnd;
+			message[offset++] = '1';
+			message[offset++] = '0';
+			message[offset++] = '=';
+			message[offset++] = (byte) ('0' + checkSum / 100);
+			message[offset++] = (byte) ('0' + checkSum / 10 % 10);
+			message[offset++] = (byte) ('0' + checkSum % 10);
+			message[offset] = SOH;
+
+			String messageString = new String(message, charset());
+			// stored and counted before it is written, a message the store rejects never reaches the counterparty
+			if ((Boolean) PERSIST_MESSAGES.get(session)) {
+				state.set(msgSeqNum, messageString);
+			}
+			state.incrNextSenderMsgSeqNum();
+			if (session.isLoggedOn()) {
+				Responder responder = session.getResponder();
+				if (responder != null) {
+					session.getLog().onOutgoing(messageString);
+					return responder.send(messageString);
+				}
+			}
+			return false;
+		} finally {
+			state.unlockSenderMsgSeqNum();
+		}
+	}
+
+	private static void validateTag(int tag, boolean first, int offset) {
+		if (first) {
+			if (tag != MsgType.FIELD) {
+				throw new IllegalArgumentException("The body must start with MsgType(35)");
+			}
+			return;
+		}
+		if (tag == 0) {
+			throw new IllegalArgumentException("Empty tag at offset " + offset);
+		}
+		if (StandardFields.isHeaderField(tag) || StandardFields.isTrailerField(tag)) {
+			throw new IllegalArgumentException("Tag " + tag + " is a header or trailer field, set by the session");
+		}
+	}
+
+	private static byte[] stampedFields(Session session, int msgSeqNum) {
+		SessionID sessionID = session.getSessionID();
+		StringBuilder fields = new StringBuilder(96);
+		append(fields, SenderCompID.FIELD, sessionID.getSenderCompID());
+		append(fields, SenderSubID.FIELD, sessionID.getSenderSubID());
+		append(fields, SenderLocationID.FIELD, sessionID.getSenderLocationID());
+		append(fields, TargetCompID.FIELD, sessionID.getTargetCompID());
+		append(fields, TargetSubID.FIELD, sessionID.getTargetSubID());
+		append(fields, TargetLocationID.FIELD, sessionID.getTargetLocationID());
+		append(fields, MsgSeqNum.FIELD, Integer.toString(msgSeqNum));
+		append(fields, SendingTime.FIELD, UtcTimestampConverter.convert(SystemTime.getLocalDateTime(),
+				(UtcTimestampPrecision) TIMESTAMP_PRECISION.get(session)));
+		return encode(fields.toString());
+	}
+
+	private static void append(StringBuilder fields, int tag, String value) {
+		if (value != null && !SessionID.NOT_SET.equals(value)) {
+			fields.append(tag).append('=').append(value).append((char) SOH);
+		}
+	}
+
+	private static int sum(byte[] bytes) {
+		int sum = 0;
+		for (byte b : bytes) {
+			sum += b & 0xff;
+		}
+		return sum;
+	}
+
+	private static byte[] encode(String value) {
+		return value.getBytes(charset());
+	}
+
+	private static Charset charset() {
+		return CharsetSupport.getCharsetInstance();
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import org.quickfixj.CharsetSupport;
+import quickfix.MessageStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link MessageStore} that keeps the last sent messages of a session encoded in an off-heap ring, in front of the
+ * store that persists them.
+ * <p>
+ * Every message stored is also encoded straight into a direct buffer of {@code maxBytes}, the oldest messages being
+ * overwritten as the ring wraps around. The ring position of each message is kept in primitive arrays of
+ * {@code maxMessages} slots indexed by {@code MsgSeqNum}, so the consecutive sequence numbers of a session never
+ * collide while they are in the window. A resend range is served from the ring and only the sequence numbers it no
+ * longer holds are read from the underlying store, in runs. The messages are only turned into Strings at the resend,
+ * as {@link MessageStore#get(int, int, Collection)} requires, and the cache itself holds no heap object per message.
+ */
+public class ResendCachingStore implements MessageStore, Closeable {
+
+	private final MessageStore store;
+
+	private final ByteBuffer ring;
+
+	private final int capacity;
+
+	private final int mask;
+
+	private final int[] sequences;
+
+	private final long[] positions;
+
+	private final int[] lengths;
+
+	private final Charset charset = CharsetSupport.getCharsetInstance();
+
+	private final CharsetEncoder encoder = charset.newEncoder();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Ring position of the next message, ever increasing: the ring offset is the position modulo the capacity.
+	 */
+	private long writePosition;
+
+	private byte[] decodeBuffer = new byte[1024];
+
+	public ResendCachingStore(MessageStore store, int maxMessages, int maxBytes) {
+		this.store = store;
+		this.ring = ByteBuffer.allocateDirect(maxBytes);
+		this.capacity = maxBytes;
+		int slots = Integer.highestOneBit(Math.max(2, maxMessages - 1)) << 1;
+		this.mask = slots - 1;
+		this.sequences = new int[slots];
+		this.positions = new long[slots];
+		this.lengths = new int[slots];
+	}
+
+	@Override
+	public synchronized boolean set(int sequence, String message) throws IOException {
+		boolean stored = store.set(sequence, message);
+		if (stored) {
+			cache(sequence, message);
+		}
+		return stored;
+	}
+
+	@Override
+	public synchronized void get(int startSequence, int endSequence, Collection<String> messages) throws IOException {
+		int missStart = -1;
+		for (int sequence = Math.max(startSequence, 1); sequence <= endSequence; sequence++) {
+			int slot = sequence & mask;
+			if (isCached(slot, sequence)) {
+				if (missStart > 0) {
+					store.get(missStart, sequence - 1, messages);
+					missStart = -1;
+				}
+				messages.add(decode(slot));
+				hits.increment();
+			} else {
+				if (missStart < 0) {
+					missStart = sequence;
+				}
+				misses.increment();
+			}
+		}
+		if (missStart > 0) {
+			store.get(missStart, endSequence, messages);
+		}
+	}
+
+	@Override
+	public int getNextSenderMsgSeqNum() throws IOException {
+		return store.getNextSenderMsgSeqNum();
+	}
+
+	@Override
+	public int getNextTargetMsgSeqNum() throws IOException {
+		return store.getNextTargetMsgSeqNum();
+	}
+
+	@Override
+	public void setNextSenderMsgSeqNum(int next) throws IOException {
+		store.setNextSenderMsgSeqNum(next);
+	}
+
+	@Override
+	public void setNextTargetMsgSeqNum(int next) throws IOException {
+		store.setNextTargetMsgSeqNum(next);
+	}
+
+	@Override
+	public void incrNextSenderMsgSeqNum() throws IOException {
+		store.incrNextSenderMsgSeqNum();
+	}
+
+	@Override
+	public void incrNextTargetMsgSeqNum() throws IOException {
+		store.incrNextTargetMsgSeqNum();
+	}
+
+	@Override
+	public Date getCreationTime() throws IOException {
+		return store.getCreationTime();
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		store.reset();
+		clear();
+	}
+
+	/**
+	 * The underlying store is reloaded from its persistence, which may not hold what the ring does.
+	 */
+	@Override
+	public synchronized void refresh() throws IOException {
+		store.refresh();
+		clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (store instanceof Closeable) {
+			((Closeable) store).close();
+		}
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public synchronized long getCachedBytes() {
+		return Math.min(writePosition, capacity);
+	}
+
+	private void cache(int sequence, String message) {
+		int slot = sequence & mask;
+		sequences[slot] = 0;
+		int maxLength = (int) Math.ceil(encoder.maxBytesPerChar() * message.length());
+		if (maxLength > capacity) {
+			return;
+		}
+		int offset = (int) (writePosition % capacity);
+		if (offset + maxLength > capacity) {
+			// a message is never split, the end of the ring is skipped
+			writePosition += capacity - offset;
+			offset = 0;
+		}
+		ByteBuffer target = ring.duplicate();
+		target.limit(offset + maxLength).position(offset);
+		encoder.reset();
+		CoderResult result = encoder.encode(CharBuffer.wrap(message), target, true);
+		if (!result.isUnderflow() || !encoder.flush(target).isUnderflow()) {
+			return;
+		}
+		int length = target.position() - offset;
+		sequences[slot] = sequence;
+		positions[slot] = writePosition;
+		lengths[slot] = length;
+		writePosition += length;
+	}
+
+	/**
+	 * A message is intact as long as the ring has not wrapped around past its position.
+	 */
+	private boolean isCached(int slot, int sequence) {
+		return sequences[slot] == sequence && positions[slot] >= writePosition - capacity;
+	}
+
+	private String decode(int slot) {
+		int length = lengths[slot];
+		if (decodeBuffer.length < length) {
+			decodeBuffer = new byte[Math.max(length, decodeBuffer.length * 2)];
+		}
+		ByteBuffer source = ring.duplicate();
+		source.position((int) (positions[slot] % capacity));
+		source.get(decodeBuffer, 0, length);
+		return new String(decodeBuffer, 0, length, charset);
+	}
+
+	private void clear() {
+		Arrays.fill(sequences, 0);
+		writePosition = 0;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.SessionID;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Puts a {@link ResendCachingStore} in front of every store of the given factory, so the resend requests of a session
+ * that keeps its sequence numbers across logons ({@code ResetOnLogon=N}) are mostly served from memory.
+ * <p>
+ * {@code maxMessages} and {@code maxBytes} bound the cache of each session, the bytes being allocated off-heap when
+ * the session is created.
+ */
+public class ResendCachingStoreFactory implements MessageStoreFactory {
+
+	private final MessageStoreFactory storeFactory;
+
+	private final int maxMessages;
+
+	private final int maxBytes;
+
+	private final ConcurrentMap<SessionID, ResendCachingStore> stores = new ConcurrentHashMap<>();
+
+	public ResendCachingStoreFactory(MessageStoreFactory storeFactory, int maxMessages, int maxBytes) {
+		this.storeFactory = storeFactory;
+		this.maxMessages = maxMessages;
+		this.maxBytes = maxBytes;
+	}
+
+	@Override
+	public MessageStore create(SessionID sessionID) {
+		ResendCachingStore store = new ResendCachingStore(storeFactory.create(sessionID), maxMessages, maxBytes);
+		stores.put(sessionID, store);
+		return store;
+	}
+
+	public Map<String, Object> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		stores.forEach((sessionID, store) -> {
+			long hits = store.getHits();
+			long misses = store.getMisses();
+			Map<String, Object> storeMetrics = new LinkedHashMap<>();
+			storeMetrics.put("hits", hits);
+			storeMetrics.put("misses", misses);
+			storeMetrics.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0d);
+			storeMetrics.put("cachedBytes", store.getCachedBytes());
+			metrics.put(sessionID.toString(), storeMetrics);
+		});
+		return metrics;
+	}
+}
@@ -15,18 +15,24 @@
  */
 package io.allune.quickfixj.spring.boot.starter.examples.sender;
 
-import io.allune.quickfixj.spring.boot.starter.examples.sender.customfields.NoCompDealerQuotes;
-import io.allune.quickfixj.spring.boot.starter.examples.sender.customfields.NoRefPrices;
+import io.allune.quickfixj.spring.boot.starter.examples.sender.BatchMessageSender.MessageStatus;
+import io.allune.quickfixj.spring.boot.starter.examples.sender.flyweight.FlyweightLayout;
+import io.allune.quickfixj.spring.boot.starter.examples.sender.flyweight.FlyweightMessage;
+import io.allune.quickfixj.spring.boot.starter.examples.support.routing.SessionRouter;
+import io.allune.quickfixj.spring.boot.starter.examples.support.sender.AsyncMessageSender;
+import io.allune.quickfixj.spring.boot.starter.examples.support.template.MessageTemplateRegistry;
 import io.allune.quickfixj.spring.boot.starter.template.QuickFixJTemplate;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
-import quickfix.Acceptor;
-import quickfix.DoubleField;
-import quickfix.IntField;
+import quickfix.ConfigError;
+import quickfix.DataDictionary;
 import quickfix.Message;
 import quickfix.Message.Header;
 import quickfix.Session;
@@ -34,15 +40,13 @@ import quickfix.SessionID;
 import quickfix.SessionNotFound;
 import quickfix.StringField;
 import quickfix.field.AvgPx;
-import quickfix.field.BidPx;
-import quickfix.field.CalculatedCcyLastQty;
+import quickfix.field.CFICode;
 import quickfix.field.ClOrdID;
 import quickfix.field.CumQty;
 import quickfix.field.Currency;
 import quickfix.field.ExecID;
 import quickfix.field.ExecType;
 import quickfix.field.LastForwardPoints;
-import quickfix.field.LastMkt;
 import quickfix.field.LastPx;
 import quickfix.field.LastQty;
 import quickfix.field.LastSpotRate;
@@ -51,45 +55,38 @@ import quickfix.field.MDEntryDate;
 import quickfix.field.MDEntryPx;
 import quickfix.field.MDEntrySize;
 import quickfix.field.MDEntryType;
-import quickfix.field.MarketSegmentID;
-import quickfix.field.OnBehalfOfCompID;
+import quickfix.field.MDReqID;
+import quickfix.field.MsgType;
+import quickfix.field.NoMDEntries;
 import quickfix.field.OrdStatus;
 import quickfix.field.OrdType;
 import quickfix.field.OrderID;
 import quickfix.field.OrderQty;
 import quickfix.field.OrigClOrdID;
-import quickfix.field.PartyID;
-import quickfix.field.PartyIDSource;
-import quickfix.field.PartyRole;
-import quickfix.field.PartySubID;
-import quickfix.field.PartySubIDType;
 import quickfix.field.Price;
-import quickfix.field.Product;
-import quickfix.field.QtyType;
 import quickfix.field.QuoteEntryID;
 import quickfix.field.QuoteID;
 import quickfix.field.QuoteReqID;
-import quickfix.field.SecurityType;
 import quickfix.field.SendingTime;
-import quickfix.field.SettlCurrAmt;
-import quickfix.field.SettlCurrency;
 import quickfix.field.SettlDate;
 import quickfix.field.SettlType;
 import quickfix.field.Side;
-import quickfix.field.Spread;
 import quickfix.field.Symbol;
-import quickfix.field.Text;
 import quickfix.field.TimeInForce;
-import quickfix.field.TradeDate;
-import quickfix.field.TradePublishIndicator;
 import quickfix.field.TransactTime;
 import quickfix.fix42.QuoteRequest;
 import quickfix.fix44.ExecutionReport;
 import quickfix.fix44.MarketDataSnapshotFullRefresh;
 
-import java.util.HashMap;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.UUID.randomUUID;
 import static org.springframework.http.HttpStatus.OK;
@@ -99,51 +96,117 @@ import static quickfix.FixVersions.BEGINSTRING_FIXT11;
 @RestController
 public class SenderController {
 
-	private static final Map<String, Map<String, Message>> messageMap = createMessageMap();
+	private static final MessageTemplateRegistry messageTemplates = createMessageTemplates();
+	private static final DataDictionary fix44Dictionary = loadDataDictionary("FIX44.xml");
+	private static final FlyweightLayout executionReportLayout =
+			FlyweightLayout.of(fix44Dictionary, MsgType.EXECUTION_REPORT);
+	private static final FlyweightLayout marketDataFullRefreshLayout =
+			FlyweightLayout.of(fix44Dictionary, MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH);
 	private final QuickFixJTemplate quickFixJTemplate;
-	private final Acceptor serverAcceptor;
+	private final SessionRouter serverSessionRouter;
+	private final BatchMessageSender batchMessageSender;
+	private final RawMessageSender rawMessageSender;
+	private final AsyncMessageSender asyncMessageSender;
+	private final QueuedMessageSender queuedMessageSender;
+	private final MarketDataPublisher marketDataPublisher;
+	private final ResendCachingStoreFactory resendCachingStoreFactory;
 
-	public SenderController(QuickFixJTemplate serverQuickFixJTemplate, Acceptor serverAcceptor) {
+	public SenderController(QuickFixJTemplate serverQuickFixJTemplate,
+	                        SessionRouter serverSessionRouter,
+	                        BatchMessageSender batchMessageSender,
+	                        RawMessageSender rawMessageSender,
+	                        AsyncMessageSender asyncMessageSender,
+	                        ObjectProvider<QueuedMessageSender> queuedMessageSender,
+	                        MarketDataPublisher marketDataPublisher,
+	                        ObjectProvider<ResendCachingStoreFactory> resendCachingStoreFactory) {
 		this.quickFixJTemplate = serverQuickFixJTemplate;
-		this.serverAcceptor = serverAcceptor;
+		this.serverSessionRouter = serverSessionRouter;
+		this.batchMessageSender = batchMessageSender;
+		this.rawMessageSender = rawMessageSender;
+		this.asyncMessageSender = asyncMessageSender;
+		this.queuedMessageSender = queuedMessageSender.getIfAvailable();
+		this.marketDataPublisher = marketDataPublisher;
+		this.resendCachingStoreFactory = resendCachingStoreFactory.getIfAvailable();
 	}
 
-	private static HashMap<String, Map<String, Message>> createMessageMap() {
-		HashMap<String, Map<String, Message>> stringMapHashMap = new HashMap<>();
-		stringMapHashMap.put(BEGINSTRING_FIX41, initialiseFix41MessageMap());
-		stringMapHashMap.put(BEGINSTRING_FIXT11, initialiseFix50MessageMap());
-		return stringMapHashMap;
+	private static MessageTemplateRegistry createMessageTemplates() {
+		return new MessageTemplateRegistry()
+				.register(BEGINSTRING_FIX41, "OrderCancelRequest", new quickfix.fix41.OrderCancelRequest(
+						new OrigClOrdID("123"),
+						new ClOrdID("321"),
+						new Symbol("LNUX"),
+						new Side(Side.BUY)))
+				.register(BEGINSTRING_FIXT11, "Quote", new quickfix.fix50.Quote(new QuoteID("123")));
 	}
 
-	private static Map<String, Message> initialiseFix41MessageMap() {
-		Map<String, Message> messageMap = new HashMap<>();
-		messageMap.put("OrderCancelRequest", new quickfix.fix41.OrderCancelRequest(
-				new OrigClOrdID("123"),
-				new ClOrdID("321"),
-				new Symbol("LNUX"),
-				new Side(Side.BUY)));
-		return messageMap;
-	}
-
-	private static Map<String, Message> initialiseFix50MessageMap() {
-		Map<String, Message> messageMap = new HashMap<>();
-		messageMap.put("Quote", new quickfix.fix50.Quote(new QuoteID("123")));
-		return messageMap;
+	private static DataDictionary loadDataDictionary(String location) {
+		try {
+			return new DataDictionary(location);
+		} catch (ConfigError e) {
+			throw new IllegalStateException("Unable to load " + location, e);
+		}
 	}
 
 	@RequestMapping("/send-message")
 	@ResponseStatus(OK)
-	public void sendMessage(@RequestParam String fixVersion, @RequestParam String messageType) {
+	public void sendMessage(@RequestParam String fixVersion,
+	                        @RequestParam String messageType,
+	                        @RequestParam(required = false) String route) {
+
+		Message message = messageTemplates.newMessage(fixVersion, messageType, "Text: " + randomUUID().toString());
+
+		serverSessionRouter.send(route != null ? route : fixVersion,
+				sessionID -> quickFixJTemplate.send(message, sessionID));
+	}
+
+	/**
+	 * Same as {@code /send-message}, without holding a worker thread while the session sends. Answers 200 once the
+	 * message is sent, 202 if the session stored it without sending it, and 429 if the session is saturated. With the
+	 * session writers enabled the message is queued to the writer of the session instead of the sender pool.
+	 */
+	@RequestMapping("/send-message-async")
+	public CompletableFuture<ResponseEntity<Void>> sendMessageAsync(@RequestParam String fixVersion,
+	                                                                @RequestParam String messageType,
+	                                                                @RequestParam(required = false) String route) {
+
+		Message message = messageTemplates.newMessage(fixVersion, messageType, "Text: " + randomUUID().toString());
+
+		return serverSessionRouter.send(route != null ? route : fixVersion,
+				sessionID -> queuedMessageSender != null
+						? queuedMessageSender.send(message, sessionID)
+						: asyncMessageSender.send(sessionID, id -> quickFixJTemplate.send(message, id)))
+				.thenApply(sent -> sent ? ResponseEntity.ok().build() : ResponseEntity.accepted().build());
+	}
+
+	/**
+	 * The messages are read off the request body as they are sent, the body is never held in memory as a whole.
+	 */
+	@PostMapping(path = "/send-messages", consumes = "application/x-ndjson")
+	public List<MessageStatus> sendNdjsonMessages(@RequestParam String fixVersion,
+	                                              @RequestParam(required = false) String route,
+	                                              InputStream messages) {
+
+		Reader reader = new InputStreamReader(messages, StandardCharsets.UTF_8);
+		return serverSessionRouter.send(route != null ? route : fixVersion,
+				sessionID -> batchMessageSender.sendNdjson(reader, sessionID));
+	}
+
+	@PostMapping(path = "/send-messages", consumes = {"application/fix", "text/plain"})
+	public List<MessageStatus> sendFixMessages(@RequestParam String fixVersion,
+	                                           @RequestParam(required = false) String route,
+	                                           @RequestBody String messages) {
+
+		return serverSessionRouter.send(route != null ? route : fixVersion,
+				sessionID -> batchMessageSender.sendFix(messages, sessionID));
+	}
 
-		Map<String, Message> stringMessageMap = messageMap.get(fixVersion);
-		Message message = stringMessageMap.get(messageType);
-		message.setField(new StringField(Text.FIELD, "Text: " + randomUUID().toString()));
+	@PostMapping(path = "/send-raw-message", consumes = "application/octet-stream")
+	public MessageStatus sendRawMessage(@RequestParam String fixVersion,
+	                                    @RequestParam(required = false) String route,
+	                                    @RequestBody byte[] body) {
 
-		SessionID sessionID = serverAcceptor.getSessions().stream()
-				.filter(id -> id.getBeginString().equals(fixVersion))
-				.findFirst()
-				.orElseThrow(RuntimeException::new);
-		quickFixJTemplate.send(message, sessionID);
+		return serverSessionRouter.send(route != null ? route : fixVersion,
+				sessionID -> rawMessageSender.send(ByteBuffer.wrap(body), sessionID));
 	}
 
 	@GetMapping(path = "/path1")
@@ -166,334 +229,16 @@ public class SenderController {
 	}
 	
 	@GetMapping(path = "/execution-report-bloomberg-spot")
-	public ResponseEntity<?> executionReportBloombergSpot() throws SessionNotFound{
-		ExecutionReport executionReport = new ExecutionReport(new OrderID("3-2-805950014T-0-0"), new ExecID("3-2-805950014T-0-0"), new ExecType(ExecType.TRADE), 
-				new OrdStatus(OrdStatus.FILLED), new Side(Side.SELL), new LeavesQty(0), new CumQty(1), new AvgPx(755.93));
+	public ResponseEntity<?> executionReportBloombergSpot() throws SessionNotFound {
 		SessionID sessionID = new SessionID("FIX.4.4", "EXEC", "BANZAI");
-		OnBehalfOfCompID onBehalfOfCompId = new OnBehalfOfCompID("FX");
-		Header header = executionReport.getHeader();
-		header.setField(144, onBehalfOfCompId);
-		
-		executionReport.set(new TransactTime());
-		executionReport.set(new SettlType(SettlType.REGULAR_FX_SPOT_SETTLEMENT));
-		executionReport.set(new SettlDate("20201116"));
-		executionReport.set(new SettlCurrency("CLP"));
-		executionReport.set(new SettlCurrAmt(756));
-		executionReport.set(new OrderQty(1));
-		executionReport.set(new Spread(0));
-		executionReport.set(new OrdType(OrdType.MARKET));
-		executionReport.set(new Product(Product.CURRENCY));
-//		executionReport.set(new TradePublishIndicator(TradePublishIndicator.DO_NOT_PUBLISH_TRADE));
-		executionReport.set(new ClOrdID("3-2-805950014T-0-0"));
-		executionReport.set(new Symbol("USD/CLP"));
-		executionReport.set(new Currency("USD"));
-//		executionReport.setField(133, new OfferPx(756.5675));
-		executionReport.setField(75, new TradeDate("20201111"));
-		executionReport.setField(167, new SecurityType(SecurityType.FX_SPOT));
-		
-		executionReport.setField(30, new LastMkt("XOFF"));
-		executionReport.setField(31, new LastPx(757.9015));
-		executionReport.setField(32, new LastQty(1));
-		executionReport.setField(132, new BidPx(755.93));
-		executionReport.setField(194, new LastSpotRate(755.93));
-		executionReport.setField(195, new LastForwardPoints(0));
-		executionReport.setField(new StringField(797, "Y"));
-		executionReport.setField(854, new QtyType(QtyType.UNITS));
-		executionReport.setField(1056, new CalculatedCcyLastQty(756));
-		executionReport.setField(new StringField(1057, "Y"));
-		executionReport.setField(1300, new MarketSegmentID("XOFF"));
-		executionReport.setField(1390, new TradePublishIndicator(0));
-		
-		//NoCompDealerQuotes
-		NoCompDealerQuotes noCompDealerQuotesGroup = new NoCompDealerQuotes();
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "BGD1"));
-		noCompDealerQuotesGroup.setField(new DoubleField(10011, 755.93));
-		noCompDealerQuotesGroup.setField(new DoubleField(22485, 755.93));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "BGD2"));
-		noCompDealerQuotesGroup.setField(new IntField(10011, 0));
-		noCompDealerQuotesGroup.setField(new IntField(22485, 0));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "BGD5"));
-		noCompDealerQuotesGroup.setField(new IntField(10011, 0));
-		noCompDealerQuotesGroup.setField(new IntField(22485, 0));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "MidRate"));
-		noCompDealerQuotesGroup.setField(new DoubleField(10011, 756.15));
-		noCompDealerQuotesGroup.setField(new DoubleField(22485, 756.15));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "RefRate"));
-		noCompDealerQuotesGroup.setField(new DoubleField(10011, 755.93));
-		noCompDealerQuotesGroup.setField(new DoubleField(22485, 755.93));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "BGDM Mid"));
-		noCompDealerQuotesGroup.setField(new DoubleField(10011, 756.15));
-		noCompDealerQuotesGroup.setField(new DoubleField(22485, 756.15));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "BGDM Nts"));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		//fin NoCompDealerQuotes
-		//NoRefPrices
-		NoRefPrices noRefPricesGroup = new NoRefPrices();
-		noRefPricesGroup.setField(new DoubleField(22079, 755.93));
-		noRefPricesGroup.setField(new IntField(22080, 20));
-		noRefPricesGroup.setField(new IntField(22081, 12));
-		
-		executionReport.addGroup(noRefPricesGroup);
-		//fin NoRefPrices
-		
-		ExecutionReport.NoPartyIDs noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
-		noPartyIDsGroup.setField(new PartyID("SCOTT"));
-		noPartyIDsGroup.setField(new PartyIDSource('D'));
-		noPartyIDsGroup.setField(new PartyRole(1));
-		
-		//NoPartySubIDsGroup
-		ExecutionReport.NoPartyIDs.NoPartySubIDs noPartySubIDsGroup = new ExecutionReport.NoPartyIDs.NoPartySubIDs();
-		noPartySubIDsGroup.set(new PartySubID("SCOTIABANK SUD AMERICANO ( CLIENT DESK ), SANTIAGO, CHILE"));
-		noPartySubIDsGroup.set(new PartySubIDType(1));//party sub id
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		noPartySubIDsGroup.set(new PartySubID("16601104"));
-		noPartySubIDsGroup.set(new PartySubIDType(2));//person
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		noPartySubIDsGroup.set(new PartySubID("CRISTOBAL PALACIOS"));
-		noPartySubIDsGroup.set(new PartySubIDType(9));//contact name
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		executionReport.addGroup(noPartyIDsGroup);
-		
-		//2ndo grupo
-		noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
-		noPartyIDsGroup.setField(new PartyID("REPO"));
-		noPartyIDsGroup.setField(new PartyIDSource('D'));
-		noPartyIDsGroup.setField(new PartyRole(13));
-		
-		noPartySubIDsGroup = new ExecutionReport.NoPartyIDs.NoPartySubIDs();
-		
-		noPartySubIDsGroup.set(new PartySubID("SCOTIA CORREDORA DE BOLSA CHILE"));
-		noPartySubIDsGroup.set(new PartySubIDType(1));//firm
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		noPartySubIDsGroup.set(new PartySubID("27971561"));
-		noPartySubIDsGroup.set(new PartySubIDType(2));//person
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		noPartySubIDsGroup.set(new PartySubID("DIEGO SUSBIELLES"));
-		noPartySubIDsGroup.set(new PartySubIDType(9));//contact
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		executionReport.addGroup(noPartyIDsGroup);
-		
-		//3er grupo
-		noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
-		noPartyIDsGroup.setField(new PartyID("PRODUCT TYPE"));
-		noPartyIDsGroup.setField(new PartyIDSource('D'));
-		noPartyIDsGroup.setField(new PartyRole(16));
-		
-		noPartySubIDsGroup = new ExecutionReport.NoPartyIDs.NoPartySubIDs();
-		
-		noPartySubIDsGroup.set(new PartySubID("Dealing (RFQ)"));
-		noPartySubIDsGroup.set(new PartySubIDType(4));//application
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		executionReport.addGroup(noPartyIDsGroup);
-		
-		//4to grupo 
-		noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
-		noPartyIDsGroup.setField(new PartyID("16601104"));
-		noPartyIDsGroup.setField(new PartyIDSource('D'));
-		noPartyIDsGroup.setField(new PartyRole(11));//OrderOriginationTrader
-		executionReport.addGroup(noPartyIDsGroup);
-		
-		Session.sendToTarget(executionReport, sessionID);
+		Session.sendToTarget(BloombergExecutionReports.spot(), sessionID);
 		return ResponseEntity.ok("OK");
 	}
-	
+
 	@GetMapping(path = "/execution-report-bloomberg-forward")
-	public ResponseEntity<?> executionReportBloombergForward() throws SessionNotFound{
-		ExecutionReport executionReport = new ExecutionReport(new OrderID("3-2-805950014T-0-0"), new ExecID("3-2-816816706M-0-0"), new ExecType(ExecType.TRADE), 
-				new OrdStatus(OrdStatus.FILLED), new Side(Side.SELL), new LeavesQty(0), new CumQty(1000), new AvgPx(755.93));
+	public ResponseEntity<?> executionReportBloombergForward() throws SessionNotFound {
 		SessionID sessionID = new SessionID("FIX.4.4", "EXEC", "BANZAI");
-		OnBehalfOfCompID onBehalfOfCompId = new OnBehalfOfCompID("FX");
-		Header header = executionReport.getHeader();
-		header.setField(144, onBehalfOfCompId);
-		
-		executionReport.setField(new StringField(60, "20210531-18:27:09.940"));
-		executionReport.set(new SettlType("M3"));
-		executionReport.set(new SettlDate("20210902"));
-		executionReport.set(new SettlCurrency("CLP"));
-		executionReport.set(new SettlCurrAmt(725700));
-		executionReport.set(new OrderQty(1000));
-		executionReport.set(new Spread(0));
-		executionReport.set(new OrdType(OrdType.MARKET));
-		executionReport.set(new Product(Product.CURRENCY));
-//		executionReport.set(new TradePublishIndicator(TradePublishIndicator.DO_NOT_PUBLISH_TRADE));
-		executionReport.set(new ClOrdID("3-2-816816706M-0-0"));
-		executionReport.set(new Symbol("USD/CLP"));
-		executionReport.set(new Currency("USD"));
-//		executionReport.setField(133, new OfferPx(756.5675));
-		executionReport.setField(75, new TradeDate("20210531"));
-		executionReport.setField(167, new SecurityType(SecurityType.FX_FORWARD));
-		
-		executionReport.setField(30, new LastMkt("XOFF"));
-		executionReport.setField(31, new LastPx(725.70));
-		executionReport.setField(32, new LastQty(1000));
-		executionReport.setField(132, new BidPx(725.70));
-		executionReport.setField(194, new LastSpotRate(725));
-		executionReport.setField(195, new LastForwardPoints(0.7));
-		executionReport.setField(new StringField(797, "Y"));
-		executionReport.setField(854, new QtyType(QtyType.UNITS));
-		executionReport.setField(1056, new CalculatedCcyLastQty(756));
-		executionReport.setField(new StringField(1057, "Y"));
-		executionReport.setField(1300, new MarketSegmentID("XOFF"));
-		executionReport.setField(1390, new TradePublishIndicator(0));
-		
-		//NoCompDealerQuotes
-		NoCompDealerQuotes noCompDealerQuotesGroup = new NoCompDealerQuotes();
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "BGD1"));
-		noCompDealerQuotesGroup.setField(new DoubleField(10011, 755.93));
-		noCompDealerQuotesGroup.setField(new DoubleField(22485, 755.93));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "BGD2"));
-		noCompDealerQuotesGroup.setField(new IntField(10011, 0));
-		noCompDealerQuotesGroup.setField(new IntField(22485, 0));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "BGD5"));
-		noCompDealerQuotesGroup.setField(new IntField(10011, 0));
-		noCompDealerQuotesGroup.setField(new IntField(22485, 0));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "MidRate"));
-		noCompDealerQuotesGroup.setField(new DoubleField(10011, 756.15));
-		noCompDealerQuotesGroup.setField(new DoubleField(22485, 756.15));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "RefRate"));
-		noCompDealerQuotesGroup.setField(new DoubleField(10011, 755.93));
-		noCompDealerQuotesGroup.setField(new DoubleField(22485, 755.93));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "BGDM Mid"));
-		noCompDealerQuotesGroup.setField(new DoubleField(10011, 756.15));
-		noCompDealerQuotesGroup.setField(new DoubleField(22485, 756.15));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		
-		noCompDealerQuotesGroup.setField(new StringField(10010, "BGDM Nts"));
-		noCompDealerQuotesGroup.setField(new IntField(22486, 0));
-		
-		executionReport.addGroup(noCompDealerQuotesGroup);
-		//fin NoCompDealerQuotes
-		//NoRefPrices
-		NoRefPrices noRefPricesGroup = new NoRefPrices();
-		noRefPricesGroup.setField(new DoubleField(22079, 755.93));
-		noRefPricesGroup.setField(new IntField(22080, 20));
-		noRefPricesGroup.setField(new IntField(22081, 12));
-		
-		executionReport.addGroup(noRefPricesGroup);
-		//fin NoRefPrices
-		
-		ExecutionReport.NoPartyIDs noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
-		noPartyIDsGroup.setField(new PartyID("SCOT"));
-		noPartyIDsGroup.setField(new PartyIDSource('D'));
-		noPartyIDsGroup.setField(new PartyRole(1));
-		
-		//NoPartySubIDsGroup
-		ExecutionReport.NoPartyIDs.NoPartySubIDs noPartySubIDsGroup = new ExecutionReport.NoPartyIDs.NoPartySubIDs();
-		noPartySubIDsGroup.set(new PartySubID("SCOTIABANK SUD AMERICANO ( CLIENT DESK ), SANTIAGO, CHILE"));
-		noPartySubIDsGroup.set(new PartySubIDType(1));
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		noPartySubIDsGroup.set(new PartySubID("16601104"));
-		noPartySubIDsGroup.set(new PartySubIDType(2));
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		noPartySubIDsGroup.set(new PartySubID("CRISTOBAL PALACIOS"));
-		noPartySubIDsGroup.set(new PartySubIDType(9));
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		executionReport.addGroup(noPartyIDsGroup);
-		
-		//2ndo grupo
-		noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
-		noPartyIDsGroup.setField(new PartyID("REPO"));
-		noPartyIDsGroup.setField(new PartyIDSource('D'));
-		noPartyIDsGroup.setField(new PartyRole(13));
-		
-		noPartySubIDsGroup = new ExecutionReport.NoPartyIDs.NoPartySubIDs();
-		
-		noPartySubIDsGroup.set(new PartySubID("SCOTIA CORREDORA DE BOLSA CHILE"));
-		noPartySubIDsGroup.set(new PartySubIDType(1));
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		noPartySubIDsGroup.set(new PartySubID("27971561"));
-		noPartySubIDsGroup.set(new PartySubIDType(2));
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		noPartySubIDsGroup.set(new PartySubID("DIEGO SUSBIELLES"));
-		noPartySubIDsGroup.set(new PartySubIDType(9));
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		executionReport.addGroup(noPartyIDsGroup);
-		
-		//3er grupo
-		noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
-		noPartyIDsGroup.setField(new PartyID("PRODUCT TYPE"));
-		noPartyIDsGroup.setField(new PartyIDSource('D'));
-		noPartyIDsGroup.setField(new PartyRole(16));
-		
-		noPartySubIDsGroup = new ExecutionReport.NoPartyIDs.NoPartySubIDs();
-		
-		noPartySubIDsGroup.set(new PartySubID("Dealing (RFQ)"));
-		noPartySubIDsGroup.set(new PartySubIDType(4));
-		noPartyIDsGroup.addGroup(noPartySubIDsGroup);
-		
-		executionReport.addGroup(noPartyIDsGroup);
-		
-		//4to grupo 
-		noPartyIDsGroup = new ExecutionReport.NoPartyIDs();
-		noPartyIDsGroup.setField(new PartyID("16601104"));
-		noPartyIDsGroup.setField(new PartyIDSource('D'));
-		noPartyIDsGroup.setField(new PartyRole(11));
-		executionReport.addGroup(noPartyIDsGroup);
-		
-		Session.sendToTarget(executionReport, sessionID);
+		Session.sendToTarget(BloombergExecutionReports.forward(), sessionID);
 		return ResponseEntity.ok("OK");
 	}
 //	AllocationInstruction
@@ -570,4 +315,107 @@ public class SenderController {
 		return ResponseEntity.ok("OK");
 
 	}
+
+	/**
+	 * Sends the ExecutionReport of {@code /execution-report-celer} from the pooled flyweight of the thread, encoded
+	 * straight to bytes. The session only stamps the header.
+	 */
+	@GetMapping(path = "/execution-report-celer-flyweight")
+	public ResponseEntity<?> executionReportCelerFlyweight() throws Exception {
+		SessionID sessionID = new SessionID("FIX.4.4", "BNS-LATAM-UAT-MD", "BNS-LATAM-RFQ-MD");
+
+		FlyweightMessage executionReport = executionReportLayout.acquire();
+		executionReport.setString(OrderID.FIELD, "2076603489517051904")
+				.setString(ExecID.FIELD, "2076603492218183680")
+				.setChar(ExecType.FIELD, ExecType.FILL)
+				.setChar(OrdStatus.FIELD, OrdStatus.FILLED)
+				.setChar(Side.FIELD, Side.BUY)
+				.setInt(LeavesQty.FIELD, 0)
+				.setInt(CumQty.FIELD, 1000000)
+				.setDecimal(AvgPx.FIELD, 1.183054)
+				.setInt(OrderQty.FIELD, 1000000)
+				.setChar(OrdType.FIELD, OrdType.LIMIT)
+				.setString(ClOrdID.FIELD, "ordID_1")
+				.setString(Symbol.FIELD, "EUR/USD")
+				.setString(Currency.FIELD, "EUR")
+				.setDecimal(LastPx.FIELD, 1.183054)
+				.setInt(LastQty.FIELD, 1000000)
+				.setDecimal(Price.FIELD, 1.18313)
+				.setChar(TimeInForce.FIELD, TimeInForce.FILL_OR_KILL)
+				.setUtcTimestamp(TransactTime.FIELD, System.currentTimeMillis())
+				.setString(SettlType.FIELD, "1W")
+				.setString(SettlDate.FIELD, "20200915")
+				.setDecimal(LastSpotRate.FIELD, 1.18317)
+				.setDecimal(LastForwardPoints.FIELD, -0.00004)
+				.setString(CFICode.FIELD, "FORWARD");
+		sendFlyweight(executionReport, sessionID);
+		return ResponseEntity.ok("OK");
+	}
+
+	/**
+	 * Sends the snapshot of {@code /market-data-full-refresh} from the pooled flyweight of the thread. The SendingTime
+	 * that snapshot carries in its body is left to the header.
+	 */
+	@GetMapping(path = "/market-data-full-refresh-flyweight")
+	public ResponseEntity<?> marketDataFullRefreshFlyweight() throws Exception {
+		SessionID sessionID = new SessionID("FIX.4.4", "BNS-LATAM-UAT-MD", "BNS-LATAM-RFQ-MD");
+		long now = System.currentTimeMillis();
+
+		FlyweightMessage marketData = marketDataFullRefreshLayout.acquire();
+		marketData.setString(Symbol.FIELD, "EUR/USD")
+				.setString(MDReqID.FIELD, "FIXLOADTEST:1500959671701")
+				.setString(CFICode.FIELD, "SPOT");
+		marketData.addGroup(NoMDEntries.FIELD)
+				.setChar(MDEntryType.FIELD, MDEntryType.BID)
+				.setDecimal(MDEntryPx.FIELD, 1.1337)
+				.setInt(MDEntrySize.FIELD, 1600000)
+				.setString(QuoteEntryID.FIELD, "1009707692782002208")
+				.setUtcDateOnly(MDEntryDate.FIELD, now);
+		marketData.addGroup(NoMDEntries.FIELD)
+				.setChar(MDEntryType.FIELD, MDEntryType.OFFER)
+				.setDecimal(MDEntryPx.FIELD, 1.13373)
+				.setInt(MDEntrySize.FIELD, 2000000)
+				.setString(QuoteEntryID.FIELD, "1009707692782002209")
+				.setUtcDateOnly(MDEntryDate.FIELD, now);
+		sendFlyweight(marketData, sessionID);
+		return ResponseEntity.ok("OK");
+	}
+
+	private void sendFlyweight(FlyweightMessage message, SessionID sessionID) throws Exception {
+		if (Session.lookupSession(sessionID) == null) {
+			throw new SessionNotFound("Session not found: " + sessionID);
+		}
+		rawMessageSender.sendRaw(message.encodeBody(), sessionID);
+	}
+
+	@RequestMapping("/market-data-update")
+	@ResponseStatus(OK)
+	public void marketDataUpdate(@RequestParam String symbol,
+	                             @RequestParam String side,
+	                             @RequestParam(defaultValue = "0") int level,
+	                             @RequestParam double price,
+	                             @RequestParam double size) {
+
+		char entryType;
+		if ("bid".equalsIgnoreCase(side)) {
+			entryType = MDEntryType.BID;
+		} else if ("offer".equalsIgnoreCase(side)) {
+			entryType = MDEntryType.OFFER;
+		} else {
+			throw new IllegalArgumentException("Unsupported side " + side + ", expected bid or offer");
+		}
+		marketDataPublisher.update(symbol, entryType, level, price, size);
+	}
+
+	@GetMapping(path = "/market-data-publisher")
+	public Map<String, Object> marketDataPublisherMetrics() {
+		return marketDataPublisher.getMetrics();
+	}
+
+	@GetMapping(path = "/resend-cache")
+	public ResponseEntity<Map<String, Object>> resendCacheMetrics() {
+		return resendCachingStoreFactory != null
+				? ResponseEntity.ok(resendCachingStoreFactory.getMetrics())
+				: ResponseEntity.notFound().build();
+	}
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import quickfix.field.ApplExtID;
+import quickfix.field.ApplVerID;
+import quickfix.field.BeginString;
+import quickfix.field.BodyLength;
+import quickfix.field.CheckSum;
+import quickfix.field.CstmApplVerID;
+import quickfix.field.DeliverToCompID;
+import quickfix.field.DeliverToLocationID;
+import quickfix.field.DeliverToSubID;
+import quickfix.field.HopCompID;
+import quickfix.field.HopRefID;
+import quickfix.field.HopSendingTime;
+import quickfix.field.LastMsgSeqNumProcessed;
+import quickfix.field.MessageEncoding;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.MsgType;
+import quickfix.field.NoHops;
+import quickfix.field.OnBehalfOfCompID;
+import quickfix.field.OnBehalfOfLocationID;
+import quickfix.field.OnBehalfOfSendingTime;
+import quickfix.field.OnBehalfOfSubID;
+import quickfix.field.OrigSendingTime;
+import quickfix.field.PossDupFlag;
+import quickfix.field.PossResend;
+import quickfix.field.SecureData;
+import quickfix.field.SecureDataLen;
+import quickfix.field.SenderCompID;
+import quickfix.field.SenderLocationID;
+import quickfix.field.SenderSubID;
+import quickfix.field.SendingTime;
+import quickfix.field.Signature;
+import quickfix.field.SignatureLength;
+import quickfix.field.TargetCompID;
+import quickfix.field.TargetLocationID;
+import quickfix.field.TargetSubID;
+import quickfix.field.XmlData;
+import quickfix.field.XmlDataLen;
+
+import java.util.Arrays;
+
+/**
+ * The fields of the standard header and trailer of FIX 4.0 to FIXT 1.1, for the messages handled without a data
+ * dictionary. The equivalent checks of {@code quickfix.Message} are package-private.
+ */
+final class StandardFields {
+
+	private static final int[] HEADER_TAGS = sorted(BeginString.FIELD, BodyLength.FIELD, MsgType.FIELD,
+			SenderCompID.FIELD, TargetCompID.FIELD, OnBehalfOfCompID.FIELD, DeliverToCompID.FIELD,
+			SecureDataLen.FIELD, SecureData.FIELD, MsgSeqNum.FIELD, SenderSubID.FIELD, SenderLocationID.FIELD,
+			TargetSubID.FIELD, TargetLocationID.FIELD, OnBehalfOfSubID.FIELD, OnBehalfOfLocationID.FIELD,
+			DeliverToSubID.FIELD, DeliverToLocationID.FIELD, PossDupFlag.FIELD, PossResend.FIELD, SendingTime.FIELD,
+			OrigSendingTime.FIELD, XmlDataLen.FIELD, XmlData.FIELD, MessageEncoding.FIELD,
+			LastMsgSeqNumProcessed.FIELD, OnBehalfOfSendingTime.FIELD, NoHops.FIELD, HopCompID.FIELD,
+			HopSendingTime.FIELD, HopRefID.FIELD, ApplVerID.FIELD, CstmApplVerID.FIELD, ApplExtID.FIELD);
+
+	private static final int[] TRAILER_TAGS = sorted(SignatureLength.FIELD, Signature.FIELD, CheckSum.FIELD);
+
+	private StandardFields() {
+	}
+
+	static boolean isHeaderField(int tag) {
+		return Arrays.binarySearch(HEADER_TAGS, tag) >= 0;
+	}
+
+	static boolean isTrailerField(int tag) {
+		return Arrays.binarySearch(TRAILER_TAGS, tag) >= 0;
+	}
+
+	private static int[] sorted(int... tags) {
+		Arrays.sort(tags);
+		return tags;
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender.flyweight;
+
+import java.util.Arrays;
+
+/**
+ * Growable byte array the values and the messages are written to as ISO-8859-1 text, numbers included, without going
+ * through a {@code String}.
+ */
+final class ByteOutput {
+
+	static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L,
+			100_000_000L, 1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L,
+			100_000_000_000_000L, 1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L,
+			1_000_000_000_000_000_000L};
+
+	private static final long MILLIS_PER_DAY = 86_400_000L;
+
+	byte[] bytes;
+
+	int length;
+
+	ByteOutput(int capacity) {
+		this.bytes = new byte[capacity];
+	}
+
+	void put(byte value) {
+		ensureCapacity(1);
+		bytes[length++] = value;
+	}
+
+	void put(byte[] source) {
+		put(source, 0, source.length);
+	}
+
+	void put(byte[] source, int offset, int count) {
+		ensureCapacity(count);
+		System.arraycopy(source, offset, bytes, length, count);
+		length += count;
+	}
+
+	void putChars(CharSequence value) {
+		int count = value.length();
+		ensureCapacity(count);
+		for (int i = 0; i < count; i++) {
+			char c = value.charAt(i);
+			if (c > 0xff) {
+				throw new IllegalArgumentException("Not an ISO-8859-1 character: " + c);
+			}
+			bytes[length++] = (byte) c;
+		}
+	}
+
+	void putLong(long value) {
+		// the digits are taken from the negated value, which also holds Long.MIN_VALUE
+		long negated = value;
+		if (value < 0) {
+			put((byte) '-');
+		} else {
+			negated = -value;
+		}
+		putNegatedDigits(negated, 1);
+	}
+
+	void putDecimal(long unscaledValue, int scale) {
+		if (scale == 0) {
+			putLong(unscaledValue);
+			return;
+		}
+		long negated = unscaledValue;
+		if (unscaledValue < 0) {
+			put((byte) '-');
+		} else {
+			negated = -unscaledValue;
+		}
+		putNegatedDigits(negated / POWERS_OF_TEN[scale], 1);
+		put((byte) '.');
+		putNegatedDigits(negated % POWERS_OF_TEN[scale], scale);
+	}
+
+	/**
+	 * Writes {@code yyyyMMdd-HH:mm:ss.SSS}.
+	 */
+	void putUtcTimestamp(long epochMillis) {
+		putUtcDateOnly(epochMillis);
+		long millisOfDay = Math.floorMod(epochMillis, MILLIS_PER_DAY);
+		put((byte) '-');
+		putDigits(millisOfDay / 3_600_000, 2);
+		put((byte) ':');
+		putDigits(millisOfDay / 60_000 % 60, 2);
+		put((byte) ':');
+		putDigits(millisOfDay / 1000 % 60, 2);
+		put((byte) '.');
+		putDigits(millisOfDay % 1000, 3);
+	}
+
+	/**
+	 * Writes {@code yyyyMMdd}, the civil date of the epoch day as computed by {@code LocalDate.ofEpochDay}.
+	 */
+	void putUtcDateOnly(long epochMillis) {
+		long zeroDay = Math.floorDiv(epochMillis, MILLIS_PER_DAY) + 719_468;
+		long era = Math.floorDiv(zeroDay, 146_097);
+		long dayOfEra = zeroDay - era * 146_097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long monthIndex = (5 * dayOfYear + 2) / 153;
+		long day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+		long month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		putDigits(year, 4);
+		putDigits(month, 2);
+		putDigits(day, 2);
+	}
+
+	void clear() {
+		length = 0;
+	}
+
+	private void putDigits(long value, int width) {
+		putNegatedDigits(-value, width);
+	}
+
+	/**
+	 * Writes the digits of a negated value, left padded with zeros to {@code width}.
+	 */
+	private void putNegatedDigits(long negated, int width) {
+		int digits = 1;
+		for (long remaining = negated / 10; remaining != 0; remaining /= 10) {
+			digits++;
+		}
+		digits = Math.max(digits, width);
+		ensureCapacity(digits);
+		for (int i = length + digits - 1; i >= length; i--) {
+			bytes[i] = (byte) ('0' - negated % 10);
+			negated /= 10;
+		}
+		length += digits;
+	}
+
+	private void ensureCapacity(int count) {
+		if (length + count > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+		}
+	}
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender.flyweight;
+
+import quickfix.Field;
+import quickfix.FieldMap;
+import quickfix.Group;
+import quickfix.field.converter.DoubleConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * The field values of a message body or of a repeating group entry, in primitive arrays indexed by the slots of its
+ * {@link FlyweightLayout}.
+ * <p>
+ * Integers, chars and decimals are kept as longs, a decimal with its scale, and written as digits when the message is
+ * encoded. Text values are copied into one byte array per instance. Nothing is allocated per field, and the group
+ * entries are reused once the instance is cleared, so a pooled message settles to no allocation at all. Values are
+ * ISO-8859-1 text, as with the default charset of QuickFIX/J.
+ */
+public class FlyweightFields {
+
+	private static final byte SOH = '\u0001';
+
+	private static final byte UNSET = 0;
+
+	private static final byte INT = 1;
+
+	private static final byte DECIMAL = 2;
+
+	private static final byte CHAR = 3;
+
+	private static final byte TEXT = 4;
+
+	private static final byte GROUP = 5;
+
+	/**
+	 * The most decimals {@code DoubleConverter} writes a double with.
+	 */
+	private static final int MAX_DOUBLE_SCALE = 14;
+
+	private static final double MAX_EXACT_LONG = 0x1p53;
+
+	private static final long NEGATIVE_ZERO_BITS = Double.doubleToRawLongBits(-0.0d);
+
+	final FlyweightLayout layout;
+
+	private final byte[] kinds;
+
+	private final long[] values;
+
+	private final byte[] scales;
+
+	private final int[] offsets;
+
+	private final int[] lengths;
+
+	private final Entries[] groups;
+
+	private final ByteOutput text = new ByteOutput(256);
+
+	FlyweightFields(FlyweightLayout layout) {
+		this.layout = layout;
+		int size = layout.size();
+		this.kinds = new byte[size];
+		this.values = new long[size];
+		this.scales = new byte[size];
+		this.offsets = new int[size];
+		this.lengths = new int[size];
+		this.groups = new Entries[size];
+	}
+
+	public FlyweightFields setString(int tag, CharSequence value) {
+		int slot = fieldSlot(tag);
+		offsets[slot] = text.length;
+		text.putChars(value);
+		lengths[slot] = text.length - offsets[slot];
+		kinds[slot] = TEXT;
+		return this;
+	}
+
+	public FlyweightFields setChar(int tag, char value) {
+		return setValue(fieldSlot(tag), CHAR, value, 0);
+	}
+
+	public FlyweightFields setBoolean(int tag, boolean value) {
+		return setChar(tag, value ? 'Y' : 'N');
+	}
+
+	public FlyweightFields setInt(int tag, long value) {
+		return setValue(fieldSlot(tag), INT, value, 0);
+	}
+
+	/**
+	 * Sets {@code unscaledValue / 10^scale}, written with exactly {@code scale} decimals.
+	 */
+	public FlyweightFields setDecimal(int tag, long unscaledValue, int scale) {
+		if (scale < 0 || scale >= ByteOutput.POWERS_OF_TEN.length) {
+			throw new IllegalArgumentException("Unsupported scale " + scale);
+		}
+		return setValue(fieldSlot(tag), DECIMAL, unscaledValue, scale);
+	}
+
+	/**
+	 * Sets the double as {@code DoubleConverter} writes it, with up to {@value #MAX_DOUBLE_SCALE} decimals. The values
+	 * with up to 15 significant digits, prices and quantities, are kept as a long and a scale, the few others are
+	 * converted by {@code DoubleConverter} itself.
+	 */
+	public FlyweightFields setDecimal(int tag, double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new IllegalArgumentException("Unsupported decimal " + value);
+		}
+		int slot = fieldSlot(tag);
+		if (Math.abs(value) < MAX_EXACT_LONG && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO_BITS) {
+			// the fewest decimals which give back the value, as long as the digits are exact in a double
+			for (int scale = 0; scale <= MAX_DOUBLE_SCALE; scale++) {
+				double scaled = value * ByteOutput.POWERS_OF_TEN[scale];
+				if (Math.abs(scaled) >= MAX_EXACT_LONG) {
+					break;
+				}
+				double unscaledValue = Math.rint(scaled);
+				if (unscaledValue / ByteOutput.POWERS_OF_TEN[scale] == value) {
+					return setValue(slot, DECIMAL, (long) unscaledValue, scale);
+				}
+			}
+		}
+		return setString(tag, DoubleConverter.convert(value));
+	}
+
+	/**
+	 * Sets a UTCTimestamp with milliseconds.
+	 */
+	public FlyweightFields setUtcTimestamp(int tag, long epochMillis) {
+		int slot = fieldSlot(tag);
+		offsets[slot] = text.length;
+		text.putUtcTimestamp(epochMillis);
+		lengths[slot] = text.length - offsets[slot];
+		kinds[slot] = TEXT;
+		return this;
+	}
+
+	public FlyweightFields setUtcDateOnly(int tag, long epochMillis) {
+		int slot = fieldSlot(tag);
+		offsets[slot] = text.length;
+		text.putUtcDateOnly(epochMillis);
+		lengths[slot] = text.length - offsets[slot];
+		kinds[slot] = TEXT;
+		return this;
+	}
+
+	/**
+	 * Adds an entry to the repeating group whose NumInGroup field has the tag, and returns it to be filled.
+	 */
+	public FlyweightFields addGroup(int tag) {
+		int slot = layout.slot(tag);
+		FlyweightLayout groupLayout = layout.groupLayout(slot);
+		if (groupLayout == null) {
+			throw new IllegalArgumentException("Tag " + tag + " is not a repeating group");
+		}
+		Entries entries = groups[slot];
+		if (entries == null) {
+			entries = groups[slot] = new Entries();
+		}
+		kinds[slot] = GROUP;
+		return entries.add(groupLayout);
+	}
+
+	public int getGroupCount(int tag) {
+		int slot = layout.slot(tag);
+		return kinds[slot] == GROUP ? groups[slot].count : 0;
+	}
+
+	public boolean isSetField(int tag) {
+		return kinds[layout.slot(tag)] != UNSET;
+	}
+
+	void reset() {
+		Arrays.fill(kinds, UNSET);
+		text.clear();
+		for (Entries entries : groups) {
+			if (entries != null) {
+				entries.count = 0;
+			}
+		}
+	}
+
+	/**
+	 * Writes the fields, then the groups, each in the order of the layout, as {@code FieldMap} does.
+	 */
+	void encode(ByteOutput output) {
+		boolean hasGroups = false;
+		for (int slot = 0; slot < kinds.length; slot++) {
+			byte kind = kinds[slot];
+			if (kind == GROUP) {
+				hasGroups = true;
+			} else if (kind != UNSET) {
+				output.put(layout.tagPrefix(slot));
+				encodeValue(slot, output);
+				output.put(SOH);
+			}
+		}
+		for (int slot = 0; hasGroups && slot < kinds.length; slot++) {
+			if (kinds[slot] == GROUP) {
+				Entries entries = groups[slot];
+				output.put(layout.tagPrefix(slot));
+				output.putLong(entries.count);
+				output.put(SOH);
+				for (int i = 0; i < entries.count; i++) {
+					entries.entries[i].encode(output);
+				}
+			}
+		}
+	}
+
+	void copyTo(FieldMap target, ByteOutput scratch) {
+		for (int slot = 0; slot < kinds.length; slot++) {
+			byte kind = kinds[slot];
+			if (kind == UNSET) {
+				continue;
+			}
+			int tag = layout.tag(slot);
+			if (kind == GROUP) {
+				FlyweightLayout groupLayout = layout.groupLayout(slot);
+				Entries entries = groups[slot];
+				for (int i = 0; i < entries.count; i++) {
+					Group group = new Group(tag, groupLayout.tag(0), groupLayout.tags());
+					entries.entries[i].copyTo(group, scratch);
+					target.addGroupRef(group);
+				}
+				continue;
+			}
+			scratch.clear();
+			encodeValue(slot, scratch);
+			target.setString(tag, new String(scratch.bytes, 0, scratch.length, StandardCharsets.ISO_8859_1));
+		}
+	}
+
+	void copyFrom(FieldMap source) {
+		for (Iterator<Field<?>> iterator = source.iterator(); iterator.hasNext(); ) {
+			Field<?> field = iterator.next();
+			int tag = field.getTag();
+			if (source.hasGroup(tag)) {
+				for (Group group : source.getGroups(tag)) {
+					addGroup(tag).copyFrom(group);
+				}
+			} else {
+				setString(tag, field.getObject().toString());
+			}
+		}
+	}
+
+	private void encodeValue(int slot, ByteOutput output) {
+		switch (kinds[slot]) {
+			case INT:
+				output.putLong(values[slot]);
+				break;
+			case DECIMAL:
+				output.putDecimal(values[slot], scales[slot]);
+				break;
+			case CHAR:
+				output.put((byte) values[slot]);
+				break;
+			default:
+				output.put(text.bytes, offsets[slot], lengths[slot]);
+		}
+	}
+
+	private FlyweightFields setValue(int slot, byte kind, long value, int scale) {
+		values[slot] = value;
+		scales[slot] = (byte) scale;
+		kinds[slot] = kind;
+		return this;
+	}
+
+	private int fieldSlot(int tag) {
+		int slot = layout.slot(tag);
+		if (layout.groupLayout(slot) != null) {
+			throw new IllegalArgumentException("Tag " + tag + " is a repeating group, see addGroup");
+		}
+		return slot;
+	}
+
+	/**
+	 * The entries of a repeating group, kept for reuse when the instance is cleared.
+	 */
+	private static final class Entries {
+
+		private FlyweightFields[] entries = new FlyweightFields[4];
+
+		private int count;
+
+		private FlyweightFields add(FlyweightLayout groupLayout) {
+			if (count == entries.length) {
+				entries = Arrays.copyOf(entries, count * 2);
+			}
+			FlyweightFields entry = entries[count];
+			if (entry == null) {
+				entry = entries[count] = new FlyweightFields(groupLayout);
+			} else {
+				entry.reset();
+			}
+			count++;
+			return entry;
+		}
+	}
+}
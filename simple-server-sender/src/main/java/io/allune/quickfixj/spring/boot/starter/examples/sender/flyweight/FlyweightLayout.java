@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender.flyweight;
+
+import quickfix.DataDictionary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The body fields of one message type, or the fields of one of its repeating groups, in the order they are encoded,
+ * computed once from the {@link DataDictionary}.
+ * <p>
+ * Each field has a slot, its index in that order, which is also its index in the value arrays of the
+ * {@link FlyweightFields}. The body fields are in tag order, as {@code quickfix.Message} encodes them, and the fields
+ * of a group in the order of the dictionary, starting with the delimiter. A message layout also pools one
+ * {@link FlyweightMessage} per thread, see {@link #acquire()}.
+ */
+public final class FlyweightLayout {
+
+	private final String msgType;
+
+	private final int[] tags;
+
+	private final byte[][] tagPrefixes;
+
+	private final int[] slotsByTag;
+
+	private final FlyweightLayout[] groupLayouts;
+
+	private final ThreadLocal<FlyweightMessage> pool;
+
+	private FlyweightLayout(String msgType, int[] tags, DataDictionary dictionary, boolean message) {
+		this.msgType = msgType;
+		this.tags = tags;
+		this.tagPrefixes = new byte[tags.length][];
+		this.slotsByTag = new int[Arrays.stream(tags).max().orElse(0) + 1];
+		this.groupLayouts = new FlyweightLayout[tags.length];
+		Arrays.fill(slotsByTag, -1);
+		for (int slot = 0; slot < tags.length; slot++) {
+			int tag = tags[slot];
+			tagPrefixes[slot] = (tag + "=").getBytes(StandardCharsets.ISO_8859_1);
+			slotsByTag[tag] = slot;
+			if (dictionary.isGroup(msgType, tag)) {
+				DataDictionary groupDictionary = dictionary.getGroup(msgType, tag).getDataDictionary();
+				groupLayouts[slot] = new FlyweightLayout(msgType, groupDictionary.getOrderedFields(), groupDictionary,
+						false);
+			}
+		}
+		this.pool = message ? ThreadLocal.withInitial(() -> new FlyweightMessage(this)) : null;
+	}
+
+	/**
+	 * Lays out the body of the message type, its repeating groups and theirs.
+	 */
+	public static FlyweightLayout of(DataDictionary dictionary, String msgType) {
+		if (!dictionary.isMsgType(msgType)) {
+			throw new IllegalArgumentException("Unknown message type " + msgType);
+		}
+		int[] tags = Arrays.stream(dictionary.getOrderedFields())
+				.filter(tag -> dictionary.isMsgField(msgType, tag))
+				.filter(tag -> !dictionary.isHeaderField(tag) && !dictionary.isTrailerField(tag))
+				.sorted()
+				.toArray();
+		return new FlyweightLayout(msgType, tags, dictionary, true);
+	}
+
+	/**
+	 * Returns the message of the calling thread, cleared. It is the same instance on every call from a thread, so it
+	 * must not be used any more once the next one is acquired.
+	 */
+	public FlyweightMessage acquire() {
+		if (pool == null) {
+			throw new IllegalStateException("Not the layout of a message");
+		}
+		FlyweightMessage message = pool.get();
+		message.reset();
+		return message;
+	}
+
+	public String getMsgType() {
+		return msgType;
+	}
+
+	int size() {
+		return tags.length;
+	}
+
+	int tag(int slot) {
+		return tags[slot];
+	}
+
+	int[] tags() {
+		return tags;
+	}
+
+	byte[] tagPrefix(int slot) {
+		return tagPrefixes[slot];
+	}
+
+	/**
+	 * The layout of the entries of the group whose NumInGroup field has the slot, or null if it is not a group.
+	 */
+	FlyweightLayout groupLayout(int slot) {
+		return groupLayouts[slot];
+	}
+
+	int slot(int tag) {
+		int slot = tag >= 0 && tag < slotsByTag.length ? slotsByTag[tag] : -1;
+		if (slot < 0) {
+			throw new IllegalArgumentException("Tag " + tag + " is not a field of " + msgType
+					+ (pool == null ? " group " + tags[0] : ""));
+		}
+		return slot;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender.flyweight;
+
+import quickfix.FieldMap;
+import quickfix.FieldNotFound;
+import quickfix.Message;
+import quickfix.MessageFactory;
+import quickfix.field.MsgType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A message of one of the hot message types, reused for every message of its type sent by a thread.
+ * <p>
+ * The body is encoded from the field arrays to bytes as the {@code RawMessageSender} takes them: the MsgType field
+ * followed by the body fields, SOH delimited, the session stamping the header and the trailer. Acquire it from its
+ * {@link FlyweightLayout}, fill it and encode it before the next one is acquired on the thread:
+ * <pre>
+ * FlyweightMessage executionReport = layout.acquire();
+ * executionReport.setString(ExecID.FIELD, execId).setDecimal(LastPx.FIELD, lastPx);
+ * rawMessageSender.sendRaw(executionReport.encodeBody(), sessionID);
+ * </pre>
+ * {@link #toMessage(MessageFactory, String)} and {@link #copyFrom(Message)} convert from and to a
+ * {@link Message} where one is needed, at the cost of the Strings the flyweight avoids.
+ */
+public final class FlyweightMessage extends FlyweightFields {
+
+	private final byte[] msgTypeField;
+
+	private final ByteOutput body = new ByteOutput(1024);
+
+	private final ByteOutput scratch = new ByteOutput(64);
+
+	private ByteBuffer bodyBuffer;
+
+	FlyweightMessage(FlyweightLayout layout) {
+		super(layout);
+		this.msgTypeField = (MsgType.FIELD + "=" + layout.getMsgType() + '\u0001').getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	public String getMsgType() {
+		return layout.getMsgType();
+	}
+
+	/**
+	 * Encodes the MsgType and the body fields. The buffer is reused by the next call, so it must be sent before.
+	 */
+	public ByteBuffer encodeBody() {
+		body.clear();
+		body.put(msgTypeField);
+		encode(body);
+		if (bodyBuffer == null || bodyBuffer.array() != body.bytes) {
+			bodyBuffer = ByteBuffer.wrap(body.bytes);
+		}
+		bodyBuffer.clear().limit(body.length);
+		return bodyBuffer;
+	}
+
+	/**
+	 * Creates the {@link Message} with the fields set, for the code that needs one: {@code Session.send} and
+	 * {@code toApp}, a logger or a test.
+	 */
+	public Message toMessage(MessageFactory messageFactory, String beginString) {
+		Message message = messageFactory.create(beginString, layout.getMsgType());
+		copyTo(message, scratch);
+		return message;
+	}
+
+	/**
+	 * Clears the fields and sets those of the body of the message, which must be of the type of the layout.
+	 */
+	public FlyweightMessage copyFrom(Message message) throws FieldNotFound {
+		String msgType = message.getHeader().getString(MsgType.FIELD);
+		if (!msgType.equals(layout.getMsgType())) {
+			throw new IllegalArgumentException("Not a message of type " + layout.getMsgType() + ": " + msgType);
+		}
+		reset();
+		copyFrom((FieldMap) message);
+		return this;
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.allune.quickfixj.spring.boot.starter.examples.sender.BatchMessageSender.MessageStatus;
+import io.allune.quickfixj.spring.boot.starter.examples.sender.BatchMessageSender.Status;
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.RecordingResponder;
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.TestSessions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.field.Headline;
+import quickfix.field.MsgSeqNum;
+import quickfix.fix44.News;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchMessageSenderTest {
+
+	private static final SessionID SESSION_ID = new SessionID("FIX.4.4", "SENDER", "TARGET");
+
+	private final BlockingResponder responder = new BlockingResponder();
+
+	private final BatchMessageSender sender = new BatchMessageSender(new ObjectMapper());
+
+	private Session session;
+
+	@Before
+	public void setUp() throws Exception {
+		session = TestSessions.loggedOnAcceptor(SESSION_ID, responder);
+		responder.clear();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		responder.release();
+		session.close();
+	}
+
+	@Test
+	public void shouldSkipTheMessagesWhichCannotBeParsed() throws Exception {
+		String body = "{\"35\":\"B\",\"148\":\"first\"}\n"
+				+ "{\"148\":\"no MsgType\"}\n"
+				+ "not JSON\n"
+				+ "{\"35\":\"B\",\"148\":\"second\"}\n";
+
+		List<MessageStatus> statuses = sender.sendNdjson(body, SESSION_ID);
+
+		assertThat(statuses).extracting(MessageStatus::getIndex).containsExactly(0, 1, 2, 3);
+		assertThat(statuses).extracting(MessageStatus::getStatus)
+				.containsExactly(Status.SENT, Status.REJECTED, Status.REJECTED, Status.SENT);
+		assertThat(statuses.get(1).getReason()).isEqualTo("IllegalArgumentException: Missing MsgType(35)");
+		assertThat(sentSequences()).containsExactly(2, 3);
+	}
+
+	@Test
+	public void shouldPutTheStandardHeaderFieldsOfAnNdjsonMessageInTheHeader() throws Exception {
+		sender.sendNdjson("{\"35\":\"B\",\"148\":\"headline\",\"58\":\"text\",\"115\":\"DESK\"}", SESSION_ID);
+
+		// the body fields follow the header, a header field set in the body would come after Text(58)
+		String sent = responder.getSent().get(0);
+		assertThat(sent.indexOf("\u0001115=DESK\u0001")).isPositive().isLessThan(sent.indexOf("\u000158=text"));
+	}
+
+	@Test
+	public void shouldSequenceTheBatchContiguously() throws Exception {
+		responder.blockNextSend();
+		CompletableFuture<List<MessageStatus>> batch = CompletableFuture.supplyAsync(
+				() -> sender.send(Arrays.asList(news("batch 1"), news("batch 2"), news("batch 3")), SESSION_ID));
+		assertThat(responder.blocked.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Boolean> other = CompletableFuture.supplyAsync(() -> session.send(news("other")));
+		Thread.sleep(100);
+
+		responder.release();
+		assertThat(batch.get(5, TimeUnit.SECONDS)).extracting(MessageStatus::getStatus)
+				.containsOnly(Status.SENT);
+		assertThat(other.get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(responder.getSent()).extracting(BatchMessageSenderTest::headline)
+				.containsExactly("batch 1", "batch 2", "batch 3", "other");
+		assertThat(sentSequences()).containsExactly(2, 3, 4, 5);
+	}
+
+	@Test
+	public void shouldSendEachChunkAsItIsReadAndReleaseTheLockInBetween() throws Exception {
+		BatchMessageSender chunkingSender = new BatchMessageSender(new ObjectMapper(), 2);
+		Reader reader = new LineReader(
+				"{\"35\":\"B\",\"148\":\"batch 1\"}",
+				"{\"35\":\"B\",\"148\":\"batch 2\"}",
+				"{\"35\":\"B\",\"148\":\"batch 3\"}") {
+
+			@Override
+			void beforeLine(int line) throws Exception {
+				if (line == 2) {
+					// sent from another thread, it could not be while the batch held the lock
+					assertThat(CompletableFuture.supplyAsync(() -> session.send(news("other")))
+							.get(5, TimeUnit.SECONDS)).isTrue();
+				}
+			}
+		};
+
+		List<MessageStatus> statuses = chunkingSender.sendNdjson(reader, SESSION_ID);
+
+		assertThat(statuses).extracting(MessageStatus::getStatus).containsOnly(Status.SENT);
+		assertThat(responder.getSent()).extracting(BatchMessageSenderTest::headline)
+				.containsExactly("batch 1", "batch 2", "other", "batch 3");
+		assertThat(sentSequences()).containsExactly(2, 3, 4, 5);
+	}
+
+	private List<Integer> sentSequences() {
+		return responder.getSent().stream()
+				.map(BatchMessageSenderTest::parse)
+				.map(message -> {
+					try {
+						return message.getHeader().getInt(MsgSeqNum.FIELD);
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+				})
+				.collect(Collectors.toList());
+	}
+
+	private static String headline(String data) {
+		try {
+			return parse(data).getString(Headline.FIELD);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Message parse(String data) {
+		try {
+			return new Message(data, null, false);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static News news(String headline) {
+		return new News(new Headline(headline));
+	}
+
+	/**
+	 * Serves one line per read, so the lines are read as the batch is sent.
+	 */
+	private static class LineReader extends Reader {
+
+		private final String[] lines;
+
+		private int line;
+
+		private int position;
+
+		LineReader(String... lines) {
+			this.lines = lines;
+		}
+
+		void beforeLine(int line) throws Exception {
+		}
+
+		@Override
+		public int read(char[] buffer, int offset, int length) throws IOException {
+			if (line == lines.length) {
+				return -1;
+			}
+			if (position == 0) {
+				try {
+					beforeLine(line);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			String data = lines[line] + "\n";
+			int count = Math.min(length, data.length() - position);
+			data.getChars(position, position + count, buffer, offset);
+			position += count;
+			if (position == data.length()) {
+				line++;
+				position = 0;
+			}
+			return count;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * Blocks the next write until released.
+	 */
+	private static final class BlockingResponder extends RecordingResponder {
+
+		private final CountDownLatch blocked = new CountDownLatch(1);
+
+		private volatile CountDownLatch release = new CountDownLatch(0);
+
+		private void blockNextSend() {
+			release = new CountDownLatch(1);
+		}
+
+		private void release() {
+			release.countDown();
+		}
+
+		@Override
+		public boolean send(String data) {
+			CountDownLatch latch = release;
+			if (latch.getCount() > 0) {
+				blocked.countDown();
+				try {
+					latch.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return super.send(data);
+		}
+	}
+}
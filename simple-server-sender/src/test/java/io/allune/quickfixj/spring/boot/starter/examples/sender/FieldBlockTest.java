@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import org.junit.Test;
+import quickfix.Group;
+import quickfix.field.LastPx;
+import quickfix.field.NoPartyIDs;
+import quickfix.field.NoPartySubIDs;
+import quickfix.field.OnBehalfOfCompID;
+import quickfix.field.PartyID;
+import quickfix.field.PartySubID;
+import quickfix.field.Side;
+import quickfix.field.Symbol;
+import quickfix.fix44.ExecutionReport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FieldBlockTest {
+
+	private final FieldBlock block = FieldBlock.builder()
+			.header(new OnBehalfOfCompID("DESK"))
+			.field(new Symbol("USD/CLP"))
+			.field(new Side(Side.BUY))
+			.field(new LastPx(812.5))
+			.group(party("SCOTT"))
+			.build();
+
+	@Test
+	public void shouldSetTheFieldsAndGroupsOfTheBlock() throws Exception {
+		ExecutionReport message = new ExecutionReport();
+		block.applyTo(message);
+
+		assertThat(message.getHeader().getString(OnBehalfOfCompID.FIELD)).isEqualTo("DESK");
+		assertThat(message.getString(Symbol.FIELD)).isEqualTo("USD/CLP");
+		assertThat(message.getChar(Side.FIELD)).isEqualTo(Side.BUY);
+		assertThat(message.getDouble(LastPx.FIELD)).isEqualTo(812.5);
+		assertThat(message.getGroupCount(NoPartyIDs.FIELD)).isEqualTo(1);
+		assertThat(message.getGroup(1, NoPartyIDs.FIELD).getString(PartyID.FIELD)).isEqualTo("SCOTT");
+	}
+
+	@Test
+	public void shouldNotShareFieldsOrGroupsBetweenTheMessages() throws Exception {
+		ExecutionReport first = new ExecutionReport();
+		ExecutionReport second = new ExecutionReport();
+		block.applyTo(first);
+		block.applyTo(second);
+
+		first.getField(new Symbol()).setValue("EUR/USD");
+		first.getGroups(NoPartyIDs.FIELD).get(0).setString(PartyID.FIELD, "OTHER");
+
+		assertThat(second.getString(Symbol.FIELD)).isEqualTo("USD/CLP");
+		assertThat(second.getGroup(1, NoPartyIDs.FIELD).getString(PartyID.FIELD)).isEqualTo("SCOTT");
+		ExecutionReport third = new ExecutionReport();
+		block.applyTo(third);
+		assertThat(third.getString(Symbol.FIELD)).isEqualTo("USD/CLP");
+		assertThat(third.getGroup(1, NoPartyIDs.FIELD).getString(PartyID.FIELD)).isEqualTo("SCOTT");
+	}
+
+	@Test
+	public void shouldNotShareNestedGroupsBetweenTheMessages() throws Exception {
+		ExecutionReport first = new ExecutionReport();
+		block.applyTo(first);
+
+		Group subGroup = first.getGroups(NoPartyIDs.FIELD).get(0).getGroups(NoPartySubIDs.FIELD).get(0);
+		subGroup.setString(PartySubID.FIELD, "OTHER");
+		first.getGroups(NoPartyIDs.FIELD).get(0).addGroup(subGroup);
+
+		ExecutionReport second = new ExecutionReport();
+		block.applyTo(second);
+		Group party = second.getGroup(1, NoPartyIDs.FIELD);
+		assertThat(party.getGroupCount(NoPartySubIDs.FIELD)).isEqualTo(1);
+		assertThat(party.getGroup(1, NoPartySubIDs.FIELD).getString(PartySubID.FIELD)).isEqualTo("DESK-1");
+		assertThat(second.toString()).doesNotContain("OTHER");
+	}
+
+	private static ExecutionReport.NoPartyIDs party(String partyID) {
+		ExecutionReport.NoPartyIDs party = new ExecutionReport.NoPartyIDs();
+		party.set(new PartyID(partyID));
+		ExecutionReport.NoPartyIDs.NoPartySubIDs subID = new ExecutionReport.NoPartyIDs.NoPartySubIDs();
+		subID.set(new PartySubID("DESK-1"));
+		party.addGroup(subID);
+		return party;
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.RecordingResponder;
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.TestSessions;
+import io.allune.quickfixj.spring.boot.starter.model.FromApp;
+import io.allune.quickfixj.spring.boot.starter.model.Logout;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import quickfix.ConfigError;
+import quickfix.DataDictionary;
+import quickfix.FieldNotFound;
+import quickfix.Group;
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.field.MDEntryPositionNo;
+import quickfix.field.MDEntryPx;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDReqID;
+import quickfix.field.MarketDepth;
+import quickfix.field.MsgType;
+import quickfix.field.NoMDEntries;
+import quickfix.field.SubscriptionRequestType;
+import quickfix.field.Symbol;
+import quickfix.fix44.MarketDataRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MarketDataPublisherTest {
+
+	private static final String SYMBOL = "EUR/USD";
+
+	private static final DataDictionary FIX44;
+
+	static {
+		try {
+			FIX44 = new DataDictionary("FIX44.xml");
+		} catch (ConfigError e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private MarketDataPublisher publisher;
+
+	private Session first;
+
+	private Session second;
+
+	private BlockingResponder firstResponder = new BlockingResponder();
+
+	private BlockingResponder secondResponder = new BlockingResponder();
+
+	@Before
+	public void setUp() throws Exception {
+		publisher = new MarketDataPublisher(5, 65536, 1);
+		first = TestSessions.loggedOnAcceptor(new SessionID("FIX.4.4", "PUBLISHER", "FIRST"), firstResponder);
+		second = TestSessions.loggedOnAcceptor(new SessionID("FIX.4.4", "PUBLISHER", "SECOND"), secondResponder);
+		firstResponder.clear();
+		secondResponder.clear();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		firstResponder.release();
+		secondResponder.release();
+		publisher.close();
+		first.close();
+		second.close();
+	}
+
+	@Test
+	public void shouldSendTheLatestValueOfALevelUpdatedWhileTheSubscriberIsBusy() throws Exception {
+		subscribe(first, "1", SubscriptionRequestType.SNAPSHOT_UPDATES);
+		awaitSent(firstResponder, MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH, 1);
+
+		firstResponder.blockNextSend();
+		publisher.update(SYMBOL, MDEntryType.BID, 0, 1.1001, 1000000);
+		assertThat(firstResponder.blocked.await(5, TimeUnit.SECONDS)).isTrue();
+		publisher.update(SYMBOL, MDEntryType.OFFER, 1, 1.1005, 1000000);
+		publisher.update(SYMBOL, MDEntryType.OFFER, 1, 1.1006, 1000000);
+		publisher.update(SYMBOL, MDEntryType.OFFER, 1, 1.1007, 1000000);
+		firstResponder.release();
+
+		List<Message> refreshes = awaitSent(firstResponder, MsgType.MARKET_DATA_INCREMENTAL_REFRESH, 2);
+		List<Group> entries = refreshes.get(1).getGroups(NoMDEntries.FIELD);
+		assertThat(entries).hasSize(1);
+		assertThat(entries.get(0).getChar(MDEntryType.FIELD)).isEqualTo(MDEntryType.OFFER);
+		assertThat(entries.get(0).getInt(MDEntryPositionNo.FIELD)).isEqualTo(2);
+		assertThat(entries.get(0).getDouble(MDEntryPx.FIELD)).isEqualTo(1.1007);
+		assertThat(subscriberMetrics(first).get("conflatedUpdates")).isEqualTo(2L);
+	}
+
+	@Test
+	public void shouldSendASnapshotOfTheBookToALateJoinerBeforeTheUpdates() throws Exception {
+		publisher.update(SYMBOL, MDEntryType.BID, 0, 1.1001, 1000000);
+		subscribe(first, "1", SubscriptionRequestType.SNAPSHOT_UPDATES);
+		awaitSent(firstResponder, MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH, 1);
+		publisher.update(SYMBOL, MDEntryType.OFFER, 0, 1.1003, 2000000);
+		awaitSent(firstResponder, MsgType.MARKET_DATA_INCREMENTAL_REFRESH, 1);
+
+		subscribe(second, "2", SubscriptionRequestType.SNAPSHOT_UPDATES);
+		Message snapshot = awaitSent(secondResponder, MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH, 1).get(0);
+		assertThat(snapshot.getString(MDReqID.FIELD)).isEqualTo("2");
+		assertThat(snapshot.getString(Symbol.FIELD)).isEqualTo(SYMBOL);
+		List<Group> entries = snapshot.getGroups(NoMDEntries.FIELD);
+		assertThat(entries).hasSize(2);
+		assertThat(entries.get(0).getDouble(MDEntryPx.FIELD)).isEqualTo(1.1001);
+		assertThat(entries.get(1).getDouble(MDEntryPx.FIELD)).isEqualTo(1.1003);
+		assertThat(secondResponder.getSent(MsgType.MARKET_DATA_INCREMENTAL_REFRESH)).isEmpty();
+
+		publisher.update(SYMBOL, MDEntryType.BID, 0, 1.1002, 1000000);
+		Message refresh = awaitSent(secondResponder, MsgType.MARKET_DATA_INCREMENTAL_REFRESH, 1).get(0);
+		assertThat(refresh.getGroups(NoMDEntries.FIELD).get(0).getDouble(MDEntryPx.FIELD)).isEqualTo(1.1002);
+	}
+
+	@Test
+	public void shouldSendOnlyASnapshotToASnapshotRequest() throws Exception {
+		publisher.update(SYMBOL, MDEntryType.BID, 0, 1.1001, 1000000);
+		subscribe(first, "1", SubscriptionRequestType.SNAPSHOT);
+		awaitSent(firstResponder, MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH, 1);
+
+		publisher.update(SYMBOL, MDEntryType.BID, 0, 1.1002, 1000000);
+		Thread.sleep(100);
+
+		assertThat(firstResponder.getSent(MsgType.MARKET_DATA_INCREMENTAL_REFRESH)).isEmpty();
+	}
+
+	@Test
+	public void shouldStopPublishingToALoggedOutSession() throws Exception {
+		subscribe(first, "1", SubscriptionRequestType.SNAPSHOT_UPDATES);
+		awaitSent(firstResponder, MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH, 1);
+
+		publisher.onLogout(Logout.of(first.getSessionID()));
+		publisher.update(SYMBOL, MDEntryType.BID, 0, 1.1001, 1000000);
+		Thread.sleep(100);
+
+		assertThat(firstResponder.getSent(MsgType.MARKET_DATA_INCREMENTAL_REFRESH)).isEmpty();
+		assertThat(publisher.getMetrics()).doesNotContainKey(first.getSessionID().toString());
+	}
+
+	@Test
+	public void shouldReportNoBacklogForASessionWithoutSocket() throws Exception {
+		subscribe(first, "1", SubscriptionRequestType.SNAPSHOT_UPDATES);
+		awaitSent(firstResponder, MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH, 1);
+
+		assertThat(subscriberMetrics(first).get("backlogBytes")).isEqualTo(0L);
+		assertThat(subscriberMetrics(first).get("postponed")).isEqualTo(0L);
+	}
+
+	private void subscribe(Session session, String mdReqID, char requestType) throws FieldNotFound {
+		MarketDataRequest request = new MarketDataRequest(new MDReqID(mdReqID),
+				new SubscriptionRequestType(requestType), new MarketDepth(0));
+		MarketDataRequest.NoRelatedSym relatedSym = new MarketDataRequest.NoRelatedSym();
+		relatedSym.set(new Symbol(SYMBOL));
+		request.addGroup(relatedSym);
+		publisher.onFromApp(FromApp.of(request, session.getSessionID()));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> subscriberMetrics(Session session) {
+		return (Map<String, Object>) publisher.getMetrics().get(session.getSessionID().toString());
+	}
+
+	private static List<Message> awaitSent(RecordingResponder responder, String msgType, int count)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (responder.getSent(msgType).size() < count && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		List<Message> sent = responder.getSent(msgType, FIX44);
+		assertThat(sent).hasSize(count);
+		return sent;
+	}
+
+	/**
+	 * Holds the publishing thread in the next send, as a slow socket would, until released.
+	 */
+	private static final class BlockingResponder extends RecordingResponder {
+
+		private final CountDownLatch blocked = new CountDownLatch(1);
+
+		private final CountDownLatch released = new CountDownLatch(1);
+
+		private final AtomicBoolean blockNext = new AtomicBoolean();
+
+		private void blockNextSend() {
+			blockNext.set(true);
+		}
+
+		private void release() {
+			released.countDown();
+		}
+
+		@Override
+		public boolean send(String data) {
+			// checked before the message is recorded, so that a test arming it once a message is sent holds the next one
+			if (blockNext.compareAndSet(true, false)) {
+				blocked.countDown();
+				try {
+					released.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return super.send(data);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.RecordingResponder;
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.TestSessions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import quickfix.ApplicationAdapter;
+import quickfix.MemoryStore;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.field.Headline;
+import quickfix.fix44.News;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QueuedMessageSenderTest {
+
+	private static final SessionID SESSION_ID = new SessionID("FIX.4.4", "SENDER", "TARGET");
+
+	private static final Pattern NEWS_SEQUENCE = Pattern.compile("\u000135=B\u000134=(\\d+)\u0001");
+
+	private final BlockingResponder responder = new BlockingResponder();
+
+	private FailingStore store;
+
+	private QueuedMessageSender sender;
+
+	private Session session;
+
+	@Before
+	public void setUp() throws Exception {
+		sender = new QueuedMessageSender(16, 16);
+		store = new FailingStore();
+		session = TestSessions.loggedOnAcceptor(SESSION_ID, new ApplicationAdapter(), sessionID -> store,
+				TestSessions.acceptorSettings(SESSION_ID), responder);
+		responder.clear();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		responder.release();
+		sender.close();
+		session.close();
+	}
+
+	@Test
+	public void shouldWriteTheMessagesOfABatchInOneWrite() throws Exception {
+		List<CompletableFuture<Boolean>> futures = sendWhileBlocked(5);
+
+		for (CompletableFuture<Boolean> future : futures) {
+			assertThat(future.get(5, TimeUnit.SECONDS)).isTrue();
+		}
+		assertThat(responder.getSent()).hasSize(2);
+		assertThat(sentSequences()).containsExactly(2, 3, 4, 5, 6, 7);
+		assertThat(session.getStore().getNextSenderMsgSeqNum()).isEqualTo(8);
+	}
+
+	@Test
+	public void shouldOnlyFailTheMessageWhichCannotBeStored() throws Exception {
+		store.failOnce(5);
+		List<CompletableFuture<Boolean>> futures = sendWhileBlocked(5);
+
+		assertThat(futures.get(0).get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(futures.get(1).get(5, TimeUnit.SECONDS)).isTrue();
+		assertThatThrownBy(() -> futures.get(2).get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(IOException.class);
+		assertThat(futures.get(3).get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(futures.get(4).get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(sentSequences()).containsExactly(2, 3, 4, 5, 6);
+		assertThat(session.getStore().getNextSenderMsgSeqNum()).isEqualTo(7);
+	}
+
+	/**
+	 * Sends one message, then the others while its write is blocked, so that they are written as one batch.
+	 */
+	private List<CompletableFuture<Boolean>> sendWhileBlocked(int count) throws Exception {
+		responder.blockNextSend();
+		CompletableFuture<Boolean> first = sender.send(news(0), SESSION_ID);
+		assertThat(responder.blocked.await(5, TimeUnit.SECONDS)).isTrue();
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+		for (int i = 1; i <= count; i++) {
+			futures.add(sender.send(news(i), SESSION_ID));
+		}
+		responder.release();
+		assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+		return futures;
+	}
+
+	private List<Integer> sentSequences() {
+		List<Integer> sequences = new ArrayList<>();
+		for (String data : responder.getSent()) {
+			Matcher matcher = NEWS_SEQUENCE.matcher(data);
+			while (matcher.find()) {
+				sequences.add(Integer.parseInt(matcher.group(1)));
+			}
+		}
+		return sequences;
+	}
+
+	private static News news(int index) {
+		return new News(new Headline("news " + index));
+	}
+
+	/**
+	 * Fails to store the message of a sequence number once.
+	 */
+	private static final class FailingStore extends MemoryStore {
+
+		private volatile int failingSequence;
+
+		private FailingStore() throws IOException {
+		}
+
+		private void failOnce(int sequence) {
+			failingSequence = sequence;
+		}
+
+		@Override
+		public boolean set(int sequence, String message) throws IOException {
+			if (sequence == failingSequence) {
+				failingSequence = 0;
+				throw new IOException("Unable to store message " + sequence);
+			}
+			return super.set(sequence, message);
+		}
+	}
+
+	/**
+	 * Blocks the next write until released.
+	 */
+	private static final class BlockingResponder extends RecordingResponder {
+
+		private final CountDownLatch blocked = new CountDownLatch(1);
+
+		private volatile CountDownLatch release = new CountDownLatch(0);
+
+		private void blockNextSend() {
+			release = new CountDownLatch(1);
+		}
+
+		private void release() {
+			release.countDown();
+		}
+
+		@Override
+		public boolean send(String data) {
+			CountDownLatch latch = release;
+			if (latch.getCount() > 0) {
+				blocked.countDown();
+				try {
+					latch.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return super.send(data);
+		}
+	}
+}
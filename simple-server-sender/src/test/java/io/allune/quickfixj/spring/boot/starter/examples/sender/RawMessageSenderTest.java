@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.RecordingResponder;
+import io.allune.quickfixj.spring.boot.starter.examples.support.test.TestSessions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import quickfix.ApplicationAdapter;
+import quickfix.MemoryStore;
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.SessionState;
+import quickfix.SystemTime;
+import quickfix.field.ClOrdID;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.SenderCompID;
+import quickfix.field.TargetCompID;
+import quickfix.field.Text;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RawMessageSenderTest {
+
+	private static final SessionID SESSION_ID = new SessionID("FIX.4.4", "SENDER", "TARGET");
+
+	private final RecordingResponder responder = new RecordingResponder();
+
+	private final RawMessageSender sender = new RawMessageSender();
+
+	private FailingStore store;
+
+	private Session session;
+
+	@Before
+	public void setUp() throws Exception {
+		store = new FailingStore();
+		session = TestSessions.loggedOnAcceptor(SESSION_ID, new ApplicationAdapter(), sessionID -> store,
+				TestSessions.acceptorSettings(SESSION_ID), responder);
+		responder.clear();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		session.close();
+	}
+
+	@Test
+	public void shouldFrameTheBodyWithItsBodyLengthAndCheckSum() throws Exception {
+		assertThat(sender.sendRaw(body("35=D\u000111=order-1\u000158=Café\u000155=EUR/USD\u0001"), SESSION_ID))
+				.isTrue();
+
+		String sent = responder.getSent().get(0);
+		assertThat(sent).startsWith("8=FIX.4.4\u00019=");
+		int bodyStart = sent.indexOf('\u0001', "8=FIX.4.4\u0001".length()) + 1;
+		int trailerStart = sent.lastIndexOf("10=");
+		int bodyLength = Integer.parseInt(sent.substring("8=FIX.4.4\u00019=".length(), bodyStart - 1));
+		assertThat(bytes(sent.substring(bodyStart, trailerStart))).hasSize(bodyLength);
+		int sum = 0;
+		for (byte b : bytes(sent.substring(0, trailerStart))) {
+			sum += b & 0xff;
+		}
+		assertThat(sent.substring(trailerStart)).isEqualTo(String.format("10=%03d\u0001", sum & 0xff));
+
+		Message message = new Message(sent, null, true);
+		assertThat(message.getHeader().getInt(MsgSeqNum.FIELD)).isEqualTo(2);
+		assertThat(message.getHeader().getString(SenderCompID.FIELD)).isEqualTo("SENDER");
+		assertThat(message.getHeader().getString(TargetCompID.FIELD)).isEqualTo("TARGET");
+		assertThat(message.getString(ClOrdID.FIELD)).isEqualTo("order-1");
+		assertThat(message.getString(Text.FIELD)).isEqualTo("Café");
+	}
+
+	@Test
+	public void shouldStoreTheMessageUnderTheNextSequenceNumber() throws Exception {
+		sender.sendRaw(body("35=D\u000111=order-1\u0001"), SESSION_ID);
+		sender.sendRaw(body("35=D\u000111=order-2\u0001"), SESSION_ID);
+
+		List<String> stored = new ArrayList<>();
+		session.getStore().get(2, 3, stored);
+		assertThat(stored).isEqualTo(responder.getSent());
+		assertThat(session.getStore().getNextSenderMsgSeqNum()).isEqualTo(4);
+	}
+
+	@Test
+	public void shouldNotWriteAMessageTheStoreRejects() throws Exception {
+		store.failOnce(2);
+
+		assertThatThrownBy(() -> sender.sendRaw(body("35=D\u000111=order-1\u0001"), SESSION_ID))
+				.isInstanceOf(IOException.class);
+		assertThat(responder.getSent()).isEmpty();
+
+		sender.sendRaw(body("35=D\u000111=order-2\u0001"), SESSION_ID);
+		Message message = new Message(responder.getSent().get(0), null, false);
+		assertThat(message.getHeader().getInt(MsgSeqNum.FIELD)).isEqualTo(2);
+		assertThat(message.getString(ClOrdID.FIELD)).isEqualTo("order-2");
+	}
+
+	@Test
+	public void shouldRecordTheLastSentTime() throws Exception {
+		Field stateField = Session.class.getDeclaredField("state");
+		stateField.setAccessible(true);
+		SessionState state = (SessionState) stateField.get(session);
+		state.setLastSentTime(0);
+		long before = SystemTime.currentTimeMillis();
+
+		sender.sendRaw(body("35=D\u000111=order-1\u0001"), SESSION_ID);
+
+		assertThat(state.getLastSentTime()).isGreaterThanOrEqualTo(before);
+	}
+
+	@Test
+	public void shouldRejectTheAdminMessages() throws Exception {
+		for (String msgType : new String[]{"A", "5", "2", "4", "0"}) {
+			assertThatThrownBy(() -> sender.sendRaw(body("35=" + msgType + "\u000158=text\u0001"), SESSION_ID))
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessage("Admin message " + msgType + " is sent by the session");
+		}
+		assertThat(responder.getSent()).isEmpty();
+		assertThat(session.getStore().getNextSenderMsgSeqNum()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldRejectTheHeaderAndTrailerFields() throws Exception {
+		for (int tag : new int[]{43, 97, 115, 128, 52, 34, 10}) {
+			assertThatThrownBy(() -> sender.sendRaw(body("35=D\u000111=order-1\u0001" + tag + "=Y\u0001"), SESSION_ID))
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessage("Tag " + tag + " is a header or trailer field, set by the session");
+		}
+		assertThat(responder.getSent()).isEmpty();
+	}
+
+	@Test
+	public void shouldRejectABodyNotStartingWithTheMsgType() {
+		assertThatThrownBy(() -> sender.sendRaw(body("11=order-1\u000135=D\u0001"), SESSION_ID))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("The body must start with MsgType(35)");
+		assertThatThrownBy(() -> sender.sendRaw(body("35=D\u000111=order-1"), SESSION_ID))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("The body must start with MsgType(35) and end with SOH");
+	}
+
+	private static final class FailingStore extends MemoryStore {
+
+		private int failingSequence;
+
+		private FailingStore() throws IOException {
+		}
+
+		private void failOnce(int sequence) {
+			failingSequence = sequence;
+		}
+
+		@Override
+		public boolean set(int sequence, String message) throws IOException {
+			if (sequence == failingSequence) {
+				failingSequence = 0;
+				throw new IOException("Unable to store message " + sequence);
+			}
+			return super.set(sequence, message);
+		}
+	}
+
+	private static ByteBuffer body(String fields) {
+		return ByteBuffer.wrap(bytes(fields));
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender;
+
+import org.junit.Before;
+import org.junit.Test;
+import quickfix.MemoryStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResendCachingStoreTest {
+
+	private RecordingStore store;
+
+	@Before
+	public void setUp() throws IOException {
+		store = new RecordingStore();
+	}
+
+	@Test
+	public void shouldSkipTheTailOfTheRingRatherThanSplitAMessage() throws Exception {
+		ResendCachingStore cachingStore = new ResendCachingStore(store, 16, 100);
+		cachingStore.set(1, message(1, 40));
+		cachingStore.set(2, message(2, 40));
+		// does not fit in the last 20 bytes, written at the start of the ring over the first message
+		cachingStore.set(3, message(3, 40));
+
+		List<String> messages = new ArrayList<>();
+		cachingStore.get(1, 3, messages);
+
+		assertThat(messages).containsExactly(message(1, 40), message(2, 40), message(3, 40));
+		assertThat(store.ranges).containsExactly(range(1, 1));
+		assertThat(cachingStore.getHits()).isEqualTo(2);
+		assertThat(cachingStore.getMisses()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldReadAMessageLargerThanTheRingFromTheStore() throws Exception {
+		ResendCachingStore cachingStore = new ResendCachingStore(store, 16, 32);
+		cachingStore.set(1, message(1, 10));
+		cachingStore.set(2, message(2, 64));
+
+		List<String> messages = new ArrayList<>();
+		cachingStore.get(1, 2, messages);
+
+		assertThat(messages).containsExactly(message(1, 10), message(2, 64));
+		assertThat(store.ranges).containsExactly(range(2, 2));
+		assertThat(cachingStore.getCachedBytes()).isEqualTo(10);
+	}
+
+	@Test
+	public void shouldServeARangeMixingCachedAndEvictedMessagesInOrder() throws Exception {
+		ResendCachingStore cachingStore = new ResendCachingStore(store, 4, 100);
+		for (int sequence = 1; sequence <= 6; sequence++) {
+			// the slots of 1 and 2 are taken by 5 and 6, 4 does not fit in the ring
+			cachingStore.set(sequence, message(sequence, sequence == 4 ? 200 : 10));
+		}
+
+		List<String> messages = new ArrayList<>();
+		cachingStore.get(1, 6, messages);
+
+		assertThat(messages).containsExactly(message(1, 10), message(2, 10), message(3, 10), message(4, 200),
+				message(5, 10), message(6, 10));
+		assertThat(store.ranges).containsExactly(range(1, 2), range(4, 4));
+		assertThat(cachingStore.getHits()).isEqualTo(3);
+		assertThat(cachingStore.getMisses()).isEqualTo(3);
+	}
+
+	@Test
+	public void shouldClearTheRingOnReset() throws Exception {
+		ResendCachingStore cachingStore = new ResendCachingStore(store, 16, 100);
+		cachingStore.set(1, message(1, 10));
+
+		cachingStore.reset();
+		cachingStore.set(1, message(1, 20));
+		List<String> messages = new ArrayList<>();
+		cachingStore.get(1, 1, messages);
+
+		assertThat(messages).containsExactly(message(1, 20));
+		assertThat(cachingStore.getCachedBytes()).isEqualTo(20);
+	}
+
+	@Test
+	public void shouldClearTheRingOnRefresh() throws Exception {
+		ResendCachingStore cachingStore = new ResendCachingStore(store, 16, 100);
+		cachingStore.set(1, message(1, 10));
+		cachingStore.set(2, message(2, 10));
+
+		cachingStore.refresh();
+		List<String> messages = new ArrayList<>();
+		cachingStore.get(1, 2, messages);
+
+		assertThat(messages).containsExactly(message(1, 10), message(2, 10));
+		assertThat(store.ranges).containsExactly(range(1, 2));
+		assertThat(cachingStore.getHits()).isZero();
+		assertThat(cachingStore.getCachedBytes()).isZero();
+	}
+
+	private static String message(int sequence, int length) {
+		StringBuilder message = new StringBuilder("34=").append(sequence).append('\u0001');
+		while (message.length() < length) {
+			message.append('x');
+		}
+		return message.toString();
+	}
+
+	private static List<Integer> range(int start, int end) {
+		return Arrays.asList(start, end);
+	}
+
+	/**
+	 * Records the ranges read from the store, which keeps its messages on refresh.
+	 */
+	private static final class RecordingStore extends MemoryStore {
+
+		private final List<List<Integer>> ranges = new ArrayList<>();
+
+		private RecordingStore() throws IOException {
+		}
+
+		@Override
+		public void get(int startSequence, int endSequence, Collection<String> messages) throws IOException {
+			ranges.add(range(startSequence, endSequence));
+			super.get(startSequence, endSequence, messages);
+		}
+
+		@Override
+		public void refresh() {
+		}
+	}
+}
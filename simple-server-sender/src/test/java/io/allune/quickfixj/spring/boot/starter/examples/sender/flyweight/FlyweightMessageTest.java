@@ -0,0 +1,250 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.sender.flyweight;
+
+import org.junit.Test;
+import quickfix.DataDictionary;
+import quickfix.Message;
+import quickfix.field.AvgPx;
+import quickfix.field.CFICode;
+import quickfix.field.ClOrdID;
+import quickfix.field.CumQty;
+import quickfix.field.Currency;
+import quickfix.field.ExecID;
+import quickfix.field.ExecType;
+import quickfix.field.LastForwardPoints;
+import quickfix.field.LastPx;
+import quickfix.field.LastQty;
+import quickfix.field.LastSpotRate;
+import quickfix.field.LeavesQty;
+import quickfix.field.MDEntryDate;
+import quickfix.field.MDEntryPx;
+import quickfix.field.MDEntrySize;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDReqID;
+import quickfix.field.MsgType;
+import quickfix.field.NoMDEntries;
+import quickfix.field.OrdStatus;
+import quickfix.field.OrdType;
+import quickfix.field.OrderID;
+import quickfix.field.OrderQty;
+import quickfix.field.Price;
+import quickfix.field.QuoteEntryID;
+import quickfix.field.SettlDate;
+import quickfix.field.SettlType;
+import quickfix.field.Side;
+import quickfix.field.Symbol;
+import quickfix.field.TimeInForce;
+import quickfix.field.TransactTime;
+import quickfix.fix44.ExecutionReport;
+import quickfix.fix44.MarketDataSnapshotFullRefresh;
+import quickfix.fix44.MessageFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlyweightMessageTest {
+
+	private static final DataDictionary dictionary = loadDataDictionary();
+
+	private static final FlyweightLayout executionReportLayout =
+			FlyweightLayout.of(dictionary, MsgType.EXECUTION_REPORT);
+
+	private static final FlyweightLayout marketDataLayout =
+			FlyweightLayout.of(dictionary, MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH);
+
+	private static final LocalDateTime TRANSACT_TIME = LocalDateTime.of(2020, 9, 8, 14, 30, 15, 123_000_000);
+
+	private static final long TRANSACT_TIME_MILLIS = TRANSACT_TIME.toInstant(ZoneOffset.UTC).toEpochMilli();
+
+	@Test
+	public void shouldEncodeAnExecutionReportAsTheMessage() {
+		FlyweightMessage flyweight = executionReportLayout.acquire();
+		flyweight.setString(OrderID.FIELD, "2076603489517051904")
+				.setString(ExecID.FIELD, "2076603492218183680")
+				.setChar(ExecType.FIELD, ExecType.FILL)
+				.setChar(OrdStatus.FIELD, OrdStatus.FILLED)
+				.setChar(Side.FIELD, Side.BUY)
+				.setInt(LeavesQty.FIELD, 0)
+				.setInt(CumQty.FIELD, 1000000)
+				.setDecimal(AvgPx.FIELD, 1.183054)
+				.setDecimal(OrderQty.FIELD, 100000000, 2)
+				.setChar(OrdType.FIELD, OrdType.LIMIT)
+				.setString(ClOrdID.FIELD, "ordID_1")
+				.setString(Symbol.FIELD, "EUR/USD")
+				.setString(Currency.FIELD, "EUR")
+				.setDecimal(LastPx.FIELD, 1.183054)
+				.setInt(LastQty.FIELD, 1000000)
+				.setDecimal(Price.FIELD, 118313, 5)
+				.setChar(TimeInForce.FIELD, TimeInForce.FILL_OR_KILL)
+				.setUtcTimestamp(TransactTime.FIELD, TRANSACT_TIME_MILLIS)
+				.setString(SettlType.FIELD, "1W")
+				.setString(SettlDate.FIELD, "20200915")
+				.setDecimal(LastSpotRate.FIELD, 1.18317)
+				.setDecimal(LastForwardPoints.FIELD, -0.00004)
+				.setString(CFICode.FIELD, "FORWARD");
+
+		assertThat(decode(flyweight.encodeBody())).isEqualTo(body(executionReport()));
+	}
+
+	@Test
+	public void shouldEncodeTheDecimalsAsTheDoubleFields() {
+		double[] values = {0, 1, -1, 0.1, 0.5, 100, 1.183054, -0.00004, 1e-7, 123456.789, 1234567890123.25, 1e15,
+				0.1 + 0.2, 1d / 3, Math.PI, -0.0, 1e20};
+		for (double value : values) {
+			FlyweightMessage flyweight = executionReportLayout.acquire();
+			flyweight.setDecimal(Price.FIELD, value);
+			ExecutionReport message = new ExecutionReport();
+			message.set(new Price(value));
+
+			assertThat(decode(flyweight.encodeBody())).as("%s", value).isEqualTo(body(message));
+		}
+	}
+
+	@Test
+	public void shouldEncodeTheRepeatingGroupsAsTheMessage() {
+		FlyweightMessage flyweight = marketDataLayout.acquire();
+		flyweight.setString(Symbol.FIELD, "EUR/USD")
+				.setString(MDReqID.FIELD, "FIXLOADTEST:1500959671701")
+				.setString(CFICode.FIELD, "SPOT");
+		flyweight.addGroup(NoMDEntries.FIELD)
+				.setChar(MDEntryType.FIELD, MDEntryType.BID)
+				.setDecimal(MDEntryPx.FIELD, 1.1337)
+				.setInt(MDEntrySize.FIELD, 1600000)
+				.setString(QuoteEntryID.FIELD, "1009707692782002208")
+				.setUtcDateOnly(MDEntryDate.FIELD, TRANSACT_TIME_MILLIS);
+		flyweight.addGroup(NoMDEntries.FIELD)
+				.setChar(MDEntryType.FIELD, MDEntryType.OFFER)
+				.setDecimal(MDEntryPx.FIELD, 113373, 5)
+				.setInt(MDEntrySize.FIELD, 2000000)
+				.setString(QuoteEntryID.FIELD, "1009707692782002209")
+				.setUtcDateOnly(MDEntryDate.FIELD, TRANSACT_TIME_MILLIS);
+
+		assertThat(flyweight.getGroupCount(NoMDEntries.FIELD)).isEqualTo(2);
+		assertThat(decode(flyweight.encodeBody())).isEqualTo(body(marketData()));
+	}
+
+	@Test
+	public void shouldNotKeepTheFieldsOfThePreviousAcquire() {
+		FlyweightMessage first = marketDataLayout.acquire();
+		first.setString(Symbol.FIELD, "USD/CLP");
+		first.addGroup(NoMDEntries.FIELD).setChar(MDEntryType.FIELD, MDEntryType.BID);
+		first.encodeBody();
+
+		FlyweightMessage second = marketDataLayout.acquire();
+		second.setString(MDReqID.FIELD, "request");
+
+		assertThat(second.isSetField(Symbol.FIELD)).isFalse();
+		assertThat(second.getGroupCount(NoMDEntries.FIELD)).isZero();
+		assertThat(decode(second.encodeBody())).isEqualTo("35=W\u0001262=request\u0001");
+	}
+
+	@Test
+	public void shouldEncodeACopiedMessageAsTheMessage() throws Exception {
+		ExecutionReport executionReport = executionReport();
+		MarketDataSnapshotFullRefresh marketData = marketData();
+
+		assertThat(decode(executionReportLayout.acquire().copyFrom(executionReport).encodeBody()))
+				.isEqualTo(body(executionReport));
+		assertThat(decode(marketDataLayout.acquire().copyFrom(marketData).encodeBody()))
+				.isEqualTo(body(marketData));
+	}
+
+	@Test
+	public void shouldConvertBackToTheMessage() throws Exception {
+		ExecutionReport executionReport = executionReport();
+		MarketDataSnapshotFullRefresh marketData = marketData();
+
+		Message copiedExecutionReport = executionReportLayout.acquire().copyFrom(executionReport)
+				.toMessage(new MessageFactory(), "FIX.4.4");
+		Message copiedMarketData = marketDataLayout.acquire().copyFrom(marketData)
+				.toMessage(new MessageFactory(), "FIX.4.4");
+
+		assertThat(copiedExecutionReport).isInstanceOf(ExecutionReport.class);
+		assertThat(copiedExecutionReport.toString()).isEqualTo(executionReport.toString());
+		assertThat(copiedMarketData).isInstanceOf(MarketDataSnapshotFullRefresh.class);
+		assertThat(copiedMarketData.getGroupCount(NoMDEntries.FIELD)).isEqualTo(2);
+		assertThat(copiedMarketData.toString()).isEqualTo(marketData.toString());
+	}
+
+	private static ExecutionReport executionReport() {
+		ExecutionReport executionReport = new ExecutionReport(new OrderID("2076603489517051904"),
+				new ExecID("2076603492218183680"), new ExecType(ExecType.FILL), new OrdStatus(OrdStatus.FILLED),
+				new Side(Side.BUY), new LeavesQty(0), new CumQty(1000000), new AvgPx(1.183054));
+		executionReport.setString(OrderQty.FIELD, "1000000.00");
+		executionReport.set(new OrdType(OrdType.LIMIT));
+		executionReport.set(new ClOrdID("ordID_1"));
+		executionReport.set(new Symbol("EUR/USD"));
+		executionReport.set(new Currency("EUR"));
+		executionReport.set(new LastPx(1.183054));
+		executionReport.set(new LastQty(1000000));
+		executionReport.set(new Price(1.18313));
+		executionReport.set(new TimeInForce(TimeInForce.FILL_OR_KILL));
+		executionReport.set(new TransactTime(TRANSACT_TIME));
+		executionReport.set(new SettlType("1W"));
+		executionReport.set(new SettlDate("20200915"));
+		executionReport.set(new LastSpotRate(1.18317));
+		executionReport.set(new LastForwardPoints(-0.00004));
+		executionReport.set(new CFICode("FORWARD"));
+		return executionReport;
+	}
+
+	private static MarketDataSnapshotFullRefresh marketData() {
+		MarketDataSnapshotFullRefresh marketData = new MarketDataSnapshotFullRefresh();
+		marketData.set(new Symbol("EUR/USD"));
+		marketData.set(new MDReqID("FIXLOADTEST:1500959671701"));
+		marketData.set(new CFICode("SPOT"));
+
+		MarketDataSnapshotFullRefresh.NoMDEntries group = new MarketDataSnapshotFullRefresh.NoMDEntries();
+		group.set(new MDEntryType(MDEntryType.BID));
+		group.set(new MDEntryPx(1.1337));
+		group.set(new MDEntrySize(1600000));
+		group.set(new QuoteEntryID("1009707692782002208"));
+		group.set(new MDEntryDate(LocalDate.from(TRANSACT_TIME)));
+		marketData.addGroup(group);
+		group.set(new MDEntryType(MDEntryType.OFFER));
+		group.set(new MDEntryPx(1.13373));
+		group.set(new MDEntrySize(2000000));
+		group.set(new QuoteEntryID("1009707692782002209"));
+		marketData.addGroup(group);
+		return marketData;
+	}
+
+	/**
+	 * The part of {@link Message#toString()} the flyweight encodes, from the MsgType to the CheckSum.
+	 */
+	private static String body(Message message) {
+		String encoded = message.toString();
+		return encoded.substring(encoded.indexOf("\u000135=") + 1, encoded.lastIndexOf("\u000110=") + 1);
+	}
+
+	private static String decode(ByteBuffer buffer) {
+		return new String(buffer.array(), buffer.position(), buffer.remaining(), StandardCharsets.ISO_8859_1);
+	}
+
+	private static DataDictionary loadDataDictionary() {
+		try {
+			return new DataDictionary("FIX44.xml");
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
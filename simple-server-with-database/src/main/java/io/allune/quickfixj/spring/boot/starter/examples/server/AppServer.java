@@ -16,6 +16,10 @@
 package io.allune.quickfixj.spring.boot.starter.examples.server;
 
 import io.allune.quickfixj.spring.boot.starter.EnableQuickFixJServer;
+import io.allune.quickfixj.spring.boot.starter.examples.support.jdbc.BatchingJdbcLogFactory;
+import io.allune.quickfixj.spring.boot.starter.examples.support.jdbc.ChunkedResendApplication;
+import io.allune.quickfixj.spring.boot.starter.examples.support.jdbc.JdbcLogEndpoint;
+import io.allune.quickfixj.spring.boot.starter.examples.support.jdbc.WriteBehindJdbcStoreFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
@@ -25,14 +29,15 @@ import org.springframework.context.annotation.Bean;
 import quickfix.Acceptor;
 import quickfix.Application;
 import quickfix.ConfigError;
-import quickfix.JdbcLogFactory;
-import quickfix.JdbcStoreFactory;
+import quickfix.FieldConvertError;
 import quickfix.LogFactory;
 import quickfix.MessageFactory;
 import quickfix.MessageStoreFactory;
 import quickfix.SessionSettings;
 import quickfix.ThreadedSocketAcceptor;
 
+import javax.sql.DataSource;
+
 @EnableQuickFixJServer
 @SpringBootApplication
 public class AppServer implements CommandLineRunner {
@@ -51,7 +56,7 @@ public class AppServer implements CommandLineRunner {
 
 	@Bean
 	public Application serverApplication() {
-		return new ServerApplicationAdapter();
+		return new ChunkedResendApplication(new ServerApplicationAdapter());
 	}
 
 	@Bean
@@ -64,12 +69,19 @@ public class AppServer implements CommandLineRunner {
 	}
 
 	@Bean
-	public MessageStoreFactory serverMessageStoreFactory(SessionSettings serverSessionSettings) {
-		return new JdbcStoreFactory(serverSessionSettings);
+	public MessageStoreFactory serverMessageStoreFactory(SessionSettings serverSessionSettings, DataSource dataSource)
+			throws ConfigError, FieldConvertError {
+		return new WriteBehindJdbcStoreFactory(serverSessionSettings, dataSource);
+	}
+
+	@Bean
+	public BatchingJdbcLogFactory serverLogFactory(SessionSettings serverSessionSettings, DataSource dataSource)
+			throws ConfigError, FieldConvertError {
+		return new BatchingJdbcLogFactory(serverSessionSettings, dataSource);
 	}
 
 	@Bean
-	public LogFactory serverLogFactory(SessionSettings serverSessionSettings) {
-		return new JdbcLogFactory(serverSessionSettings);
+	public JdbcLogEndpoint jdbcLogEndpoint(BatchingJdbcLogFactory serverLogFactory) {
+		return new JdbcLogEndpoint(serverLogFactory);
 	}
 }
@@ -16,11 +16,19 @@
 package io.allune.quickfixj.spring.boot.starter.examples.server;
 
 import io.allune.quickfixj.spring.boot.starter.EnableQuickFixJServer;
+import io.allune.quickfixj.spring.boot.starter.examples.support.concurrent.OverflowPolicy;
+import io.allune.quickfixj.spring.boot.starter.examples.support.eventloop.EventLoopSocketAcceptor;
+import io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLogFactory;
+import io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLogger;
+import io.allune.quickfixj.spring.boot.starter.examples.support.logging.AsyncMessageLoggerEndpoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import quickfix.Acceptor;
 import quickfix.Application;
@@ -49,21 +57,66 @@ public class AppServer implements CommandLineRunner {
 	}
 
 	@Bean
-	public Application serverApplication() {
-		return new ServerApplicationAdapter();
+	public Application serverApplication(ObjectProvider<AsyncMessageLogger> asyncMessageLogger,
+	                                     LatencyRecorder latencyRecorder,
+	                                     @Value("${examples.order-acknowledgement.enabled:false}") boolean acknowledgeOrders) {
+		AsyncMessageLogger messageLogger = asyncMessageLogger.getIfAvailable();
+		Application application = messageLogger != null
+				? new AsyncLoggingServerApplicationAdapter(messageLogger)
+				: new ServerApplicationAdapter();
+		if (acknowledgeOrders) {
+			application = new OrderAcknowledgingApplication(application);
+		}
+		return new LatencyRecordingApplication(application, latencyRecorder);
+	}
+
+	@Bean
+	public LatencyRecorder latencyRecorder() {
+		return new LatencyRecorder();
+	}
+
+	@Bean
+	public LatencyEndpoint latencyEndpoint(LatencyRecorder latencyRecorder) {
+		return new LatencyEndpoint(latencyRecorder);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "examples.async-logging.enabled", havingValue = "true")
+	public AsyncMessageLogger asyncMessageLogger(@Value("${examples.async-logging.buffer-size:8192}") int bufferSize,
+	                                             @Value("${examples.async-logging.overflow-policy:DROP}") OverflowPolicy overflowPolicy) {
+		return new AsyncMessageLogger(bufferSize, overflowPolicy);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "examples.async-logging.enabled", havingValue = "true")
+	public AsyncMessageLoggerEndpoint asyncMessageLoggerEndpoint(AsyncMessageLogger asyncMessageLogger) {
+		return new AsyncMessageLoggerEndpoint(asyncMessageLogger);
 	}
 
 	@Bean
 	public Acceptor serverAcceptor(quickfix.Application serverApplication, MessageStoreFactory serverMessageStoreFactory,
 	                               SessionSettings serverSessionSettings, LogFactory serverLogFactory,
-	                               MessageFactory serverMessageFactory) throws ConfigError {
+	                               MessageFactory serverMessageFactory,
+	                               @Value("${examples.event-loop-acceptor.enabled:false}") boolean eventLoops,
+	                               @Value("${examples.event-loop-acceptor.threads:0}") int eventLoopThreads,
+	                               @Value("${examples.event-loop-acceptor.queue-capacity:10000}") int queueCapacity) throws ConfigError {
 
+		if (eventLoops) {
+			return new EventLoopSocketAcceptor(serverApplication, serverMessageStoreFactory, serverSessionSettings,
+					serverLogFactory, serverMessageFactory, eventLoopThreads, queueCapacity);
+		}
 		return new ThreadedSocketAcceptor(serverApplication, serverMessageStoreFactory, serverSessionSettings,
 				serverLogFactory, serverMessageFactory);
 	}
 
 	@Bean
-	public LogFactory serverLogFactory(SessionSettings serverSessionSettings) {
-		return new FileLogFactory(serverSessionSettings);
+	public LogFactory serverLogFactory(SessionSettings serverSessionSettings, LatencyRecorder latencyRecorder,
+	                                   ObjectProvider<AsyncMessageLogger> asyncMessageLogger) {
+		LogFactory logFactory = new FileLogFactory(serverSessionSettings);
+		AsyncMessageLogger messageLogger = asyncMessageLogger.getIfAvailable();
+		if (messageLogger != null) {
+			logFactory = new AsyncMessageLogFactory(logFactory, messageLogger);
+		}
+		return new LatencyRecordingLogFactory(logFactory, latencyRecorder);
 	}
 }
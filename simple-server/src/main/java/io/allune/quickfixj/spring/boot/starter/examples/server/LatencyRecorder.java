@@ -0,0 +1,315 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.server;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import quickfix.FieldNotFound;
+import quickfix.Message;
+import quickfix.SessionID;
+import quickfix.SystemTime;
+import quickfix.field.MsgSeqNum;
+import quickfix.field.MsgType;
+import quickfix.field.SendingTime;
+
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps HdrHistogram latency histograms per {@link SessionID}, MsgType and {@link Metric}.
+ * <p>
+ * The session and IO threads record into a {@link Recorder}, which is wait-free for writers; the histograms are only
+ * accumulated when the metrics are read, from the actuator endpoint or by the Micrometer gauges. All latencies are
+ * recorded in microseconds. The incoming timestamps are kept per session in a small ring indexed by MsgSeqNum, so the
+ * IO thread that reads a message and the session thread that dispatches it need no shared lock either.
+ * <p>
+ * The histograms are cumulative: the percentiles cover every message since the application started, not the last
+ * interval, so a recent regression only shows once it outweighs the history.
+ */
+public class LatencyRecorder implements MeterBinder {
+
+	private static final int SIGNIFICANT_DIGITS = 3;
+
+	private static final int RECEIVED_RING_SIZE = 1024;
+
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+	private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+	private final ConcurrentMap<Key, Recording> recordings = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<SessionID, ReceivedTimes> receivedTimes = new ConcurrentHashMap<>();
+
+	private final ThreadLocal<PendingSend> pendingSend = ThreadLocal.withInitial(PendingSend::new);
+
+	private final List<MeterRegistry> registries = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		registries.add(registry);
+		recordings.forEach((key, recording) -> register(registry, key, recording));
+	}
+
+	/**
+	 * Called on the IO thread as soon as a message is read off the wire.
+	 */
+	public void received(SessionID sessionId, String message) {
+		int sequence = sequenceNumber(message);
+		if (sequence > 0) {
+			receivedTimes.computeIfAbsent(sessionId, id -> new ReceivedTimes()).put(sequence, System.nanoTime());
+		}
+	}
+
+	/**
+	 * Called on the session thread when the message reaches the application, records the queue wait since
+	 * {@link #received} and the skew between the SendingTime and the local clock, clamped at zero.
+	 */
+	public void dispatched(Message message, SessionID sessionId) {
+		try {
+			String msgType = message.getHeader().getString(MsgType.FIELD);
+			ReceivedTimes times = receivedTimes.get(sessionId);
+			long receivedNanos = times != null ? times.get(message.getHeader().getInt(MsgSeqNum.FIELD)) : 0;
+			if (receivedNanos != 0) {
+				record(Metric.QUEUE_WAIT, sessionId, msgType, System.nanoTime() - receivedNanos);
+			}
+			if (message.getHeader().isSetField(SendingTime.FIELD)) {
+				long skewMillis = SystemTime.currentTimeMillis()
+						- message.getHeader().getUtcTimeStamp(SendingTime.FIELD).toInstant(ZoneOffset.UTC).toEpochMilli();
+				record(Metric.SENDING_TIME_SKEW, sessionId, msgType, TimeUnit.MILLISECONDS.toNanos(skewMillis));
+			}
+		} catch (FieldNotFound e) {
+			// not a well formed message, there is nothing to correlate
+		}
+	}
+
+	/**
+	 * Called on the sending thread from {@code toApp} or {@code toAdmin}, once the message is allowed to be sent; the
+	 * message is written to the wire on the same thread, unless the session is not logged on.
+	 */
+	public void sending(Message message, SessionID sessionId) {
+		PendingSend send = pendingSend.get();
+		send.sessionId = sessionId;
+		send.sequence = sequenceNumber(message);
+		send.msgType = message.getHeader().getOptionalString(MsgType.FIELD).orElse(null);
+		send.nanos = System.nanoTime();
+	}
+
+	/**
+	 * Called on the sending thread right before the message is written to the wire. The pending send of the thread is
+	 * only recorded if it is this message, same session and MsgSeqNum, and it is dropped either way: a send which was
+	 * not written, as when the session is not logged on, is not attributed to a later write.
+	 */
+	public void sent(SessionID sessionId, String message) {
+		PendingSend send = pendingSend.get();
+		if (send.msgType != null && sessionId.equals(send.sessionId) && send.sequence == sequenceNumber(message)) {
+			record(Metric.TO_APP_TO_WIRE, sessionId, send.msgType, System.nanoTime() - send.nanos);
+		}
+		send.sessionId = null;
+		send.msgType = null;
+	}
+
+	public void record(Metric metric, SessionID sessionId, String msgType, long nanos) {
+		Key key = new Key(sessionId, msgType, metric);
+		Recording recording = recordings.get(key);
+		if (recording == null) {
+			recording = recordings.computeIfAbsent(key, k -> new Recording());
+			for (MeterRegistry registry : registries) {
+				register(registry, key, recording);
+			}
+		}
+		recording.recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+	}
+
+	/**
+	 * Returns the latencies in microseconds by session, MsgType and metric.
+	 */
+	public Map<String, Object> getMetrics() {
+		Map<String, Map<String, Map<String, Object>>> sessions = new TreeMap<>();
+		recordings.forEach((key, recording) -> {
+			Histogram histogram = recording.snapshot();
+			Map<String, Object> summary = new LinkedHashMap<>();
+			summary.put("count", histogram.getTotalCount());
+			summary.put("mean", histogram.getMean());
+			for (int i = 0; i < QUANTILES.length; i++) {
+				summary.put(QUANTILE_NAMES[i], histogram.getValueAtPercentile(QUANTILES[i] * 100));
+			}
+			summary.put("max", histogram.getMaxValue());
+			sessions.computeIfAbsent(key.sessionId.toString(), id -> new TreeMap<>())
+					.computeIfAbsent(key.msgType, type -> new TreeMap<>())
+					.put(key.metric.toString(), summary);
+		});
+		return new LinkedHashMap<>(sessions);
+	}
+
+	private static void register(MeterRegistry registry, Key key, Recording recording) {
+		for (double quantile : QUANTILES) {
+			Gauge.builder("quickfixj.latency", recording, r -> r.snapshot().getValueAtPercentile(quantile * 100))
+					.tag("sessionId", key.sessionId.toString())
+					.tag("msgType", key.msgType)
+					.tag("metric", key.metric.toString())
+					.tag("quantile", Double.toString(quantile))
+					.description("Latency percentile since the application started")
+					.baseUnit("microseconds")
+					.register(registry);
+		}
+	}
+
+	private static int sequenceNumber(Message message) {
+		try {
+			return message.getHeader().isSetField(MsgSeqNum.FIELD) ? message.getHeader().getInt(MsgSeqNum.FIELD) : 0;
+		} catch (FieldNotFound e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Reads the MsgSeqNum without parsing the message, it is always in the standard header.
+	 */
+	private static int sequenceNumber(String message) {
+		int start = message.indexOf("\u000134=");
+		if (start < 0) {
+			return 0;
+		}
+		int sequence = 0;
+		for (int i = start + 4; i < message.length(); i++) {
+			char c = message.charAt(i);
+			if (c < '0' || c > '9') {
+				break;
+			}
+			sequence = sequence * 10 + (c - '0');
+		}
+		return sequence;
+	}
+
+	public enum Metric {
+		/**
+		 * From reading the message off the wire to its dispatch on the session thread
+		 */
+		QUEUE_WAIT("queueWait"),
+		/**
+		 * Duration of the application's {@code fromApp} handler
+		 */
+		FROM_APP_TO_HANDLER("fromAppToHandler"),
+		/**
+		 * From {@code toApp}, or {@code toAdmin}, to writing the message to the wire, including the message store
+		 */
+		TO_APP_TO_WIRE("toAppToWire"),
+		/**
+		 * Local receive time minus the SendingTime of the counterparty
+		 */
+		SENDING_TIME_SKEW("sendingTimeSkew");
+
+		private final String name;
+
+		Metric(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	private static final class Recording {
+
+		private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+		private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+
+		private Histogram interval;
+
+		private synchronized Histogram snapshot() {
+			interval = recorder.getIntervalHistogram(interval);
+			total.add(interval);
+			return total;
+		}
+	}
+
+	private static final class ReceivedTimes {
+
+		private final AtomicIntegerArray sequences = new AtomicIntegerArray(RECEIVED_RING_SIZE);
+
+		private final AtomicLongArray nanos = new AtomicLongArray(RECEIVED_RING_SIZE);
+
+		private void put(int sequence, long time) {
+			int index = sequence & (RECEIVED_RING_SIZE - 1);
+			nanos.set(index, time);
+			sequences.set(index, sequence);
+		}
+
+		private long get(int sequence) {
+			int index = sequence & (RECEIVED_RING_SIZE - 1);
+			return sequences.get(index) == sequence ? nanos.get(index) : 0;
+		}
+	}
+
+	private static final class PendingSend {
+
+		private SessionID sessionId;
+
+		private int sequence;
+
+		private String msgType;
+
+		private long nanos;
+	}
+
+	private static final class Key {
+
+		private final SessionID sessionId;
+
+		private final String msgType;
+
+		private final Metric metric;
+
+		private Key(SessionID sessionId, String msgType, Metric metric) {
+			this.sessionId = sessionId;
+			this.msgType = msgType;
+			this.metric = metric;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) o;
+			return sessionId.equals(key.sessionId) && msgType.equals(key.msgType) && metric == key.metric;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(sessionId, msgType, metric);
+		}
+	}
+}
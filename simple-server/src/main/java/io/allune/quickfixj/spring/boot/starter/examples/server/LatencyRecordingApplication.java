@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.server;
+
+import io.allune.quickfixj.spring.boot.starter.examples.server.LatencyRecorder.Metric;
+import quickfix.Application;
+import quickfix.DoNotSend;
+import quickfix.FieldNotFound;
+import quickfix.IncorrectDataFormat;
+import quickfix.IncorrectTagValue;
+import quickfix.Message;
+import quickfix.RejectLogon;
+import quickfix.SessionID;
+import quickfix.UnsupportedMessageType;
+import quickfix.field.MsgType;
+
+/**
+ * {@link Application} decorator that records the latencies of the delegate's message callbacks into a
+ * {@link LatencyRecorder}.
+ */
+public class LatencyRecordingApplication implements Application {
+
+	private final Application delegate;
+
+	private final LatencyRecorder latencyRecorder;
+
+	public LatencyRecordingApplication(Application delegate, LatencyRecorder latencyRecorder) {
+		this.delegate = delegate;
+		this.latencyRecorder = latencyRecorder;
+	}
+
+	@Override
+	public void fromAdmin(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat,
+			IncorrectTagValue, RejectLogon {
+		latencyRecorder.dispatched(message, sessionId);
+		delegate.fromAdmin(message, sessionId);
+	}
+
+	@Override
+	public void fromApp(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat,
+			IncorrectTagValue, UnsupportedMessageType {
+		latencyRecorder.dispatched(message, sessionId);
+		long start = System.nanoTime();
+		try {
+			delegate.fromApp(message, sessionId);
+		} finally {
+			latencyRecorder.record(Metric.FROM_APP_TO_HANDLER, sessionId,
+					message.getHeader().getString(MsgType.FIELD), System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void onCreate(SessionID sessionId) {
+		delegate.onCreate(sessionId);
+	}
+
+	@Override
+	public void onLogon(SessionID sessionId) {
+		delegate.onLogon(sessionId);
+	}
+
+	@Override
+	public void onLogout(SessionID sessionId) {
+		delegate.onLogout(sessionId);
+	}
+
+	@Override
+	public void toAdmin(Message message, SessionID sessionId) {
+		delegate.toAdmin(message, sessionId);
+		latencyRecorder.sending(message, sessionId);
+	}
+
+	@Override
+	public void toApp(Message message, SessionID sessionId) throws DoNotSend {
+		delegate.toApp(message, sessionId);
+		latencyRecorder.sending(message, sessionId);
+	}
+}
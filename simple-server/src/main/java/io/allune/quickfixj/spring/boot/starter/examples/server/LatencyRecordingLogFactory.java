@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.server;
+
+import quickfix.Log;
+import quickfix.LogFactory;
+import quickfix.SessionID;
+
+/**
+ * {@link LogFactory} decorator that marks, in a {@link LatencyRecorder}, when each message is read off and written to
+ * the wire: QuickFIX/J logs incoming messages on the IO thread before queueing them for the session, and outgoing
+ * messages right before handing them to the socket.
+ */
+public class LatencyRecordingLogFactory implements LogFactory {
+
+	private final LogFactory delegate;
+
+	private final LatencyRecorder latencyRecorder;
+
+	public LatencyRecordingLogFactory(LogFactory delegate, LatencyRecorder latencyRecorder) {
+		this.delegate = delegate;
+		this.latencyRecorder = latencyRecorder;
+	}
+
+	@Override
+	public Log create(SessionID sessionID) {
+		Log log = delegate.create(sessionID);
+		return new Log() {
+
+			@Override
+			public void clear() {
+				log.clear();
+			}
+
+			@Override
+			public void onIncoming(String message) {
+				latencyRecorder.received(sessionID, message);
+				log.onIncoming(message);
+			}
+
+			@Override
+			public void onOutgoing(String message) {
+				latencyRecorder.sent(sessionID, message);
+				log.onOutgoing(message);
+			}
+
+			@Override
+			public void onEvent(String text) {
+				log.onEvent(text);
+			}
+
+			@Override
+			public void onErrorEvent(String text) {
+				log.onErrorEvent(text);
+			}
+		};
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.server;
+
+import quickfix.Application;
+import quickfix.DefaultMessageFactory;
+import quickfix.DoNotSend;
+import quickfix.FieldNotFound;
+import quickfix.Group;
+import quickfix.IncorrectDataFormat;
+import quickfix.IncorrectTagValue;
+import quickfix.Message;
+import quickfix.MessageFactory;
+import quickfix.RejectLogon;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.UnsupportedMessageType;
+import quickfix.field.AvgPx;
+import quickfix.field.ClOrdID;
+import quickfix.field.CumQty;
+import quickfix.field.ExecID;
+import quickfix.field.ExecTransType;
+import quickfix.field.ExecType;
+import quickfix.field.LastPx;
+import quickfix.field.LastShares;
+import quickfix.field.LeavesQty;
+import quickfix.field.MDEntryPx;
+import quickfix.field.MDEntrySize;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDReqID;
+import quickfix.field.MsgType;
+import quickfix.field.NoMDEntries;
+import quickfix.field.OrdStatus;
+import quickfix.field.OrderID;
+import quickfix.field.OrderQty;
+import quickfix.field.OrigClOrdID;
+import quickfix.field.Side;
+import quickfix.field.Symbol;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Application} decorator that answers every NewOrderSingle and OrderCancelRequest with an ExecutionReport
+ * echoing its ClOrdID, and every MarketDataRequest with a one level snapshot echoing its MDReqID, so a load generator
+ * can match its requests with their responses.
+ * <p>
+ * The responses carry the fields of all FIX versions, they are meant for counterparties that do not validate them.
+ */
+public class OrderAcknowledgingApplication implements Application {
+
+	private final Application delegate;
+
+	private final MessageFactory messageFactory = new DefaultMessageFactory();
+
+	private final AtomicLong ids = new AtomicLong();
+
+	public OrderAcknowledgingApplication(Application delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void fromAdmin(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat,
+			IncorrectTagValue, RejectLogon {
+		delegate.fromAdmin(message, sessionId);
+	}
+
+	@Override
+	public void fromApp(Message message, SessionID sessionId) throws FieldNotFound, IncorrectDataFormat,
+			IncorrectTagValue, UnsupportedMessageType {
+		delegate.fromApp(message, sessionId);
+		Session session = Session.lookupSession(sessionId);
+		if (session == null) {
+			return;
+		}
+
+		String msgType = message.getHeader().getString(MsgType.FIELD);
+		Message response;
+		switch (msgType) {
+			case MsgType.ORDER_SINGLE:
+				response = executionReport(message, session, ExecType.NEW, OrdStatus.NEW);
+				break;
+			case MsgType.ORDER_CANCEL_REQUEST:
+				response = executionReport(message, session, ExecType.CANCELED, OrdStatus.CANCELED);
+				response.setString(OrigClOrdID.FIELD, message.getString(OrigClOrdID.FIELD));
+				break;
+			case MsgType.MARKET_DATA_REQUEST:
+				response = marketDataSnapshot(message, session);
+				break;
+			default:
+				return;
+		}
+		session.send(response);
+	}
+
+	@Override
+	public void onCreate(SessionID sessionId) {
+		delegate.onCreate(sessionId);
+	}
+
+	@Override
+	public void onLogon(SessionID sessionId) {
+		delegate.onLogon(sessionId);
+	}
+
+	@Override
+	public void onLogout(SessionID sessionId) {
+		delegate.onLogout(sessionId);
+	}
+
+	@Override
+	public void toAdmin(Message message, SessionID sessionId) {
+		delegate.toAdmin(message, sessionId);
+	}
+
+	@Override
+	public void toApp(Message message, SessionID sessionId) throws DoNotSend {
+		delegate.toApp(message, sessionId);
+	}
+
+	private Message executionReport(Message request, Session session, char execType, char ordStatus)
+			throws FieldNotFound {
+		Message executionReport = create(session, MsgType.EXECUTION_REPORT);
+		String id = Long.toString(ids.incrementAndGet());
+		double orderQty = request.isSetField(OrderQty.FIELD) ? request.getDouble(OrderQty.FIELD) : 0;
+		executionReport.setString(OrderID.FIELD, id);
+		executionReport.setString(ExecID.FIELD, id);
+		executionReport.setChar(ExecTransType.FIELD, ExecTransType.NEW);
+		executionReport.setChar(ExecType.FIELD, execType);
+		executionReport.setChar(OrdStatus.FIELD, ordStatus);
+		executionReport.setString(ClOrdID.FIELD, request.getString(ClOrdID.FIELD));
+		copy(request, executionReport, Symbol.FIELD);
+		copy(request, executionReport, Side.FIELD);
+		executionReport.setDouble(OrderQty.FIELD, orderQty);
+		executionReport.setDouble(LastShares.FIELD, 0);
+		executionReport.setDouble(LastPx.FIELD, 0);
+		executionReport.setDouble(LeavesQty.FIELD, execType == ExecType.NEW ? orderQty : 0);
+		executionReport.setDouble(CumQty.FIELD, 0);
+		executionReport.setDouble(AvgPx.FIELD, 0);
+		return executionReport;
+	}
+
+	private Message marketDataSnapshot(Message request, Session session) throws FieldNotFound {
+		Message snapshot = create(session, MsgType.MARKET_DATA_SNAPSHOT_FULL_REFRESH);
+		snapshot.setString(MDReqID.FIELD, request.getString(MDReqID.FIELD));
+		snapshot.setString(Symbol.FIELD, "USD/CLP");
+		for (char entryType : new char[]{MDEntryType.BID, MDEntryType.OFFER}) {
+			Group entry = new Group(NoMDEntries.FIELD, MDEntryType.FIELD);
+			entry.setChar(MDEntryType.FIELD, entryType);
+			entry.setDouble(MDEntryPx.FIELD, entryType == MDEntryType.BID ? 755.93 : 756.37);
+			entry.setDouble(MDEntrySize.FIELD, 1_000_000);
+			snapshot.addGroup(entry);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * FIXT sessions create their application messages for the default ApplVerID of the session.
+	 */
+	private Message create(Session session, String msgType) {
+		SessionID sessionId = session.getSessionID();
+		return sessionId.isFIXT()
+				? messageFactory.create(sessionId.getBeginString(), session.getSenderDefaultApplicationVersionID(), msgType)
+				: messageFactory.create(sessionId.getBeginString(), msgType);
+	}
+
+	private static void copy(Message from, Message to, int field) throws FieldNotFound {
+		if (from.isSetField(field)) {
+			to.setString(field, from.getString(field));
+		}
+	}
+}
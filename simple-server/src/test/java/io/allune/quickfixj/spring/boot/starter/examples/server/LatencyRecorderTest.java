@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.allune.quickfixj.spring.boot.starter.examples.server;
+
+import org.junit.Test;
+import quickfix.Message;
+import quickfix.SessionID;
+import quickfix.field.Headline;
+import quickfix.field.MsgSeqNum;
+import quickfix.fix44.News;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyRecorderTest {
+
+	private static final SessionID SESSION_ID = new SessionID("FIX.4.4", "EXEC", "BANZAI");
+
+	private static final SessionID OTHER_SESSION_ID = new SessionID("FIX.4.4", "EXEC", "OTHER");
+
+	private final LatencyRecorder recorder = new LatencyRecorder();
+
+	@Test
+	public void shouldRecordTheSendOfTheMessageWrittenNext() {
+		recorder.sending(news(5), SESSION_ID);
+		recorder.sent(SESSION_ID, wire("B", 5));
+
+		assertThat(toAppToWireCount(SESSION_ID, "B")).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldNotAttributeASendWhichWasNotWrittenToTheNextWrite() {
+		// stored but not written, the session is not logged on
+		recorder.sending(news(5), SESSION_ID);
+		recorder.sent(OTHER_SESSION_ID, wire("B", 5));
+		recorder.sent(SESSION_ID, wire("0", 6));
+		recorder.sent(SESSION_ID, wire("B", 5));
+
+		assertThat(recorder.getMetrics()).isEmpty();
+	}
+
+	private long toAppToWireCount(SessionID sessionId, String msgType) {
+		Map<?, ?> msgTypes = (Map<?, ?>) recorder.getMetrics().get(sessionId.toString());
+		Map<?, ?> metrics = (Map<?, ?>) msgTypes.get(msgType);
+		Map<?, ?> summary = (Map<?, ?>) metrics.get(LatencyRecorder.Metric.TO_APP_TO_WIRE.toString());
+		return ((Number) summary.get("count")).longValue();
+	}
+
+	private static Message news(int sequence) {
+		News news = new News(new Headline("headline"));
+		news.getHeader().setInt(MsgSeqNum.FIELD, sequence);
+		return news;
+	}
+
+	private static String wire(String msgType, int sequence) {
+		return "8=FIX.4.4\u00019=20\u000135=" + msgType + "\u000134=" + sequence + "\u000110=000\u0001";
+	}
+}